@@ -0,0 +1,25 @@
+package com.zeywox.veyronixbenchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the gc profiler always on, so every result carries
+ * gc.alloc.rate.norm (bytes allocated per operation) next to the time.
+ * Accepts the usual JMH command line (include regex, -p, -f, ...).
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws Exception {
+        Options cli = new CommandLineOptions(args);
+        Options opts = new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opts).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.zeywox.veyronixbenchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeywox.veyronixcore.dto.ProductIn;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.IdRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode paths: Redis hash -> Product (ValueCoercions), natural-key hashing done per ingested row,
+ * and request JSON -> ProductIn through DoublePriceDeserializer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+
+    Map<Object, Object> hash;
+    String name;
+    String category;
+
+    ObjectMapper om;
+    byte[] numericPrice;
+    byte[] stringPrice;
+
+    @Setup
+    public void setup() throws Exception {
+        Product p = Fixtures.products(1).get(0);
+        // what HGETALL hands back: every value a string
+        hash = new HashMap<>(p.toRedis());
+        name = "  Wireless   Mouse ";
+        category = "Electronics";
+
+        om = Fixtures.objectMapper();
+        numericPrice = "{\"name\":\"Wireless Mouse\",\"category\":\"Electronics\",\"price\":825.5,\"stock\":3}".getBytes();
+        stringPrice  = "{\"name\":\"Wireless Mouse\",\"category\":\"Electronics\",\"price\":\"825.50\",\"stock\":3}".getBytes();
+    }
+
+    @Benchmark
+    public Product productFromHash() {
+        return new Product(hash);
+    }
+
+    @Benchmark
+    public String naturalKeyField() {
+        return IdRegistry.naturalKeyField(name, category);
+    }
+
+    @Benchmark
+    public String nkNormalize() {
+        return IdRegistry.nkNormalize(name);
+    }
+
+    @Benchmark
+    public ProductIn priceNumeric() throws Exception {
+        return om.readValue(numericPrice, ProductIn.class);
+    }
+
+    @Benchmark
+    public ProductIn priceString() throws Exception {
+        return om.readValue(stringPrice, ProductIn.class);
+    }
+}
@@ -0,0 +1,52 @@
+package com.zeywox.veyronixbenchmarks;
+
+import com.zeywox.veyronixcore.dto.Encoded;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.Compression;
+import com.zeywox.veyronixcore.util.JsonGzipEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** L1 build cost: JSON + gzip + ETag per list page / product, and gzip alone. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodeBenchmark {
+
+    @Param({"20", "100"})
+    int pageSize;
+
+    JsonGzipEncoder encoder;
+    List<Product> page;
+    Product product;
+    byte[] pageJson;
+
+    @Setup
+    public void setup() throws Exception {
+        var om = Fixtures.objectMapper();
+        encoder = new JsonGzipEncoder(om);
+        page = Fixtures.products(pageSize);
+        product = page.get(0);
+        pageJson = om.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Encoded encodeList() {
+        return encoder.encodeList(page);
+    }
+
+    @Benchmark
+    public Encoded encodeProduct() {
+        return encoder.encodeProduct(product);
+    }
+
+    @Benchmark
+    public byte[] gzip() {
+        return Compression.gzip(pageJson);
+    }
+}
@@ -0,0 +1,39 @@
+package com.zeywox.veyronixbenchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.zeywox.veyronixcore.config.jackson.JacksonConfig;
+import com.zeywox.veyronixcore.deserialization.PatchProductNormalizationModule;
+import com.zeywox.veyronixcore.models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/** Deterministic feed-like data shared by the benchmarks (same seed -> same bytes every run). */
+final class Fixtures {
+    private Fixtures() {}
+
+    static final String[] CATEGORIES = {"Electronics", "Home & Kitchen", "  Sports  Outdoors ", "books", "Toys"};
+
+    /** The mapper the service runs with (afterburner + PATCH normalization). */
+    static ObjectMapper objectMapper() {
+        return new JacksonConfig().objectMapper(new AfterburnerModule(), new PatchProductNormalizationModule());
+    }
+
+    static List<Product> products(int n) {
+        SplittableRandom rnd = new SplittableRandom(42);
+        List<Product> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(new Product(
+                    new UUID(rnd.nextLong(), rnd.nextLong()).toString(),
+                    "Product " + i + " " + Long.toHexString(rnd.nextLong()),
+                    CATEGORIES[i % CATEGORIES.length].trim(),
+                    rnd.nextInt(100, 100_000) / 100.0,
+                    "Description for product " + i + ": " + "lorem ipsum dolor sit amet ".repeat(1 + i % 4),
+                    rnd.nextInt(0, 50)));
+        }
+        return out;
+    }
+}
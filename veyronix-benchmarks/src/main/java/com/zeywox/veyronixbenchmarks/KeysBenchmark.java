@@ -0,0 +1,71 @@
+package com.zeywox.veyronixbenchmarks;
+
+import com.zeywox.veyronixcore.util.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/** Category normalization and Redis key building, per layout. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeysBenchmark {
+
+    @Param({"legacy", "hash-tags", "compact"})
+    String layout;
+
+    String id;
+    String rawCategory;
+    String category;
+
+    @Setup
+    public void setup() {
+        Keys.useHashTags("hash-tags".equals(layout));
+        Keys.useCompact("compact".equals(layout));
+        id = UUID.nameUUIDFromBytes("bench".getBytes()).toString();
+        rawCategory = "  Home   & Kitchen ";
+        category = Keys.normalize(rawCategory);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Keys.useHashTags(false);
+        Keys.useCompact(false);
+    }
+
+    @Benchmark
+    public String normalize() {
+        return Keys.normalize(rawCategory);
+    }
+
+    @Benchmark
+    public String productHash() {
+        return Keys.productHash(id);
+    }
+
+    @Benchmark
+    public String verProduct() {
+        return Keys.verProduct(id);
+    }
+
+    /** Keys a listing request touches: the ZSET to range and the version to validate against. */
+    @Benchmark
+    public void listingKeys(Blackhole bh) {
+        String norm = Keys.normalize(rawCategory);
+        bh.consume(Keys.idxCategoryInStockZ(norm));
+        bh.consume(Keys.verCategoryIn(norm));
+    }
+
+    @Benchmark
+    public void categoryKeys(Blackhole bh) {
+        bh.consume(Keys.idxCategoryZ(category));
+        bh.consume(Keys.idxCategoryInStockZ(category));
+        bh.consume(Keys.idxCategoryOutOfStockZ(category));
+        bh.consume(Keys.verCategory(category));
+    }
+}
@@ -0,0 +1,89 @@
+package com.zeywox.veyronixbenchmarks;
+
+import com.zeywox.veyronixcore.util.Etags;
+import com.zeywox.veyronixcore.util.HttpCaching;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/** The 304 path: ETag minting and If-None-Match / If-Modified-Since checks. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidatorBenchmark {
+
+    byte[] body;
+    String etag;
+    String clientList;
+    long lastModified;
+
+    MockHttpServletRequest inmHit;
+    MockHttpServletRequest inmMiss;
+    MockHttpServletRequest imsHit;
+    MockHttpServletRequest imsEcho;
+    String lastModifiedHttp;
+
+    @Setup
+    public void setup() throws Exception {
+        body = Fixtures.objectMapper().writeValueAsBytes(Fixtures.products(20));
+        etag = Etags.weakCrc32c(body);
+        clientList = "W/\"0badcafe\", W/\"deadbeef\", " + etag;
+        lastModified = System.currentTimeMillis() - 60_000;
+
+        inmHit = new MockHttpServletRequest("GET", "/products");
+        inmHit.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        inmMiss = new MockHttpServletRequest("GET", "/products");
+        inmMiss.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"0badcafe\"");
+        imsHit = new MockHttpServletRequest("GET", "/products");
+        imsHit.addHeader(HttpHeaders.IF_MODIFIED_SINCE,
+                DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC).format(Instant.now()));
+        lastModifiedHttp = HttpCaching.httpDate(lastModified);
+        imsEcho = new MockHttpServletRequest("GET", "/products");
+        imsEcho.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModifiedHttp);
+    }
+
+    @Benchmark
+    public String weakCrc32c() {
+        return Etags.weakCrc32c(body);
+    }
+
+    @Benchmark
+    public boolean weakEqualsSingle() {
+        return Etags.weakEquals(etag, etag);
+    }
+
+    @Benchmark
+    public boolean weakEqualsList() {
+        return Etags.weakEquals(clientList, etag);
+    }
+
+    @Benchmark
+    public boolean isNotModifiedEtagHit() {
+        return HttpCaching.isNotModified(inmHit, etag, lastModified);
+    }
+
+    @Benchmark
+    public boolean isNotModifiedEtagMiss() {
+        return HttpCaching.isNotModified(inmMiss, etag, lastModified);
+    }
+
+    /** If-Modified-Since that is not our Last-Modified: parsed. */
+    @Benchmark
+    public boolean isNotModifiedSince() {
+        return HttpCaching.isNotModified(imsHit, etag, lastModified, lastModifiedHttp);
+    }
+
+    /** If-Modified-Since echoing our Last-Modified: a string comparison. */
+    @Benchmark
+    public boolean isNotModifiedSinceEcho() {
+        return HttpCaching.isNotModified(imsEcho, etag, lastModified, lastModifiedHttp);
+    }
+}
@@ -1,12 +1,38 @@
 package com.zeywox.veyronixcore;
 
+import com.zeywox.veyronixcore.config.cache.CatalogEngineProperties;
+import com.zeywox.veyronixcore.config.cache.HotKeyProperties;
+import com.zeywox.veyronixcore.config.cache.NegativeLookupProperties;
+import com.zeywox.veyronixcore.config.cache.PeerProperties;
+import com.zeywox.veyronixcore.config.cache.RedisAsyncProperties;
+import com.zeywox.veyronixcore.config.cache.RedisConnectionGroupsProperties;
+import com.zeywox.veyronixcore.config.cache.RedisGuardProperties;
+import com.zeywox.veyronixcore.config.cache.RedisLayoutProperties;
+import com.zeywox.veyronixcore.config.cache.RedisLimiterProperties;
+import com.zeywox.veyronixcore.config.cache.RedisReadRoutingProperties;
 import com.zeywox.veyronixcore.config.cache.ResponseCacheProperties;
+import com.zeywox.veyronixcore.config.cache.ServerTimingProperties;
+import com.zeywox.veyronixcore.config.cache.TrafficCaptureProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
-@EnableConfigurationProperties(ResponseCacheProperties.class)
+@EnableConfigurationProperties({
+        ResponseCacheProperties.class,
+        RedisGuardProperties.class,
+        RedisLimiterProperties.class,
+        RedisLayoutProperties.class,
+        RedisReadRoutingProperties.class,
+        RedisAsyncProperties.class,
+        RedisConnectionGroupsProperties.class,
+        ServerTimingProperties.class,
+        TrafficCaptureProperties.class,
+        NegativeLookupProperties.class,
+        HotKeyProperties.class,
+        PeerProperties.class,
+        CatalogEngineProperties.class
+})
 public class VeyronixCoreApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,129 @@
+package com.zeywox.veyronixcore.config.bootstrap;
+
+import com.zeywox.veyronixcore.config.cache.RedisLayoutProperties;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.repos.ProductRepository;
+import com.zeywox.veyronixcore.util.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-shot legacy -> compact layout copy (redis-layout.compact + redis-layout.migrate-legacy).
+ * Runs before the feed load so ingest already resolves ids through the migrated NK registry.
+ * - products: SCAN product:*, re-written through the compact repository (indexes + versions rebuilt);
+ *   ids already present in compact form are skipped, so it is safe to re-run
+ * - versions: every compact counter (copied or skipped product, every category) is raised above its legacy
+ *   counter, so it only ever moves forward, no ETag minted before the migration can match again, and a
+ *   re-run catches up with legacy writes made since the last run
+ * - NK registry: copied with ids in member form
+ * With redis-layout.drop-legacy the legacy keys are UNLINKed afterwards.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "redis-layout", name = {"compact", "migrate-legacy"}, havingValue = "true")
+public class CompactLayoutMigrator {
+    private static final Logger log = LoggerFactory.getLogger(CompactLayoutMigrator.class);
+
+    private static final int SCAN_COUNT = 500;
+
+    /** KEYS[1] compact counter, ARGV[1] floor: SET it to the floor when below (never lowers a live counter). */
+    private static final DefaultRedisScript<Long> RAISE_TO = new DefaultRedisScript<>(
+            "local v = tonumber(redis.call('GET', KEYS[1]) or '0') or 0\n"
+            + "local floor = tonumber(ARGV[1])\n"
+            + "if v < floor then redis.call('SET', KEYS[1], ARGV[1]) return floor end\n"
+            + "return v", Long.class);
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    ApplicationRunner migrateLegacyLayout(@Qualifier("storeStringRedisTemplate") StringRedisTemplate redis,
+                                          ProductRepository repo,
+                                          RedisLayoutProperties layout) {
+        return args -> {
+            long t0 = System.nanoTime();
+            int copied = 0, skipped = 0;
+
+            for (String key : scan(redis, "product:*")) {
+                Map<Object, Object> m = redis.opsForHash().entries(key);
+                if (m.isEmpty()) continue;
+                Product p = new Product(m);
+                if (p.id() == null) {
+                    skipped++;
+                    continue;
+                }
+                if (Boolean.TRUE.equals(redis.hasKey(Keys.productHash(p.id())))) {
+                    skipped++; // copied by an earlier run: only its version may have to catch up
+                } else {
+                    repo.upsert(p);
+                    copied++;
+                }
+                carryVersion(redis, "ver:product:" + p.id(), Keys.verProduct(p.id()));
+            }
+
+            for (String key : scan(redis, "ver:category:*")) {
+                carryVersion(redis, key, compactCategoryVersion(key));
+            }
+
+            Map<Object, Object> nk = redis.opsForHash().entries("idx:nk:product");
+            nk.forEach((field, id) -> redis.opsForHash().putIfAbsent(Keys.idxNaturalKey(), field, Keys.member((String) id)));
+
+            log.info("legacy -> compact layout: {} products copied, {} skipped, {} NK entries in {} ms",
+                    copied, skipped, nk.size(), (System.nanoTime() - t0) / 1_000_000);
+
+            if (layout.dropLegacy()) {
+                long dropped = 0;
+                for (String pattern : List.of("product:*", "ver:product:*", "ver:category:*",
+                                              "idx:category:*", "zidx:category:*")) {
+                    List<String> keys = scan(redis, pattern);
+                    for (int i = 0; i < keys.size(); i += SCAN_COUNT) {
+                        Long n = redis.unlink(keys.subList(i, Math.min(keys.size(), i + SCAN_COUNT)));
+                        dropped += n == null ? 0 : n;
+                    }
+                }
+                Long n = redis.unlink(List.of("idx:all", "idx:nk:product"));
+                dropped += n == null ? 0 : n;
+                log.info("legacy layout dropped: {} keys unlinked", dropped);
+            }
+        };
+    }
+
+    private static List<String> scan(StringRedisTemplate redis, String pattern) {
+        List<String> keys = new ArrayList<>();
+        try (Cursor<String> c = redis.scan(ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build())) {
+            c.forEachRemaining(keys::add);
+        }
+        return keys;
+    }
+
+    private static void carryVersion(StringRedisTemplate redis, String legacyKey, String compactKey) {
+        String v = redis.opsForValue().get(legacyKey);
+        if (v == null) return;
+        try {
+            long floor = Long.parseLong(v) + 1; // strictly above: a legacy ETag never validates a compact read
+            redis.execute(RAISE_TO, List.of(compactKey), String.valueOf(floor));
+        } catch (NumberFormatException ignored) {
+            // not a counter; nothing to carry
+        }
+    }
+
+    /** ver:category:in:x -> v:i:x (same mapping as Keys, from an already-normalized legacy key). */
+    private static String compactCategoryVersion(String legacyKey) {
+        String rest = legacyKey.substring("ver:category:".length());
+        if (rest.startsWith("in:"))  return Keys.verCategoryIn(rest.substring(3));
+        if (rest.startsWith("out:")) return Keys.verCategoryOut(rest.substring(4));
+        return Keys.verCategory(rest);
+    }
+}
@@ -3,6 +3,7 @@ package com.zeywox.veyronixcore.config.bootstrap;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zeywox.veyronixcore.dto.ProductIn;
+import com.zeywox.veyronixcore.observability.jfr.IngestPhaseEvent;
 import com.zeywox.veyronixcore.services.FeedIngestionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +41,8 @@ public class FeedLoader {
                 }
 
                 log.info("Fetching feed from {}", feedUrl);
+                IngestPhaseEvent fetch = new IngestPhaseEvent("fetch");
+                fetch.begin();
                 String json = client.get()
                         .uri(feedUrl)
                         .accept(MediaType.APPLICATION_JSON)
@@ -50,13 +53,18 @@ public class FeedLoader {
                             return Mono.empty();
                         })
                         .block();
+                fetch.commit();
 
                 if (json == null || json.isBlank()) {
                     log.warn("Feed empty or not reachable; skipping ingest.");
                     return;
                 }
 
+                IngestPhaseEvent parse = new IngestPhaseEvent("parse");
+                parse.begin();
                 List<ProductIn> items = om.readValue(json, new TypeReference<List<ProductIn>>() {});
+                parse.items = items.size();
+                parse.commit();
                 if (items.isEmpty()) {
                     log.warn("Feed parsed but contained 0 items; skipping ingest.");
                     return;
@@ -0,0 +1,17 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * In-process catalog engine (catalog-engine): ProductRepository reads answered from a columnar copy in RAM.
+ *
+ * @param enabled                load the catalog at startup and answer reads from it once loaded
+ * @param configureNotifications add "K$" to notify-keyspace-events (CONFIG SET) so version bumps reach the feed;
+ *                               off by default since the setting is server-wide: the operator sets it instead
+ * @param reconcileSeconds       full reload from idx:all; bounds drift from missed events and deletions (0: never)
+ * @param batchSize              ids per pipelined HGETALL during load, reconcile and change-feed catch-up
+ */
+@ConfigurationProperties(prefix = "catalog-engine")
+public record CatalogEngineProperties(boolean enabled, boolean configureNotifications,
+                                      long reconcileSeconds, int batchSize) {}
@@ -0,0 +1,18 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Hot-key tracking and pinning (hot-keys).
+ *
+ * @param enabled             track requested product ids and list keys
+ * @param topK                keys tracked by name, per kind (products, lists)
+ * @param sketchWidth         count-min cells per row; wider = fewer overestimates
+ * @param minHits             a top-K key is "hot" (pinned) only from this decayed count on
+ * @param decaySeconds        counts are halved this often
+ * @param pinnedRefreshMillis hot list pages are refreshed this often, ahead of the soft TTL cold pages wait for
+ */
+@ConfigurationProperties(prefix = "hot-keys")
+public record HotKeyProperties(boolean enabled, int topK, int sketchWidth, long minHits,
+                               long decaySeconds, long pinnedRefreshMillis) {}
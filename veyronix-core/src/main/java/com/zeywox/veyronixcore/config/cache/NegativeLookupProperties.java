@@ -0,0 +1,18 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Local answers for ids and list pages that cannot exist.
+ *
+ * @param enabled              consult the id filter, the negative cache and category sizes
+ * @param expectedIds          Bloom filter sizing; past it the false-positive rate climbs (misses go to Redis, still correct)
+ * @param falsePositiveRate    target rate at expectedIds
+ * @param negativeTtlMillis    how long a 404 from Redis is answered locally
+ * @param rebuildSeconds       full rebuild from idx:all; bounds how long ids written by another instance go unseen
+ * @param cardinalityTtlMillis how long a category size is trusted for the past-the-end page check
+ */
+@ConfigurationProperties(prefix = "negative-lookups")
+public record NegativeLookupProperties(boolean enabled, long expectedIds, double falsePositiveRate,
+                                       long negativeTtlMillis, long rebuildSeconds, long cardinalityTtlMillis) {}
@@ -0,0 +1,21 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Peer mode (peers): each category's list pages are owned by one instance on a consistent-hash ring.
+ *
+ * @param enabled       route list reads for categories owned elsewhere to their owner
+ * @param self          this instance's base URL exactly as it appears in members
+ * @param members       base URLs of every instance (self included); every instance needs the same list
+ * @param virtualNodes  ring points per member; more = more even spread
+ * @param timeoutMillis connect/request timeout towards an owner; past it the page is built locally
+ * @param copyMillis    how long a page fetched from its owner is served from the local copy as is
+ * @param copyMaxBytes  size bound of the local copies (gzipped bytes)
+ */
+@ConfigurationProperties(prefix = "peers")
+public record PeerProperties(boolean enabled, String self, List<String> members, int virtualNodes,
+                             long timeoutMillis, long copyMillis, long copyMaxBytes) {}
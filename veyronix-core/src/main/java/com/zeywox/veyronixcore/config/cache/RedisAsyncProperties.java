@@ -0,0 +1,13 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Non-blocking read path on shared, multiplexed Lettuce connections.
+ *
+ * @param enabled     serve cache misses (product + list computes) through the async store instead of the pooled template
+ * @param connections shared connections; each carries many in-flight commands, auto-pipelined by Lettuce
+ */
+@ConfigurationProperties(prefix = "redis-async")
+public record RedisAsyncProperties(boolean enabled, int connections) {}
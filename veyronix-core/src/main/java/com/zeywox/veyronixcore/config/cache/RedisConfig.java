@@ -1,8 +1,15 @@
 package com.zeywox.veyronixcore.config.cache;
 
 
+import io.lettuce.core.ReadFrom;
 import io.lettuce.core.api.StatefulConnection;
+import com.zeywox.veyronixcore.util.Keys;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,16 +21,107 @@ import org.springframework.data.redis.connection.lettuce.LettucePoolingClientCon
 import org.springframework.data.redis.core.StringRedisTemplate;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 public class RedisConfig {
+    private static final Logger log = LoggerFactory.getLogger(RedisConfig.class);
 
     @Bean
     @Primary
-    public RedisConnectionFactory redisConnectionFactory(RedisProperties props) {
-        Duration timeout = (props.getTimeout() != null) ? props.getTimeout() : Duration.ofSeconds(2);
-        LettuceClientConfiguration clientCfg = buildLettuceClientConfiguration(props, timeout);
+    public RedisConnectionFactory redisConnectionFactory(RedisProperties props, RedisLayoutProperties layout) {
+        // every Redis user depends on this factory, so keys are laid out before the first one is built
+        if (layout.compact() && layout.hashTags()) {
+            throw new IllegalStateException("redis-layout.compact does not support hash-tags (Redis Cluster)");
+        }
+        Keys.useHashTags(layout.hashTags());
+        Keys.useCompact(layout.compact());
+
+        if (props.getCluster() != null && hasNodes(props.getCluster().getNodes()) && !layout.hashTags()) {
+            log.warn("Redis Cluster configured without redis-layout.hash-tags: multi-key scripts will fail with CROSSSLOT");
+        }
+        return connectionFactory(props, null, List.of());
+    }
+
+    /**
+     * Read-only factory for redis-read-routing: same servers, Lettuce ReadFrom set. A standalone primary
+     * becomes a static primary/replica topology with the configured replicas.
+     */
+    @Bean("replicaRedisConnectionFactory")
+    @ConditionalOnProperty(name = "redis-read-routing.enabled", havingValue = "true")
+    public RedisConnectionFactory replicaRedisConnectionFactory(RedisProperties props, RedisReadRoutingProperties routing) {
+        String readFrom = routing.readFrom() == null || routing.readFrom().isBlank() ? "replicaPreferred" : routing.readFrom();
+        List<String> replicas = routing.replicas() == null ? List.of() : routing.replicas();
+        log.info("redis read routing enabled: readFrom={}, replicas={}", readFrom, replicas);
+        return connectionFactory(props, ReadFrom.valueOf(readFrom), replicas);
+    }
+
+    /**
+     * Connection groups (redis-groups): one pool per workload on the primary, each with its own size and
+     * timeouts; pool stats are published over JMX as redis-&lt;group&gt;. Disabled: all groups share the main template.
+     */
+    @Bean(destroyMethod = "close")
+    public RedisConnectionGroups redisConnectionGroups(RedisProperties props, RedisConnectionGroupsProperties groups,
+                                                       @Qualifier("storeStringRedisTemplate") StringRedisTemplate shared) {
+        if (!groups.enabled()) return RedisConnectionGroups.shared(shared);
+
+        Map<RedisConnectionGroups.Group, StringRedisTemplate> templates = new EnumMap<>(RedisConnectionGroups.Group.class);
+        List<LettuceConnectionFactory> owned = new ArrayList<>();
+        for (RedisConnectionGroups.Group g : RedisConnectionGroups.Group.values()) {
+            RedisConnectionGroupsProperties.Group cfg = switch (g) {
+                case INTERACTIVE_READ   -> groups.interactiveRead();
+                case BACKGROUND_REFRESH -> groups.backgroundRefresh();
+                case WRITE              -> groups.write();
+                case BULK_INGEST        -> groups.bulkIngest();
+            };
+            RedisProperties.Pool pool = groupPool(props, cfg);
+            Duration timeout = cfg != null ? cfg.timeout() : null;
+            LettuceConnectionFactory f = connectionFactory(props, null, List.of(), pool, timeout, "redis-" + g.id);
+            f.afterPropertiesSet();
+            f.start();
+            owned.add(f);
+            templates.put(g, new StringRedisTemplate(f));
+            log.info("redis connection group {}: max-active={}, max-wait={}, timeout={}",
+                    g.id, pool.getMaxActive(), pool.getMaxWait(), timeout != null ? timeout : props.getTimeout());
+        }
+        return new RedisConnectionGroups(templates, owned);
+    }
+
+    /** spring.data.redis.lettuce.pool with the group's overrides applied. */
+    private static RedisProperties.Pool groupPool(RedisProperties props, RedisConnectionGroupsProperties.Group cfg) {
+        RedisProperties.Pool base = props.getLettuce() != null ? props.getLettuce().getPool() : null;
+        RedisProperties.Pool p = new RedisProperties.Pool();
+        if (base != null) {
+            p.setMaxActive(base.getMaxActive());
+            p.setMaxIdle(base.getMaxIdle());
+            p.setMinIdle(base.getMinIdle());
+            p.setMaxWait(base.getMaxWait());
+        }
+        if (cfg != null) {
+            if (cfg.maxActive() > 0) {
+                p.setMaxActive(cfg.maxActive());
+                p.setMaxIdle(cfg.maxActive());
+            }
+            if (cfg.minIdle() > 0) p.setMinIdle(Math.min(cfg.minIdle(), p.getMaxActive()));
+            if (cfg.maxWait() != null) p.setMaxWait(cfg.maxWait());
+        }
+        return p;
+    }
+
+    private static LettuceConnectionFactory connectionFactory(RedisProperties props, ReadFrom readFrom, List<String> replicas) {
+        RedisProperties.Pool pool = props.getLettuce() != null ? props.getLettuce().getPool() : null;
+        return connectionFactory(props, readFrom, replicas, pool, null, null);
+    }
+
+    private static LettuceConnectionFactory connectionFactory(RedisProperties props, ReadFrom readFrom, List<String> replicas,
+                                                              RedisProperties.Pool pool, Duration timeoutOverride,
+                                                              String jmxName) {
+        Duration timeout = timeoutOverride != null ? timeoutOverride
+                : (props.getTimeout() != null) ? props.getTimeout() : Duration.ofSeconds(2);
+        LettuceClientConfiguration clientCfg = buildLettuceClientConfiguration(pool, timeout, readFrom, jmxName);
 
         if (props.getCluster() != null && hasNodes(props.getCluster().getNodes())) {
             RedisClusterConfiguration cfg = new RedisClusterConfiguration(props.getCluster().getNodes());
@@ -44,6 +142,18 @@ public class RedisConfig {
             return new LettuceConnectionFactory(cfg, clientCfg);
         }
 
+        if (readFrom != null && !replicas.isEmpty()) {
+            RedisStaticMasterReplicaConfiguration cfg =
+                    new RedisStaticMasterReplicaConfiguration(props.getHost(), props.getPort());
+            for (String node : replicas) {
+                String[] hp = node.split(":", 2);
+                cfg.node(hp[0], Integer.parseInt(hp[1]));
+            }
+            cfg.setDatabase(props.getDatabase());
+            if (props.getPassword() != null) cfg.setPassword(RedisPassword.of(props.getPassword()));
+            return new LettuceConnectionFactory(cfg, clientCfg);
+        }
+
         RedisStandaloneConfiguration cfg =
                 new RedisStandaloneConfiguration(props.getHost(), props.getPort());
         cfg.setDatabase(props.getDatabase());              // Boot 3.x getter is primitive int
@@ -51,10 +161,8 @@ public class RedisConfig {
         return new LettuceConnectionFactory(cfg, clientCfg);
     }
 
-    private static LettuceClientConfiguration buildLettuceClientConfiguration(RedisProperties props, Duration timeout) {
-        RedisProperties.Lettuce lettuce = props.getLettuce();
-        RedisProperties.Pool pool = (lettuce != null ? lettuce.getPool() : null);
-
+    private static LettuceClientConfiguration buildLettuceClientConfiguration(RedisProperties.Pool pool, Duration timeout,
+                                                                              ReadFrom readFrom, String jmxName) {
         if (pool != null) {
             GenericObjectPoolConfig<StatefulConnection<?, ?>> poolCfg =
                     new GenericObjectPoolConfig<>();
@@ -65,16 +173,21 @@ public class RedisConfig {
             if (pool.getMaxWait() != null) {
                 poolCfg.setMaxWait(pool.getMaxWait());
             }
-
-            return LettucePoolingClientConfiguration.builder()
-                    .commandTimeout(timeout)
-                    .poolConfig(poolCfg)
-                    .build();
+            if (jmxName != null) poolCfg.setJmxNamePrefix(jmxName); // NumActive / NumWaiters / MeanBorrowWaitTimeMillis
+
+            LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder b =
+                    LettucePoolingClientConfiguration.builder()
+                            .commandTimeout(timeout)
+                            .poolConfig(poolCfg);
+            if (readFrom != null) b.readFrom(readFrom);
+            return b.build();
         }
 
-        return LettuceClientConfiguration.builder()
-                .commandTimeout(timeout)
-                .build();
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder b =
+                LettuceClientConfiguration.builder()
+                        .commandTimeout(timeout);
+        if (readFrom != null) b.readFrom(readFrom);
+        return b.build();
     }
 
     private static boolean hasNodes(List<String> nodes) {
@@ -82,10 +195,18 @@ public class RedisConfig {
     }
 
     @Bean("storeStringRedisTemplate")
+    @Primary
     public StringRedisTemplate storeStringRedisTemplate(RedisConnectionFactory cf) {
         return new StringRedisTemplate(cf);
     }
 
+    @Bean("replicaStringRedisTemplate")
+    @ConditionalOnProperty(name = "redis-read-routing.enabled", havingValue = "true")
+    public StringRedisTemplate replicaStringRedisTemplate(
+            @Qualifier("replicaRedisConnectionFactory") RedisConnectionFactory cf) {
+        return new StringRedisTemplate(cf);
+    }
+
 }
 
 
@@ -0,0 +1,32 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Workload-isolated Lettuce pools: one per group, so an ingest burst or a refresh storm cannot
+ * drain the connections interactive GETs need. Unset group fields inherit spring.data.redis.
+ *
+ * @param enabled           off: every group shares the single spring.data.redis pool
+ * @param interactiveRead   user-facing reads (misses, get-one, version checks)
+ * @param backgroundRefresh L1 revalidation on the refresh workers
+ * @param write             PATCH / stock / reservation endpoints
+ * @param bulkIngest        startup feed and bulk stock pushes
+ */
+@ConfigurationProperties(prefix = "redis-groups")
+public record RedisConnectionGroupsProperties(boolean enabled,
+                                              Group interactiveRead,
+                                              Group backgroundRefresh,
+                                              Group write,
+                                              Group bulkIngest) {
+
+    /**
+     * @param maxActive pool size (0 = inherit)
+     * @param minIdle   warm connections kept open
+     * @param maxWait   longest a caller waits for a connection before failing
+     * @param timeout   per-command timeout
+     */
+    public record Group(int maxActive, int minIdle, Duration maxWait, Duration timeout) {}
+}
@@ -0,0 +1,16 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Latency budgets and breaker settings for Redis-backed reads.
+ *
+ * @param readBudgetMillis        how long a request waits on a Redis-backed compute before serving stale
+ * @param staleIfErrorSeconds     how long a last known-good entry may be served when Redis is slow/failing
+ * @param breakerFailureThreshold consecutive Redis failures before the breaker opens
+ * @param breakerOpenMillis       how long the breaker stays open before letting a single probe through
+ */
+@ConfigurationProperties(prefix = "redis-guard")
+public record RedisGuardProperties(int readBudgetMillis, int staleIfErrorSeconds,
+                                   int breakerFailureThreshold, int breakerOpenMillis) {}
@@ -0,0 +1,21 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Key layout in Redis.
+ *
+ * @param hashTags wrap product ids / normalized categories in {hash tags} and use the per-slot
+ *                 (cluster) write protocol; required on Redis Cluster, off for standalone/sentinel
+ * @param compact  compact encoding: short keys/fields, packed ids, price in cents, ZSET-only indexes
+ *                 (standalone/sentinel only; not combinable with hashTags)
+ * @param migrateLegacy on startup, copy products/NK registry from the legacy layout into the compact one
+ *                      (products already present in compact form are left alone)
+ * @param dropLegacy    after migrating, UNLINK the legacy keys
+ * @param pendingMoveReconcileSeconds with hashTags: how often to finish cluster writes whose category phase
+ *                                    did not complete (pm:{id} markers); 0 = never
+ */
+@ConfigurationProperties(prefix = "redis-layout")
+public record RedisLayoutProperties(boolean hashTags, boolean compact, boolean migrateLegacy, boolean dropLegacy,
+                                    int pendingMoveReconcileSeconds) {}
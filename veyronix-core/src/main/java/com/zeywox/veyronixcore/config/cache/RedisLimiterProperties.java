@@ -0,0 +1,17 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Adaptive (AIMD) concurrency limit for Redis calls.
+ *
+ * @param initialLimit        starting in-flight limit
+ * @param minLimit            floor the limit never backs off below
+ * @param maxLimit            ceiling (keep at or under the Lettuce pool size)
+ * @param latencyTargetMillis completions slower than this count as congestion
+ * @param retryAfterSeconds   Retry-After sent with shed (503) responses
+ */
+@ConfigurationProperties(prefix = "redis-limiter")
+public record RedisLimiterProperties(int initialLimit, int minLimit, int maxLimit,
+                                     int latencyTargetMillis, int retryAfterSeconds) {}
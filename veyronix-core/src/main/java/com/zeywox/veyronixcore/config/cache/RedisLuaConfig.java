@@ -28,6 +28,33 @@ public class RedisLuaConfig {
         return s;
     }
 
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public DefaultRedisScript<List> productSetStockBulkScript() {
+        DefaultRedisScript<List> s = new DefaultRedisScript<>();
+        s.setResultType(List.class);
+        s.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/product_set_stock_bulk.lua")));
+        return s;
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public DefaultRedisScript<List> productReserveStockScript() {
+        DefaultRedisScript<List> s = new DefaultRedisScript<>();
+        s.setResultType(List.class);
+        s.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/product_reserve_stock.lua")));
+        return s;
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public DefaultRedisScript<List> productPatchScript() {
+        DefaultRedisScript<List> s = new DefaultRedisScript<>();
+        s.setResultType(List.class);
+        s.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/product_patch.lua")));
+        return s;
+    }
+
     @Bean
     @SuppressWarnings("rawtypes")
     public DefaultRedisScript<List> zidxSeedAndRangeScript() {
@@ -36,4 +63,34 @@ public class RedisLuaConfig {
         s.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/zidx_seed_and_range.lua")));
         return s;
     }
+
+    // ---- cluster (hash-tagged) write protocol: one script per slot ----
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public DefaultRedisScript<List> clusterProductWriteScript() {
+        DefaultRedisScript<List> s = new DefaultRedisScript<>();
+        s.setResultType(List.class);
+        s.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/cluster/product_write.lua")));
+        return s;
+    }
+
+    @Bean
+    public DefaultRedisScript<Long> clusterCategoryApplyScript() {
+        DefaultRedisScript<Long> s = new DefaultRedisScript<>();
+        s.setResultType(Long.class);
+        s.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/cluster/category_apply.lua")));
+        return s;
+    }
+
+    // ---- compact layout: every product write in one script ----
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public DefaultRedisScript<List> compactProductWriteScript() {
+        DefaultRedisScript<List> s = new DefaultRedisScript<>();
+        s.setResultType(List.class);
+        s.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/compact/product_write.lua")));
+        return s;
+    }
 }
@@ -0,0 +1,19 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Optional routing of read-only commands to replicas.
+ *
+ * @param enabled              send product/index/version reads through a separate replica-reading connection factory
+ * @param readFrom             Lettuce ReadFrom name (replicaPreferred, nearest, replica, any, ...)
+ * @param replicas             host:port of replicas for a standalone primary (static primary/replica topology);
+ *                             ignored with sentinel/cluster, where replicas are discovered
+ * @param readYourWritesMillis after a local write, reads of what it touched stay on the primary this long
+ */
+@ConfigurationProperties(prefix = "redis-read-routing")
+public record RedisReadRoutingProperties(boolean enabled, String readFrom, List<String> replicas,
+                                         int readYourWritesMillis) {}
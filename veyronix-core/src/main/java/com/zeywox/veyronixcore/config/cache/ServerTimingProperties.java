@@ -0,0 +1,13 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Server-Timing phase breakdown on product responses (opt-in).
+ *
+ * @param enabled       add the header to every product response
+ * @param requestHeader when set, a request carrying this header gets it too (blank: config only)
+ */
+@ConfigurationProperties(prefix = "server-timing")
+public record ServerTimingProperties(boolean enabled, String requestHeader) {}
@@ -0,0 +1,16 @@
+package com.zeywox.veyronixcore.config.cache;
+
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sampled binary access log for offline replay (opt-in).
+ *
+ * @param enabled    register the capture filter
+ * @param sampleRate fraction of requests recorded (0..1)
+ * @param file       output file; appended to by one writer thread
+ * @param queueSize  records buffered between request threads and the writer; full -> the record is dropped
+ * @param maxBytes   capture stops once the file reaches this size
+ */
+@ConfigurationProperties(prefix = "traffic-capture")
+public record TrafficCaptureProperties(boolean enabled, double sampleRate, String file, int queueSize, long maxBytes) {}
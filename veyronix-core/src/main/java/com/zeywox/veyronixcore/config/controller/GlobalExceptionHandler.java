@@ -1,7 +1,9 @@
 package com.zeywox.veyronixcore.config.controller;
 
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -23,9 +25,53 @@ public class GlobalExceptionHandler {
         return Map.of("error", e.getMessage());
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(Conflict.class)
+    public Map<String, String> conflict(Conflict e) {
+        return Map.of("error", e.getMessage());
+    }
+
+    @ExceptionHandler(Unavailable.class)
+    public ResponseEntity<Map<String, String>> unavailable(Unavailable e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.retryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
     public static class NotFound extends RuntimeException {
         public NotFound(String message) {
             super(message);
         }
+
+        /** Without a stack trace: for misses answered locally, where filling it in costs more than the answer. */
+        public NotFound(String message, boolean withStackTrace) {
+            super(message, null, false, withStackTrace);
+        }
+    }
+
+    /** 409: the request is valid but loses against current state (e.g. not enough stock to reserve). */
+    public static class Conflict extends RuntimeException {
+        public Conflict(String message) {
+            super(message);
+        }
+    }
+
+    /** 503 + Retry-After: Redis is slow/failing and there is nothing (fresh or stale) to serve. */
+    public static class Unavailable extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public Unavailable(String message, long retryAfterSeconds) {
+            super(message, null, false, false); // hot under overload: skip the stack trace
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long retryAfterSeconds() { return retryAfterSeconds; }
+    }
+
+    /** 503 + Retry-After: shed by the Redis concurrency limiter (we are busy, Redis is not broken). */
+    public static class Overloaded extends Unavailable {
+        public Overloaded(String message, long retryAfterSeconds) {
+            super(message, retryAfterSeconds);
+        }
     }
 }
@@ -1,6 +1,8 @@
 package com.zeywox.veyronixcore.controllers;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import com.zeywox.veyronixcore.config.controller.GlobalExceptionHandler;
@@ -9,9 +11,14 @@ import com.zeywox.veyronixcore.dto.Requests;
 import com.zeywox.veyronixcore.models.Product;
 import com.zeywox.veyronixcore.services.ProductService;
 import com.zeywox.veyronixcore.services.ResponseCacheService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -19,11 +26,14 @@ import java.util.Optional;
 @RequestMapping("/products")
 public class ProductController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final ProductService svc;
     private final ResponseCacheService cache;
+    private final ObjectMapper om;
 
-    public ProductController(ProductService svc, ResponseCacheService cache) {
-        this.svc = svc; this.cache = cache;
+    public ProductController(ProductService svc, ResponseCacheService cache, ObjectMapper om) {
+        this.svc = svc; this.cache = cache; this.om = om;
     }
 
     @GetMapping("/{id}")
@@ -75,5 +85,78 @@ public class ProductController {
         return Map.of("id", id, "stock", svc.setStock(id, req.stock()));
     }
 
+    /** Atomic decrement with a floor of 0; 409 when there is not enough stock. */
+    @PostMapping("/{id}/stock/reserve")
+    public Map<String, Object> reserve(@PathVariable("id") String id,
+                                       @Valid @RequestBody Requests.StockQuantityRequest req) {
+        return Map.of("id", id, "stock", svc.reserve(id, req.quantity()));
+    }
+
+    @PostMapping("/{id}/stock/release")
+    public Map<String, Object> release(@PathVariable("id") String id,
+                                       @Valid @RequestBody Requests.StockQuantityRequest req) {
+        return Map.of("id", id, "stock", svc.release(id, req.quantity()));
+    }
+
+    /** Cart checkout: reserves every line in one atomic script call, or none of them. */
+    @PostMapping("/stock/reserve")
+    public Map<String, Object> reserveAll(@Valid @RequestBody Requests.StockReservationBatch req) {
+        return Map.of("items", stockLines(req.items(), svc.reserve(req.items())));
+    }
+
+    @PostMapping("/stock/release")
+    public Map<String, Object> releaseAll(@Valid @RequestBody Requests.StockReservationBatch req) {
+        return Map.of("items", stockLines(req.items(), svc.release(req.items())));
+    }
+
+    private static List<Map<String, Object>> stockLines(List<Requests.StockReservation> items, List<Integer> stocks) {
+        List<Map<String, Object>> out = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            out.add(Map.of("id", items.get(i).id(), "stock", stocks.get(i)));
+        }
+        return out;
+    }
+
+    /** Bulk stock push: JSON array of {id, stock}. All-or-nothing validation, applied in batches. */
+    @PutMapping(path = "/stock", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Requests.BulkStockResult setStockBulk(@RequestBody List<Requests.StockUpdate> updates) {
+        return svc.setStockBulk(updates);
+    }
+
+    /**
+     * Bulk stock push as an NDJSON stream: read and applied batch by batch, never fully buffered.
+     * A bad line stops the stream: the lines before it are applied, the rest is not, and the answer is a 400
+     * whose body is the result so far plus the error (see {@link Requests.BulkStockResult}).
+     */
+    @PutMapping(path = "/stock", consumes = NDJSON)
+    public ResponseEntity<Requests.BulkStockResult> setStockBulkNdjson(HttpServletRequest req) throws IOException {
+        var result = new Requests.BulkStockResult(0, List.of());
+        List<Requests.StockUpdate> batch = new ArrayList<>(ProductService.STOCK_BATCH_SIZE);
+        try (BufferedReader in = req.getReader()) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                Requests.StockUpdate u;
+                try {
+                    u = om.readValue(line, Requests.StockUpdate.class);
+                    ProductService.checkStockUpdate(u);
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    if (!batch.isEmpty()) result = result.merge(svc.setStockBulk(batch));
+                    String why = e instanceof JsonProcessingException ? "invalid JSON" : e.getMessage();
+                    return ResponseEntity.badRequest().body(result.withError(
+                            "line " + lineNo + ": " + why + "; lines before it were applied, the rest was not"));
+                }
+                batch.add(u);
+                if (batch.size() == ProductService.STOCK_BATCH_SIZE) {
+                    result = result.merge(svc.setStockBulk(batch));
+                    batch = new ArrayList<>(ProductService.STOCK_BATCH_SIZE);
+                }
+            }
+        }
+        return ResponseEntity.ok(batch.isEmpty() ? result : result.merge(svc.setStockBulk(batch)));
+    }
+
 }
 
@@ -0,0 +1,9 @@
+package com.zeywox.veyronixcore.dto;
+
+/**
+ * Where the time went when a cache entry was built (nanos; -1 = not measured separately).
+ * Reported through Server-Timing to the requests that waited on that build.
+ */
+public record BuildTimings(long versionNanos, long fetchNanos, long jsonNanos, long gzipNanos) {
+    public static final BuildTimings NONE = new BuildTimings(-1, -1, -1, -1);
+}
@@ -1,6 +1,7 @@
 package com.zeywox.veyronixcore.dto;
 
 import com.zeywox.veyronixcore.dto.Meta;
+import com.zeywox.veyronixcore.util.ResponseHeaders;
 import org.springframework.http.HttpHeaders;
 
 
@@ -8,5 +9,15 @@ import org.springframework.http.HttpHeaders;
 public record CachedResponse(
         byte[] gz,         // gzipped body
         Meta meta,         // ETag, last-modified, content-type
-        HttpHeaders headers // read-only headers (immutable wrapper)
-) {}
+        HttpHeaders headers, // read-only headers (immutable wrapper)
+        HttpHeaders notModifiedHeaders, // read-only 304 headers, built once with the entry
+        BuildTimings timings // how long the build took, per phase (Server-Timing)
+) {
+    public CachedResponse(byte[] gz, Meta meta, HttpHeaders headers, BuildTimings timings) {
+        this(gz, meta, headers, HttpHeaders.readOnlyHttpHeaders(ResponseHeaders.notModifiedFrom(headers)), timings);
+    }
+
+    public CachedResponse(byte[] gz, Meta meta, HttpHeaders headers) {
+        this(gz, meta, headers, BuildTimings.NONE);
+    }
+}
@@ -5,5 +5,10 @@ public final class Encoded {
     final byte[] raw;
     public final byte[] gz;
     public final String weakHash;
-    public Encoded(byte[] raw, byte[] gz, String weakHash) { this.raw = raw; this.gz = gz; this.weakHash = weakHash; }
+    public final long jsonNanos;  // serialization time, -1 if not measured
+    public final long gzipNanos;  // compression time, -1 if not measured
+    public Encoded(byte[] raw, byte[] gz, String weakHash) { this(raw, gz, weakHash, -1, -1); }
+    public Encoded(byte[] raw, byte[] gz, String weakHash, long jsonNanos, long gzipNanos) {
+        this.raw = raw; this.gz = gz; this.weakHash = weakHash; this.jsonNanos = jsonNanos; this.gzipNanos = gzipNanos;
+    }
 }
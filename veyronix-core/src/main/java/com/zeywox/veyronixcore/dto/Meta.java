@@ -1,12 +1,15 @@
 package com.zeywox.veyronixcore.dto;
 
 
+import com.zeywox.veyronixcore.util.HttpCaching;
+
 public final class Meta {
     public final String etag;
     public final long lastModifiedEpochMillis;
+    public final String lastModifiedHttp; // rendered once; sent as Last-Modified and matched against If-Modified-Since
     public final String contentType;
     public Meta(String etag, long lastModifiedEpochMillis, String contentType) {
         this.etag = etag; this.lastModifiedEpochMillis = lastModifiedEpochMillis; this.contentType = contentType;
+        this.lastModifiedHttp = HttpCaching.httpDate(lastModifiedEpochMillis);
     }
 }
-
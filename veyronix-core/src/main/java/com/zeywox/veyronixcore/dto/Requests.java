@@ -1,9 +1,13 @@
 package com.zeywox.veyronixcore.dto;
 
-
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class Requests {
@@ -12,5 +16,42 @@ public class Requests {
     public record SetStockRequest(
             @NotNull @Min(0) Integer stock
     ) {}
+
+    public record StockQuantityRequest(
+            @NotNull @Min(1) Integer quantity
+    ) {}
+
+    /** One cart line for an atomic multi-item reserve/release. */
+    public record StockReservation(String id, Integer quantity) {}
+
+    public record StockReservationBatch(
+            @NotEmpty @Size(max = 500) List<StockReservation> items
+    ) {}
+
+    /** One line of a bulk stock push (JSON array element or NDJSON line). */
+    public record StockUpdate(String id, Integer stock) {}
+
+    /**
+     * {@code error} is set only when an NDJSON push stopped at a bad line: every line before it was applied
+     * ({@code updated} + {@code missing} cover exactly those), the bad line and everything after it were not.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record BulkStockResult(int updated, List<String> missing, String error) {
+        public BulkStockResult(int updated, List<String> missing) {
+            this(updated, missing, null);
+        }
+
+        public BulkStockResult withError(String error) {
+            return new BulkStockResult(updated, missing, error);
+        }
+
+        public BulkStockResult merge(BulkStockResult other) {
+            if (other.missing.isEmpty()) return new BulkStockResult(updated + other.updated, missing);
+            List<String> m = new ArrayList<>(missing.size() + other.missing.size());
+            m.addAll(missing);
+            m.addAll(other.missing);
+            return new BulkStockResult(updated + other.updated, m);
+        }
+    }
 }
 
@@ -32,10 +32,7 @@ public record Product(
         m.put("id", this.id());
         m.put("name", ns(this.name()));
         m.put("category", ns(this.category()));
-        m.put("price", this.price() == null ? "" :
-                java.math.BigDecimal.valueOf(this.price())
-                        .setScale(2, java.math.RoundingMode.HALF_UP)
-                        .toPlainString());
+        m.put("price", canonicalPrice(this.price()));
         m.put("description", ns(this.description()));
         m.put("stock", String.valueOf(this.stock() == null ? 0 : this.stock()));
         return m;
@@ -0,0 +1,47 @@
+package com.zeywox.veyronixcore.observability;
+
+import com.zeywox.veyronixcore.services.HotKeys;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GET /actuator/hotkeys: the tracked product ids and list keys, hottest first, with decayed hit counts
+ * and whether they are pinned (count >= hot-keys.min-hits).
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+    private final HotKeys hotKeys;
+
+    public HotKeysEndpoint(HotKeys hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", hotKeys.enabled());
+        m.put("minHits", hotKeys.minHits());
+        m.put("products", rows(hotKeys.topProducts()));
+        m.put("lists", rows(hotKeys.topLists()));
+        return m;
+    }
+
+    private List<Map<String, Object>> rows(List<Map.Entry<String, Long>> top) {
+        List<Map<String, Object>> out = new ArrayList<>(top.size());
+        for (var e : top) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("key", e.getKey());
+            row.put("hits", e.getValue());
+            row.put("pinned", e.getValue() >= hotKeys.minHits());
+            out.add(row);
+        }
+        return out;
+    }
+}
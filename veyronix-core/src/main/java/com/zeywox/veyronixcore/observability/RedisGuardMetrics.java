@@ -0,0 +1,49 @@
+package com.zeywox.veyronixcore.observability;
+
+import com.zeywox.veyronixcore.services.RefreshScheduler;
+import com.zeywox.veyronixcore.util.RedisCircuitBreaker;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import com.zeywox.veyronixcore.util.ReplicaReadRouter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges/counters read from the guards' own counters at scrape time (nothing on the request path):
+ * limiter limit/in-flight/shed, breaker state, refresh scheduler queue and outcomes, replica routing.
+ */
+@Component
+public class RedisGuardMetrics implements MeterBinder {
+
+    private final RedisConcurrencyLimiter limiter;
+    private final RedisCircuitBreaker breaker;
+    private final RefreshScheduler refresher;
+    private final ReplicaReadRouter routing;
+
+    public RedisGuardMetrics(RedisConcurrencyLimiter limiter, RedisCircuitBreaker breaker,
+                             RefreshScheduler refresher, ReplicaReadRouter routing) {
+        this.limiter = limiter;
+        this.breaker = breaker;
+        this.refresher = refresher;
+        this.routing = routing;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry r) {
+        Gauge.builder("veyronix.redis.limiter.limit", limiter, RedisConcurrencyLimiter::limit).register(r);
+        Gauge.builder("veyronix.redis.limiter.inflight", limiter, RedisConcurrencyLimiter::inflight).register(r);
+        FunctionCounter.builder("veyronix.redis.limiter.shed", limiter, RedisConcurrencyLimiter::shedCount).register(r);
+        Gauge.builder("veyronix.redis.breaker.open", breaker, b -> b.isOpen() ? 1 : 0).register(r);
+
+        Gauge.builder("veyronix.l1.refresh.queued", refresher, RefreshScheduler::queued).register(r);
+        FunctionCounter.builder("veyronix.l1.refresh", refresher, RefreshScheduler::completedCount).tag("outcome", "completed").register(r);
+        FunctionCounter.builder("veyronix.l1.refresh", refresher, RefreshScheduler::failedCount).tag("outcome", "failed").register(r);
+        FunctionCounter.builder("veyronix.l1.refresh", refresher, RefreshScheduler::expiredCount).tag("outcome", "over_budget").register(r);
+        FunctionCounter.builder("veyronix.l1.refresh", refresher, RefreshScheduler::droppedCount).tag("outcome", "dropped").register(r);
+
+        FunctionCounter.builder("veyronix.redis.replica.reads", routing, ReplicaReadRouter::replicaReads).register(r);
+        FunctionCounter.builder("veyronix.redis.replica.fallbacks", routing, ReplicaReadRouter::primaryFallbacks).register(r);
+    }
+}
@@ -0,0 +1,132 @@
+package com.zeywox.veyronixcore.observability;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path meters, resolved once so recording is a field read plus an add (no registry lookup per call).
+ * - veyronix.redis.calls{op}        : every Redis call through the limiter, by script/pipeline/command
+ * - veyronix.product.fresh{outcome} : get-one computes led vs joined (coalescing)
+ * - veyronix.fallback{kind}         : stale served over budget / on error, join timeouts, 503s
+ * - veyronix.encode{kind,phase}     : JSON and gzip time; veyronix.encode.bytes{kind,form} raw/gzip sizes
+ * - veyronix.ingest.products{result}, veyronix.ingest.duration : feed throughput
+ * L1 stats (hits/misses/loads/evictions/eviction weight) come from Caffeine's recordStats via {@link #monitorCache}.
+ */
+@Component
+public class VeyronixMetrics {
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, Timer> redisTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> peerOutcomes = new ConcurrentHashMap<>();
+
+    private final Counter freshLead, freshJoin, freshValidated;
+    private final Counter staleOverBudget, staleOnError, joinTimeout, unavailable;
+    private final Encode list, product;
+    private final Counter ingestAccepted, ingestRejected;
+    private final Counter negativeFilter, negativeCache, negativePage;
+    private final Timer ingestDuration;
+
+    public VeyronixMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.freshLead = Counter.builder("veyronix.product.fresh").tag("outcome", "lead").register(registry);
+        this.freshJoin = Counter.builder("veyronix.product.fresh").tag("outcome", "join").register(registry);
+        this.freshValidated = Counter.builder("veyronix.product.fresh").tag("outcome", "validated").register(registry);
+        this.staleOverBudget = fallback("stale_over_budget");
+        this.staleOnError    = fallback("stale_on_error");
+        this.joinTimeout     = fallback("join_timeout");
+        this.unavailable     = fallback("unavailable");
+        this.list    = new Encode(registry, "list");
+        this.product = new Encode(registry, "product");
+        this.ingestAccepted = Counter.builder("veyronix.ingest.products").tag("result", "accepted").register(registry);
+        this.ingestRejected = Counter.builder("veyronix.ingest.products").tag("result", "rejected").register(registry);
+        this.ingestDuration = Timer.builder("veyronix.ingest.duration").register(registry);
+        this.negativeFilter = Counter.builder("veyronix.negative.answered").tag("source", "filter").register(registry);
+        this.negativeCache  = Counter.builder("veyronix.negative.answered").tag("source", "cache").register(registry);
+        this.negativePage   = Counter.builder("veyronix.negative.answered").tag("source", "page").register(registry);
+    }
+
+    public MeterRegistry registry() { return registry; }
+
+    /** Export a Caffeine cache built with recordStats(). */
+    public void monitorCache(com.github.benmanes.caffeine.cache.Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    // ---- Redis ----
+
+    public Timer redis(String op) {
+        Timer t = redisTimers.get(op);
+        return t != null ? t : redisTimers.computeIfAbsent(op, o ->
+                Timer.builder("veyronix.redis.calls").tag("op", o).register(registry));
+    }
+
+    // ---- coalescing / fallbacks ----
+
+    public void productFresh(boolean joined) { (joined ? freshJoin : freshLead).increment(); }
+
+    /** 304 answered from the version counter alone (validator-first). */
+    public void productValidated() { freshValidated.increment(); }
+
+    public void staleOverBudget() { staleOverBudget.increment(); }
+    public void staleOnError()    { staleOnError.increment(); }
+    public void joinTimeout()     { joinTimeout.increment(); }
+    public void unavailable()     { unavailable.increment(); }
+
+    // ---- encoding ----
+
+    public void encoded(boolean isList, long jsonNanos, long gzipNanos, int rawBytes, int gzBytes) {
+        Encode e = isList ? list : product;
+        e.json.record(jsonNanos, TimeUnit.NANOSECONDS);
+        e.gzip.record(gzipNanos, TimeUnit.NANOSECONDS);
+        e.raw.record(rawBytes);
+        e.gz.record(gzBytes);
+    }
+
+    // ---- ingest ----
+
+    public void ingested(int accepted, int rejected, long nanos) {
+        ingestAccepted.increment(accepted);
+        ingestRejected.increment(rejected);
+        ingestDuration.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ---- negative lookups ----
+
+    /** A 404 or an empty page answered without Redis; source is filter, cache or page. */
+    public void negativeAnswered(String source) {
+        switch (source) {
+            case "filter" -> negativeFilter.increment();
+            case "cache"  -> negativeCache.increment();
+            default       -> negativePage.increment();
+        }
+    }
+
+    // ---- peer mode ----
+
+    /** A list read for a category owned by another instance: copy, fetched, revalidated, stale or local. */
+    public void peerList(String outcome) {
+        Counter c = peerOutcomes.get(outcome);
+        (c != null ? c : peerOutcomes.computeIfAbsent(outcome, o ->
+                Counter.builder("veyronix.peer.lists").tag("outcome", o).register(registry))).increment();
+    }
+
+    private Counter fallback(String kind) {
+        return Counter.builder("veyronix.fallback").tag("kind", kind).register(registry);
+    }
+
+    private static final class Encode {
+        final Timer json, gzip;
+        final DistributionSummary raw, gz;
+
+        Encode(MeterRegistry r, String kind) {
+            json = Timer.builder("veyronix.encode").tags("kind", kind, "phase", "json").register(r);
+            gzip = Timer.builder("veyronix.encode").tags("kind", kind, "phase", "gzip").register(r);
+            raw  = DistributionSummary.builder("veyronix.encode.bytes").baseUnit("bytes").tags("kind", kind, "form", "raw").register(r);
+            gz   = DistributionSummary.builder("veyronix.encode.bytes").baseUnit("bytes").tags("kind", kind, "form", "gzip").register(r);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.zeywox.veyronixcore.observability.capture;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * One sampled request of the capture file, and its binary form.
+ * File: MAGIC, VERSION, capture start (epoch millis), then records back to back:
+ * offset from start (µs), method, path, query ("" none), If-None-Match ("" none),
+ * If-Modified-Since sent, status, server time (µs). Bodies are never recorded.
+ */
+public record CapturedRequest(long offsetMicros, String method, String path, String query,
+                              String ifNoneMatch, boolean ifModifiedSince, int status, int durationMicros) {
+
+    public static final int MAGIC = 0x56584350; // "VXCP"
+    public static final byte VERSION = 1;
+
+    private static final int MAX_TEXT = 2048; // writeUTF limit is 64 KiB; long query strings are cut
+
+    public static void writeHeader(DataOutputStream out, long startEpochMillis) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(startEpochMillis);
+    }
+
+    /** Returns the capture start (epoch millis). */
+    public static long readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("not a traffic capture file");
+        byte v = in.readByte();
+        if (v != VERSION) throw new IOException("unsupported capture version " + v);
+        return in.readLong();
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(offsetMicros);
+        out.writeUTF(method);
+        out.writeUTF(cut(path));
+        out.writeUTF(cut(query));
+        out.writeUTF(cut(ifNoneMatch));
+        out.writeBoolean(ifModifiedSince);
+        out.writeShort(status);
+        out.writeInt(durationMicros);
+    }
+
+    /** Next record, or null at the end of the file. */
+    public static CapturedRequest readFrom(DataInputStream in) throws IOException {
+        long offset;
+        try {
+            offset = in.readLong();
+        } catch (EOFException end) {
+            return null;
+        }
+        return new CapturedRequest(offset, in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                in.readBoolean(), in.readUnsignedShort(), in.readInt());
+    }
+
+    private static String cut(String s) {
+        if (s == null) return "";
+        return s.length() > MAX_TEXT ? s.substring(0, MAX_TEXT) : s;
+    }
+}
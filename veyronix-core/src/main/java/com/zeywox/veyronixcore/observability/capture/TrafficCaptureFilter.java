@@ -0,0 +1,137 @@
+package com.zeywox.veyronixcore.observability.capture;
+
+import com.zeywox.veyronixcore.config.cache.TrafficCaptureProperties;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records a sample of /products requests (traffic-capture) for the replay tool.
+ * Request threads only take a timestamp and hand a small record to a bounded queue; one writer thread
+ * encodes and appends them. A full queue drops the record rather than slowing the request.
+ * Async (Callable) requests are recorded when they complete, with their final status.
+ */
+@Component
+@ConditionalOnProperty(name = "traffic-capture.enabled", havingValue = "true")
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(TrafficCaptureFilter.class);
+
+    private final double sampleRate;
+    private final long maxBytes;
+    private final Path file;
+    private final BlockingQueue<CapturedRequest> queue;
+    private final long startNanos = System.nanoTime();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public TrafficCaptureFilter(TrafficCaptureProperties props) throws IOException {
+        this.sampleRate = Math.min(1.0, Math.max(0.0, props.sampleRate()));
+        this.maxBytes = props.maxBytes() > 0 ? props.maxBytes() : Long.MAX_VALUE;
+        this.file = Path.of(props.file());
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, props.queueSize()));
+
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 64 * 1024));
+        CapturedRequest.writeHeader(out, System.currentTimeMillis());
+
+        this.writer = Thread.ofPlatform().daemon().name("traffic-capture").start(() -> writeLoop(out));
+        log.info("traffic capture: sampling {} of /products requests into {}", sampleRate, file.toAbsolutePath());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest req) {
+        return !req.getRequestURI().startsWith("/products");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+        if (!running || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            chain.doFilter(req, res);
+            return;
+        }
+        long t0 = System.nanoTime();
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            if (req.isAsyncStarted()) {
+                req.getAsyncContext().addListener(new AsyncListener() {
+                    @Override public void onComplete(AsyncEvent e)    { record(req, res.getStatus(), t0); }
+                    @Override public void onTimeout(AsyncEvent e)     { }
+                    @Override public void onError(AsyncEvent e)       { }
+                    @Override public void onStartAsync(AsyncEvent e)  { }
+                });
+            } else {
+                record(req, res.getStatus(), t0);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest req, int status, long t0) {
+        long now = System.nanoTime();
+        String inm = req.getHeader(HttpHeaders.IF_NONE_MATCH);
+        var r = new CapturedRequest(
+                (t0 - startNanos) / 1000, req.getMethod(), req.getRequestURI(),
+                req.getQueryString() == null ? "" : req.getQueryString(),
+                inm == null ? "" : inm, req.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null,
+                status, (int) Math.min(Integer.MAX_VALUE, (now - t0) / 1000));
+        if (!queue.offer(r)) dropped.increment();
+    }
+
+    private void writeLoop(DataOutputStream out) {
+        try (out) {
+            while (running || !queue.isEmpty()) {
+                CapturedRequest r = queue.poll(1, TimeUnit.SECONDS);
+                if (r == null) { out.flush(); continue; }
+                r.writeTo(out);
+                recorded.increment();
+                if (out.size() >= maxBytes) {
+                    log.warn("traffic capture: {} reached traffic-capture.max-bytes, capture stopped", file);
+                    running = false;
+                    queue.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            running = false;
+            log.warn("traffic capture stopped: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        log.info("traffic capture: {} requests recorded, {} dropped (queue full)", recorded.sum(), dropped.sum());
+    }
+
+    public long recorded() { return recorded.sum(); }
+    public long dropped()  { return dropped.sum(); }
+}
@@ -0,0 +1,16 @@
+package com.zeywox.veyronixcore.observability.jfr;
+
+import jdk.jfr.*;
+
+/** One JsonGzipEncoder run (JSON serialization + gzip). */
+@Name("veyronix.Encode")
+@Label("JSON + gzip Encode")
+@Category({"Veyronix", "Cache"})
+@StackTrace(false)
+public class EncodeEvent extends Event {
+    @Label("Kind")                          public String kind;
+    @Label("Items")                         public int items;
+    @Label("Raw Size") @DataAmount          public int rawBytes;
+    @Label("Gzip Size") @DataAmount         public int gzipBytes;
+    @Label("JSON Time") @Timespan           public long jsonNanos;
+}
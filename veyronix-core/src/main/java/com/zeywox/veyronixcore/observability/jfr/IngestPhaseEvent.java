@@ -0,0 +1,18 @@
+package com.zeywox.veyronixcore.observability.jfr;
+
+import jdk.jfr.*;
+
+/** A feed ingest phase: fetch, parse or store. */
+@Name("veyronix.IngestPhase")
+@Label("Ingest Phase")
+@Category({"Veyronix", "Ingest"})
+public class IngestPhaseEvent extends Event {
+    @Label("Phase") public String phase;
+    @Label("Items") public int items;
+
+    public IngestPhaseEvent() {}
+
+    public IngestPhaseEvent(String phase) {
+        this.phase = phase;
+    }
+}
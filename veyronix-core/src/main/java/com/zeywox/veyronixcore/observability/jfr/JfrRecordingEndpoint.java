@@ -0,0 +1,105 @@
+package com.zeywox.veyronixcore.observability.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/jfr: an on-demand, rolling flight recording.
+ * - POST   /actuator/jfr/start {"maxAgeSeconds": 300, "settings": "profile"} : keeps the last maxAge of events on disk
+ * - POST   /actuator/jfr/dump  : writes what the recording holds now to a .jfr file under java.io.tmpdir
+ * - GET    /actuator/jfr       : state
+ * - DELETE /actuator/jfr       : stop and discard
+ * Left running, a spike can be dumped after it happened. The veyronix.* events are enabled whatever the settings.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class JfrRecordingEndpoint {
+    private static final Logger log = LoggerFactory.getLogger(JfrRecordingEndpoint.class);
+
+    private static final long DEFAULT_MAX_AGE_SECONDS = 300;
+
+    private Recording recording; // guarded by this
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("state", recording == null ? "NONE" : recording.getState().name());
+        if (recording != null) {
+            m.put("name", recording.getName());
+            m.put("startTime", String.valueOf(recording.getStartTime()));
+            m.put("maxAgeSeconds", recording.getMaxAge() == null ? null : recording.getMaxAge().toSeconds());
+            m.put("sizeBytes", recording.getSize());
+        }
+        return m;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> action(@Selector String action, @Nullable Long maxAgeSeconds,
+                                                   @Nullable String settings) throws IOException, ParseException {
+        return switch (action) {
+            case "start" -> start(maxAgeSeconds, settings);
+            case "dump"  -> dump();
+            default      -> Map.of("error", "unknown action '" + action + "' (start | dump)");
+        };
+    }
+
+    private Map<String, Object> start(Long maxAgeSeconds, String settings) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) return status();
+        close();
+
+        Recording r = new Recording(Configuration.getConfiguration(settings == null ? "profile" : settings));
+        r.setName("veyronix-on-demand");
+        r.setToDisk(true);
+        r.setMaxAge(Duration.ofSeconds(maxAgeSeconds == null || maxAgeSeconds <= 0 ? DEFAULT_MAX_AGE_SECONDS : maxAgeSeconds));
+        r.enable("veyronix.L1Cache");
+        r.enable("veyronix.RedisCall");
+        r.enable("veyronix.Encode");
+        r.enable("veyronix.IngestPhase");
+        r.start();
+        recording = r;
+        log.info("JFR recording started (settings={}, maxAge={})", settings == null ? "profile" : settings, r.getMaxAge());
+        return status();
+    }
+
+    private Map<String, Object> dump() throws IOException {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return Map.of("state", "NONE", "error", "no running recording; start one first");
+        }
+        Path file = Path.of(System.getProperty("java.io.tmpdir"))
+                .resolve("veyronix-" + Instant.now().toString().replace(':', '-') + ".jfr");
+        recording.dump(file);
+        log.info("JFR recording dumped to {}", file);
+        return Map.of("state", recording.getState().name(), "file", file.toAbsolutePath().toString());
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        close();
+        return status();
+    }
+
+    private void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
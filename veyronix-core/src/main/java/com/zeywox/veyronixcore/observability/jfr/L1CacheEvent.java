@@ -0,0 +1,25 @@
+package com.zeywox.veyronixcore.observability.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * One L1 lookup or refresh in ResponseCacheService; the duration is what the caller (or refresh worker) spent.
+ * outcome: hit | miss | stale | lead | join (get-one coalescing) | validated (get-one 304 from the version alone)
+ *          | refresh | revalidated (version unchanged).
+ */
+@Name("veyronix.L1Cache")
+@Label("L1 Cache")
+@Category({"Veyronix", "Cache"})
+@StackTrace(false)
+public class L1CacheEvent extends Event {
+    @Label("Cache")   public String cache;
+    @Label("Key")     public String key;
+    @Label("Outcome") public String outcome;
+
+    public L1CacheEvent() {}
+
+    public L1CacheEvent(String cache, String key) {
+        this.cache = cache;
+        this.key = key;
+    }
+}
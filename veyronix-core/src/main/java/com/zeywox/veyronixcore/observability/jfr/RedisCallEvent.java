@@ -0,0 +1,27 @@
+package com.zeywox.veyronixcore.observability.jfr;
+
+import jdk.jfr.*;
+
+/** One Redis call (command, pipeline or script), as admitted by the concurrency limiter or made by IdRegistry. */
+@Name("veyronix.RedisCall")
+@Label("Redis Call")
+@Category({"Veyronix", "Redis"})
+@StackTrace(false)
+public class RedisCallEvent extends Event {
+    @Label("Operation")   public String op;
+    @Label("Key Pattern") public String keyPattern;
+    @Label("Priority")    public String priority;
+    @Label("Failed")      public boolean failed;
+
+    /** Key family an op touches, in legacy-layout notation (compact/cluster layouts rename, not reshape, them). */
+    public static String keyPattern(String op) {
+        if (op == null) return null;
+        if (op.endsWith("version")) return "ver:*";
+        if (op.endsWith("hgetall") || op.equals("hget")) return "product:{id}";
+        if (op.endsWith("zrange") || op.endsWith("zidx_seed_and_range")) return "zidx:category:{category}[:in|:out]";
+        if (op.startsWith("nk.")) return "idx:nk:product";
+        if (op.equals("sadd")) return "idx:all";
+        if (op.contains("category_apply")) return "idx/zidx/ver:category:{category}";
+        return "product:{id}, ver:product:{id} + category indexes/versions";
+    }
+}
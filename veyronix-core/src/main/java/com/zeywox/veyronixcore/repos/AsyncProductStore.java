@@ -0,0 +1,21 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.models.Product;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking reads behind cache misses (redis-async.enabled); writes stay on {@link ProductRepository}.
+ * Calls for the same product id, or the same category, go out on the same connection, so a version
+ * requested before the data is also read before it.
+ */
+public interface AsyncProductStore {
+    CompletableFuture<Optional<Product>> getOne(String id);
+    CompletableFuture<List<Product>> getMany(List<String> ids);
+    CompletableFuture<List<String>> listIdsByCategory(String category, Optional<Boolean> inStock, int page, int size);
+
+    CompletableFuture<String> productVersion(String id);
+    CompletableFuture<String> categoryVersion(String category, Optional<Boolean> inStock);
+}
@@ -0,0 +1,129 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.dto.Requests;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.repos.catalog.CatalogEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * catalog-engine.enabled: reads come from the in-process {@link CatalogEngine} once it has loaded (Redis before
+ * that), writes go to the layout's Redis repository and are then applied to the engine. A product the engine
+ * does not know yet (written elsewhere, event not applied) is looked up in Redis rather than reported missing.
+ * Writes read the touched products' version counters first, so the engine can tell whether the state it is handed
+ * is the one the write produced (see {@link CatalogEngine#applyLocal}).
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "catalog-engine.enabled", havingValue = "true")
+public class CatalogEngineProductRepository implements ProductRepository {
+
+    private final CatalogEngine engine;
+    private final ProductRepository redis;
+
+    public CatalogEngineProductRepository(CatalogEngine engine) {
+        this.engine = engine;
+        this.redis = engine.delegate();
+    }
+
+    // ---- reads ----
+
+    @Override
+    public Optional<Product> getOne(String id) {
+        if (!engine.ready()) return redis.getOne(id);
+        Optional<Product> p = engine.get(id);
+        if (p.isPresent()) return p;
+        Optional<Product> fromRedis = redis.getOne(id);
+        if (fromRedis.isPresent()) engine.enqueue(id);
+        return fromRedis;
+    }
+
+    @Override
+    public List<Product> getMany(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+        if (!engine.ready()) return redis.getMany(ids);
+        List<Product> out = engine.getMany(ids);
+        if (out.size() == ids.size()) return out;
+        // listed ids come from the same snapshot, so this is rare: fall back for the whole call to keep the order
+        List<Product> fromRedis = redis.getMany(ids);
+        if (fromRedis.size() > out.size()) {
+            Set<String> known = new HashSet<>();
+            for (Product p : out) known.add(p.id());
+            for (Product p : fromRedis) if (!known.contains(p.id())) engine.enqueue(p.id());
+        }
+        return fromRedis;
+    }
+
+    @Override
+    public List<String> listIdsByCategory(String category, Optional<Boolean> inStock, int page, int size) {
+        if (!engine.ready()) return redis.listIdsByCategory(category, inStock, page, size);
+        return engine.listIdsByCategory(category, inStock, page, size);
+    }
+
+    @Override
+    public long categorySize(String category, Optional<Boolean> inStock) {
+        if (!engine.ready()) return redis.categorySize(category, inStock);
+        return engine.categorySize(category, inStock);
+    }
+
+    // ---- writes: Redis first, then the engine ----
+
+    @Override
+    public void upsert(Product product) {
+        redis.upsert(product);
+        engine.enqueue(product.id()); // re-read in stored form (canonical price, default category)
+    }
+
+    @Override
+    public PatchResult patch(String id, Map<String, String> fields) {
+        long before = engine.versions(List.of(id)).get(id);
+        PatchResult res = redis.patch(id, fields);
+        if (res.changed()) engine.applyLocal(res.product(), before);
+        return res;
+    }
+
+    @Override
+    public int setStock(String id, int stock) {
+        Map<String, Long> before = engine.versions(List.of(id));
+        int n = redis.setStock(id, stock);
+        engine.applyStock(Map.of(id, n), before);
+        return n;
+    }
+
+    @Override
+    public List<Integer> setStockBulk(List<Requests.StockUpdate> updates) {
+        List<String> ids = updates.stream().map(Requests.StockUpdate::id).toList();
+        Map<String, Long> before = engine.versions(ids);
+        List<Integer> res = redis.setStockBulk(updates);
+        engine.applyStock(byId(ids, res), before);
+        return res;
+    }
+
+    @Override
+    public List<Integer> reserveStock(List<Requests.StockReservation> items) {
+        List<String> ids = items.stream().map(Requests.StockReservation::id).toList();
+        Map<String, Long> before = engine.versions(ids);
+        List<Integer> res = redis.reserveStock(items);
+        engine.applyStock(byId(ids, res), before);
+        return res;
+    }
+
+    @Override
+    public List<Integer> releaseStock(List<Requests.StockReservation> items) {
+        List<String> ids = items.stream().map(Requests.StockReservation::id).toList();
+        Map<String, Long> before = engine.versions(ids);
+        List<Integer> res = redis.releaseStock(items);
+        engine.applyStock(byId(ids, res), before);
+        return res;
+    }
+
+    // aligned result -> id: last value wins for an id listed twice
+    private static Map<String, Integer> byId(List<String> ids, List<Integer> stock) {
+        Map<String, Integer> m = new HashMap<>();
+        for (int i = 0; i < ids.size() && i < stock.size(); i++) m.put(ids.get(i), stock.get(i));
+        return m;
+    }
+}
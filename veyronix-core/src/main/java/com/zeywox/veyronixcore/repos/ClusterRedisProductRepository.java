@@ -0,0 +1,619 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.dto.Requests;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.ClusterSlots;
+import com.zeywox.veyronixcore.util.Keys;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
+import com.zeywox.veyronixcore.util.ReplicaReadRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.zeywox.veyronixcore.config.cache.RedisLayoutProperties;
+import com.zeywox.veyronixcore.util.RedisCircuitBreaker;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static com.zeywox.veyronixcore.util.ValueCoercions.*;
+
+/**
+ * Redis Cluster flavour of the product store (redis-layout.hash-tags=true).
+ * Keys carry hash tags, so a product's hash + version share one slot and a category's
+ * SET/ZSET indexes + versions share another. No script may span both, so every write runs
+ * a two-phase protocol:
+ *   1) redis/cluster/product_write.lua in the product slot: write the hash, bump ver:product,
+ *      return old/new category and stock
+ *   2) redis/cluster/category_apply.lua once per touched category slot: membership moves,
+ *      then each needed category/bucket version bumped once
+ * Phase 2 is derived from phase 1's result with the same rules as the single-script path, and
+ * adds to the new category before removing from the old one (an id is never in neither).
+ * Phase 2 is never shed (CRITICAL) and is retried on Redis failures, but it can still fail after
+ * phase 1 committed, or the writer can die in between. So phase 1 also records the categories to
+ * reconcile in pm:{<id>}, in the product slot and atomically with the write; a successful phase 2
+ * clears it, and a marker left behind is finished by {@link #reconcilePendingMoves} (every
+ * redis-layout.pending-move-reconcile-seconds), which re-derives phase 2 from the current hash.
+ * Until then a reader may see the new hash under old list versions and memberships.
+ */
+@Repository
+@ConditionalOnProperty(name = "redis-layout.hash-tags", havingValue = "true")
+public class ClusterRedisProductRepository implements ProductRepository {
+    private static final Logger log = LoggerFactory.getLogger(ClusterRedisProductRepository.class);
+
+    private static final int PHASE2_ATTEMPTS = 3;
+    private static final long PHASE2_BACKOFF_MILLIS = 25;
+    private static final int SCAN_COUNT = 500;
+
+    private final RedisConnectionGroups groups;
+    private final RedisConcurrencyLimiter limiter;
+    private final ReplicaReadRouter routing;
+
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> productWriteScript;
+    private final DefaultRedisScript<Long> categoryApplyScript;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> seedAndRangeScript;
+    private final byte[] productWriteBody;
+    private final ScheduledExecutorService reconciler; // null when pending-move-reconcile-seconds is 0
+
+    public ClusterRedisProductRepository(
+            RedisConnectionGroups groups,
+            @SuppressWarnings("rawtypes") DefaultRedisScript<List> clusterProductWriteScript,
+            DefaultRedisScript<Long> clusterCategoryApplyScript,
+            @SuppressWarnings("rawtypes") DefaultRedisScript<List> zidxSeedAndRangeScript,
+            RedisConcurrencyLimiter limiter,
+            ReplicaReadRouter routing,
+            RedisLayoutProperties layout
+    ) {
+        this.groups = groups;
+        this.limiter = limiter;
+        this.routing = routing;
+        this.productWriteScript = clusterProductWriteScript;
+        this.categoryApplyScript = clusterCategoryApplyScript;
+        this.seedAndRangeScript = zidxSeedAndRangeScript;
+        // pipelined batches send EVAL: EVALSHA inside a pipeline can't recover from NOSCRIPT per node
+        this.productWriteBody = clusterProductWriteScript.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+
+        long period = layout.pendingMoveReconcileSeconds();
+        if (period > 0) {
+            this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cluster-pending-moves");
+                t.setDaemon(true);
+                return t;
+            });
+            this.reconciler.scheduleWithFixedDelay(this::reconcileQuietly, period, period, TimeUnit.SECONDS);
+        } else {
+            this.reconciler = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reconciler != null) reconciler.shutdownNow();
+    }
+
+    // ---- reads ----
+
+    @Override
+    public Optional<Product> getOne(String id) {
+        StringRedisTemplate reader = routing.forProduct(id);
+        Map<Object, Object> m = limiter.call("hgetall", () -> routing.read(reader, t -> t.opsForHash().entries(Keys.productHash(id))));
+        if (m == null || m.isEmpty()) return Optional.empty();
+        return Optional.of(new Product(m));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Product> getMany(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+        List<String> keys = new ArrayList<>(ids.size());
+        for (String id : ids) keys.add(Keys.productHash(id));
+
+        List<Object> piped = routing.read(routing.forProducts(ids), reader ->
+                pipelinedByNode("pipeline.hgetall", reader, false, keys, (connection, i) ->
+                        connection.hashCommands().hGetAll(keys.get(i).getBytes(StandardCharsets.UTF_8))));
+
+        List<Product> out = new ArrayList<>(piped.size());
+        for (Object o : piped) {
+            Map<Object, Object> m = (Map<Object, Object>) o;
+            if (m != null && !m.isEmpty()) out.add(new Product(m));
+        }
+        return out;
+    }
+
+    @Override
+    public List<String> listIdsByCategory(String category, Optional<Boolean> inStockFilter, int page, int size) {
+        // both keys carry {<norm>}: the seed/range script stays single-slot
+        String norm = Keys.normalize(category);
+        String zkey = inStockFilter
+                .map(b -> b ? Keys.idxCategoryInStockZ(norm) : Keys.idxCategoryOutOfStockZ(norm))
+                .orElse(Keys.idxCategoryZ(norm));
+        String skey = inStockFilter
+                .map(b -> b ? Keys.idxCategoryInStock(norm) : Keys.idxCategoryOutOfStock(norm))
+                .orElse(Keys.idxCategory(norm));
+
+        long start = (long) (page - 1) * size;
+        long end   = start + size - 1;
+
+        StringRedisTemplate reader = routing.forListing(norm, inStockFilter);
+        if (reader != routing.primary()) {
+            // replicas are read-only: plain ZRANGE there; an empty page may just be unseeded, so that goes to the primary
+            Set<String> ids = limiter.call("zrange", () -> routing.read(reader, t -> t.opsForZSet().range(zkey, start, end)));
+            if (ids != null && !ids.isEmpty()) return new ArrayList<>(ids);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<String> ids = (List<String>) (List<?>) limiter.call("lua.zidx_seed_and_range", () -> routing.primary().execute(
+                seedAndRangeScript,
+                List.of(zkey, skey),
+                String.valueOf(start), String.valueOf(end)
+        ));
+        if (ids == null || ids.isEmpty()) return List.of();
+        return new ArrayList<>(ids);
+    }
+
+    @Override
+    public long categorySize(String category, Optional<Boolean> inStockFilter) {
+        // the SET twin is always complete; the ZSET may not be seeded yet
+        String norm = Keys.normalize(category);
+        String skey = inStockFilter
+                .map(b -> b ? Keys.idxCategoryInStock(norm) : Keys.idxCategoryOutOfStock(norm))
+                .orElse(Keys.idxCategory(norm));
+        StringRedisTemplate reader = routing.forListing(norm, inStockFilter);
+        Long n = limiter.call("scard", () -> routing.read(reader, t -> t.opsForSet().size(skey)));
+        return n == null ? 0 : n;
+    }
+
+    // ---- writes ----
+
+    @Override
+    public void upsert(Product p) {
+        String id = p.id();
+        Map<String, String> m = p.toRedis();
+        List<String> args = new ArrayList<>(m.size() * 2 + 1);
+        args.add("upsert");
+        m.forEach((k, v) -> { args.add(k); args.add(v); });
+
+        Written w = writeProduct(id, args);
+        limiter.call(RedisConcurrencyLimiter.Priority.CRITICAL, "sadd", () -> groups.writes().opsForSet().add(Keys.idxAll(), id));
+
+        CategoryPlan plan = new CategoryPlan();
+        planMove(plan, id, w);
+        plan.apply();
+    }
+
+    @Override
+    public PatchResult patch(String id, Map<String, String> fields) {
+        List<String> args = new ArrayList<>(fields.size() * 2 + 5);
+        args.add("patch");
+        fields.forEach((k, v) -> { args.add(k); args.add(v); });
+
+        Written w = writeProduct(id, args);
+        Product after = new Product(w.hash);
+        if (w.unchanged()) {
+            return new PatchResult(after, false, false, w.oldName, w.oldCategory);
+        }
+
+        CategoryPlan plan = new CategoryPlan();
+        planMove(plan, id, w);
+        plan.apply();
+
+        // idx:nk:product lives in its own slot: the caller remaps it (IdRegistry) when name/category moved
+        boolean nkMoved = !Objects.equals(w.oldName, after.name()) || !Objects.equals(w.oldCategory, w.newCategory);
+        return new PatchResult(after, true, nkMoved, w.oldName, w.oldCategory);
+    }
+
+    @Override
+    public int setStock(String id, int stock) {
+        Written w = writeProduct(id, List.of("stock", String.valueOf(stock), "0"));
+        CategoryPlan plan = new CategoryPlan();
+        planStock(plan, id, w);
+        plan.apply();
+        return w.newStock;
+    }
+
+    @Override
+    public List<Integer> setStockBulk(List<Requests.StockUpdate> updates) {
+        if (updates == null || updates.isEmpty()) return List.of();
+
+        List<String> keys = new ArrayList<>(updates.size());
+        for (Requests.StockUpdate u : updates) keys.add(Keys.productHash(u.id()));
+
+        // phase 1: one pipeline per node; unchanged items are skipped server-side (no write, no bump)
+        List<Object> piped = pipelinedByNode("pipeline.cluster.product_write", groups.writes(), true, keys, (connection, i) -> {
+            Requests.StockUpdate u = updates.get(i);
+            evalProductWrite(connection, u.id(), "stock", String.valueOf(u.stock()), "1");
+        });
+
+        routing.noteWrites(updates.stream().map(Requests.StockUpdate::id).toList());
+
+        // phase 2: one call per touched category, each version bumped once
+        CategoryPlan plan = new CategoryPlan();
+        List<Integer> out = new ArrayList<>(updates.size());
+        for (int i = 0; i < updates.size(); i++) {
+            List<?> r = (List<?>) piped.get(i);
+            if (r == null || r.size() < 7) { out.add(-1); continue; } // { "MISSING" }
+            Written w = Written.of(r);
+            out.add(w.newStock);
+            if (!w.unchanged()) planStock(plan, updates.get(i).id(), w);
+        }
+        plan.apply();
+        return out;
+    }
+
+    @Override
+    public List<Integer> reserveStock(List<Requests.StockReservation> items) {
+        return adjustStock(items, -1);
+    }
+
+    @Override
+    public List<Integer> releaseStock(List<Requests.StockReservation> items) {
+        return adjustStock(items, 1);
+    }
+
+    /**
+     * Lines live in different slots, so all-or-nothing is emulated: lines are applied in order and,
+     * if one cannot be covered, the ones already applied are rolled back before the error surfaces.
+     * Unlike the single-script path another client can observe (and race with) the partial state.
+     */
+    private List<Integer> adjustStock(List<Requests.StockReservation> items, int sign) {
+        if (items == null || items.isEmpty()) return List.of();
+
+        List<Written> done = new ArrayList<>(items.size());
+        try {
+            for (Requests.StockReservation r : items) {
+                // the first line was admitted: the rest of the batch is not shed halfway
+                done.add(writeProduct(r.id(), List.of("adjust", String.valueOf(sign * r.quantity())),
+                        done.isEmpty() ? null : RedisConcurrencyLimiter.Priority.CRITICAL));
+            }
+        } catch (RuntimeException e) {
+            compensate(items, done, sign);
+            throw e;
+        }
+
+        CategoryPlan plan = new CategoryPlan();
+        List<Integer> out = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Written w = done.get(i);
+            out.add(w.newStock);
+            if ((w.oldStock > 0) != (w.newStock > 0)) planStock(plan, items.get(i).id(), w);
+        }
+        plan.apply();
+        return out;
+    }
+
+    private void compensate(List<Requests.StockReservation> items, List<Written> done, int sign) {
+        for (int i = done.size() - 1; i >= 0; i--) {
+            Requests.StockReservation r = items.get(i);
+            try {
+                writeProduct(r.id(), List.of("adjust", String.valueOf(-sign * r.quantity())), RedisConcurrencyLimiter.Priority.CRITICAL);
+            } catch (RuntimeException e) {
+                log.error("stock compensation failed for {} ({}{}): {}", r.id(), -sign > 0 ? "+" : "-", r.quantity(), e.toString());
+            }
+        }
+    }
+
+    // ---- phase 1: product slot ----
+
+    private Written writeProduct(String id, List<String> args) {
+        return writeProduct(id, args, null);
+    }
+
+    /** {@code priority}: null for the caller's own (first step of a write), CRITICAL for a follow-up step. */
+    private Written writeProduct(String id, List<String> args, RedisConcurrencyLimiter.Priority priority) {
+        List<String> keys = List.of(Keys.productHash(id), Keys.verProduct(id), Keys.pendingMove(id));
+        try {
+            List<?> res = priority == null
+                    ? limiter.call("lua.cluster.product_write", () -> groups.writes().execute(productWriteScript, keys, args.toArray()))
+                    : limiter.call(priority, "lua.cluster.product_write", () -> groups.writes().execute(productWriteScript, keys, args.toArray()));
+            if (res == null || res.size() < 7) throw new IllegalStateException("Lua product write returned nothing for " + id);
+            routing.noteWrite(id);
+            return Written.of(res);
+        } catch (DataAccessException e) {
+            String msg = e.getMessage();
+            if (msg != null && msg.contains("NOT_FOUND")) {
+                throw new EmptyResultDataAccessException("NOT_FOUND " + id, 1);
+            }
+            if (msg != null && msg.contains("INSUFFICIENT_STOCK")) {
+                throw new DataIntegrityViolationException("INSUFFICIENT_STOCK " + id);
+            }
+            throw e;
+        }
+    }
+
+    private void evalProductWrite(RedisConnection connection, String id, String... args) {
+        byte[][] keysAndArgs = new byte[3 + args.length][];
+        keysAndArgs[0] = Keys.productHash(id).getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[1] = Keys.verProduct(id).getBytes(StandardCharsets.UTF_8);
+        keysAndArgs[2] = Keys.pendingMove(id).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < args.length; i++) keysAndArgs[3 + i] = args[i].getBytes(StandardCharsets.UTF_8);
+        connection.scriptingCommands().eval(productWriteBody, ReturnType.MULTI, 3, keysAndArgs);
+    }
+
+    /** Decoded product_write.lua reply. */
+    private record Written(String status, String oldCategory, int oldStock, String newCategory, int newStock,
+                           String oldName, String version, Map<Object, Object> hash) {
+        static Written of(List<?> res) {
+            Map<Object, Object> hash = new HashMap<>();
+            for (int i = 7; i + 1 < res.size(); i += 2) hash.put(str(res.get(i)), res.get(i + 1));
+            return new Written(str(res.get(0)), str(res.get(1)), Integer.parseInt(str(res.get(2))),
+                    str(res.get(3)), Integer.parseInt(str(res.get(4))), str(res.get(5)), str(res.get(6)), hash);
+        }
+        boolean isNew()     { return "NEW".equals(status); }
+        boolean unchanged() { return "UNCHANGED".equals(status); }
+    }
+
+    // ---- phase 2: category slots ----
+
+    /** Category side of an upsert/patch; same bump rules as product_upsert.lua. */
+    private static void planMove(CategoryPlan plan, String id, Written w) {
+        plan.settle(id, w.version, w.isNew() ? List.of(w.newCategory) : List.of(w.oldCategory, w.newCategory));
+        String oldNorm = Keys.normalize(w.oldCategory);
+        String newNorm = Keys.normalize(w.newCategory);
+        CategoryOps n = plan.of(newNorm);
+        n.op("add", id, w.newStock);
+
+        String oldRaw = w.isNew() ? null : w.oldCategory;
+        if (!isBlank(w.newCategory)) n.bumpCategory = true;
+        if (!Objects.equals(oldRaw, w.newCategory)) {
+            if (!isBlank(oldRaw)) {
+                CategoryOps o = plan.of(oldNorm);
+                o.bumpCategory = true;
+                o.bumpBucket(w.oldStock);
+            }
+            if (!isBlank(w.newCategory)) n.bumpBucket(w.newStock);
+        } else if (!isBlank(w.newCategory)) {
+            if (w.oldStock != w.newStock) { n.bumpIn = true; n.bumpOut = true; }
+            else n.bumpBucket(w.newStock);
+        }
+        if (!w.isNew() && !oldNorm.equals(newNorm)) plan.of(oldNorm).op("remove", id, 0);
+    }
+
+    /** Category side of a stock change; same bump rules as product_set_stock.lua. */
+    private static void planStock(CategoryPlan plan, String id, Written w) {
+        plan.settle(id, w.version, List.of(w.oldCategory, w.newCategory));
+        CategoryOps c = plan.of(Keys.normalize(w.newCategory));
+        c.op("bucket", id, w.newStock);
+        if (isBlank(w.newCategory)) return;
+        c.bumpCategory = true;
+        if (w.oldStock != w.newStock) { c.bumpIn = true; c.bumpOut = true; }
+        else c.bumpBucket(w.newStock);
+    }
+
+    private static final class CategoryOps {
+        final List<String> ops = new ArrayList<>();
+        boolean bumpCategory, bumpIn, bumpOut;
+
+        void op(String op, String id, int stock) {
+            ops.add(op); ops.add(id); ops.add(String.valueOf(stock));
+        }
+        void bumpBucket(int stock) {
+            if (stock > 0) bumpIn = true; else bumpOut = true;
+        }
+    }
+
+    /** Touched categories in first-touch order: the new category is applied before the old one. */
+    private final class CategoryPlan {
+        final LinkedHashMap<String, CategoryOps> byNorm = new LinkedHashMap<>();
+        final Map<String, Marker> markers = new LinkedHashMap<>(); // what to settle in each id's pm marker
+
+        CategoryOps of(String norm) {
+            return byNorm.computeIfAbsent(norm, k -> new CategoryOps());
+        }
+
+        /** {@code categories} (raw, as phase 1 recorded them) are done once this plan applied; a later write wins. */
+        void settle(String id, String version, Collection<String> categories) {
+            markers.merge(id, new Marker(version, new LinkedHashSet<>(categories)), (a, b) -> {
+                b.categories().addAll(a.categories());
+                return b;
+            });
+        }
+
+        /**
+         * Applies every category (retrying Redis failures), then clears the markers phase 1 left. Phase 1 is
+         * committed, so a failure is not the caller's: it is logged and the markers stay for the reconciler.
+         * Returns false in that case.
+         */
+        boolean apply() {
+            for (Map.Entry<String, CategoryOps> e : byNorm.entrySet()) {
+                if (!applyWithRetry(e.getKey(), e.getValue())) {
+                    log.warn("cluster write: category phase for {} failed for ids {}; left to the pending-move reconciler",
+                            e.getKey(), markers.keySet());
+                    return false;
+                }
+            }
+            settleMarkers(markers);
+            return true;
+        }
+
+        private boolean applyWithRetry(String norm, CategoryOps c) {
+            List<String> keys = List.of(
+                    Keys.idxCategory(norm), Keys.idxCategoryZ(norm),
+                    Keys.idxCategoryInStock(norm), Keys.idxCategoryInStockZ(norm),
+                    Keys.idxCategoryOutOfStock(norm), Keys.idxCategoryOutOfStockZ(norm),
+                    Keys.verCategory(norm), Keys.verCategoryIn(norm), Keys.verCategoryOut(norm));
+            List<String> args = new ArrayList<>(c.ops.size() + 3);
+            args.add(c.bumpCategory ? "1" : "0");
+            args.add(c.bumpIn ? "1" : "0");
+            args.add(c.bumpOut ? "1" : "0");
+            args.addAll(c.ops);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    // phase 1 is committed: phase 2 must not be shed
+                    limiter.call(RedisConcurrencyLimiter.Priority.CRITICAL, "lua.cluster.category_apply",
+                            () -> groups.writes().execute(categoryApplyScript, keys, args.toArray()));
+                    return true;
+                } catch (RuntimeException e) {
+                    if (attempt >= PHASE2_ATTEMPTS || !RedisCircuitBreaker.isRedisFailure(e)) {
+                        log.debug("category_apply {} failed (attempt {}): {}", norm, attempt, e.toString());
+                        return false;
+                    }
+                    try {
+                        Thread.sleep(PHASE2_BACKOFF_MILLIS * attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Version the pm marker was written at, and the categories of it this plan completed. */
+    private record Marker(String version, Set<String> categories) {}
+
+    /**
+     * Removes completed categories from pm markers whose product was not written again since.
+     * Best effort: a leftover is only re-reconciled.
+     */
+    private void settleMarkers(Map<String, Marker> markers) {
+        if (markers.isEmpty()) return;
+        List<String> ids = new ArrayList<>(markers.keySet());
+        List<String> keys = new ArrayList<>(ids.size());
+        for (String id : ids) keys.add(Keys.productHash(id));
+        try {
+            pipelinedByNode("pipeline.cluster.product_settle", groups.writes(), true, keys, (connection, i) -> {
+                Marker m = markers.get(ids.get(i));
+                List<String> args = new ArrayList<>(m.categories().size() + 2);
+                args.add("settle");
+                args.add(m.version());
+                args.addAll(m.categories());
+                evalProductWrite(connection, ids.get(i), args.toArray(String[]::new));
+            });
+        } catch (RuntimeException e) {
+            log.debug("settling pending moves failed for {}: {}", ids, e.toString());
+        }
+    }
+
+    // ---- pending-move reconciler ----
+
+    private void reconcileQuietly() {
+        try {
+            int n = reconcilePendingMoves();
+            if (n > 0) log.info("cluster write: finished {} pending category moves", n);
+        } catch (RuntimeException e) {
+            log.warn("pending-move reconcile failed: {}", e.toString());
+        }
+    }
+
+    /**
+     * Finishes every write whose pm:{id} marker is still set: phase 2 is re-derived from the product as it is
+     * now (member of its current category and bucket, out of every other recorded category, all their versions
+     * bumped), which is idempotent, so racing a writer that is about to settle is harmless. Returns how many
+     * markers were settled.
+     */
+    int reconcilePendingMoves() {
+        int settled = 0;
+        for (String key : scanPendingMoves()) {
+            String id = Keys.idOfPendingMove(key);
+            List<?> r = limiter.call(RedisConcurrencyLimiter.Priority.LOW, "lua.cluster.product_write", () -> groups.writes()
+                    .execute(productWriteScript, List.of(Keys.productHash(id), Keys.verProduct(id), key), "pending"));
+            if (r == null || r.size() < 4) continue;
+            String version = str(r.get(0));
+            boolean exists = "1".equals(str(r.get(1)));
+            String curNorm = Keys.normalize(str(r.get(2)));
+
+            List<String> recorded = new ArrayList<>();
+            for (int i = 4; i < r.size(); i++) recorded.add(str(r.get(i)));
+
+            CategoryPlan plan = new CategoryPlan();
+            if (exists) {
+                CategoryOps cur = plan.of(curNorm);
+                cur.op("add", id, Integer.parseInt(str(r.get(3))));
+                cur.bumpCategory = cur.bumpIn = cur.bumpOut = true;
+            }
+            for (String raw : recorded) {
+                String norm = Keys.normalize(raw);
+                if (exists && norm.equals(curNorm)) continue;
+                CategoryOps old = plan.of(norm);
+                old.op("remove", id, 0);
+                old.bumpCategory = old.bumpIn = old.bumpOut = true;
+            }
+            plan.settle(id, version, recorded);
+            if (plan.apply()) settled++;
+        }
+        return settled;
+    }
+
+    /** pm:* keys on every master (SCAN is per node on a cluster). */
+    private List<String> scanPendingMoves() {
+        ScanOptions opts = ScanOptions.scanOptions().match(Keys.pendingMovePattern()).count(SCAN_COUNT).build();
+        List<String> out = new ArrayList<>();
+        try (RedisConnection c = groups.writes().getRequiredConnectionFactory().getConnection()) {
+            if (c instanceof RedisClusterConnection cluster) {
+                for (RedisClusterNode node : cluster.clusterGetNodes()) {
+                    if (!node.isMaster()) continue;
+                    try (Cursor<byte[]> cur = cluster.scan(node, opts)) {
+                        cur.forEachRemaining(k -> out.add(new String(k, StandardCharsets.UTF_8)));
+                    }
+                }
+            } else {
+                try (Cursor<byte[]> cur = c.keyCommands().scan(opts)) {
+                    cur.forEachRemaining(k -> out.add(new String(k, StandardCharsets.UTF_8)));
+                }
+            }
+        }
+        return out;
+    }
+
+    // ---- per-node pipelining ----
+
+    /**
+     * Run one command per key (given its index), one pipeline per cluster node; replies come back in input order.
+     * Keys of different slots share a node's pipeline (Lettuce routes each command by its own slot), so a batch
+     * costs one round trip per node, not per slot. Standalone Redis is a single node.
+     * {@code write}: once the first node's pipeline was admitted, the other nodes are not shed.
+     */
+    private List<Object> pipelinedByNode(String op, StringRedisTemplate template, boolean write, List<String> keys,
+                                         BiConsumer<RedisConnection, Integer> command) {
+        Object[] out = new Object[keys.size()];
+        boolean admitted = false;
+        for (List<Integer> idx : byNode(template, keys).values()) {
+            Supplier<List<Object>> pipeline = () -> template.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i : idx) command.accept(connection, i);
+                return null;
+            });
+            List<Object> piped = write && admitted
+                    ? limiter.call(RedisConcurrencyLimiter.Priority.CRITICAL, op, pipeline)
+                    : limiter.call(op, pipeline);
+            admitted = true;
+            for (int j = 0; j < idx.size(); j++) out[idx.get(j)] = piped.get(j);
+        }
+        return Arrays.asList(out);
+    }
+
+    /** Key indexes grouped by the master serving their slot, from the client's cached topology (no round trip). */
+    private static Map<String, List<Integer>> byNode(StringRedisTemplate template, List<String> keys) {
+        Map<String, List<Integer>> byNode = new LinkedHashMap<>();
+        try (RedisConnection c = template.getRequiredConnectionFactory().getConnection()) {
+            RedisClusterConnection cluster = c instanceof RedisClusterConnection cc ? cc : null;
+            Map<Integer, String> nodeOfSlot = new HashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String node = cluster == null ? "" : nodeOfSlot.computeIfAbsent(ClusterSlots.slot(keys.get(i)),
+                        slot -> cluster.clusterGetNodeForSlot(slot).asString());
+                byNode.computeIfAbsent(node, n -> new ArrayList<>()).add(i);
+            }
+        }
+        return byNode;
+    }
+}
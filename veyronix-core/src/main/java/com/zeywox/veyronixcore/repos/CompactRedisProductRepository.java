@@ -0,0 +1,282 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.dto.Requests;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.Keys;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
+import com.zeywox.veyronixcore.util.ReplicaReadRouter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static com.zeywox.veyronixcore.util.ValueCoercions.*;
+
+/**
+ * Compact layout (redis-layout.compact=true): same contract as {@link RedisProductRepository},
+ * roughly half the memory per product.
+ * - short key prefixes and short hash fields; the id is not repeated inside the hash
+ * - ids stored as 22-char CompactIds members instead of 36-char UUID strings
+ * - price stored as integer cents (an integer listpack entry, not a "12.50" string)
+ * - ZSETs only: no idx:category SET twins, so listing is a plain ZRANGE (no SMEMBERS seeding)
+ * Every write is one call to redis/compact/product_write.lua.
+ */
+@Repository
+@ConditionalOnProperty(name = "redis-layout.compact", havingValue = "true")
+public class CompactRedisProductRepository implements ProductRepository {
+
+    // compact hash fields
+    static final String F_NAME = "n";
+    static final String F_CATEGORY = "c";
+    static final String F_PRICE = "p";
+    static final String F_DESCRIPTION = "d";
+    static final String F_STOCK = "s";
+
+    // stored-form PATCH field -> compact field
+    private static final Map<String, String> FIELDS = Map.of(
+            "name", F_NAME, "category", F_CATEGORY, "price", F_PRICE,
+            "description", F_DESCRIPTION, "stock", F_STOCK);
+
+    private final RedisConnectionGroups groups;
+    private final RedisConcurrencyLimiter limiter;
+    private final ReplicaReadRouter routing;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> writeScript;
+
+    public CompactRedisProductRepository(
+            RedisConnectionGroups groups,
+            @SuppressWarnings("rawtypes") DefaultRedisScript<List> compactProductWriteScript,
+            RedisConcurrencyLimiter limiter,
+            ReplicaReadRouter routing
+    ) {
+        this.groups = groups;
+        this.limiter = limiter;
+        this.routing = routing;
+        this.writeScript = compactProductWriteScript;
+    }
+
+    // ---- codec ----
+
+    static Map<String, String> toHash(Product p) {
+        Map<String, String> m = new LinkedHashMap<>();
+        m.put(F_NAME, ns(p.name()));
+        m.put(F_CATEGORY, ns(p.category()));
+        m.put(F_PRICE, priceToCents(canonicalPrice(p.price())));
+        m.put(F_DESCRIPTION, ns(p.description()));
+        m.put(F_STOCK, String.valueOf(p.stock() == null ? 0 : p.stock()));
+        return m;
+    }
+
+    static Product fromHash(String id, Map<Object, Object> m) {
+        return new Product(
+                id,
+                trimToNull(str(m.get(F_NAME))),
+                defaultCategory(trimToNull(str(m.get(F_CATEGORY)))),
+                centsToPrice(str(m.get(F_PRICE))),
+                defaultEmpty(str(m.get(F_DESCRIPTION))),
+                parseIntSafe(m.get(F_STOCK)));
+    }
+
+    /** "12.50" -> "1250"; "" stays "" (no price). */
+    static String priceToCents(String canonical) {
+        if (isBlank(canonical)) return "";
+        return new BigDecimal(canonical).movePointRight(2).setScale(0, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    static Double centsToPrice(String cents) {
+        if (isBlank(cents)) return null;
+        try {
+            return BigDecimal.valueOf(Long.parseLong(cents.trim()), 2).doubleValue();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // ---- reads ----
+
+    @Override
+    public Optional<Product> getOne(String id) {
+        StringRedisTemplate reader = routing.forProduct(id);
+        Map<Object, Object> m = limiter.call("hgetall", () -> routing.read(reader, t -> t.opsForHash().entries(Keys.productHash(id))));
+        if (m == null || m.isEmpty()) return Optional.empty();
+        return Optional.of(fromHash(id, m));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Product> getMany(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+        List<String> order = new ArrayList<>(ids);
+
+        StringRedisTemplate reader = routing.forProducts(order);
+        List<Object> piped = limiter.call("pipeline.hgetall", () -> routing.read(reader, t -> t.executePipelined((RedisCallback<Object>) connection -> {
+            for (String id : order) {
+                connection.hashCommands().hGetAll(Keys.productHash(id).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        })));
+
+        List<Product> out = new ArrayList<>(order.size());
+        for (int i = 0; i < order.size(); i++) {
+            Map<Object, Object> m = (Map<Object, Object>) piped.get(i);
+            if (m != null && !m.isEmpty()) out.add(fromHash(order.get(i), m));
+        }
+        return out;
+    }
+
+    @Override
+    public List<String> listIdsByCategory(String category, Optional<Boolean> inStockFilter, int page, int size) {
+        String norm = Keys.normalize(category);
+        String zkey = inStockFilter
+                .map(b -> b ? Keys.idxCategoryInStockZ(norm) : Keys.idxCategoryOutOfStockZ(norm))
+                .orElse(Keys.idxCategoryZ(norm));
+
+        long start = (long) (page - 1) * size;
+        long end   = start + size - 1;
+
+        StringRedisTemplate reader = routing.forListing(norm, inStockFilter);
+        Set<String> members = limiter.call("zrange", () -> routing.read(reader, t -> t.opsForZSet().range(zkey, start, end)));
+        if (members == null || members.isEmpty()) return List.of();
+        List<String> ids = new ArrayList<>(members.size());
+        for (String m : members) ids.add(Keys.idOf(m));
+        return ids;
+    }
+
+    @Override
+    public long categorySize(String category, Optional<Boolean> inStockFilter) {
+        String norm = Keys.normalize(category);
+        String zkey = inStockFilter
+                .map(b -> b ? Keys.idxCategoryInStockZ(norm) : Keys.idxCategoryOutOfStockZ(norm))
+                .orElse(Keys.idxCategoryZ(norm));
+        StringRedisTemplate reader = routing.forListing(norm, inStockFilter);
+        Long n = limiter.call("zcard", () -> routing.read(reader, t -> t.opsForZSet().zCard(zkey)));
+        return n == null ? 0 : n;
+    }
+
+    // ---- writes ----
+
+    @Override
+    public void upsert(Product p) {
+        List<String> args = new ArrayList<>(16);
+        args.add("upsert");
+        args.add(Keys.member(p.id()));
+        toHash(p).forEach((k, v) -> { args.add(k); args.add(v); });
+        execute(args);
+        routing.noteWrite(p.id());
+    }
+
+    @Override
+    public PatchResult patch(String id, Map<String, String> fields) {
+        List<String> args = new ArrayList<>(fields.size() * 2 + 6);
+        args.add("patch");
+        args.add(Keys.member(id));
+        fields.forEach((k, v) -> {
+            String f = FIELDS.get(k);
+            if (f == null) return;
+            args.add(f);
+            args.add(F_PRICE.equals(f) ? priceToCents(v) : v);
+        });
+
+        List<?> res = execute(args);
+        if (res == null || res.size() < 3) throw new IllegalStateException("Lua patch returned nothing for " + id);
+        routing.noteWrite(id);
+
+        String status = str(res.get(0));
+        Map<Object, Object> hash = new HashMap<>();
+        for (int i = 3; i + 1 < res.size(); i += 2) hash.put(str(res.get(i)), res.get(i + 1));
+        // the NK registry is remapped by the caller (IdRegistry) when name/category moved
+        return new PatchResult(fromHash(id, hash), !"UNCHANGED".equals(status), "NK_PENDING".equals(status),
+                str(res.get(1)), str(res.get(2)));
+    }
+
+    @Override
+    public int setStock(String id, int stock) {
+        List<Integer> r = stock(List.of(new Requests.StockUpdate(id, stock)), false);
+        if (r.get(0) < 0) throw new EmptyResultDataAccessException("Product not found: " + id, 1);
+        return r.get(0);
+    }
+
+    @Override
+    public List<Integer> setStockBulk(List<Requests.StockUpdate> updates) {
+        if (updates == null || updates.isEmpty()) return List.of();
+        return stock(updates, true);
+    }
+
+    private List<Integer> stock(List<Requests.StockUpdate> updates, boolean skipSame) {
+        List<String> args = new ArrayList<>(updates.size() * 2 + 2);
+        args.add("stock");
+        args.add(skipSame ? "1" : "0");
+        for (Requests.StockUpdate u : updates) {
+            args.add(Keys.member(u.id()));
+            args.add(String.valueOf(u.stock()));
+        }
+        List<Integer> out = toInts(execute(args), updates.size(), "setStock");
+        routing.noteWrites(updates.stream().map(Requests.StockUpdate::id).toList());
+        return out;
+    }
+
+    @Override
+    public List<Integer> reserveStock(List<Requests.StockReservation> items) {
+        return adjustStock("reserve", items);
+    }
+
+    @Override
+    public List<Integer> releaseStock(List<Requests.StockReservation> items) {
+        return adjustStock("release", items);
+    }
+
+    private List<Integer> adjustStock(String mode, List<Requests.StockReservation> items) {
+        if (items == null || items.isEmpty()) return List.of();
+        List<String> args = new ArrayList<>(items.size() * 2 + 1);
+        args.add(mode);
+        for (Requests.StockReservation r : items) {
+            args.add(Keys.member(r.id()));
+            args.add(String.valueOf(r.quantity()));
+        }
+        List<Integer> out = toInts(execute(args), items.size(), mode);
+        routing.noteWrites(items.stream().map(Requests.StockReservation::id).toList());
+        return out;
+    }
+
+    private List<?> execute(List<String> args) {
+        try {
+            return limiter.call("lua.compact.product_write", () -> groups.writes().execute(writeScript, List.of(Keys.idxAll()), args.toArray()));
+        } catch (DataAccessException e) {
+            String msg = e.getMessage();
+            if (msg != null && msg.contains("NOT_FOUND")) {
+                throw new EmptyResultDataAccessException("NOT_FOUND " + scriptErrorId(msg, "NOT_FOUND"), 1);
+            }
+            if (msg != null && msg.contains("INSUFFICIENT_STOCK")) {
+                throw new DataIntegrityViolationException("INSUFFICIENT_STOCK " + scriptErrorId(msg, "INSUFFICIENT_STOCK"));
+            }
+            throw e;
+        }
+    }
+
+    private static List<Integer> toInts(List<?> res, int expected, String op) {
+        if (res == null || res.size() != expected) {
+            throw new IllegalStateException("Lua " + op + " returned " + (res == null ? "null" : res.size() + " results"));
+        }
+        List<Integer> out = new ArrayList<>(res.size());
+        for (Object v : res) out.add(v == null ? -1 : ((Number) v).intValue());
+        return out;
+    }
+
+    /** "... CODE <member> ..." -> canonical id of that member. */
+    private static String scriptErrorId(String msg, String code) {
+        int at = msg.indexOf(code) + code.length() + 1;
+        if (at > msg.length()) return "";
+        int end = msg.indexOf(' ', at);
+        return Keys.idOf(end < 0 ? msg.substring(at) : msg.substring(at, end));
+    }
+}
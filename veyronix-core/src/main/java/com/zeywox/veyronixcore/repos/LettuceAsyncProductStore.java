@@ -0,0 +1,137 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.config.cache.RedisAsyncProperties;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.Keys;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link AsyncProductStore} on a handful of shared Lettuce connections.
+ * Each connection is multiplexed: callers write commands and get a future back without holding a
+ * connection, so many in-flight reads share one socket and go out back-to-back (pipelined)
+ * instead of each parking a thread on a pooled connection. Admission still goes through the
+ * concurrency limiter; the permit lasts until the future completes.
+ * Legacy and compact layouts (not hash-tagged); reads always hit the primary.
+ */
+@Repository
+@ConditionalOnProperty(name = "redis-async.enabled", havingValue = "true")
+public class LettuceAsyncProductStore implements AsyncProductStore {
+
+    private final List<StatefulRedisConnection<String, String>> connections;
+    private final RedisConcurrencyLimiter limiter;
+    private final String seedAndRangeScript;
+
+    public LettuceAsyncProductStore(RedisClient asyncRedisClient,
+                                    RedisAsyncProperties props,
+                                    RedisConcurrencyLimiter limiter,
+                                    @SuppressWarnings("rawtypes") DefaultRedisScript<List> zidxSeedAndRangeScript) {
+        if (Keys.hashTags()) throw new IllegalStateException("redis-async does not support redis-layout.hash-tags");
+        int n = Math.max(1, props.connections());
+        List<StatefulRedisConnection<String, String>> cs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) cs.add(asyncRedisClient.connect());
+        this.connections = List.copyOf(cs);
+        this.limiter = limiter;
+        this.seedAndRangeScript = zidxSeedAndRangeScript.getScriptAsString();
+    }
+
+    @PreDestroy
+    public void close() {
+        connections.forEach(StatefulRedisConnection::close);
+    }
+
+    /** Same routing key -> same connection -> commands execute in the order they were issued. */
+    private RedisAsyncCommands<String, String> on(String routingKey) {
+        return connections.get(Math.floorMod(routingKey.hashCode(), connections.size())).async();
+    }
+
+    // ---- products ----
+
+    @Override
+    public CompletableFuture<Optional<Product>> getOne(String id) {
+        return limiter.callAsync("async.hgetall", () -> on(id).hgetall(Keys.productHash(id)).toCompletableFuture())
+                .thenApply(m -> m == null || m.isEmpty() ? Optional.empty() : Optional.of(decode(id, m)));
+    }
+
+    @Override
+    public CompletableFuture<List<Product>> getMany(List<String> ids) {
+        if (ids == null || ids.isEmpty()) return CompletableFuture.completedFuture(List.of());
+        // one permit for the batch, like the pipelined sync call
+        return limiter.callAsync("async.pipeline.hgetall", () -> {
+            List<CompletableFuture<Map<String, String>>> parts = new ArrayList<>(ids.size());
+            for (String id : ids) parts.add(on(id).hgetall(Keys.productHash(id)).toCompletableFuture());
+            return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).thenApply(__ -> {
+                List<Product> out = new ArrayList<>(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    Map<String, String> m = parts.get(i).join();
+                    if (m != null && !m.isEmpty()) out.add(decode(ids.get(i), m));
+                }
+                return out;
+            });
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<String>> listIdsByCategory(String category, Optional<Boolean> inStock, int page, int size) {
+        String norm = Keys.normalize(category);
+        String zkey = inStock
+                .map(b -> b ? Keys.idxCategoryInStockZ(norm) : Keys.idxCategoryOutOfStockZ(norm))
+                .orElse(Keys.idxCategoryZ(norm));
+        long start = (long) (page - 1) * size;
+        long end   = start + size - 1;
+        RedisAsyncCommands<String, String> c = on(norm);
+
+        if (Keys.compact()) {
+            return limiter.callAsync("async.zrange", () -> c.zrange(zkey, start, end).toCompletableFuture())
+                    .thenApply(members -> {
+                        List<String> ids = new ArrayList<>(members.size());
+                        for (String m : members) ids.add(Keys.idOf(m));
+                        return ids;
+                    });
+        }
+
+        String skey = inStock
+                .map(b -> b ? Keys.idxCategoryInStock(norm) : Keys.idxCategoryOutOfStock(norm))
+                .orElse(Keys.idxCategory(norm));
+        // EVAL (not EVALSHA): the body is small, and there is no NOSCRIPT round trip to handle
+        return limiter.callAsync("async.lua.zidx_seed_and_range", () -> c.<List<String>>eval(seedAndRangeScript, ScriptOutputType.MULTI,
+                        new String[]{zkey, skey}, String.valueOf(start), String.valueOf(end)).toCompletableFuture())
+                .thenApply(ids -> ids == null ? List.<String>of() : ids);
+    }
+
+    // ---- versions ----
+
+    @Override
+    public CompletableFuture<String> productVersion(String id) {
+        return version(id, Keys.verProduct(id));
+    }
+
+    @Override
+    public CompletableFuture<String> categoryVersion(String category, Optional<Boolean> inStock) {
+        String norm = Keys.normalize(category);
+        String key = inStock.isEmpty() ? Keys.verCategory(norm)
+                : inStock.get() ? Keys.verCategoryIn(norm) : Keys.verCategoryOut(norm);
+        return version(norm, key);
+    }
+
+    // same admission priority as VersionLookup: the cheap path behind 304s
+    private CompletableFuture<String> version(String routingKey, String key) {
+        return limiter.callAsync(RedisConcurrencyLimiter.Priority.HIGH, "async.get.version",
+                () -> on(routingKey).get(key).toCompletableFuture());
+    }
+
+    private static Product decode(String id, Map<String, String> m) {
+        Map<Object, Object> h = new HashMap<>(m);
+        return Keys.compact() ? CompactRedisProductRepository.fromHash(id, h) : new Product(h);
+    }
+}
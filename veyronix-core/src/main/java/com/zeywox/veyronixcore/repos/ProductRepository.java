@@ -1,9 +1,11 @@
 package com.zeywox.veyronixcore.repos;
 
+import com.zeywox.veyronixcore.dto.Requests;
 import com.zeywox.veyronixcore.models.Product;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface ProductRepository {
@@ -15,8 +17,33 @@ public interface ProductRepository {
                                    int page,
                                    int size);
 
+    // members in the category index listIdsByCategory pages through (same inStock filter)
+    long categorySize(String category, Optional<Boolean> inStock);
+
     void upsert(Product product);   // writes HASH + maintains SET and ZSET indexes
+
+    // diff + write + index moves + version bumps + NK remap in one server-side call.
+    // fields: provided PATCH fields in stored form (name, category, price, description, stock).
+    // Throws EmptyResultDataAccessException if the product does not exist.
+    PatchResult patch(String id, Map<String, String> fields);
+
+    /**
+     * @param product     state after the patch
+     * @param changed     false when every provided field already had that value (nothing written)
+     * @param nkPending   NK registry still needs remapping by the caller (hash predates stored NK parts)
+     */
+    record PatchResult(Product product, boolean changed, boolean nkPending, String oldName, String oldCategory) {}
     int setStock(String id, int stock); // toggles in/out indexes; throws if missing
+
+    // one script call per batch; category/bucket versions bumped once per batch.
+    // Result is aligned with the input: new stock, or -1 for a missing product.
+    List<Integer> setStockBulk(List<Requests.StockUpdate> updates);
+
+    // atomic, all-or-nothing HINCRBY with a floor of 0; indexes/category versions move only when stock crosses zero.
+    // Result is aligned with the input (stock after each line). Throws EmptyResultDataAccessException for a
+    // missing id and DataIntegrityViolationException when a line cannot be covered.
+    List<Integer> reserveStock(List<Requests.StockReservation> items);
+    List<Integer> releaseStock(List<Requests.StockReservation> items);
 }
 
 
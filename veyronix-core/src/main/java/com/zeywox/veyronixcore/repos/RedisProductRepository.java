@@ -1,8 +1,13 @@
 package com.zeywox.veyronixcore.repos;
 
+import com.zeywox.veyronixcore.dto.Requests;
 import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.IdRegistry;
 import com.zeywox.veyronixcore.util.Keys;
-import org.springframework.beans.factory.annotation.Qualifier;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
+import com.zeywox.veyronixcore.util.ReplicaReadRouter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
@@ -14,26 +19,48 @@ import java.util.stream.Collectors;
 import static com.zeywox.veyronixcore.util.ValueCoercions.*;
 
 @Repository
+@ConditionalOnProperty(prefix = "redis-layout", name = {"hash-tags", "compact"}, havingValue = "false", matchIfMissing = true)
 public class RedisProductRepository implements ProductRepository {
 
-    private final StringRedisTemplate redis;
+    // hash fields holding IdRegistry.nkNormalize(name/category), only for values product_patch.lua cannot derive
+    private static final String NK_NAME = "nkn";
+    private static final String NK_CATEGORY = "nkc";
+
+    private final RedisConnectionGroups groups;
+    private final RedisConcurrencyLimiter limiter;
+    private final ReplicaReadRouter routing;
 
     private final DefaultRedisScript<Long> upsertScript;
     private final DefaultRedisScript<Long> setStockScript;
     @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> setStockBulkScript;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> reserveStockScript;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> patchScript;
+    @SuppressWarnings("rawtypes")
     private final DefaultRedisScript<List> seedAndRangeScript;
 
 
     public RedisProductRepository(
-            @Qualifier("storeStringRedisTemplate") StringRedisTemplate redis,
+            RedisConnectionGroups groups,
             DefaultRedisScript<Long> productUpsertScript,
             DefaultRedisScript<Long> productSetStockScript,
-            @SuppressWarnings("rawtypes") DefaultRedisScript<List> zidxSeedAndRangeScript
-
+            @SuppressWarnings("rawtypes") DefaultRedisScript<List> productSetStockBulkScript,
+            @SuppressWarnings("rawtypes") DefaultRedisScript<List> productReserveStockScript,
+            @SuppressWarnings("rawtypes") DefaultRedisScript<List> productPatchScript,
+            @SuppressWarnings("rawtypes") DefaultRedisScript<List> zidxSeedAndRangeScript,
+            RedisConcurrencyLimiter limiter,
+            ReplicaReadRouter routing
     ) {
-        this.redis = redis;
+        this.groups = groups;
+        this.limiter = limiter;
+        this.routing = routing;
         this.upsertScript = productUpsertScript;
         this.setStockScript = productSetStockScript;
+        this.setStockBulkScript = productSetStockBulkScript;
+        this.reserveStockScript = productReserveStockScript;
+        this.patchScript = productPatchScript;
         this.seedAndRangeScript = zidxSeedAndRangeScript;
 
     }
@@ -41,22 +68,23 @@ public class RedisProductRepository implements ProductRepository {
     /** Bump the general category version (any content change within the category). */
     private void bumpCategoryVersion(String category) {
         if (isBlank(category)) return;
-        redis.opsForValue().increment(Keys.verCategory(category));
+        groups.writes().opsForValue().increment(Keys.verCategory(category));
     }
 
     /** Bump the specific in/out bucket version for a category. */
     private void bumpBucketVersion(String category, int stock) {
         if (isBlank(category)) return;
         if (stock > 0) {
-            redis.opsForValue().increment(Keys.verCategoryIn(category));
+            groups.writes().opsForValue().increment(Keys.verCategoryIn(category));
         } else {
-            redis.opsForValue().increment(Keys.verCategoryOut(category));
+            groups.writes().opsForValue().increment(Keys.verCategoryOut(category));
         }
     }
 
     @Override
     public Optional<Product> getOne(String id) {
-        Map<Object, Object> m = redis.opsForHash().entries(Keys.productHash(id));
+        StringRedisTemplate reader = routing.forProduct(id);
+        Map<Object, Object> m = limiter.call("hgetall", () -> routing.read(reader, t -> t.opsForHash().entries(Keys.productHash(id))));
         if (m == null || m.isEmpty()) return Optional.empty();
         return Optional.of(new Product(m));
     }
@@ -65,13 +93,14 @@ public class RedisProductRepository implements ProductRepository {
     public List<Product> getMany(Collection<String> ids) {
         if (ids == null || ids.isEmpty()) return List.of();
 
-        List<Object> piped = redis.executePipelined((RedisCallback<Object>) connection -> {
-            var str = redis.getStringSerializer();
+        StringRedisTemplate reader = routing.forProducts(ids);
+        List<Object> piped = limiter.call("pipeline.hgetall", () -> routing.read(reader, t -> t.executePipelined((RedisCallback<Object>) connection -> {
+            var str = t.getStringSerializer();
             for (String id : ids) {
                 connection.hashCommands().hGetAll(str.serialize(Keys.productHash(id)));
             }
             return null;
-        });
+        })));
 
         return piped.stream()
                 .map(o -> (Map<Object, Object>) o)
@@ -93,16 +122,35 @@ public class RedisProductRepository implements ProductRepository {
         long start = (long) (page - 1) * size;
         long end   = start + size - 1;
 
+        StringRedisTemplate reader = routing.forListing(norm, inStockFilter);
+        if (reader != routing.primary()) {
+            // replicas are read-only: plain ZRANGE there; an empty page may just be unseeded, so that goes to the primary
+            Set<String> ids = limiter.call("zrange", () -> routing.read(reader, t -> t.opsForZSet().range(zkey, start, end)));
+            if (ids != null && !ids.isEmpty()) return new ArrayList<>(ids);
+        }
+
         @SuppressWarnings("unchecked")
-        List<String> ids = (List<String>) (List<?>) redis.execute(
+        List<String> ids = (List<String>) (List<?>) limiter.call("lua.zidx_seed_and_range", () -> routing.primary().execute(
                 seedAndRangeScript,
                 List.of(zkey, skey),
                 String.valueOf(start), String.valueOf(end)
-        );
+        ));
         if (ids == null || ids.isEmpty()) return List.of();
         return new ArrayList<>(ids);
     }
 
+    @Override
+    public long categorySize(String category, Optional<Boolean> inStockFilter) {
+        // the SET twin is always complete; the ZSET may not be seeded yet
+        String norm = Keys.normalize(category);
+        String skey = inStockFilter
+                .map(b -> b ? Keys.idxCategoryInStock(norm) : Keys.idxCategoryOutOfStock(norm))
+                .orElse(Keys.idxCategory(norm));
+        StringRedisTemplate reader = routing.forListing(norm, inStockFilter);
+        Long n = limiter.call("scard", () -> routing.read(reader, t -> t.opsForSet().size(skey)));
+        return n == null ? 0 : n;
+    }
+
     @Override
     public void upsert(Product p) {
         String id = p.id();
@@ -111,6 +159,9 @@ public class RedisProductRepository implements ProductRepository {
         int stock = p.stock() == null ? 0 : p.stock();
 
         Map<String,String> m = p.toRedis();
+        // NK parts product_patch.lua cannot derive ride along so it can remap the registry server-side
+        putNkPart(m, NK_NAME, p.name());
+        putNkPart(m, NK_CATEGORY, p.category());
         List<String> fv = new ArrayList<>(m.size() * 2);
         m.forEach((k,v) -> { fv.add(k); fv.add(v); });
 
@@ -135,20 +186,57 @@ public class RedisProductRepository implements ProductRepository {
         args.add(String.valueOf(stock));
         args.addAll(fv);
 
-        Long ok = redis.execute(upsertScript, keys, args.toArray());
+        Long ok = limiter.call("lua.product_upsert", () -> groups.writes().execute(upsertScript, keys, args.toArray()));
         if (ok == null || ok != 1L) {
             throw new IllegalStateException("Lua upsert failed for " + id);
         }
+        routing.noteWrite(id);
     }
 
 
+    @Override
+    public PatchResult patch(String id, Map<String, String> fields) {
+        List<String> keys = List.of(Keys.productHash(id), Keys.idxNaturalKey(), Keys.verProduct(id));
+
+        List<String> args = new ArrayList<>(fields.size() * 2 + 5);
+        args.add(id);
+        fields.forEach((k, v) -> { args.add(k); args.add(v); });
+        Map<String, String> nk = new HashMap<>(4);
+        if (fields.containsKey("name"))     putNkPart(nk, NK_NAME, fields.get("name"));
+        if (fields.containsKey("category")) putNkPart(nk, NK_CATEGORY, fields.get("category"));
+        nk.forEach((k, v) -> { args.add(k); args.add(v); });
+
+        List<?> res;
+        try {
+            res = limiter.call("lua.product_patch", () -> groups.writes().execute(patchScript, keys, args.toArray()));
+        } catch (org.springframework.dao.DataAccessException e) {
+            if (e.getMessage() != null && e.getMessage().contains("NOT_FOUND")) {
+                throw new org.springframework.dao.EmptyResultDataAccessException("Product not found: " + id, 1);
+            }
+            throw e;
+        }
+        if (res == null || res.size() < 3) throw new IllegalStateException("Lua patch returned nothing for " + id);
+        routing.noteWrite(id);
+
+        String status = str(res.get(0));
+        Map<Object, Object> hash = new HashMap<>();
+        for (int i = 3; i + 1 < res.size(); i += 2) hash.put(str(res.get(i)), res.get(i + 1));
+        return new PatchResult(new Product(hash), !"UNCHANGED".equals(status), "NK_PENDING".equals(status),
+                str(res.get(1)), str(res.get(2)));
+    }
+
+    // ASCII values (most catalogs) are derived in the script and cost no hash memory
+    private static void putNkPart(Map<String, String> m, String field, String value) {
+        if (!IdRegistry.nkDerivable(value)) m.put(field, IdRegistry.nkNormalize(value));
+    }
+
     @Override
     public int setStock(String id, int stock) {
         String prodKey = Keys.productHash(id);
 
         // Keep the early NOT_FOUND guard so callers get a fast, friendly exception.
         // (The script also guards with EXISTS to be race-safe.)
-        String catRaw = redis.<String, String>opsForHash().get(prodKey, "category");
+        String catRaw = limiter.call("hget", () -> groups.writes().<String, String>opsForHash().get(prodKey, "category"));
         if (catRaw == null) {
             throw new org.springframework.dao.EmptyResultDataAccessException("Product not found: " + id, 1);
         }
@@ -160,8 +248,11 @@ public class RedisProductRepository implements ProductRepository {
         );
 
         try {
-            Long res = redis.execute(setStockScript, keys, id, String.valueOf(stock));
+            // the guard read was admitted: the write itself is not shed
+            Long res = limiter.call(RedisConcurrencyLimiter.Priority.CRITICAL, "lua.product_set_stock",
+                    () -> groups.writes().execute(setStockScript, keys, id, String.valueOf(stock)));
             if (res == null) throw new IllegalStateException("Lua setStock returned null for " + id);
+            routing.noteWrite(id);
             return res.intValue();
         } catch (org.springframework.dao.DataAccessException e) {
             if (e.getMessage() != null && e.getMessage().contains("NOT_FOUND")) {
@@ -171,10 +262,81 @@ public class RedisProductRepository implements ProductRepository {
         }
     }
 
+    @Override
+    public List<Integer> setStockBulk(List<Requests.StockUpdate> updates) {
+        if (updates == null || updates.isEmpty()) return List.of();
+
+        List<String> keys = new ArrayList<>(updates.size() * 2);
+        List<String> args = new ArrayList<>(updates.size() * 2);
+        for (Requests.StockUpdate u : updates) {
+            keys.add(Keys.productHash(u.id()));
+            keys.add(Keys.verProduct(u.id()));
+            args.add(u.id());
+            args.add(String.valueOf(u.stock()));
+        }
 
+        @SuppressWarnings("unchecked")
+        List<Long> res = (List<Long>) (List<?>) limiter.call("lua.product_set_stock_bulk", () -> groups.writes().execute(setStockBulkScript, keys, args.toArray()));
+        if (res == null || res.size() != updates.size()) {
+            throw new IllegalStateException("Lua bulk setStock returned " + (res == null ? "null" : res.size() + " results"));
+        }
+        routing.noteWrites(updates.stream().map(Requests.StockUpdate::id).toList());
+        List<Integer> out = new ArrayList<>(res.size());
+        for (Long r : res) out.add(r == null ? -1 : r.intValue());
+        return out;
+    }
 
+    @Override
+    public List<Integer> reserveStock(List<Requests.StockReservation> items) {
+        return adjustStock("reserve", items);
+    }
 
+    @Override
+    public List<Integer> releaseStock(List<Requests.StockReservation> items) {
+        return adjustStock("release", items);
+    }
 
-}
+    private List<Integer> adjustStock(String mode, List<Requests.StockReservation> items) {
+        if (items == null || items.isEmpty()) return List.of();
+
+        List<String> keys = new ArrayList<>(items.size() * 2);
+        List<String> args = new ArrayList<>(items.size() * 2 + 1);
+        args.add(mode);
+        for (Requests.StockReservation r : items) {
+            keys.add(Keys.productHash(r.id()));
+            keys.add(Keys.verProduct(r.id()));
+            args.add(r.id());
+            args.add(String.valueOf(r.quantity()));
+        }
 
+        List<Long> res;
+        try {
+            @SuppressWarnings("unchecked")
+            List<Long> r = (List<Long>) (List<?>) limiter.call("lua.product_reserve_stock", () -> groups.writes().execute(reserveStockScript, keys, args.toArray()));
+            res = r;
+        } catch (org.springframework.dao.DataAccessException e) {
+            String msg = e.getMessage();
+            if (msg != null && msg.contains("NOT_FOUND")) {
+                throw new org.springframework.dao.EmptyResultDataAccessException(scriptError(msg, "NOT_FOUND"), 1);
+            }
+            if (msg != null && msg.contains("INSUFFICIENT_STOCK")) {
+                throw new org.springframework.dao.DataIntegrityViolationException(scriptError(msg, "INSUFFICIENT_STOCK"));
+            }
+            throw e;
+        }
+        if (res == null || res.size() != items.size()) {
+            throw new IllegalStateException("Lua " + mode + " returned " + (res == null ? "null" : res.size() + " results"));
+        }
+        routing.noteWrites(items.stream().map(Requests.StockReservation::id).toList());
+        List<Integer> out = new ArrayList<>(res.size());
+        for (Long v : res) out.add(v.intValue());
+        return out;
+    }
 
+    /** "... INSUFFICIENT_STOCK <id> ..." -> "INSUFFICIENT_STOCK <id>" (drops the driver's wrapping text). */
+    private static String scriptError(String msg, String code) {
+        int at = msg.indexOf(code);
+        int end = msg.indexOf(' ', at + code.length() + 1);
+        return end < 0 ? msg.substring(at) : msg.substring(at, end);
+    }
+}
@@ -0,0 +1,418 @@
+package com.zeywox.veyronixcore.repos.catalog;
+
+import com.zeywox.veyronixcore.config.cache.CatalogEngineProperties;
+import com.zeywox.veyronixcore.config.cache.RedisLayoutProperties;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.repos.ClusterRedisProductRepository;
+import com.zeywox.veyronixcore.repos.CompactRedisProductRepository;
+import com.zeywox.veyronixcore.repos.ProductRepository;
+import com.zeywox.veyronixcore.repos.RedisProductRepository;
+import com.zeywox.veyronixcore.util.Keys;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
+import com.zeywox.veyronixcore.util.ReplicaReadRouter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The catalog held in-process (catalog-engine.enabled) as an immutable {@link CatalogSnapshot}: reads are
+ * plain array/map lookups with no lock, writes publish a new snapshot sharing everything they did not touch.
+ * Redis stays the system of record:
+ * - startup: idx:all is scanned and loaded in batches in the background; until then {@link #ready()} is false
+ *   and reads go to Redis
+ * - change feed: keyspace notifications on the product version keys (every write bumps one) queue the id,
+ *   a single applier re-reads the queued ids from the primary in batches and applies them
+ * - local writes are applied as soon as Redis acknowledges them (read-your-writes on this instance)
+ * - versions: every apply carries the ver:product counter its data belongs to, read around the data (or around the
+ *   local write); a product whose counter moved meanwhile is queued for a re-read instead, and the snapshot drops
+ *   a change no newer than what it holds, so a late local write never overwrites a newer feed apply
+ * - reconcile: pub/sub is fire-and-forget, so a full reload runs every catalog-engine.reconcile-seconds; it also
+ *   drops deleted products. Changes applied while it scans are replayed onto the new snapshot.
+ * With hash-tags (Redis Cluster) the subscription sees one node's events only: the rest arrive by reconcile.
+ */
+@Component
+@ConditionalOnProperty(name = "catalog-engine.enabled", havingValue = "true")
+public class CatalogEngine {
+    private static final Logger log = LoggerFactory.getLogger(CatalogEngine.class);
+
+    private static final int SCAN_COUNT = 1000;
+
+    private final ProductRepository delegate;
+    private final RedisConnectionGroups groups;
+    private final ReplicaReadRouter routing;
+    private final int batchSize;
+
+    private final Object writeLock = new Object();
+    private volatile CatalogSnapshot snapshot = CatalogSnapshot.empty();
+    private volatile StringPool pool = new StringPool();
+    private volatile boolean ready;
+    private List<CatalogSnapshot.Change> replay; // guarded by writeLock; non-null while a load/reconcile scans
+
+    private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private final RedisMessageListenerContainer listener; // null when the subscription could not be set up
+    private final ScheduledExecutorService timer;
+    private final ExecutorService applier;
+    private volatile boolean stopped;
+
+    public CatalogEngine(CatalogEngineProperties props,
+                         RedisLayoutProperties layout,
+                         RedisProperties redisProps,
+                         RedisConnectionFactory connectionFactory,
+                         RedisConnectionGroups groups,
+                         ReplicaReadRouter routing,
+                         ObjectProvider<RedisProductRepository> legacy,
+                         ObjectProvider<ClusterRedisProductRepository> cluster,
+                         ObjectProvider<CompactRedisProductRepository> compact) {
+        ProductRepository d = compact.getIfAvailable();
+        if (d == null) d = cluster.getIfAvailable();
+        if (d == null) d = legacy.getIfAvailable();
+        if (d == null) throw new IllegalStateException("catalog-engine.enabled needs a Redis product repository");
+        this.delegate = d;
+        this.groups = groups;
+        this.routing = routing;
+        this.batchSize = props.batchSize() > 0 ? props.batchSize() : 500;
+
+        if (props.configureNotifications()) enableNotifications(connectionFactory);
+        else checkNotifications(connectionFactory);
+        if (layout.hashTags()) {
+            log.warn("catalog engine: keyspace notifications are per node in Redis Cluster; changes from other "
+                    + "nodes reach the engine through reconcile (catalog-engine.reconcile-seconds)");
+        }
+        this.listener = subscribe(connectionFactory, redisProps.getDatabase());
+
+        this.applier = Executors.newSingleThreadExecutor(daemon("catalog-feed"));
+        this.applier.execute(this::applyLoop);
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemon("catalog-engine"));
+        this.timer.execute(this::loadQuietly);
+        if (props.reconcileSeconds() > 0) {
+            long period = props.reconcileSeconds();
+            this.timer.scheduleWithFixedDelay(this::reconcileQuietly, period, period, TimeUnit.SECONDS);
+        }
+    }
+
+    /** The Redis repository the engine loads from and writes go to. */
+    public ProductRepository delegate() { return delegate; }
+
+    /** True once the first full load has completed. */
+    public boolean ready() { return ready; }
+
+    public int products() { return snapshot.products(); }
+
+    // ---- reads ----
+
+    public Optional<Product> get(String id) {
+        return snapshot.get(id);
+    }
+
+    /** In input order; unknown ids are skipped. */
+    public List<Product> getMany(Collection<String> ids) {
+        return snapshot.getMany(ids);
+    }
+
+    public List<String> listIdsByCategory(String category, Optional<Boolean> inStock, int page, int size) {
+        return snapshot.page(Keys.normalize(category), inStock, page, size);
+    }
+
+    public long categorySize(String category, Optional<Boolean> inStock) {
+        return snapshot.size(Keys.normalize(category), inStock);
+    }
+
+    // ---- versions of what the engine answers (ETags) ----
+
+    /**
+     * ver:product counter of the data {@link #get} returns for {@code id}; null before the first load, for an id
+     * the engine does not hold (its reads fall back to Redis) and for a product without a counter.
+     */
+    public String productVersion(String id) {
+        if (!ready) return null;
+        long v = snapshot.version(id);
+        return v > 0 ? Long.toString(v) : null;
+    }
+
+    /**
+     * Stamp of the rows the category (or in/out-of-stock bucket) holds at their applied versions: it moves exactly
+     * when a page of it can change, whatever the Redis category counter already says. Null before the first load.
+     */
+    public String categoryVersion(String category, Optional<Boolean> inStock) {
+        if (!ready) return null;
+        return "c" + Long.toHexString(snapshot.stamp(Keys.normalize(category), inStock));
+    }
+
+    // ---- local writes (already acknowledged by Redis) ----
+
+    /**
+     * ver:product counters of {@code ids} on the primary (0: no counter). Read before a local write and handed to
+     * {@link #applyLocal} / {@link #applyStock}, which read them again: only a write that moved a counter by exactly
+     * its own bump is applied directly.
+     */
+    public Map<String, Long> versions(Collection<String> ids) {
+        List<String> keys = new ArrayList<>(ids.size());
+        for (String id : ids) keys.add(Keys.verProduct(id));
+        List<String> values = routing.primary().opsForValue().multiGet(keys);
+        Map<String, Long> out = new HashMap<>();
+        int i = 0;
+        for (String id : ids) {
+            String v = values == null ? null : values.get(i);
+            out.put(id, v == null ? 0L : Long.parseLong(v));
+            i++;
+        }
+        return out;
+    }
+
+    /** {@code p} as stored by a write made when its counter was {@code before}. */
+    public void applyLocal(Product p, long before) {
+        long after = versions(List.of(p.id())).get(p.id());
+        if (after == before + 1) apply(List.of(new CatalogSnapshot.Change(p, after)));
+        else enqueue(p.id()); // another write in between: the stored state is not p's
+    }
+
+    /**
+     * New stock values by id, from writes made when the counters were {@code before}; -1 (missing product) is
+     * skipped. Unknown ids, and rows the snapshot holds at another version than the write started from, are re-read
+     * from Redis: their other fields may not be the ones stored next to the new stock.
+     */
+    public void applyStock(Map<String, Integer> stockById, Map<String, Long> before) {
+        Map<String, Long> after = versions(stockById.keySet());
+        List<CatalogSnapshot.Change> changed = new ArrayList<>(stockById.size());
+        synchronized (writeLock) {
+            CatalogSnapshot s = snapshot;
+            for (var e : stockById.entrySet()) {
+                String id = e.getKey();
+                if (e.getValue() == null || e.getValue() < 0) continue;
+                long from = before.getOrDefault(id, -1L);
+                Optional<Product> cur = s.get(id);
+                if (cur.isEmpty() || s.version(id) != from || after.get(id) != from + 1) { enqueue(id); continue; }
+                Product p = cur.get();
+                Product next = new Product(p.id(), p.name(), p.category(), p.price(), p.description(), e.getValue());
+                changed.add(new CatalogSnapshot.Change(next, from + 1));
+            }
+            apply(changed);
+        }
+    }
+
+    /** Re-read {@code id} from Redis on the applier thread. */
+    public void enqueue(String id) {
+        if (queued.add(id)) queue.offer(id);
+    }
+
+    private void apply(List<CatalogSnapshot.Change> changed) {
+        if (changed.isEmpty()) return;
+        synchronized (writeLock) {
+            if (replay != null) replay.addAll(changed);
+            snapshot = snapshot.with(changed, pool);
+        }
+    }
+
+    // ---- change feed ----
+
+    private RedisMessageListenerContainer subscribe(RedisConnectionFactory cf, int database) {
+        String channelPrefix = "__keyspace@" + database + "__:";
+        try {
+            RedisMessageListenerContainer c = new RedisMessageListenerContainer();
+            c.setConnectionFactory(cf);
+            c.addMessageListener((Message message, byte[] pattern) -> {
+                String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+                if (!channel.startsWith(channelPrefix)) return;
+                String id = Keys.idOfVersionKey(channel.substring(channelPrefix.length()));
+                if (id != null) enqueue(id);
+            }, new PatternTopic(channelPrefix + Keys.verProductPrefix() + "*"));
+            c.afterPropertiesSet();
+            c.start();
+            return c;
+        } catch (RuntimeException e) {
+            log.error("catalog engine: change feed unavailable, other writers show up by reconcile only: {}", e.toString());
+            return null;
+        }
+    }
+
+    // notify-keyspace-events is server-wide: by default the operator sets it, the engine only checks it
+    private static void checkNotifications(RedisConnectionFactory cf) {
+        try (RedisConnection c = cf.getConnection()) {
+            String flags = notificationFlags(c);
+            if (!feedsVersionBumps(flags)) {
+                log.error("catalog engine: notify-keyspace-events is \"{}\", the change feed needs K and $ (or A); "
+                        + "other writers show up by reconcile only. Set it on the server (CONFIG SET "
+                        + "notify-keyspace-events K$) or set catalog-engine.configure-notifications", flags);
+            }
+        } catch (RuntimeException e) {
+            log.warn("catalog engine: could not read notify-keyspace-events, make sure it includes K$: {}", e.toString());
+        }
+    }
+
+    private static void enableNotifications(RedisConnectionFactory cf) {
+        try (RedisConnection c = cf.getConnection()) {
+            String flags = notificationFlags(c);
+            String next = flags;
+            if (!next.contains("K")) next += "K";
+            if (!next.contains("$") && !next.contains("A")) next += "$";
+            if (!next.equals(flags)) {
+                c.serverCommands().setConfig("notify-keyspace-events", next);
+                log.info("catalog engine: notify-keyspace-events {} -> {}", flags.isEmpty() ? "\"\"" : flags, next);
+            }
+        } catch (RuntimeException e) {
+            // managed Redis often forbids CONFIG: the operator sets it, or the engine lives on reconcile
+            log.error("catalog engine: could not set notify-keyspace-events (needs K$), other writers show up "
+                    + "by reconcile only: {}", e.toString());
+        }
+    }
+
+    private static String notificationFlags(RedisConnection c) {
+        Properties cur = c.serverCommands().getConfig("notify-keyspace-events");
+        return cur == null ? "" : cur.getProperty("notify-keyspace-events", "");
+    }
+
+    private static boolean feedsVersionBumps(String flags) {
+        return flags.contains("K") && (flags.contains("$") || flags.contains("A"));
+    }
+
+    private void applyLoop() {
+        while (!stopped) {
+            List<String> ids = new ArrayList<>(batchSize);
+            try {
+                String first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                ids.add(first);
+                queue.drainTo(ids, batchSize - 1);
+                ids.forEach(queued::remove); // a bump from here on queues the id again
+                routing.noteWrites(ids);     // the bump happened on the primary: do not read a lagging replica
+                apply(RedisConnectionGroups.within(RedisConnectionGroups.Group.BACKGROUND_REFRESH,
+                        () -> readVersioned(ids, false)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("catalog engine: applying {} changed ids failed, retrying: {}", ids.size(), e.toString());
+                ids.forEach(this::enqueue);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@code ids} read between two reads of their counters. A product whose counter moved is queued again (its
+     * bump queues it anyway) and kept only when {@code keepMoved}, at the version read before its data: never
+     * newer than the data, so the re-read replaces it.
+     */
+    private List<CatalogSnapshot.Change> readVersioned(List<String> ids, boolean keepMoved) {
+        Map<String, Long> before = versions(ids);
+        List<Product> ps = delegate.getMany(ids);
+        Map<String, Long> after = versions(ids);
+        List<CatalogSnapshot.Change> out = new ArrayList<>(ps.size());
+        for (Product p : ps) {
+            long v = before.get(p.id());
+            boolean moved = v != after.get(p.id());
+            if (moved) enqueue(p.id());
+            if (!moved || keepMoved) out.add(new CatalogSnapshot.Change(p, v));
+        }
+        return out;
+    }
+
+    // ---- load / reconcile ----
+
+    /** Scans idx:all into a fresh snapshot and swaps it in; changes applied meanwhile are replayed onto it. */
+    public void reload() {
+        synchronized (writeLock) {
+            replay = new ArrayList<>();
+        }
+        try {
+            long t0 = System.nanoTime();
+            StringPool nextPool = new StringPool();
+            CatalogSnapshot next = RedisConnectionGroups.within(RedisConnectionGroups.Group.BACKGROUND_REFRESH, () -> {
+                List<CatalogSnapshot.Change> all = new ArrayList<>();
+                List<String> batch = new ArrayList<>(batchSize);
+                ScanOptions opts = ScanOptions.scanOptions().count(SCAN_COUNT).build();
+                try (Cursor<String> c = groups.reads().opsForSet().scan(Keys.idxAll(), opts)) {
+                    while (c.hasNext()) {
+                        batch.add(Keys.idOf(c.next()));
+                        if (batch.size() == batchSize) { all.addAll(readVersioned(batch, true)); batch.clear(); }
+                    }
+                }
+                if (!batch.isEmpty()) all.addAll(readVersioned(batch, true));
+                return CatalogSnapshot.of(all, nextPool);
+            });
+            CatalogSnapshot swapped;
+            synchronized (writeLock) {
+                swapped = next.with(replay, nextPool);
+                snapshot = swapped;
+                pool = nextPool;
+                replay = null;
+            }
+            log.info("catalog engine: {} products loaded in {} ms ({} pooled strings)", swapped.products(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0), nextPool.size());
+        } finally {
+            synchronized (writeLock) {
+                replay = null;
+            }
+        }
+    }
+
+    private void loadQuietly() {
+        while (!stopped && !ready) {
+            try {
+                reload();
+                ready = true;
+            } catch (RuntimeException e) {
+                log.warn("catalog engine: initial load failed, reads stay on Redis; retrying: {}", e.toString());
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void reconcileQuietly() {
+        if (!ready) return;
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("catalog engine: reconcile failed, keeping the current snapshot: {}", e.toString());
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        timer.shutdownNow();
+        applier.shutdownNow();
+        if (listener != null) {
+            try {
+                listener.destroy();
+            } catch (Exception e) {
+                log.debug("catalog engine: listener shutdown: {}", e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.zeywox.veyronixcore.repos.catalog;
+
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.Keys;
+
+import java.util.*;
+
+/**
+ * An immutable, columnar copy of the catalog. Rows live in fixed-size chunks of primitive / interned-string
+ * columns; a change copies only the chunks it touches (plus the small chunk table), so readers never lock
+ * and never see half a product. Categories are dense codes (normalized name), each with a {@link CategoryIndex}.
+ * Each row keeps the ver:product counter its data was read at; a change older than the row is dropped.
+ * Each category (and in/out-of-stock bucket) has a stamp: the XOR of a hash of (id, version) over its rows, so two
+ * snapshots holding the same rows at the same versions agree on it, on any instance.
+ */
+final class CatalogSnapshot {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK - 1;
+    private static final int ALL = 0, IN = 1, OUT = 2, BUCKETS = 3; // stamps: code * BUCKETS + bucket
+
+    /** A product as read (or written) at {@code version} of its ver:product counter (0: no counter). */
+    record Change(Product product, long version) {}
+
+    private static final class Chunk {
+        final String[] id = new String[CHUNK];
+        final String[] member = new String[CHUNK];   // ZSET member form: index order
+        final String[] name = new String[CHUNK];
+        final String[] category = new String[CHUNK]; // as stored (display form)
+        final int[] categoryCode = new int[CHUNK];
+        final double[] price = new double[CHUNK];    // NaN: no price
+        final String[] description = new String[CHUNK];
+        final int[] stock = new int[CHUNK];
+        final long[] version = new long[CHUNK];
+
+        Chunk copy() {
+            Chunk c = new Chunk();
+            System.arraycopy(id, 0, c.id, 0, CHUNK);
+            System.arraycopy(member, 0, c.member, 0, CHUNK);
+            System.arraycopy(name, 0, c.name, 0, CHUNK);
+            System.arraycopy(category, 0, c.category, 0, CHUNK);
+            System.arraycopy(categoryCode, 0, c.categoryCode, 0, CHUNK);
+            System.arraycopy(price, 0, c.price, 0, CHUNK);
+            System.arraycopy(description, 0, c.description, 0, CHUNK);
+            System.arraycopy(stock, 0, c.stock, 0, CHUNK);
+            System.arraycopy(version, 0, c.version, 0, CHUNK);
+            return c;
+        }
+    }
+
+    private final Chunk[] chunks;
+    private final int rows;
+    private final Map<String, Integer> rowOf;        // id -> row
+    private final Map<String, Integer> codeOf;       // normalized category -> code (append-only)
+    private final CategoryIndex[] indexes;           // by code
+    private final long[] stamps;                     // by code * BUCKETS + bucket
+
+    private CatalogSnapshot(Chunk[] chunks, int rows, Map<String, Integer> rowOf,
+                            Map<String, Integer> codeOf, CategoryIndex[] indexes, long[] stamps) {
+        this.chunks = chunks;
+        this.rows = rows;
+        this.rowOf = rowOf;
+        this.codeOf = codeOf;
+        this.indexes = indexes;
+        this.stamps = stamps;
+    }
+
+    static CatalogSnapshot empty() {
+        return new CatalogSnapshot(new Chunk[0], 0, Map.of(), Map.of(), new CategoryIndex[0], new long[0]);
+    }
+
+    int products() { return rows; }
+
+    // ---- reads ----
+
+    Optional<Product> get(String id) {
+        Integer row = rowOf.get(id);
+        return row == null ? Optional.empty() : Optional.of(product(row));
+    }
+
+    /** The version the row was read at; -1 for an unknown id. */
+    long version(String id) {
+        Integer row = rowOf.get(id);
+        return row == null ? -1 : chunks[row >>> CHUNK_BITS].version[row & MASK];
+    }
+
+    /** In input order; unknown ids are skipped (as a missing hash is). */
+    List<Product> getMany(Collection<String> ids) {
+        List<Product> out = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Integer row = rowOf.get(id);
+            if (row != null) out.add(product(row));
+        }
+        return out;
+    }
+
+    List<String> page(String normalizedCategory, Optional<Boolean> inStock, int page, int size) {
+        return index(normalizedCategory).page(inStock, page, size, this::idOf);
+    }
+
+    int size(String normalizedCategory, Optional<Boolean> inStock) {
+        return index(normalizedCategory).size(inStock);
+    }
+
+    /** The category's (or bucket's) stamp; 0 for a category without products. */
+    long stamp(String normalizedCategory, Optional<Boolean> inStock) {
+        Integer code = codeOf.get(normalizedCategory);
+        return code == null ? 0 : stamps[code * BUCKETS + (inStock.isEmpty() ? ALL : inStock.get() ? IN : OUT)];
+    }
+
+    private CategoryIndex index(String normalizedCategory) {
+        Integer code = codeOf.get(normalizedCategory);
+        return code == null ? CategoryIndex.EMPTY : indexes[code];
+    }
+
+    private String idOf(int row) {
+        return chunks[row >>> CHUNK_BITS].id[row & MASK];
+    }
+
+    private Product product(int row) {
+        Chunk c = chunks[row >>> CHUNK_BITS];
+        int i = row & MASK;
+        double price = c.price[i];
+        return new Product(c.id[i], c.name[i], c.category[i], Double.isNaN(price) ? null : price,
+                c.description[i], c.stock[i]);
+    }
+
+    // ---- writes (single writer: CatalogEngine) ----
+
+    /**
+     * This snapshot with {@code changed} inserted or overwritten; untouched chunks and indexes are shared.
+     * A change no newer than the row's version is skipped (a late re-read, or a local write the feed already applied).
+     */
+    CatalogSnapshot with(Collection<Change> changed, StringPool pool) {
+        if (changed.isEmpty()) return this;
+        Chunk[] cs = chunks.clone();
+        boolean[] copied = new boolean[cs.length + (changed.size() >>> CHUNK_BITS) + 1];
+        Map<String, Integer> rowMap = rowOf;
+        Map<String, Integer> codes = codeOf;
+        int n = rows;
+        Set<Integer> membership = new HashSet<>(); // codes whose member set moved: re-sort
+        Set<Integer> stockOnly = new HashSet<>();  // codes where only in/out bits moved
+        Map<Integer, Long> stampXor = new HashMap<>(); // stamp slot -> rows hashed out and in
+
+        for (Change ch : changed) {
+            Product p = ch.product();
+            Integer existing = rowMap.get(p.id());
+            if (existing != null && ch.version() <= versionOf(cs, existing)) continue;
+            int row;
+            int oldCode = -1;
+            boolean oldInStock = false;
+            if (existing == null) {
+                if (rowMap == rowOf) rowMap = new HashMap<>(rowOf);
+                row = n++;
+                rowMap.put(p.id(), row);
+            } else {
+                row = existing;
+            }
+            int ci = row >>> CHUNK_BITS;
+            if (ci >= cs.length) cs = Arrays.copyOf(cs, ci + 1);
+            if (ci >= copied.length) copied = Arrays.copyOf(copied, ci + 1);
+            if (!copied[ci]) {
+                cs[ci] = cs[ci] == null ? new Chunk() : cs[ci].copy();
+                copied[ci] = true;
+            }
+            Chunk c = cs[ci];
+            int i = row & MASK;
+            if (existing != null) {
+                oldCode = c.categoryCode[i];
+                oldInStock = c.stock[i] > 0;
+                long out = stampOf(p.id(), c.version[i]);
+                stampXor.merge(oldCode * BUCKETS + ALL, out, (a, b) -> a ^ b);
+                stampXor.merge(oldCode * BUCKETS + (oldInStock ? IN : OUT), out, (a, b) -> a ^ b);
+            }
+
+            String norm = Keys.normalize(p.category());
+            Integer code = codes.get(norm);
+            if (code == null) {
+                if (codes == codeOf) codes = new HashMap<>(codeOf);
+                code = codes.size();
+                codes.put(norm, code);
+            }
+            int stock = p.stock() == null ? 0 : p.stock();
+
+            c.id[i] = p.id();
+            c.member[i] = Keys.member(p.id());
+            c.name[i] = pool.intern(p.name());
+            c.category[i] = pool.intern(p.category());
+            c.categoryCode[i] = code;
+            c.price[i] = p.price() == null ? Double.NaN : p.price();
+            c.description[i] = pool.intern(p.description());
+            c.stock[i] = stock;
+            c.version[i] = ch.version();
+            long in = stampOf(p.id(), ch.version());
+            stampXor.merge(code * BUCKETS + ALL, in, (a, b) -> a ^ b);
+            stampXor.merge(code * BUCKETS + (stock > 0 ? IN : OUT), in, (a, b) -> a ^ b);
+
+            if (oldCode != code) {
+                membership.add(code);
+                if (oldCode >= 0) membership.add(oldCode);
+            } else if (oldInStock != stock > 0) {
+                stockOnly.add(code);
+            }
+        }
+
+        CategoryIndex[] idx = Arrays.copyOf(indexes, codes.size());
+        for (int k = indexes.length; k < idx.length; k++) idx[k] = CategoryIndex.EMPTY;
+        long[] st = Arrays.copyOf(stamps, codes.size() * BUCKETS);
+        for (var e : stampXor.entrySet()) st[e.getKey()] ^= e.getValue();
+        CatalogSnapshot next = new CatalogSnapshot(cs, n, rowMap, codes, idx, st);
+        if (!membership.isEmpty()) next.resort(membership, n);
+        for (int code : stockOnly) {
+            if (!membership.contains(code)) idx[code] = CategoryIndex.of(idx[code].rows, next::inStockRow);
+        }
+        return next;
+    }
+
+    /** A snapshot of exactly {@code all}. */
+    static CatalogSnapshot of(Collection<Change> all, StringPool pool) {
+        return empty().with(all, pool);
+    }
+
+    // rebuilds the given categories' indexes from the columns (one pass over the rows)
+    private void resort(Set<Integer> codes, int n) {
+        Map<Integer, List<Integer>> members = new HashMap<>();
+        for (int code : codes) members.put(code, new ArrayList<>());
+        for (int row = 0; row < n; row++) {
+            List<Integer> l = members.get(chunks[row >>> CHUNK_BITS].categoryCode[row & MASK]);
+            if (l != null) l.add(row);
+        }
+        for (var e : members.entrySet()) {
+            int[] rowsOfCode = e.getValue().stream()
+                    .sorted(Comparator.comparing(this::memberOf))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            indexes[e.getKey()] = CategoryIndex.of(rowsOfCode, this::inStockRow);
+        }
+    }
+
+    // FNV-1a over the id, mixed with the version (murmur3 finalizer): a row's share of its category's stamp
+    private static long stampOf(String id, long version) {
+        long h = 0xcbf29ce484222325L;
+        for (int k = 0; k < id.length(); k++) {
+            h ^= id.charAt(k);
+            h *= 0x100000001b3L;
+        }
+        h ^= version * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static long versionOf(Chunk[] cs, int row) {
+        return cs[row >>> CHUNK_BITS].version[row & MASK];
+    }
+
+    private String memberOf(int row) {
+        return chunks[row >>> CHUNK_BITS].member[row & MASK];
+    }
+
+    private boolean inStockRow(int row) {
+        return chunks[row >>> CHUNK_BITS].stock[row & MASK] > 0;
+    }
+}
@@ -0,0 +1,86 @@
+package com.zeywox.veyronixcore.repos.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * One category's members in Redis ZSET order (member ascending), as row numbers, with an in-stock bitset
+ * over those positions and the set-bit count before each word, so the k-th in-stock (or out-of-stock)
+ * position is a binary search plus a word scan. Immutable.
+ */
+final class CategoryIndex {
+    static final CategoryIndex EMPTY = new CategoryIndex(new int[0], new long[0], new int[0], 0);
+
+    final int[] rows;
+    private final long[] inStock;
+    private final int[] rankBefore; // in-stock positions before word w
+    private final int inStockCount;
+
+    private CategoryIndex(int[] rows, long[] inStock, int[] rankBefore, int inStockCount) {
+        this.rows = rows;
+        this.inStock = inStock;
+        this.rankBefore = rankBefore;
+        this.inStockCount = inStockCount;
+    }
+
+    /** {@code rows} must already be in member order; {@code inStockRow} tells whether a row has stock > 0. */
+    static CategoryIndex of(int[] rows, IntPredicate inStockRow) {
+        if (rows.length == 0) return EMPTY;
+        long[] bits = new long[(rows.length + 63) >>> 6];
+        for (int i = 0; i < rows.length; i++) {
+            if (inStockRow.test(rows[i])) bits[i >>> 6] |= 1L << i;
+        }
+        int[] ranks = new int[bits.length];
+        int n = 0;
+        for (int w = 0; w < bits.length; w++) {
+            ranks[w] = n;
+            n += Long.bitCount(bits[w]);
+        }
+        return new CategoryIndex(rows, bits, ranks, n);
+    }
+
+    int size(Optional<Boolean> inStockFilter) {
+        if (inStockFilter.isEmpty()) return rows.length;
+        return inStockFilter.get() ? inStockCount : rows.length - inStockCount;
+    }
+
+    /** Ids of one page, same slice as ZRANGE start..end on the matching index; empty past the end. */
+    List<String> page(Optional<Boolean> inStockFilter, int page, int size, IntFunction<String> idOfRow) {
+        long start = (long) (page - 1) * size;
+        if (start < 0 || size <= 0 || start >= size(inStockFilter)) return List.of();
+        List<String> out = new ArrayList<>(size);
+        if (inStockFilter.isEmpty()) {
+            int end = (int) Math.min(rows.length, start + size);
+            for (int i = (int) start; i < end; i++) out.add(idOfRow.apply(rows[i]));
+            return out;
+        }
+        boolean want = inStockFilter.get();
+        for (int pos = select((int) start, want); pos < rows.length && out.size() < size; pos++) {
+            if (isInStock(pos) == want) out.add(idOfRow.apply(rows[pos]));
+        }
+        return out;
+    }
+
+    private boolean isInStock(int pos) {
+        return (inStock[pos >>> 6] & (1L << pos)) != 0;
+    }
+
+    /** Position of the k-th (0-based) in-stock, or out-of-stock, member. */
+    private int select(int k, boolean want) {
+        int lo = 0, hi = inStock.length - 1;
+        while (lo < hi) { // last word with fewer than k+1 matches before it
+            int mid = (lo + hi + 1) >>> 1;
+            if (before(mid, want) <= k) lo = mid; else hi = mid - 1;
+        }
+        long word = want ? inStock[lo] : ~inStock[lo];
+        for (int r = k - before(lo, want); r > 0; r--) word &= word - 1; // drop the r lowest matches
+        return (lo << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private int before(int word, boolean want) {
+        return want ? rankBefore[word] : (word << 6) - rankBefore[word];
+    }
+}
@@ -0,0 +1,16 @@
+package com.zeywox.veyronixcore.repos.catalog;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Canonical instances for repeated strings (categories, common names/descriptions); null-safe. */
+final class StringPool {
+    private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+
+    String intern(String s) {
+        if (s == null) return null;
+        String prev = pool.putIfAbsent(s, s);
+        return prev == null ? s : prev;
+    }
+
+    int size() { return pool.size(); }
+}
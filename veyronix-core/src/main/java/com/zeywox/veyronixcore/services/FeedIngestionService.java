@@ -2,8 +2,11 @@ package com.zeywox.veyronixcore.services;
 
 import com.zeywox.veyronixcore.dto.ProductIn;
 import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.observability.VeyronixMetrics;
+import com.zeywox.veyronixcore.observability.jfr.IngestPhaseEvent;
 import com.zeywox.veyronixcore.repos.ProductRepository;
 import com.zeywox.veyronixcore.util.IdRegistry;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -17,15 +20,28 @@ public class FeedIngestionService {
 
     private final IdRegistry ids;
     private final ProductRepository repo;
+    private final VeyronixMetrics metrics;
+    private final NegativeLookups negative;
 
-    public FeedIngestionService(IdRegistry ids, ProductRepository repo) {
+    public FeedIngestionService(IdRegistry ids, ProductRepository repo, VeyronixMetrics metrics,
+                                NegativeLookups negative) {
         this.ids = ids;
         this.repo = repo;
+        this.metrics = metrics;
+        this.negative = negative;
     }
 
 
+    /** Runs on the bulk-ingest connections, so a large feed does not starve interactive reads. */
     public List<Product> ingest(List<ProductIn> incoming) {
         if (incoming == null || incoming.isEmpty()) return List.of();
+        return RedisConnectionGroups.within(RedisConnectionGroups.Group.BULK_INGEST, () -> ingestRows(incoming));
+    }
+
+    private List<Product> ingestRows(List<ProductIn> incoming) {
+        IngestPhaseEvent store = new IngestPhaseEvent("store");
+        store.begin();
+        long t0 = System.nanoTime();
 
         List<Product> accepted = new ArrayList<>(incoming.size());
         int rejected = 0;
@@ -39,12 +55,16 @@ public class FeedIngestionService {
                 String id = ids.lookupOrCreateId(in.name(), in.category());
                 Product p = new Product(id, in.name(), in.category(), in.price(), in.description(), in.stock());
                 repo.upsert(p);
+                negative.noteId(id);
                 accepted.add(p);
             } catch (Exception e) {
                 log.warn("Ingest skip: unexpected error on row {} -> {}", in, e.toString());
                 rejected++;
             }
         }
+        metrics.ingested(accepted.size(), rejected, System.nanoTime() - t0);
+        store.items = accepted.size();
+        store.commit();
         log.info("Ingest summary: accepted={}, rejected={}", accepted.size(), rejected);
         return accepted;
     }
@@ -0,0 +1,89 @@
+package com.zeywox.veyronixcore.services;
+
+import com.zeywox.veyronixcore.config.cache.HotKeyProperties;
+import com.zeywox.veyronixcore.util.HotKeySketch;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The most requested product ids and list keys (hot-keys), from a decayed count-min sketch + top-K each.
+ * A top-K key with at least min-hits is hot: {@link ResponseCacheService} pins its entries (weight 0, so
+ * size-based eviction skips them) and refreshes hot list pages every pinned-refresh-millis.
+ */
+@Service
+public class HotKeys {
+    private static final Logger log = LoggerFactory.getLogger(HotKeys.class);
+
+    private static final int SKETCH_DEPTH = 4;
+
+    private final boolean enabled;
+    private final long minHits;
+    private final HotKeySketch products;
+    private final HotKeySketch lists;
+    private final ScheduledExecutorService timer; // null when disabled
+    private final long pinnedRefreshMillis;
+
+    public HotKeys(HotKeyProperties props) {
+        this.enabled = props.enabled();
+        this.minHits = Math.max(1, props.minHits());
+        int k = props.topK() > 0 ? props.topK() : 64;
+        int width = props.sketchWidth() > 0 ? props.sketchWidth() : 4096;
+        this.products = new HotKeySketch(k, width, SKETCH_DEPTH);
+        this.lists = new HotKeySketch(k, width, SKETCH_DEPTH);
+        this.pinnedRefreshMillis = Math.max(100, props.pinnedRefreshMillis());
+
+        if (!enabled) {
+            this.timer = null;
+            return;
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hot-keys");
+            t.setDaemon(true);
+            return t;
+        });
+        long decay = Math.max(1, props.decaySeconds());
+        timer.scheduleAtFixedRate(() -> { products.decay(); lists.decay(); }, decay, decay, TimeUnit.SECONDS);
+    }
+
+    public boolean enabled() { return enabled; }
+
+    public void recordProduct(String id) { if (enabled) products.record(id); }
+    public void recordList(String base)  { if (enabled) lists.record(base); }
+
+    public boolean isHotProduct(String id) { return enabled && products.countOf(id) >= minHits; }
+    public boolean isHotList(String base)  { return enabled && lists.countOf(base) >= minHits; }
+
+    /** Calls {@code refresh} with every hot list key, every pinned-refresh-millis. */
+    public void refreshPinnedLists(Consumer<String> refresh) {
+        if (timer == null) return;
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                for (var e : lists.snapshot()) {
+                    if (e.getValue() >= minHits) refresh.accept(e.getKey());
+                }
+            } catch (RuntimeException ex) {
+                log.warn("pinned list refresh failed: {}", ex.toString()); // keep the schedule alive
+            }
+        }, pinnedRefreshMillis, pinnedRefreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Tracked keys per kind, hottest first, with their decayed counts. */
+    public List<Map.Entry<String, Long>> topProducts() { return products.snapshot(); }
+    public List<Map.Entry<String, Long>> topLists()    { return lists.snapshot(); }
+
+    public long minHits() { return minHits; }
+
+    @PreDestroy
+    public void shutdown() {
+        if (timer != null) timer.shutdownNow();
+    }
+}
@@ -0,0 +1,218 @@
+package com.zeywox.veyronixcore.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zeywox.veyronixcore.config.cache.NegativeLookupProperties;
+import com.zeywox.veyronixcore.config.cache.RedisGuardProperties;
+import com.zeywox.veyronixcore.observability.VeyronixMetrics;
+import com.zeywox.veyronixcore.repos.ProductRepository;
+import com.zeywox.veyronixcore.util.BloomFilter;
+import com.zeywox.veyronixcore.util.Keys;
+import com.zeywox.veyronixcore.util.RedisCircuitBreaker;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Answers lookups that cannot succeed without asking Redis (negative-lookups).
+ * - ids: a Bloom filter of every known id, rebuilt from idx:all on a timer and fed by ingest, plus a short
+ *   negative cache of ids Redis just answered 404 for. Until the first rebuild completes nothing is filtered.
+ *   A filter miss is advisory: ids written by another instance reach the filter only on its next rebuild,
+ *   so the miss is confirmed with one SISMEMBER on idx:all before it is cached as missing. The check goes
+ *   through the limiter and the breaker like any other read, and waits at most read-budget-millis.
+ * - list pages: a page starting past the category's size is empty; sizes are cached briefly.
+ */
+@Service
+public class NegativeLookups {
+    private static final Logger log = LoggerFactory.getLogger(NegativeLookups.class);
+
+    private static final int SCAN_COUNT = 1000;
+
+    private final boolean enabled;
+    private final long expectedIds;
+    private final double falsePositiveRate;
+    private final RedisConnectionGroups groups;
+    private final ProductRepository repo;
+    private final RedisConcurrencyLimiter limiter;
+    private final RedisCircuitBreaker breaker;
+    private final long readBudgetMillis;
+    private final ExecutorService executor;
+    private final VeyronixMetrics metrics;
+
+    private final Cache<String, Boolean> missing;
+    private final Cache<String, Long> sizes;
+    private final ScheduledExecutorService timer; // null when disabled
+
+    private volatile BloomFilter known;    // null until the first rebuild completes
+    private volatile BloomFilter building; // receives adds while a rebuild scans
+
+    public NegativeLookups(NegativeLookupProperties props, RedisConnectionGroups groups,
+                           ProductRepository repo,
+                           RedisConcurrencyLimiter limiter,
+                           RedisCircuitBreaker breaker,
+                           RedisGuardProperties guard,
+                           @Qualifier("cacheFillExecutor") ExecutorService executor,
+                           VeyronixMetrics metrics) {
+        this.enabled = props.enabled();
+        this.expectedIds = props.expectedIds() > 0 ? props.expectedIds() : 1_000_000;
+        this.falsePositiveRate = props.falsePositiveRate() > 0 ? props.falsePositiveRate() : 0.01;
+        this.groups = groups;
+        this.repo = repo;
+        this.limiter = limiter;
+        this.breaker = breaker;
+        this.readBudgetMillis = Math.max(1, guard.readBudgetMillis());
+        this.executor = executor;
+        this.metrics = metrics;
+
+        this.missing = Caffeine.newBuilder()
+                .expireAfterWrite(Math.max(1, props.negativeTtlMillis()), TimeUnit.MILLISECONDS)
+                .maximumSize(100_000)
+                .build();
+        this.sizes = Caffeine.newBuilder()
+                .expireAfterWrite(Math.max(1, props.cardinalityTtlMillis()), TimeUnit.MILLISECONDS)
+                .maximumSize(10_000)
+                .build();
+
+        if (!enabled) {
+            this.timer = null;
+            return;
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "negative-lookups");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1, props.rebuildSeconds());
+        this.timer.scheduleWithFixedDelay(this::rebuildQuietly, 0, period, TimeUnit.SECONDS);
+    }
+
+    // ---- ids ----
+
+    /**
+     * True when Redis said a moment ago that {@code id} has no product (negative cache), or the filter does not
+     * know it and idx:all confirms that. A confirmed miss is cached for negative-ttl-millis; an id found in
+     * idx:all is added to the filter. Redis trouble, a shed, an open breaker or a check slower than the read
+     * budget answer false ("not known missing"): the regular path decides.
+     */
+    public boolean definitelyMissing(String id) {
+        if (!enabled) return false;
+        if (missing.getIfPresent(id) != null) {
+            metrics.negativeAnswered("cache");
+            return true;
+        }
+        BloomFilter f = known;
+        if (f == null || f.mightContain(id)) return false;
+        Boolean member;
+        try {
+            member = CompletableFuture.supplyAsync(() -> breaker.call(() -> limiter.call("sismember", () ->
+                            groups.reads().opsForSet().isMember(Keys.idxAll(), Keys.member(id)))), executor)
+                    .get(readBudgetMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException | RuntimeException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (Boolean.TRUE.equals(member)) {
+            f.add(id); // written elsewhere since the last rebuild
+            return false;
+        }
+        missing.put(id, Boolean.TRUE);
+        metrics.negativeAnswered("filter");
+        return true;
+    }
+
+    /** Redis answered 404 for {@code id}. */
+    public void noteMissing(String id) {
+        if (enabled) missing.put(id, Boolean.TRUE);
+    }
+
+    /** {@code id} was just written: it must never read as missing from now on. */
+    public void noteId(String id) {
+        if (!enabled) return;
+        BloomFilter b = building;
+        if (b != null) b.add(id);
+        BloomFilter f = known;
+        if (f != null) f.add(id);
+        missing.invalidate(id);
+    }
+
+    // ---- list pages ----
+
+    /** True when page {@code page} of the category starts past its last member. Never true for page 1. */
+    public boolean pastLastPage(String category, Optional<Boolean> inStock, int page, int size) {
+        if (!enabled || page <= 1) return false;
+        String key = Keys.normalize(category) + inStock.map(b -> b ? "|in" : "|out").orElse("|all");
+        Long n = sizes.getIfPresent(key);
+        if (n == null) {
+            try {
+                n = repo.categorySize(category, inStock);
+            } catch (RuntimeException e) {
+                return false; // shed or Redis trouble: let the range decide
+            }
+            sizes.put(key, n);
+        }
+        if ((long) (page - 1) * size < n) return false;
+        metrics.negativeAnswered("page");
+        return true;
+    }
+
+    // ---- rebuild ----
+
+    /** Scans idx:all into a fresh filter and swaps it in. Adds made during the scan land in both. */
+    public void rebuild() {
+        BloomFilter next = new BloomFilter(expectedIds, falsePositiveRate);
+        building = next;
+        long n = 0;
+        try {
+            n = RedisConnectionGroups.within(RedisConnectionGroups.Group.BACKGROUND_REFRESH, () -> {
+                long count = 0;
+                ScanOptions opts = ScanOptions.scanOptions().count(SCAN_COUNT).build();
+                try (Cursor<String> c = groups.reads().opsForSet().scan(Keys.idxAll(), opts)) {
+                    while (c.hasNext()) {
+                        next.add(Keys.idOf(c.next()));
+                        count++;
+                    }
+                }
+                return count;
+            });
+            known = next;
+        } finally {
+            building = null;
+        }
+        if (n > expectedIds) {
+            log.warn("negative lookups: {} ids exceed negative-lookups.expected-ids={}, false positives will rise",
+                    n, expectedIds);
+        }
+        log.debug("negative lookups: filter rebuilt with {} ids ({} bits, {} hashes)", n, next.bitSize(), next.hashCount());
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // keep the previous filter (or none): local writes still reach it through noteId
+            log.warn("negative lookups: rebuild failed, keeping the previous filter: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (timer != null) timer.shutdownNow();
+    }
+}
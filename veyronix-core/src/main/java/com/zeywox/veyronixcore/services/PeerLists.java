@@ -0,0 +1,183 @@
+package com.zeywox.veyronixcore.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zeywox.veyronixcore.config.cache.PeerProperties;
+import com.zeywox.veyronixcore.config.cache.ResponseCacheProperties;
+import com.zeywox.veyronixcore.dto.CachedResponse;
+import com.zeywox.veyronixcore.dto.Meta;
+import com.zeywox.veyronixcore.util.HashRing;
+import com.zeywox.veyronixcore.util.Keys;
+import com.zeywox.veyronixcore.util.ResponseHeaders;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Peer mode (peers.enabled): every category is owned by one instance on a consistent-hash ring over
+ * peers.members. Only the owner keeps the category's pages in L1 and refreshes them; the other instances
+ * fetch the encoded page from the owner (GET /products with {@link #PEER_HEADER}, gzip as stored) and keep a
+ * short local copy, revalidated with If-None-Match once it is older than peers.copy-millis.
+ * A request carrying the header is always answered locally, so a ring disagreement cannot loop.
+ * An owner that failed or ran over the read budget is skipped for {@link #OWNER_RETRY_MILLIS}: during that window
+ * its pages are served from the old copy (stale) or built locally without waiting on it again.
+ */
+@Service
+public class PeerLists {
+    private static final Logger log = LoggerFactory.getLogger(PeerLists.class);
+
+    public static final String PEER_HEADER = "X-Veyronix-Peer";
+
+    static final long OWNER_RETRY_MILLIS = 1_000;
+
+    private final boolean enabled;
+    private final String self;
+    private final HashRing ring;
+    private final HttpClient client;
+    private final Duration timeout;
+    private final long copyNanos;
+    private final long ttlSeconds;
+
+    private final Cache<String, Copy> copies;             // kept for the L1 hard TTL: revalidation + stale fallback
+    private final Cache<String, String> owners;           // raw category -> owner URL
+    private final ConcurrentHashMap<String, CompletableFuture<Copy>> inflight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> ownerDownUntil = new ConcurrentHashMap<>(); // owner URL -> nanoTime
+
+    /** A page fetched from its owner, and when it was last confirmed current. */
+    public record Copy(CachedResponse response, long confirmedNanos) {}
+
+    public PeerLists(PeerProperties props, ResponseCacheProperties cacheProps) {
+        this.enabled = props.enabled();
+        this.ttlSeconds = cacheProps.hardTtlSeconds();
+        this.timeout = Duration.ofMillis(Math.max(1, props.timeoutMillis()));
+        this.copyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, props.copyMillis()));
+        this.copies = Caffeine.newBuilder()
+                .expireAfterWrite(Math.max(1, ttlSeconds), TimeUnit.SECONDS)
+                .maximumWeight(props.copyMaxBytes() > 0 ? props.copyMaxBytes() : 16 * 1024 * 1024)
+                .weigher((String k, Copy c) -> c.response().gz().length)
+                .build();
+        this.owners = Caffeine.newBuilder().maximumSize(10_000).build();
+
+        if (!enabled) {
+            this.self = null;
+            this.ring = null;
+            this.client = null;
+            return;
+        }
+        if (props.self() == null || props.self().isBlank()) {
+            throw new IllegalStateException("peers.enabled needs peers.self (this instance's base URL)");
+        }
+        this.self = trim(props.self());
+        List<String> members = new ArrayList<>();
+        if (props.members() != null) for (String m : props.members()) if (!m.isBlank()) members.add(trim(m));
+        if (!members.contains(self)) {
+            log.warn("peers.self {} is not in peers.members {}: added, but other instances will not route to it",
+                    self, members);
+            members.add(self);
+        }
+        this.ring = new HashRing(members, props.virtualNodes() > 0 ? props.virtualNodes() : 128);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        log.info("peer mode: {} of {} members", self, members.size());
+    }
+
+    /** Owner's base URL when another instance owns {@code category} and {@code req} is not itself a peer fetch. */
+    public String remoteOwner(String category, HttpServletRequest req) {
+        if (!enabled || req.getHeader(PEER_HEADER) != null) return null;
+        String owner = owners.get(category, c -> ring.owner(Keys.normalize(c)));
+        return self.equals(owner) ? null : owner;
+    }
+
+    /** The local copy of a page, fresh or not; null when there is none. */
+    public Copy copy(String base) {
+        return copies.getIfPresent(base);
+    }
+
+    public boolean isFresh(Copy c) {
+        return System.nanoTime() - c.confirmedNanos() < copyNanos;
+    }
+
+    /** True inside the retry window after {@code owner} failed or ran over budget: don't wait on it. */
+    public boolean ownerDown(String owner) {
+        Long until = ownerDownUntil.get(owner);
+        if (until == null) return false;
+        if (System.nanoTime() - until < 0) return true;
+        ownerDownUntil.remove(owner, until);
+        return false;
+    }
+
+    /** {@code owner} failed or ran over budget: skip it for {@link #OWNER_RETRY_MILLIS}. */
+    public void ownerFailed(String owner) {
+        ownerDownUntil.put(owner, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(OWNER_RETRY_MILLIS));
+    }
+
+    /**
+     * One request to the owner per page at a time (concurrent callers join it). With a previous copy the
+     * request is conditional; a 304 re-confirms it. Fails on anything but 200/304 or a timeout.
+     */
+    public CompletableFuture<Copy> fetch(String owner, String base, String category, Optional<Boolean> inStock,
+                                         int page, int size, Copy previous) {
+        CompletableFuture<Copy> joined = inflight.get(base);
+        if (joined != null) return joined;
+        CompletableFuture<Copy> f = inflight.computeIfAbsent(base, k -> send(owner, category, inStock, page, size, previous)
+                .thenApply(c -> { copies.put(base, c); return c; }));
+        f.whenComplete((__, ___) -> inflight.remove(base, f));
+        return f;
+    }
+
+    private CompletableFuture<Copy> send(String owner, String category, Optional<Boolean> inStock,
+                                         int page, int size, Copy previous) {
+        StringBuilder q = new StringBuilder(owner).append("/products?category=")
+                .append(URLEncoder.encode(category, StandardCharsets.UTF_8));
+        inStock.ifPresent(b -> q.append("&inStock=").append(b));
+        q.append("&page=").append(page).append("&size=").append(size);
+
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(q.toString()))
+                .timeout(timeout)
+                .header(PEER_HEADER, self)
+                .header(HttpHeaders.ACCEPT, "application/json")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .GET();
+        if (previous != null) b.header(HttpHeaders.IF_NONE_MATCH, previous.response().meta().etag);
+
+        return client.sendAsync(b.build(), HttpResponse.BodyHandlers.ofByteArray()).thenApply(r -> {
+            long now = System.nanoTime();
+            if (r.statusCode() == 304 && previous != null) return new Copy(previous.response(), now);
+            if (r.statusCode() != 200) throw new IllegalStateException("peer " + owner + " answered " + r.statusCode());
+            String etag = r.headers().firstValue(HttpHeaders.ETAG).orElse(null);
+            String lastModified = r.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null);
+            if (etag == null || lastModified == null
+                    || !"gzip".equalsIgnoreCase(r.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(""))) {
+                throw new IllegalStateException("peer " + owner + " sent no validators or no gzip body");
+            }
+            long lastMod = ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            Meta meta = new Meta(etag, lastMod, "application/json");
+            return new Copy(new CachedResponse(r.body(), meta, ResponseHeaders.ok(meta, ttlSeconds)), now);
+        });
+    }
+
+    private static String trim(String url) {
+        String u = url.trim();
+        return u.endsWith("/") ? u.substring(0, u.length() - 1) : u;
+    }
+}
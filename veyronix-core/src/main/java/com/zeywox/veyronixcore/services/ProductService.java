@@ -1,26 +1,39 @@
 package com.zeywox.veyronixcore.services;
 
+import com.zeywox.veyronixcore.config.controller.GlobalExceptionHandler;
 import com.zeywox.veyronixcore.dto.PatchProductRequest;
+import com.zeywox.veyronixcore.dto.Requests;
 import com.zeywox.veyronixcore.models.Product;
 import com.zeywox.veyronixcore.repos.ProductRepository;
 import com.zeywox.veyronixcore.util.IdRegistry;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Objects;
 import java.util.Optional;
 
+import static com.zeywox.veyronixcore.util.ValueCoercions.canonicalPrice;
+
 @Service
 public class ProductService {
 
     private final ProductRepository repo;
-    private final IdRegistry idRegistry; // only for NK remap on name/category change
+    private final IdRegistry idRegistry; // only for NK remap fallback on hashes without stored NK parts
+    private final NegativeLookups negative;
+    private final ResponseCacheService cache; // write-through of local mutations into L1
 
-    public ProductService(ProductRepository repo, IdRegistry idRegistry) {
+    public ProductService(ProductRepository repo, IdRegistry idRegistry, NegativeLookups negative,
+                          ResponseCacheService cache) {
         this.repo = repo;
         this.idRegistry = idRegistry;
+        this.negative = negative;
+        this.cache = cache;
     }
 
     // ---- Reads ----
@@ -32,77 +45,140 @@ public class ProductService {
         if (category == null || category.isBlank()) {
             throw new IllegalArgumentException("category is required and cannot be blank");
         }
+        if (negative.pastLastPage(category, inStockFilter, page, size)) return List.of();
         var ids = repo.listIdsByCategory(category, inStockFilter, page, size);
         if (ids.isEmpty()) return List.of();
         return repo.getMany(ids);
     }
 
     // ---- Mutations ----
+    /**
+     * Single round trip: product_patch.lua diffs, writes, moves indexes, bumps versions and remaps
+     * the natural key server-side, then hands back the updated product. A change is written through
+     * to this instance's L1 (product entry + the category's cached pages) in the background.
+     */
     public Product patch(String id, PatchProductRequest req) {
-        Product old = repo.getOne(id)
-                .orElseThrow(() -> new NoSuchElementException("Product not found: " + id));
-
-        String  name        = old.name();
-        String  category    = old.category();
-        Double  price       = old.price();
-        String  description = old.description();
-        Integer stock       = old.stock();
-
-        boolean nameChange = false, categoryChange = false, anyChange = false;
+        Map<String, String> fields = new LinkedHashMap<>();
 
         // name
         if (req.name != null) {
             if (req.name.isEmpty()) throw new IllegalArgumentException("name cannot be blank");
-            if (!Objects.equals(req.name, name)) { name = req.name; nameChange = anyChange = true; }
+            fields.put("name", req.name);
         }
 
         // category (empty => "uncategorized")
         if (req.category != null) {
-            String c = req.category.isEmpty() ? "uncategorized" : req.category;
-            if (!Objects.equals(c, category)) { category = c; categoryChange = anyChange = true; }
+            fields.put("category", req.category.isEmpty() ? "uncategorized" : req.category);
         }
 
-        // price (already scaled/validated by DoublePriceDeserializer)
-        if (req.price != null && !Objects.equals(req.price, price)) {
-            price = req.price; anyChange = true;
-        }
+        // price (already scaled/validated by DoublePriceDeserializer); compared in stored form
+        if (req.price != null) fields.put("price", canonicalPrice(req.price));
 
         // description
-        if (req.description != null && !Objects.equals(req.description, description)) {
-            description = req.description; anyChange = true;
-        }
+        if (req.description != null) fields.put("description", req.description);
 
         // stock (@PositiveOrZero already validated)
-        if (req.stock != null && !Objects.equals(req.stock, stock)) {
-            stock = req.stock; anyChange = true;
+        if (req.stock != null) fields.put("stock", String.valueOf(req.stock));
+
+        ProductRepository.PatchResult res;
+        try {
+            res = repo.patch(id, fields);
+        } catch (EmptyResultDataAccessException notFound) {
+            throw new NoSuchElementException("Product not found: " + id);
+        }
+
+        // hashes written before NK parts were stored: remap the old way (the next ingest backfills them)
+        if (res.nkPending()) {
+            Product p = res.product();
+            idRegistry.remapIfChanged(res.oldName(), res.oldCategory(), p.name(), p.category(), id);
         }
 
-        // product cannot own previous construction steps because of this line
-        // i can create Optional<Product> , but i don't want to add overhead
-        if (!anyChange) return old;
+        if (res.changed()) cache.writeThrough(id, res::product, res.oldCategory());
+        return res.product();
+    }
+
+    /** Items per Lua call for bulk stock pushes (one RTT and one version bump per category per batch). */
+    public static final int STOCK_BATCH_SIZE = 500;
+
+    /** Validates the whole list up front, then applies it in {@link #STOCK_BATCH_SIZE} batches. */
+    public Requests.BulkStockResult setStockBulk(List<Requests.StockUpdate> updates) {
+        if (updates == null || updates.isEmpty()) return new Requests.BulkStockResult(0, List.of());
+        for (Requests.StockUpdate u : updates) checkStockUpdate(u);
 
-        Product updated = new Product(id, name, category, price, description, stock);
-        repo.upsert(updated);
+        // stock feeds are ingest traffic: bulk-ingest connections, not the interactive write pool
+        return RedisConnectionGroups.within(RedisConnectionGroups.Group.BULK_INGEST, () -> applyStockBatches(updates));
+    }
 
-        // internal flag if you want it
-//        req.keyChange = nameChange || categoryChange;
+    /** Per-line validation of a bulk stock push; NDJSON streams run it line by line as they read. */
+    public static void checkStockUpdate(Requests.StockUpdate u) {
+        if (u == null || u.id() == null || u.id().isBlank()) throw new IllegalArgumentException("id is required");
+        if (u.stock() == null || u.stock() < 0) throw new IllegalArgumentException("stock must be >= 0 for " + u.id());
+    }
 
-        if (nameChange || categoryChange) {
-            idRegistry.remapIfChanged(old.name(), old.category(), name, category, id);
+    private Requests.BulkStockResult applyStockBatches(List<Requests.StockUpdate> updates) {
+        int updated = 0;
+        List<String> missing = new ArrayList<>();
+        for (int from = 0; from < updates.size(); from += STOCK_BATCH_SIZE) {
+            List<Requests.StockUpdate> batch = updates.subList(from, Math.min(updates.size(), from + STOCK_BATCH_SIZE));
+            List<Integer> res = repo.setStockBulk(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                if (res.get(i) < 0) missing.add(batch.get(i).id());
+                else updated++;
+            }
         }
+        return new Requests.BulkStockResult(updated, missing);
+    }
+
+    // ---- Reservations (flash-sale / checkout path) ----
+
+    public int reserve(String id, int quantity) {
+        return reserve(List.of(new Requests.StockReservation(id, quantity))).get(0);
+    }
 
-        return updated;
+    public int release(String id, int quantity) {
+        return release(List.of(new Requests.StockReservation(id, quantity))).get(0);
     }
 
+    /** All-or-nothing: either every line is reserved or nothing changes (409 names the first short line). */
+    public List<Integer> reserve(List<Requests.StockReservation> items) {
+        validateReservations(items);
+        try {
+            return repo.reserveStock(items);
+        } catch (EmptyResultDataAccessException notFound) {
+            throw new GlobalExceptionHandler.NotFound(notFound.getMessage());
+        } catch (DataIntegrityViolationException shortfall) {
+            throw new GlobalExceptionHandler.Conflict(shortfall.getMessage());
+        }
+    }
 
+    public List<Integer> release(List<Requests.StockReservation> items) {
+        validateReservations(items);
+        try {
+            return repo.releaseStock(items);
+        } catch (EmptyResultDataAccessException notFound) {
+            throw new GlobalExceptionHandler.NotFound(notFound.getMessage());
+        }
+    }
+
+    private static void validateReservations(List<Requests.StockReservation> items) {
+        if (items == null || items.isEmpty()) throw new IllegalArgumentException("at least one item is required");
+        for (Requests.StockReservation r : items) {
+            if (r == null || r.id() == null || r.id().isBlank()) throw new IllegalArgumentException("id is required");
+            if (r.quantity() == null || r.quantity() < 1) throw new IllegalArgumentException("quantity must be >= 1 for " + r.id());
+        }
+    }
 
     public int setStock(String id, int stock) {
         if (stock < 0) throw new IllegalArgumentException("stock must be >= 0");
+        int result;
         try {
-            return repo.setStock(id, stock);
+            result = repo.setStock(id, stock);
         } catch (EmptyResultDataAccessException notFound) {
             throw new NoSuchElementException("Product not found: " + id);
         }
+        // the script returns only the stock: the write-through reads the product back (primary, RYW window)
+        cache.writeThrough(id, () -> repo.getOne(id).orElse(null), null);
+        return result;
     }
 }
 
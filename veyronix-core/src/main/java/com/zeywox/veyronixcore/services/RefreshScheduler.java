@@ -0,0 +1,203 @@
+package com.zeywox.veyronixcore.services;
+
+import com.zeywox.veyronixcore.config.cache.ResponseCacheProperties;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Background L1 refreshes, kept off the foreground miss executor.
+ * - a fixed number of refresh workers (their own Redis concurrency, LOW limiter priority)
+ * - hottest keys first (decayed per-key hit counts)
+ * - random jitter before a refresh becomes due, so a version bump doesn't line everyone up
+ * - revalidate budget: a refresh not finished within it is abandoned and the old value kept; one already
+ *   running has its worker interrupted, which cancels the blocked Redis command and frees worker and permit
+ * - under Redis pressure, refreshes of cold keys are dropped outright
+ * Abandoned/dropped refreshes complete with Cancellation/Timeout: Caffeine keeps the old value
+ * (still bounded by the hard TTL) and retries on a later read, without logging.
+ */
+@Service
+public class RefreshScheduler {
+    private static final Logger log = LoggerFactory.getLogger(RefreshScheduler.class);
+
+    private static final long DECAY_PERIOD_SECONDS = 10;
+
+    private final long budgetMillis;
+    private final int jitterMillis;
+    private final long coldHits;
+    private final double pressureUtilization;
+    private final RedisConcurrencyLimiter limiter;
+
+    private final ConcurrentHashMap<String, AtomicLong> hits = new ConcurrentHashMap<>();
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+    private final ScheduledExecutorService timer;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final AtomicLong seq = new AtomicLong();
+
+    public RefreshScheduler(ResponseCacheProperties props, RedisConcurrencyLimiter limiter) {
+        this.budgetMillis = Math.max(1, props.revalidateBudgetMillis());
+        this.jitterMillis = Math.max(0, props.refreshJitterMillis());
+        this.coldHits = Math.max(0, props.refreshColdHits());
+        this.pressureUtilization = props.refreshPressureUtilization() > 0 ? props.refreshPressureUtilization() : 0.75;
+        this.limiter = limiter;
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "l1-refresh-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.scheduleAtFixedRate(this::decay, DECAY_PERIOD_SECONDS, DECAY_PERIOD_SECONDS, TimeUnit.SECONDS);
+
+        int n = Math.max(1, props.refreshWorkers());
+        this.workers = new Thread[n];
+        for (int i = 0; i < n; i++) {
+            workers[i] = Thread.ofVirtual().name("l1-refresh-", i).start(this::workLoop);
+        }
+    }
+
+    /** Count a read of {@code key}; drives refresh ordering and the cold-key drop decision. */
+    public void recordHit(String key) {
+        hits.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public long hitScore(String key) {
+        AtomicLong c = hits.get(key);
+        return c == null ? 0 : c.get();
+    }
+
+    public long droppedCount()   { return dropped.sum(); }
+    public long completedCount() { return completed.sum(); }
+    public long failedCount()    { return failed.sum(); }
+    public long expiredCount()   { return expired.sum(); }
+
+    public int queued() { return queue.size(); }
+
+    /** Schedule a refresh of {@code key}; the future completes with the new value or is cancelled/timed out. */
+    public <T> CompletableFuture<T> submit(String key, Supplier<T> refresh) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        Job job = new Job(key, refresh, f, seq.incrementAndGet());
+        long delay = jitterMillis == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterMillis + 1L);
+        timer.schedule(() -> enqueue(job), delay, TimeUnit.MILLISECONDS);
+        return f;
+    }
+
+    /** Like {@link #submit}, without the jitter: for rebuilds this instance caused itself (write-through). */
+    public <T> CompletableFuture<T> submitNow(String key, Supplier<T> refresh) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        enqueue(new Job(key, refresh, f, seq.incrementAndGet()));
+        return f;
+    }
+
+    private void enqueue(Job job) {
+        job.score = hitScore(job.key);
+        job.future.orTimeout(budgetMillis, TimeUnit.MILLISECONDS) // budget starts once it's due
+                .whenComplete((v, t) -> { if (t instanceof TimeoutException) job.interruptRunner(); });
+        queue.add(job);
+    }
+
+    private void workLoop() {
+        while (running) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                if (!running) return;
+                continue; // late interrupt aimed at the previous job
+            }
+            if (job.future.isDone()) { expired.increment(); continue; } // over budget while queued
+            if (job.score < coldHits && limiter.utilization() > pressureUtilization) {
+                dropped.increment();
+                job.future.cancel(false);
+                continue;
+            }
+            Thread self = Thread.currentThread();
+            job.runner.set(self);
+            if (job.future.isDone()) { job.runner.set(null); expired.increment(); continue; } // timed out just now
+            try {
+                Object v = RedisConnectionGroups.within(RedisConnectionGroups.Group.BACKGROUND_REFRESH, () ->
+                        RedisConcurrencyLimiter.withPriority(RedisConcurrencyLimiter.Priority.LOW, job.refresh));
+                job.complete(v);
+            } catch (Throwable t) {
+                job.future.completeExceptionally(t);
+            } finally {
+                if (!job.runner.compareAndSet(self, null)) Thread.interrupted(); // the budget interrupted us: clear it
+            }
+            if (job.future.isCompletedExceptionally()) {
+                if (isTimeout(job.future)) expired.increment(); else failed.increment();
+            } else {
+                completed.increment();
+            }
+        }
+    }
+
+    private static boolean isTimeout(CompletableFuture<?> f) {
+        try {
+            f.join();
+            return false;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof TimeoutException;
+        } catch (CancellationException e) {
+            return false;
+        }
+    }
+
+    /** Halve every score so "recent" hit rate wins; forget keys that went quiet. */
+    private void decay() {
+        hits.forEach((k, c) -> {
+            if (c.updateAndGet(v -> v >> 1) == 0) hits.remove(k, c);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        timer.shutdownNow();
+        for (Thread w : workers) w.interrupt();
+        log.info("refresh scheduler stopped (dropped={})", dropped.sum());
+    }
+
+    private static final class Job implements Comparable<Job> {
+        final String key;
+        final Supplier<?> refresh;
+        final CompletableFuture<?> future;
+        final long seq;
+        final AtomicReference<Thread> runner = new AtomicReference<>(); // worker running it, while it runs
+        volatile long score;
+
+        Job(String key, Supplier<?> refresh, CompletableFuture<?> future, long seq) {
+            this.key = key; this.refresh = refresh; this.future = future; this.seq = seq;
+        }
+
+        /** Over budget: stop the worker waiting on Redis (Lettuce cancels the command on interrupt). */
+        void interruptRunner() {
+            Thread t = runner.getAndSet(null);
+            if (t != null) t.interrupt();
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object v) {
+            ((CompletableFuture<Object>) future).complete(v);
+        }
+
+        @Override
+        public int compareTo(Job o) {
+            int c = Long.compare(o.score, score);        // hottest first
+            return c != 0 ? c : Long.compare(seq, o.seq); // then FIFO
+        }
+    }
+}
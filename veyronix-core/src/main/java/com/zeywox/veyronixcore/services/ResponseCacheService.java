@@ -2,26 +2,37 @@ package com.zeywox.veyronixcore.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zeywox.veyronixcore.config.cache.RedisGuardProperties;
+import com.zeywox.veyronixcore.config.cache.ServerTimingProperties;
+import com.zeywox.veyronixcore.config.controller.GlobalExceptionHandler;
 import jakarta.servlet.http.HttpServletRequest;
 import com.zeywox.veyronixcore.dto.*;
 import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.observability.VeyronixMetrics;
+import com.zeywox.veyronixcore.observability.jfr.L1CacheEvent;
+import com.zeywox.veyronixcore.repos.AsyncProductStore;
+import com.zeywox.veyronixcore.repos.catalog.CatalogEngine;
 import com.zeywox.veyronixcore.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import static com.zeywox.veyronixcore.util.HttpResponses.notModified;
 import static com.zeywox.veyronixcore.util.HttpResponses.serve;
+import static com.zeywox.veyronixcore.util.HttpResponses.serveStale;
 
 @Service
 public class ResponseCacheService {
@@ -31,84 +42,368 @@ public class ResponseCacheService {
 
     private final long ttlSeconds;      // L1 hard TTL
     private final long softTtlMillis;   // refresh-after-write window (SWR)
+    private final long readBudgetMillis; // how long a caller waits on Redis before going stale
     private final ExecutorService cacheExecutor;
+    private final RedisCircuitBreaker breaker;
+    private final RefreshScheduler refresher;
 
     private final VersionLookup versions;
+    private final AsyncProductStore async; // null unless redis-async.enabled
     private final JsonGzipEncoder encoder;
+    private final VeyronixMetrics metrics;
+    private final NegativeLookups negative;
+    private final HotKeys hotKeys;
+    private final PeerLists peers;
+    private final boolean serverTimingAlways;
+    private final String serverTimingHeader; // null: not requestable per request
 
     private final ConcurrentHashMap<String, ListQueryContext> ctxs = new ConcurrentHashMap<>();
+    // normalized category -> its page keys in ctxs, so a write-through only visits the pages it can affect
+    private final ConcurrentHashMap<String, Set<String>> basesByCategory = new ConcurrentHashMap<>();
+    private final CacheLoader loader = new CacheLoader();
     private final AsyncLoadingCache<String, CachedResponse> cache;
 
     private final ConcurrentHashMap<String, CompletableFuture<CachedResponse>> inflightProduct = new ConcurrentHashMap<>();
 
+    // last known-good entries (stale-if-error); outlive the L1 hard TTL on purpose
+    private final Cache<String, CachedResponse> staleLists;
+    private final Cache<String, CachedResponse> staleProducts;
+
     public ResponseCacheService(ObjectMapper om,
                                 com.zeywox.veyronixcore.config.cache.ResponseCacheProperties props,
+                                RedisGuardProperties guard,
+                                RedisCircuitBreaker breaker,
+                                RedisConcurrencyLimiter limiter,
+                                RefreshScheduler refresher,
                                 @Qualifier("cacheFillExecutor") ExecutorService cacheFillExecutor,
-                                @Qualifier("storeStringRedisTemplate") StringRedisTemplate storeRedis) {
+                                ReplicaReadRouter readRouter,
+                                ObjectProvider<AsyncProductStore> asyncStore,
+                                ObjectProvider<CatalogEngine> catalogEngine,
+                                VeyronixMetrics metrics,
+                                NegativeLookups negative,
+                                HotKeys hotKeys,
+                                PeerLists peers,
+                                ServerTimingProperties serverTiming) {
         this.ttlSeconds    = props.hardTtlSeconds();
         this.softTtlMillis = props.l1SoftTtlMillis();
+        this.readBudgetMillis = Math.max(1, guard.readBudgetMillis());
         this.cacheExecutor = cacheFillExecutor;
-        this.versions      = new VersionLookup(storeRedis);
-        this.encoder       = new JsonGzipEncoder(om);
+        this.breaker       = breaker;
+        this.refresher     = refresher;
+        this.versions      = new VersionLookup(readRouter, limiter, catalogEngine.getIfAvailable());
+        this.async         = asyncStore.getIfAvailable();
+        this.encoder       = new JsonGzipEncoder(om, metrics);
+        this.metrics       = metrics;
+        this.negative      = negative;
+        this.hotKeys       = hotKeys;
+        this.peers         = peers;
+        this.serverTimingAlways = serverTiming.enabled();
+        this.serverTimingHeader = serverTiming.requestHeader() == null || serverTiming.requestHeader().isBlank()
+                ? null : serverTiming.requestHeader();
+
+        this.staleLists    = staleStore(guard.staleIfErrorSeconds(), hotKeys::isHotList);
+        this.staleProducts = staleStore(guard.staleIfErrorSeconds(), hotKeys::isHotProduct);
 
         this.cache = Caffeine.newBuilder()
                 .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
                 .refreshAfterWrite(softTtlMillis, TimeUnit.MILLISECONDS)
                 .maximumWeight(256 * 1024 * 1024)
-                .weigher((String k, CachedResponse e) -> e.gz().length)
+                .weigher((String k, CachedResponse e) -> hotKeys.isHotList(k) ? 0 : e.gz().length) // 0: never evicted by size
                 .recordStats()
-                .buildAsync(new CacheLoader());
+                .buildAsync(loader);
+        metrics.monitorCache(cache.synchronous(), "l1.lists");
+        hotKeys.refreshPinnedLists(this::refreshPinned);
     }
 
     // ------------------------------- public API -------------------------------
 
-    /** Fresh, no cache: concurrent calls coalesce into one Redis read */
+    /**
+     * Fresh, no cache: concurrent calls coalesce into one Redis read.
+     * Waits at most the read budget; past it (or on Redis failure) the last known-good copy is served as stale.
+     * With If-None-Match, the version counter (the product ETag) is checked first: a match is a 304 without
+     * reading the hash or encoding anything. Ids known not to exist are answered 404 without Redis.
+     */
     public ResponseEntity<byte[]> getProductFresh(String id, Supplier<Product> fetcher, HttpServletRequest req) {
-        CompletableFuture<CachedResponse> cf = inflightProduct.computeIfAbsent(id, k ->
-                CompletableFuture.supplyAsync(() -> computeProductFresh(id, fetcher), cacheExecutor)
+        if (negative.definitelyMissing(id)) {
+            throw new GlobalExceptionHandler.NotFound("Product not found: " + id, false);
+        }
+        hotKeys.recordProduct(id);
+        L1CacheEvent ev = new L1CacheEvent();
+        ev.begin();
+        long t0 = System.nanoTime();
+        String inm = req.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (inm != null) {
+            ResponseEntity<byte[]> validated = validateFirst(id, inm);
+            if (validated != null) {
+                commit(ev, "product", id, "validated", validated);
+                return wantsServerTiming(req) ? HttpResponses.withServerTiming(validated,
+                        ServerTiming.render("validated", System.nanoTime() - t0, null, System.nanoTime() - t0)) : validated;
+            }
+        }
+        CompletableFuture<CachedResponse> joined = inflightProduct.get(id); // racy peek, only for the lead/join counters
+        long lookup = System.nanoTime() - t0;
+        metrics.productFresh(joined != null);
+        CompletableFuture<CachedResponse> cf = joined != null ? joined : inflightProduct.computeIfAbsent(id, k ->
+                async != null
+                        ? breaker.callAsync(() -> computeProductFreshAsync(id))
+                        : CompletableFuture.supplyAsync(() -> breaker.call(() -> computeProductFresh(id, fetcher)), cacheExecutor)
         );
         cf.whenComplete((__, ___) -> inflightProduct.remove(id, cf));
 
-        CachedResponse e;
+        String outcome = joined != null ? "join" : "lead";
+        ResponseEntity<byte[]> r = null;
         try {
-            e = cf.get(PRODUCT_FRESH_JOIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-        } catch (Exception ex) {
-            // Timed out or failed: compute just for this caller; do not cache here.
-            if (!(ex instanceof TimeoutException)) {
-                log.warn("product fresh compute failed ({}): {}", id, ex.toString());
-            }
-            e = computeProductFresh(id, fetcher);
+            r = await(cf, id, staleProducts, req);
+            return wantsServerTiming(req) ? withServerTiming(r, outcome, lookup, cf, t0) : r;
+        } catch (GlobalExceptionHandler.NotFound nf) {
+            negative.noteMissing(id);
+            throw nf;
+        } finally {
+            commit(ev, "product", id, outcome, r);
         }
+    }
 
-        if (HttpCaching.isNotModified(req, e.meta().etag, e.meta().lastModifiedEpochMillis)) {
-            return notModified(e);
+    /**
+     * One GET of ver:product:{id}, off the request thread and within the read budget; null when it does not
+     * match (or Redis could not answer in time), and the regular path decides. A product without a version
+     * counter never matches: its ETag is a body hash.
+     */
+    private ResponseEntity<byte[]> validateFirst(String id, String ifNoneMatch) {
+        String ver;
+        try {
+            CompletableFuture<String> cf = async != null
+                    ? breaker.callAsync(() -> async.productVersion(id))
+                    : CompletableFuture.supplyAsync(() -> breaker.call(() -> versions.productVersion(id)), cacheExecutor);
+            ver = cf.get(readBudgetMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException | RuntimeException e) {
+            return null; // slow / shed / breaker open / Redis error: the full path has the stale-if-error handling
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
         }
-        return serve(e);
+        if (ver == null || !Etags.weakEquals(ifNoneMatch, ver)) return null;
+        metrics.productValidated();
+        return HttpResponses.notModified(ver, ttlSeconds);
     }
 
     public ResponseEntity<byte[]> getProductsListResponse(String category, Optional<Boolean> inStock, int page, int size,
                                                           Supplier<List<Product>> fetcher, HttpServletRequest req) {
         final String base = CacheKeys.base(category, inStock, page, size);
-        ctxs.putIfAbsent(base, new ListQueryContext(category, inStock, page, size, fetcher));
+        String owner = peers.remoteOwner(category, req);
+        if (owner != null) {
+            ResponseEntity<byte[]> r = fromOwner(owner, base, category, inStock, page, size, req);
+            if (r != null) return r;
+            // owner unreachable and nothing to fall back on: build it here, as without peers
+        }
+        if (ctxs.putIfAbsent(base, new ListQueryContext(category, inStock, page, size, fetcher)) == null) {
+            basesByCategory.computeIfAbsent(Keys.normalize(category), c -> ConcurrentHashMap.newKeySet()).add(base);
+        }
+        refresher.recordHit(base);
+        hotKeys.recordList(base);
+
+        L1CacheEvent ev = new L1CacheEvent();
+        ev.begin();
+        long t0 = System.nanoTime();
+        CompletableFuture<CachedResponse> cf = cache.get(base);
+        long lookup = System.nanoTime() - t0;
+        boolean hit = cf.isDone(); // a present entry is a completed future
+        ResponseEntity<byte[]> r = null;
+        try {
+            r = await(cf, base, staleLists, req);
+            return wantsServerTiming(req) ? withServerTiming(r, hit ? "hit" : "miss", lookup, hit ? null : cf, t0) : r;
+        } finally {
+            commit(ev, "lists", base, hit ? "hit" : "miss", r);
+        }
+    }
+
+    private boolean wantsServerTiming(HttpServletRequest req) {
+        return serverTimingAlways || (serverTimingHeader != null && req.getHeader(serverTimingHeader) != null);
+    }
 
+    /** {@code build}: the compute this request waited on (null for a hit); a stale answer reports no build phases. */
+    private static ResponseEntity<byte[]> withServerTiming(ResponseEntity<byte[]> r, String outcome, long lookupNanos,
+                                                           CompletableFuture<CachedResponse> build, long t0) {
+        boolean stale = r.getHeaders().containsKey(HttpHeaders.WARNING);
+        CachedResponse built = build == null || stale ? null : build.getNow(null);
+        return HttpResponses.withServerTiming(r, ServerTiming.render(stale ? "stale" : outcome, lookupNanos,
+                built == null ? null : built.timings(), System.nanoTime() - t0));
+    }
+
+    /** JFR: outcome becomes "stale" when a last known-good copy was served, "error" when nothing was. */
+    private static void commit(L1CacheEvent ev, String cache, String key, String outcome, ResponseEntity<byte[]> r) {
+        ev.end();
+        if (!ev.shouldCommit()) return;
+        ev.cache = cache;
+        ev.key = key;
+        ev.outcome = r == null ? "error" : r.getHeaders().containsKey(HttpHeaders.WARNING) ? "stale" : outcome;
+        ev.commit();
+    }
+
+    // ------------------------------- peer mode --------------------------------
+
+    /**
+     * A page of a category another instance owns: the local copy while fresh, else the owner's (conditional
+     * when there is a copy), waited for within the read budget. Owner slow or down: the old copy as stale,
+     * or null when there is none and the caller builds the page itself. Only the first request to find the
+     * owner down waits for it; the rest of the owner-down window falls back straight away.
+     */
+    private ResponseEntity<byte[]> fromOwner(String owner, String base, String category, Optional<Boolean> inStock,
+                                             int page, int size, HttpServletRequest req) {
+        PeerLists.Copy copy = peers.copy(base);
+        if (copy != null && peers.isFresh(copy)) {
+            metrics.peerList("copy");
+            return respond(req, copy.response(), false);
+        }
+        if (peers.ownerDown(owner)) return ownerFallback(req, copy);
         try {
-            CachedResponse e = cache.get(base).join();
-            if (HttpCaching.isNotModified(req, e.meta().etag, e.meta().lastModifiedEpochMillis)) {
-                return notModified(e);
+            PeerLists.Copy fetched = peers.fetch(owner, base, category, inStock, page, size, copy)
+                    .get(readBudgetMillis, TimeUnit.MILLISECONDS);
+            metrics.peerList(copy != null && fetched.response() == copy.response() ? "revalidated" : "fetched");
+            return respond(req, fetched.response(), false);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GlobalExceptionHandler.Unavailable("interrupted", 1);
+        } catch (TimeoutException | ExecutionException e) {
+            log.debug("peer {} did not serve {}: {}", owner, base, e.toString());
+            peers.ownerFailed(owner);
+            return ownerFallback(req, copy);
+        }
+    }
+
+    /** The old copy as stale, or null: the caller builds the page as if peers were off. */
+    private ResponseEntity<byte[]> ownerFallback(HttpServletRequest req, PeerLists.Copy copy) {
+        if (copy != null) {
+            metrics.peerList("stale");
+            return respond(req, copy.response(), true);
+        }
+        metrics.peerList("local");
+        return null;
+    }
+
+    // ------------------------------ write-through -----------------------------
+
+    /**
+     * After a PATCH / stock PUT on this instance: the cached pages of the product's category (old and new, every
+     * stock filter) are rebuilt now instead of at their soft TTL, so the next list read is a hit with the new
+     * content; pages whose category version did not move keep their entry. The product itself has no L1 entry
+     * (get-one always reads Redis): only its stale-if-error copy is re-encoded from the written state.
+     * Runs on the refresh workers, never on the writing request.
+     *
+     * @param written          the product as stored; may read it back (null: gone, nothing to do)
+     * @param previousCategory category before the write when it may have changed, else null
+     */
+    public void writeThrough(String id, Supplier<Product> written, String previousCategory) {
+        refresher.submitNow(id, () -> breaker.call(() -> {
+            long t0 = System.nanoTime();
+            String ver = versions.productVersion(id); // before the data: never newer than what it labels
+            long t1 = System.nanoTime();
+            Product p = written.get();
+            if (p == null) return null;
+            productEntry(id, p, ver, t1 - t0, System.nanoTime() - t1);
+            rebuildPages(p.category(), previousCategory);
+            return null;
+        })).exceptionally(t -> {
+            log.debug("write-through for {} skipped: {}", id, t.toString()); // the soft TTL catches up
+            return null;
+        });
+    }
+
+    private void rebuildPages(String category, String previousCategory) {
+        String now = Keys.normalize(category);
+        String before = previousCategory == null ? now : Keys.normalize(previousCategory);
+        rebuildPages(now);
+        if (!before.equals(now)) rebuildPages(before);
+    }
+
+    private void rebuildPages(String normalizedCategory) {
+        Set<String> bases = basesByCategory.get(normalizedCategory);
+        if (bases == null) return;
+        for (String base : bases) {
+            CompletableFuture<CachedResponse> current = cache.asMap().get(base);
+            // absent or still loading: the next read builds it from current data anyway
+            if (current == null || !current.isDone() || current.isCompletedExceptionally()) continue;
+            CachedResponse old = current.join();
+            refresher.submitNow(base, () -> breaker.call(() ->
+                            async != null ? reloadAsync(base, old).join() : loader.reload(base, old)))
+                    .thenAccept(e -> {
+                        // a refresh that landed meanwhile is at least as new: keep it
+                        if (e != old) cache.asMap().replace(base, current, CompletableFuture.completedFuture(e));
+                    });
+        }
+    }
+
+    /**
+     * Eager refresh of a hot (pinned) page: a version GET, and a rebuild only if it moved. The write it ends
+     * in also re-weighs the entry, so a page that just became hot is pinned from then on, and one that cooled
+     * down becomes evictable again on its next refresh.
+     */
+    private void refreshPinned(String base) {
+        if (cache.asMap().containsKey(base)) cache.synchronous().refresh(base);
+    }
+
+    // ------------------------------ budgeted wait -----------------------------
+
+    /**
+     * Wait for a shared (coalesced / single-flight) compute within the read budget.
+     * Over budget -> stale copy if we have one, else keep waiting on the SAME future up to the join window.
+     * Redis failure -> stale copy if we have one, else 503. Never recomputes per caller.
+     */
+    private ResponseEntity<byte[]> await(CompletableFuture<CachedResponse> cf, String key,
+                                         Cache<String, CachedResponse> stale, HttpServletRequest req) {
+        try {
+            return respond(req, cf.get(readBudgetMillis, TimeUnit.MILLISECONDS), false);
+        } catch (TimeoutException te) {
+            CachedResponse old = stale.getIfPresent(key);
+            if (old != null) {
+                metrics.staleOverBudget();
+                return respond(req, old, true);
             }
-            return serve(e);
-        } catch (CompletionException ce) {
-            log.warn("cache load failed for {}: {}", base,
-                    (ce.getCause() != null ? ce.getCause().toString() : ce.toString()));
-            // Fallback: compute only for THIS caller. Do NOT put it into cache here.
-            CachedResponse e = computeNow(base, ctxs.get(base), null);
-            if (HttpCaching.isNotModified(req, e.meta().etag, e.meta().lastModifiedEpochMillis)) {
-                return notModified(e);
+            try {
+                long remaining = Math.max(1, PRODUCT_FRESH_JOIN_TIMEOUT_MS - readBudgetMillis);
+                return respond(req, cf.get(remaining, TimeUnit.MILLISECONDS), false);
+            } catch (TimeoutException again) {
+                metrics.joinTimeout();
+                throw new GlobalExceptionHandler.Unavailable("Redis over latency budget for " + key,
+                        breaker.retryAfterSeconds());
+            } catch (ExecutionException ee) {
+                return onComputeFailure(key, ee.getCause(), stale, req);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new GlobalExceptionHandler.Unavailable("interrupted", 1);
             }
-            return serve(e);
+        } catch (ExecutionException ee) {
+            return onComputeFailure(key, ee.getCause(), stale, req);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GlobalExceptionHandler.Unavailable("interrupted", 1);
         }
     }
 
+    private ResponseEntity<byte[]> onComputeFailure(String key, Throwable cause,
+                                                    Cache<String, CachedResponse> stale, HttpServletRequest req) {
+        if (!RedisCircuitBreaker.isRedisFailure(cause)) {
+            // e.g. NotFound from the fetcher: not ours to mask
+            if (cause instanceof RuntimeException re) throw re;
+            throw new CompletionException(cause);
+        }
+        CachedResponse old = stale.getIfPresent(key);
+        if (old != null) {
+            metrics.staleOnError();
+            return respond(req, old, true);
+        }
+        metrics.unavailable();
+        if (cause instanceof GlobalExceptionHandler.Unavailable u) throw u; // breaker open or shed: keep its Retry-After
+        log.warn("compute failed for {} with no stale copy: {}", key, cause.toString());
+        throw new GlobalExceptionHandler.Unavailable("Redis unavailable for " + key, breaker.retryAfterSeconds());
+    }
+
+    private static ResponseEntity<byte[]> respond(HttpServletRequest req, CachedResponse e, boolean stale) {
+        if (HttpCaching.isNotModified(req, e.meta().etag, e.meta().lastModifiedEpochMillis, e.meta().lastModifiedHttp)) {
+            return notModified(e);
+        }
+        return stale ? serveStale(e) : serve(e);
+    }
+
     // --------------------------- cache loader/refresh -------------------------
 
     private final class CacheLoader implements com.github.benmanes.caffeine.cache.CacheLoader<String, CachedResponse> {
@@ -122,48 +417,146 @@ public class ResponseCacheService {
         public CachedResponse reload(String base, CachedResponse old) {
             ListQueryContext ctx = ctxs.get(base);
             if (ctx == null) return old;
+            L1CacheEvent ev = new L1CacheEvent();
+            ev.begin();
             String newVer = versions.categoryVersion(ctx.category(), ctx.inStock());
-            if (newVer != null && newVer.equals(old.meta().etag)) {
+            if (reusable(old, newVer)) {
+                commitRefresh(ev, base, true);
                 return old; // unchanged, cheap
             }
-            return computeNow(base, ctx, old);
+            CachedResponse e = computeNow(base, ctx, old);
+            commitRefresh(ev, base, false);
+            return e;
         }
         @Override
         public CompletableFuture<CachedResponse> asyncLoad(String key, Executor executor) {
-            return CompletableFuture.supplyAsync(() -> load(key), cacheExecutor);
+            if (async != null) {
+                ListQueryContext ctx = ctxs.get(key);
+                if (ctx == null) return CompletableFuture.failedFuture(new IllegalStateException("No ListQueryContext for " + key));
+                return breaker.callAsync(() -> computeAsync(key, ctx, null));
+            }
+            return CompletableFuture.supplyAsync(() -> breaker.call(() -> load(key)), cacheExecutor);
         }
         @Override
         public CompletableFuture<CachedResponse> asyncReload(String key, CachedResponse oldValue, Executor executor) {
-            return CompletableFuture.supplyAsync(() -> reload(key, oldValue), cacheExecutor);
+            // Refreshes run on the dedicated scheduler (hot keys first, jittered, budgeted), not on the
+            // foreground miss executor. A failed/dropped refresh keeps the old value in Caffeine.
+            if (async != null) {
+                return refresher.submit(key, () -> breaker.call(() -> reloadAsync(key, oldValue).join()));
+            }
+            return refresher.submit(key, () -> breaker.call(() -> reload(key, oldValue)));
         }
     }
 
     // ------------------------------- computes --------------------------------
 
     private CachedResponse computeProductFresh(String id, Supplier<Product> fetcher) {
+        long t0 = System.nanoTime();
+        String ver = versions.productVersion(id); // cheap GET, before the data: never newer than what it labels
+        long t1 = System.nanoTime();
         Product p = fetcher.get();
+        return productEntry(id, p, ver, t1 - t0, System.nanoTime() - t1);
+    }
+
+    private CachedResponse productEntry(String id, Product p, String ver, long versionNanos, long fetchNanos) {
         Encoded enc = encoder.encodeProduct(p);
-        String ver = versions.productVersion(id); // cheap GET
         String etag = EtagPolicy.choose(ver, enc.weakHash);
         long lastMod = System.currentTimeMillis();
         Meta meta = new Meta(etag, lastMod, "application/json");
         HttpHeaders h = ResponseHeaders.ok(meta, ttlSeconds);
-        return new CachedResponse(enc.gz, meta, h);
+        CachedResponse e = new CachedResponse(enc.gz, meta, h,
+                new BuildTimings(versionNanos, fetchNanos, enc.jsonNanos, enc.gzipNanos));
+        staleProducts.put(id, e);
+        return e;
     }
 
     private CachedResponse computeNow(String base, ListQueryContext ctx, CachedResponse old) {
+        long t0 = System.nanoTime();
         String preferredVersion = versions.categoryVersion(ctx.category(), ctx.inStock());
+        long t1 = System.nanoTime();
         List<Product> data = ctx.fetcher().get();
-        return buildEntryFromData(base, preferredVersion, data, old);
+        CachedResponse e = buildEntryFromData(base, preferredVersion, data, old, t1 - t0, System.nanoTime() - t1);
+        staleLists.put(base, e);
+        return e;
+    }
+
+    // ---- async computes (redis-async): Redis I/O composed on futures, encoding on the fill executor ----
+
+    private CompletableFuture<CachedResponse> computeProductFreshAsync(String id) {
+        // same connection for both: the version is read before the hash, as in the sync path
+        long t0 = System.nanoTime();
+        CompletableFuture<String> ver = async.productVersion(id);
+        CompletableFuture<Optional<Product>> product = async.getOne(id);
+        // version and data overlap on the wire: one Redis phase, no separate version time
+        return product.thenCombineAsync(ver, (p, v) -> productEntry(id,
+                p.orElseThrow(() -> new GlobalExceptionHandler.NotFound("Product not found: " + id)), v,
+                -1, System.nanoTime() - t0), cacheExecutor);
+    }
+
+    private CompletableFuture<CachedResponse> computeAsync(String base, ListQueryContext ctx, CachedResponse old) {
+        if (ctx.category() == null || ctx.category().isBlank()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("category is required and cannot be blank"));
+        }
+        long t0 = System.nanoTime();
+        CompletableFuture<String> ver = async.categoryVersion(ctx.category(), ctx.inStock());
+        CompletableFuture<List<Product>> data = async
+                .listIdsByCategory(ctx.category(), ctx.inStock(), ctx.page(), ctx.size())
+                .thenCompose(async::getMany);
+        return data.thenCombineAsync(ver, (d, v) -> {
+            CachedResponse e = buildEntryFromData(base, v, d, old, -1, System.nanoTime() - t0);
+            staleLists.put(base, e);
+            return e;
+        }, cacheExecutor);
     }
 
-    private CachedResponse buildEntryFromData(String base, String preferredVersion, List<Product> data, CachedResponse old) {
+    private CompletableFuture<CachedResponse> reloadAsync(String base, CachedResponse old) {
+        ListQueryContext ctx = ctxs.get(base);
+        if (ctx == null) return CompletableFuture.completedFuture(old);
+        L1CacheEvent ev = new L1CacheEvent();
+        ev.begin();
+        return async.categoryVersion(ctx.category(), ctx.inStock()).thenCompose(newVer ->
+                reusable(old, newVer)
+                        ? CompletableFuture.completedFuture(old) // unchanged, cheap
+                        : computeAsync(base, ctx, old))
+                .whenComplete((e, t) -> { if (t == null) commitRefresh(ev, base, e == old); });
+    }
+
+    /**
+     * An unchanged category version keeps the page, but only until it is hard-ttl old. Reservations that do not
+     * cross zero move stock without bumping the category (product_reserve_stock.lua), so list stock may lag the
+     * product by up to hard-ttl-seconds; the rebuild keeps the version ETag, so it is not a new representation.
+     */
+    private boolean reusable(CachedResponse old, String newVer) {
+        return newVer != null && newVer.equals(old.meta().etag)
+                && System.currentTimeMillis() - old.meta().lastModifiedEpochMillis < ttlSeconds * 1000L;
+    }
+
+    private static void commitRefresh(L1CacheEvent ev, String base, boolean unchanged) {
+        ev.end();
+        if (!ev.shouldCommit()) return;
+        ev.cache = "lists";
+        ev.key = base;
+        ev.outcome = unchanged ? "revalidated" : "refresh";
+        ev.commit();
+    }
+
+    private CachedResponse buildEntryFromData(String base, String preferredVersion, List<Product> data, CachedResponse old,
+                                              long versionNanos, long fetchNanos) {
         Encoded enc = encoder.encodeList(data);
         long lastMod = System.currentTimeMillis();
         String etag = EtagPolicy.choose(preferredVersion, enc.weakHash);
         Meta meta = new Meta(etag, lastMod, "application/json");
         HttpHeaders headers = ResponseHeaders.ok(meta, ttlSeconds);
-        return new CachedResponse(enc.gz, meta, headers);
+        return new CachedResponse(enc.gz, meta, headers,
+                new BuildTimings(versionNanos, fetchNanos, enc.jsonNanos, enc.gzipNanos));
+    }
+
+    private static Cache<String, CachedResponse> staleStore(int staleIfErrorSeconds, Predicate<String> pinned) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(Math.max(1, staleIfErrorSeconds), TimeUnit.SECONDS)
+                .maximumWeight(64 * 1024 * 1024)
+                .weigher((String k, CachedResponse e) -> pinned.test(k) ? 0 : e.gz().length)
+                .build();
     }
 }
 
@@ -0,0 +1,61 @@
+package com.zeywox.veyronixcore.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings: no false negatives, about {@code fpp} false positives at
+ * {@code expected} entries. Adds only; a filter that needs removals is rebuilt instead.
+ * Index i of a key is (h1 + i*h2) mod m (Kirsch-Mitzenmacher), both halves from one 64-bit hash.
+ */
+public final class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    public BloomFilter(long expected, double fpp) {
+        long n = Math.max(1, expected);
+        double p = fpp > 0 && fpp < 1 ? fpp : 0.01;
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, Math.min(m, (long) Integer.MAX_VALUE * 64));
+        this.words = new AtomicLongArray((int) ((m + 63) >>> 6));
+        this.bits = (long) words.length() << 6;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+    }
+
+    public void add(String key) {
+        long h = hash64(key);
+        long h1 = h, h2 = Long.rotateLeft(h, 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            int w = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long cur = words.get(w);
+            while ((cur & mask) == 0 && !words.compareAndSet(w, cur, cur | mask)) cur = words.get(w);
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long h = hash64(key);
+        long h1 = h, h2 = Long.rotateLeft(h, 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long bitSize()   { return bits; }
+    public int hashCount()  { return hashes; }
+
+    // FNV-1a over the chars, finished with the SplitMix64 mixer so both 32-bit halves are usable
+    static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,46 @@
+package com.zeywox.veyronixcore.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Redis Cluster key -> slot (CRC16/XMODEM mod 16384, honouring {hash tags}).
+ * Used to group multi-key work by slot (and so by node) before pipelining; must match the server exactly.
+ */
+public final class ClusterSlots {
+    private ClusterSlots() {}
+
+    public static final int SLOTS = 16384;
+
+    private static final int[] TABLE = new int[256];
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int b = 0; b < 8; b++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    public static int slot(String key) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        int from = 0, to = k.length;
+        // only the part between the first '{' and the next '}' is hashed, if non-empty
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] == '{') {
+                for (int j = i + 1; j < k.length; j++) {
+                    if (k[j] == '}') {
+                        if (j > i + 1) { from = i + 1; to = j; }
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+        int crc = 0;
+        for (int i = from; i < to; i++) {
+            crc = ((crc << 8) ^ TABLE[((crc >>> 8) ^ k[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc & (SLOTS - 1);
+    }
+}
@@ -0,0 +1,52 @@
+package com.zeywox.veyronixcore.util;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Compact on-Redis form of product ids (compact layout only; the API keeps the canonical id).
+ * - canonical lower-case UUID (36 chars) -> its 16 bytes, base64url without padding (22 chars)
+ * - anything else                        -> "~" + id (never produced by the UUID form)
+ * Short members keep category ZSETs, the NK registry and key names small, and more of them
+ * under the listpack value limit.
+ */
+public final class CompactIds {
+    private CompactIds() {}
+
+    private static final Base64.Encoder ENC = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DEC = Base64.getUrlDecoder();
+    private static final char RAW = '~';
+
+    public static String encode(String id) {
+        if (isCanonicalUuid(id)) {
+            UUID u = UUID.fromString(id);
+            ByteBuffer b = ByteBuffer.allocate(16);
+            b.putLong(u.getMostSignificantBits()).putLong(u.getLeastSignificantBits());
+            return ENC.encodeToString(b.array());
+        }
+        return RAW + id;
+    }
+
+    public static String decode(String member) {
+        if (member == null || member.isEmpty()) return member;
+        if (member.charAt(0) == RAW) return member.substring(1);
+        if (member.length() != 22) return member; // not ours; hand back untouched
+        ByteBuffer b = ByteBuffer.wrap(DEC.decode(member));
+        return new UUID(b.getLong(), b.getLong()).toString();
+    }
+
+    /** Only the exact form UUID.toString() produces round-trips; everything else is kept raw. */
+    private static boolean isCanonicalUuid(String s) {
+        if (s == null || s.length() != 36) return false;
+        for (int i = 0; i < 36; i++) {
+            char c = s.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return false;
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -10,12 +10,24 @@ public final class Etags {
         crc.update(data, 0, data.length);
         return "W/\"" + Long.toHexString(crc.getValue()) + "\"";
     }
+    /**
+     * Weak comparison of an If-None-Match list against our ETag, scanned in place: no split, no substrings.
+     * Tokens are comma-separated, surrounding whitespace ignored, "W/" optional on either side.
+     */
     public static boolean weakEquals(String clientList, String server) {
         if (clientList == null) return false;
-        for (String token : clientList.split(",")) {
-            String t = token.trim();
-            t = t.startsWith("W/") ? t.substring(2) : t;
-            if (t.equals(server.startsWith("W/") ? server.substring(2) : server)) return true;
+        int sFrom = server.startsWith("W/") ? 2 : 0;
+        int sLen = server.length() - sFrom;
+        int n = clientList.length();
+        for (int i = 0; i < n; ) {
+            int end = clientList.indexOf(',', i);
+            if (end < 0) end = n;
+            int from = i, to = end;
+            while (from < to && clientList.charAt(from) <= ' ') from++;
+            while (to > from && clientList.charAt(to - 1) <= ' ') to--;
+            if (clientList.startsWith("W/", from)) from += 2;
+            if (to - from == sLen && clientList.regionMatches(from, server, sFrom, sLen)) return true;
+            i = end + 1;
         }
         return false;
     }
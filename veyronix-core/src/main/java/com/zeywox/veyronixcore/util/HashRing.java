@@ -0,0 +1,27 @@
+package com.zeywox.veyronixcore.util;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring: each member is placed at {@code virtualNodes} points and a key belongs to the
+ * first member clockwise from its hash. Adding or removing one member moves only ~1/N of the keys.
+ * Immutable; every instance built from the same member list agrees on every owner.
+ */
+public final class HashRing {
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    public HashRing(Collection<String> members, int virtualNodes) {
+        if (members.isEmpty()) throw new IllegalArgumentException("a ring needs at least one member");
+        int v = Math.max(1, virtualNodes);
+        for (String m : members) {
+            for (int i = 0; i < v; i++) points.put(BloomFilter.hash64(m + "#" + i), m);
+        }
+    }
+
+    public String owner(String key) {
+        Map.Entry<Long, String> e = points.ceilingEntry(BloomFilter.hash64(key));
+        return (e != null ? e : points.firstEntry()).getValue();
+    }
+}
@@ -0,0 +1,105 @@
+package com.zeywox.veyronixcore.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Streaming top-K: a count-min sketch estimates every key's count in fixed memory, and the K keys with the
+ * highest estimates are kept by name. Recording a key already in the top-K, or one below the entry bar, is
+ * lock-free and allocation-free; only a key that beats the current minimum takes the lock to replace it.
+ * Counts are aged with {@link #decay()} (halved), so "hot" means recently hot.
+ */
+public final class HotKeySketch {
+    private final int depth;
+    private final int mask;
+    private final AtomicIntegerArray counts; // depth rows of width cells
+    private final int capacity;
+
+    private final ConcurrentHashMap<String, Entry> top = new ConcurrentHashMap<>();
+    private volatile long floor; // lowest count in a full top-K; 0 while there is room
+
+    public HotKeySketch(int capacity, int width, int depth) {
+        this.capacity = Math.max(1, capacity);
+        this.depth = Math.max(1, depth);
+        int w = Integer.highestOneBit(Math.max(16, width - 1) << 1); // power of two >= width
+        this.mask = w - 1;
+        this.counts = new AtomicIntegerArray(this.depth * w);
+    }
+
+    /** Counts one occurrence of {@code key}; returns its estimated count (never below the true one). */
+    public long record(String key) {
+        long h = BloomFilter.hash64(key);
+        long h1 = h, h2 = Long.rotateLeft(h, 32) | 1;
+        int width = mask + 1;
+        long est = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int cell = i * width + (int) ((h1 + i * h2) & mask);
+            int c = counts.incrementAndGet(cell);
+            if (c < 0) { counts.set(cell, Integer.MAX_VALUE); c = Integer.MAX_VALUE; } // saturate
+            est = Math.min(est, c);
+        }
+
+        Entry e = top.get(key);
+        if (e != null) {
+            e.count = est;
+        } else if (est > floor) {
+            admit(key, est);
+        }
+        return est;
+    }
+
+    /** Estimated count of a key in the top-K, 0 for any other key. */
+    public long countOf(String key) {
+        Entry e = top.get(key);
+        return e == null ? 0 : e.count;
+    }
+
+    /** The tracked keys, highest count first. */
+    public List<Map.Entry<String, Long>> snapshot() {
+        List<Map.Entry<String, Long>> out = new ArrayList<>(top.size());
+        top.forEach((k, e) -> out.add(Map.entry(k, e.count)));
+        out.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        return out;
+    }
+
+    /** Halves every counter; keys whose count reaches 0 leave the top-K. */
+    public synchronized void decay() {
+        for (int i = 0, n = counts.length(); i < n; i++) {
+            int c = counts.get(i);
+            if (c != 0) counts.compareAndSet(i, c, c >>> 1); // a lost race just keeps one extra increment
+        }
+        top.entrySet().removeIf(en -> (en.getValue().count >>>= 1) == 0);
+        floor = top.size() < capacity ? 0 : minCount();
+    }
+
+    private synchronized void admit(String key, long est) {
+        if (top.containsKey(key)) return;
+        if (top.size() >= capacity) {
+            String victim = null;
+            long min = Long.MAX_VALUE;
+            for (var en : top.entrySet()) {
+                long c = en.getValue().count;
+                if (c < min) { min = c; victim = en.getKey(); }
+            }
+            if (est <= min) { floor = min; return; }
+            top.remove(victim);
+        }
+        top.put(key, new Entry(est));
+        floor = top.size() < capacity ? 0 : minCount();
+    }
+
+    private long minCount() {
+        long min = Long.MAX_VALUE;
+        for (Entry e : top.values()) min = Math.min(min, e.count);
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    private static final class Entry {
+        volatile long count;
+        Entry(long count) { this.count = count; }
+    }
+}
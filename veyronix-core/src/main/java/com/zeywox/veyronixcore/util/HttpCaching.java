@@ -18,28 +18,46 @@ public final class HttpCaching {
     }
 
     public static boolean isNotModified(HttpServletRequest req, String etag, long lastModifiedMillis) {
-        String inm = trim(req.getHeader(HttpHeaders.IF_NONE_MATCH));
+        return isNotModified(req, etag, lastModifiedMillis, null);
+    }
+
+    /**
+     * {@code lastModifiedHttp}: Last-Modified as sent (see {@link #httpDate}). A client echoing it back is
+     * answered by a string comparison; only other dates are parsed. HTTP dates have second precision.
+     */
+    public static boolean isNotModified(HttpServletRequest req, String etag, long lastModifiedMillis,
+                                        String lastModifiedHttp) {
+        String inm = req.getHeader(HttpHeaders.IF_NONE_MATCH);
         if (inm != null && Etags.weakEquals(inm, etag)) return true;
 
-        String ims = trim(req.getHeader(HttpHeaders.IF_MODIFIED_SINCE));
+        String ims = req.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
         if (ims != null) {
+            if (ims.equals(lastModifiedHttp)) return true;
             try {
-                var t = Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(ims));
-                if (lastModifiedMillis <= t.toEpochMilli()) return true;
+                var t = Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(ims.trim()));
+                if (lastModifiedMillis / 1000 <= t.getEpochSecond()) return true;
             } catch (Exception ignored) {}
         }
         return false;
     }
 
+    /** RFC 1123 date, as used in Last-Modified. */
+    public static String httpDate(long epochMillis) {
+        return RFC1123.format(Instant.ofEpochMilli(epochMillis));
+    }
+
     public static void applyCacheHeaders(HttpHeaders h, String contentType, String etag,
                                          long lastModifiedMillis, long maxAgeSeconds) {
+        applyCacheHeaders(h, contentType, etag, httpDate(lastModifiedMillis), maxAgeSeconds);
+    }
+
+    public static void applyCacheHeaders(HttpHeaders h, String contentType, String etag,
+                                         String lastModifiedHttp, long maxAgeSeconds) {
         h.set(HttpHeaders.CONTENT_TYPE, contentType);
         h.set(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAgeSeconds);
         h.set(HttpHeaders.ETAG, etag);
-        h.set(HttpHeaders.LAST_MODIFIED, RFC1123.format(Instant.ofEpochMilli(lastModifiedMillis)));
+        h.set(HttpHeaders.LAST_MODIFIED, lastModifiedHttp);
         h.set(HttpHeaders.VARY, "Accept-Encoding");
     }
-
-    private static String trim(String s) { return s == null ? null : s.trim(); }
 }
 
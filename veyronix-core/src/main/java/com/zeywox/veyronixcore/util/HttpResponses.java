@@ -12,9 +12,27 @@ public final class HttpResponses {
         return new ResponseEntity<>(e.gz(), e.headers(), HttpStatus.OK);
     }
 
+    /** Last known-good entry served while Redis is over budget or failing. */
+    public static ResponseEntity<byte[]> serveStale(CachedResponse e) {
+        return new ResponseEntity<>(e.gz(), ResponseHeaders.stale(e.headers()), HttpStatus.OK);
+    }
+
+    /** 304 with the headers precomputed on the entry: nothing is copied per request. */
     public static ResponseEntity<byte[]> notModified(CachedResponse e) {
-        HttpHeaders h = HttpHeaders.readOnlyHttpHeaders(ResponseHeaders.notModifiedFrom(e.headers()));
-        return new ResponseEntity<>(null, h, HttpStatus.NOT_MODIFIED);
+        return new ResponseEntity<>(null, e.notModifiedHeaders(), HttpStatus.NOT_MODIFIED);
+    }
+
+    /** 304 for a validator-first match, built from the current version. */
+    public static ResponseEntity<byte[]> notModified(String etag, long ttlSecs) {
+        return new ResponseEntity<>(null, ResponseHeaders.notModified(etag, ttlSecs), HttpStatus.NOT_MODIFIED);
+    }
+
+    /** Copy of {@code r} with a Server-Timing header (opt-in path only; the shared headers stay untouched). */
+    public static ResponseEntity<byte[]> withServerTiming(ResponseEntity<byte[]> r, String value) {
+        HttpHeaders h = new HttpHeaders();
+        h.putAll(r.getHeaders());
+        h.set("Server-Timing", value);
+        return new ResponseEntity<>(r.getBody(), h, r.getStatusCode());
     }
 
 
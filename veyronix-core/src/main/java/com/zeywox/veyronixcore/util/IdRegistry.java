@@ -1,7 +1,7 @@
 package com.zeywox.veyronixcore.util;
 
 
-import org.springframework.data.redis.core.StringRedisTemplate;
+import com.zeywox.veyronixcore.observability.jfr.RedisCallEvent;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
@@ -13,25 +13,31 @@ import java.util.UUID;
 
 @Component
 public class IdRegistry {
-    private final StringRedisTemplate redis;
+    private final RedisConnectionGroups groups; // NK lookups sit on write paths (ingest, PATCH): primary, write/ingest pool
 
-    public IdRegistry(StringRedisTemplate redis) {
-        this.redis = redis;
+    public IdRegistry(RedisConnectionGroups groups) {
+        this.groups = groups;
     }
 
     /** We lookup existing ID for the natural key (name|category); we create once if absent. */
     public String lookupOrCreateId(String name, String category) {
         String field = naturalKeyField(name, category);
         String mapKey = Keys.idxNaturalKey();
+        var redis = groups.writes();
 
-        String id = (String) redis.opsForHash().get(mapKey, field);
-        if (id == null || id.isBlank()) {
-            String candidate = UUID.randomUUID().toString();
-            Boolean created = redis.opsForHash().putIfAbsent(mapKey, field, candidate);
-            if (Boolean.TRUE.equals(created)) return candidate;           // won the race
-            return (String) redis.opsForHash().get(mapKey, field);        // someone set it
+        RedisCallEvent ev = begin();
+        try {
+            String id = (String) redis.opsForHash().get(mapKey, field);
+            if (id == null || id.isBlank()) {
+                String candidate = UUID.randomUUID().toString();
+                Boolean created = redis.opsForHash().putIfAbsent(mapKey, field, Keys.member(candidate));
+                if (Boolean.TRUE.equals(created)) return candidate;                    // won the race
+                return Keys.idOf((String) redis.opsForHash().get(mapKey, field));      // someone set it
+            }
+            return Keys.idOf(id);
+        } finally {
+            commit(ev, "nk.lookup");
         }
-        return id;
     }
 
     /** If the NK changed (name/category changed), we move mapping to the new NK. */
@@ -41,22 +47,58 @@ public class IdRegistry {
         String oldField = naturalKeyField(oldName, oldCategory);
         String newField = naturalKeyField(newName, newCategory);
         if (Objects.equals(oldField, newField)) return;
+        var redis = groups.writes();
 
-        Object mapped = redis.opsForHash().get(Keys.idxNaturalKey(), oldField);
-        if (Objects.equals(mapped, id)) {
-            redis.opsForHash().delete(Keys.idxNaturalKey(), oldField);
+        RedisCallEvent ev = begin();
+        try {
+            Object mapped = redis.opsForHash().get(Keys.idxNaturalKey(), oldField);
+            if (Objects.equals(mapped, Keys.member(id))) {
+                redis.opsForHash().delete(Keys.idxNaturalKey(), oldField);
+            }
+            // Write/overwrite the new mapping for this id
+            redis.opsForHash().put(Keys.idxNaturalKey(), newField, Keys.member(id));
+        } finally {
+            commit(ev, "nk.remap");
         }
-        // Write/overwrite the new mapping for this id
-        redis.opsForHash().put(Keys.idxNaturalKey(), newField, id);
+    }
+
+    // NK calls bypass the limiter, so they record their own JFR event
+    private static RedisCallEvent begin() {
+        RedisCallEvent ev = new RedisCallEvent();
+        ev.begin();
+        return ev;
+    }
+
+    private static void commit(RedisCallEvent ev, String op) {
+        ev.end();
+        if (!ev.shouldCommit()) return;
+        ev.op = op;
+        ev.keyPattern = RedisCallEvent.keyPattern(op);
+        ev.commit();
     }
 
     // stable, compact NK field from (name|category) ---
-    private static String naturalKeyField(String name, String category) {
-        String canonical = normalize(name) + "|" + normalize(category);
+    // product_patch.lua recomputes this from derived or stored nkn/nkc parts: keep both in lockstep.
+    public static String naturalKeyField(String name, String category) {
+        String canonical = nkNormalize(name) + "|" + nkNormalize(category);
         return sha256Hex(canonical).substring(0, 32); // shorter field
     }
 
-    private static String normalize(String s) {
+    /**
+     * True when product_patch.lua derives {@link #nkNormalize} itself: printable ASCII plus the six whitespace
+     * chars Java's {@code \s} and Lua's {@code %s} agree on. Only other values are stored as nkn/nkc.
+     */
+    public static boolean nkDerivable(String s) {
+        if (s == null) return true; // stored as ""
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c < 0x20 || c > 0x7e) && c != '\t' && c != '\n' && c != 0x0b && c != '\f' && c != '\r') return false;
+        }
+        return true;
+    }
+
+    /** NK normalization; stored on the product hash (nkn/nkc) when a script cannot derive it ({@link #nkDerivable}). */
+    public static String nkNormalize(String s) {
         if (s == null) return "";
         String t = s.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
         return Normalizer.normalize(t, Normalizer.Form.NFC);
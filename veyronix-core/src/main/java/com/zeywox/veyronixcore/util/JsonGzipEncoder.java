@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.zeywox.veyronixcore.dto.Encoded;
 import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.observability.VeyronixMetrics;
+import com.zeywox.veyronixcore.observability.jfr.EncodeEvent;
 
 import java.util.List;
 
@@ -12,18 +14,23 @@ public final class JsonGzipEncoder {
 
     private final ObjectWriter listWriter;
     private final ObjectWriter productWriter;
+    private final VeyronixMetrics metrics; // null: not measured
 
 
     public JsonGzipEncoder(ObjectMapper om) {
+        this(om, null);
+    }
+
+    public JsonGzipEncoder(ObjectMapper om, VeyronixMetrics metrics) {
         this.listWriter = om.writerFor(new TypeReference<List<Product>>(){});
         this.productWriter = om.writerFor(Product.class);
+        this.metrics = metrics;
     }
 
 
     public Encoded encodeList(List<Product> products) {
         try {
-            byte[] raw = listWriter.writeValueAsBytes(products);
-            return new Encoded(raw, Compression.gzip(raw), Etags.weakCrc32c(raw));
+            return encode(listWriter, products, true);
         } catch (Exception e) {
             throw new RuntimeException("serialize list failed", e);
         }
@@ -32,13 +39,33 @@ public final class JsonGzipEncoder {
 
     public Encoded encodeProduct(Product p) {
         try {
-            byte[] raw = productWriter.writeValueAsBytes(p);
-            return new Encoded(raw, Compression.gzip(raw), Etags.weakCrc32c(raw));
+            return encode(productWriter, p, false);
         } catch (Exception e) {
             throw new RuntimeException("serialize product failed", e);
         }
     }
 
+    private Encoded encode(ObjectWriter writer, Object value, boolean isList) throws Exception {
+        EncodeEvent ev = new EncodeEvent();
+        ev.begin();
+        long t0 = System.nanoTime();
+        byte[] raw = writer.writeValueAsBytes(value);
+        long t1 = System.nanoTime();
+        byte[] gz = Compression.gzip(raw);
+        long t2 = System.nanoTime();
+        if (metrics != null) metrics.encoded(isList, t1 - t0, t2 - t1, raw.length, gz.length);
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.kind = isList ? "list" : "product";
+            ev.items = isList ? ((List<?>) value).size() : 1;
+            ev.rawBytes = raw.length;
+            ev.gzipBytes = gz.length;
+            ev.jsonNanos = t1 - t0;
+            ev.commit();
+        }
+        return new Encoded(raw, gz, Etags.weakCrc32c(raw), t1 - t0, t2 - t1);
+    }
+
 
 
 
@@ -5,60 +5,92 @@ import java.util.Locale;
 public final class Keys {
     private Keys() {}
 
-    public static String productHash(String id) { return "product:" + id; }
-    public static String idxAll()               { return "idx:all"; }
+    // Redis Cluster: wrap the id / normalized category in a hash tag ("product:{<id>}",
+    // "zidx:category:in:{<norm>}") so every key of one product, or of one category, shares a slot.
+    // Set once at startup (RedisConfig, from redis-layout.hash-tags) before any key is built.
+    private static volatile boolean hashTags = false;
 
-    // SET indexes (legacy + useful for membership/debug)
+    // Compact layout (redis-layout.compact): short prefixes, ids in CompactIds form, no SET indexes.
+    // See redis/compact/product_write.lua for the full schema.
+    private static volatile boolean compact = false;
+
+    public static void useHashTags(boolean on) { hashTags = on; }
+    public static boolean hashTags()           { return hashTags; }
+
+    public static void useCompact(boolean on)  { compact = on; }
+    public static boolean compact()            { return compact; }
+
+    private static String tag(String s) { return hashTags ? "{" + s + "}" : s; }
+
+    /** Form an id takes inside Redis (index members, NK registry values, key names). */
+    public static String member(String id)     { return compact ? CompactIds.encode(id) : id; }
+    public static String idOf(String member)   { return compact ? CompactIds.decode(member) : member; }
+
+    public static String productHash(String id) { return compact ? "p:" + member(id) : "product:" + tag(id); }
+    public static String idxAll()               { return compact ? "a" : "idx:all"; }
+
+    // SET indexes (legacy + useful for membership/debug); not kept in the compact layout
     public static String idxCategory(String category) {
-        return "idx:category:" + normalize(category);
+        return "idx:category:" + tag(normalize(category));
     }
     public static String idxCategoryInStock(String category) {
-        return "idx:category:in:" + normalize(category);
+        return "idx:category:in:" + tag(normalize(category));
     }
     public static String idxCategoryOutOfStock(String category) {
-        return "idx:category:out:" + normalize(category);
+        return "idx:category:out:" + tag(normalize(category));
     }
 
     // ZSET indexes for stable, efficient pagination (score=0 → lexicographic by member)
     public static String idxCategoryZ(String category) {
-        return "zidx:category:" + normalize(category);
+        return (compact ? "z:a:" : "zidx:category:") + tag(normalize(category));
     }
     public static String idxCategoryInStockZ(String category) {
-        return "zidx:category:in:" + normalize(category);
+        return (compact ? "z:i:" : "zidx:category:in:") + tag(normalize(category));
     }
     public static String idxCategoryOutOfStockZ(String category) {
-        return "zidx:category:out:" + normalize(category);
+        return (compact ? "z:o:" : "zidx:category:out:") + tag(normalize(category));
+    }
+
+    // Cluster write protocol: categories a product's phase 2 still has to reconcile (redis/cluster/product_write.lua)
+    public static String pendingMove(String id) { return "pm:" + tag(id); }
+    public static String pendingMovePattern()   { return "pm:*"; }
+    /** Inverse of {@link #pendingMove}. */
+    public static String idOfPendingMove(String key) {
+        String rest = key.substring("pm:".length());
+        return hashTags && rest.length() > 1 && rest.charAt(0) == '{' && rest.charAt(rest.length() - 1) == '}'
+                ? rest.substring(1, rest.length() - 1) : rest;
     }
 
-    // Natural key registry (unchanged)
-    public static String idxNaturalKey() { return "idx:nk:product"; } // hash: field=sha256(nk), value=id
+    // Natural key registry
+    public static String idxNaturalKey() { return compact ? "nk" : "idx:nk:product"; } // hash: field=sha256(nk), value=member(id)
 
     // cheap change detectors for revalidation ----------
     public static String verCategory(String category) {
-        return "ver:category:" + normalize(category);
+        return (compact ? "v:c:" : "ver:category:") + tag(normalize(category));
     }
     public static String verCategoryIn(String category) {
-        return "ver:category:in:" + normalize(category);
+        return (compact ? "v:i:" : "ver:category:in:") + tag(normalize(category));
     }
     public static String verCategoryOut(String category) {
-        return "ver:category:out:" + normalize(category);
+        return (compact ? "v:o:" : "ver:category:out:") + tag(normalize(category));
     }
 
     // bump whenever a product changes
-    public static String verProduct(String id) { return "ver:product:" + id; }
+    public static String verProduct(String id) { return compact ? "v:p:" + member(id) : "ver:product:" + tag(id); }
+    public static String verProductPrefix()    { return compact ? "v:p:" : "ver:product:"; }
+    /** Inverse of {@link #verProduct}; null for any other key. */
+    public static String idOfVersionKey(String key) {
+        String prefix = verProductPrefix();
+        if (!key.startsWith(prefix)) return null;
+        String rest = key.substring(prefix.length());
+        if (compact) return idOf(rest);
+        return hashTags && rest.length() > 1 && rest.charAt(0) == '{' && rest.charAt(rest.length() - 1) == '}'
+                ? rest.substring(1, rest.length() - 1) : rest;
+    }
 
 
     public static String normalize(String s) {
         if (s == null || s.isBlank()) return "uncategorized";
         return s.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", "-");
     }
-
-
-
-
-
 }
-
-
-
-
@@ -0,0 +1,128 @@
+package com.zeywox.veyronixcore.util;
+
+import com.zeywox.veyronixcore.config.cache.RedisGuardProperties;
+import com.zeywox.veyronixcore.config.controller.GlobalExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Consecutive-failure breaker in front of Redis-backed computes.
+ * CLOSED -> (threshold failures) -> OPEN -> (open window elapsed) -> one probe -> CLOSED or OPEN again.
+ * Only Redis/timeout failures count; a NotFound still proves Redis answered.
+ */
+@Component
+public class RedisCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+    private volatile boolean open;
+    private volatile long openedAtNanos;
+
+    public RedisCircuitBreaker(RedisGuardProperties props) {
+        this.failureThreshold = Math.max(1, props.breakerFailureThreshold());
+        this.openNanos = Math.max(1, props.breakerOpenMillis()) * 1_000_000L;
+    }
+
+    /** True when a Redis call may proceed (closed, or the single half-open probe). */
+    public boolean allowRequest() {
+        if (!open) return true;
+        if (System.nanoTime() - openedAtNanos < openNanos) return false;
+        return probeInFlight.compareAndSet(false, true);
+    }
+
+    public boolean isOpen() { return open; }
+
+    public long retryAfterSeconds() {
+        return Math.max(1, openNanos / 1_000_000_000L);
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        if (open) {
+            open = false;
+            log.info("redis breaker closed");
+        }
+        probeInFlight.set(false);
+    }
+
+    public void onFailure(Throwable t) {
+        if (unwrap(t) instanceof GlobalExceptionHandler.Overloaded) {
+            probeInFlight.set(false); // shed locally, says nothing about Redis health
+            return;
+        }
+        if (!isRedisFailure(t)) { onSuccess(); return; } // Redis answered; the caller just didn't like it
+        if (open) {
+            // failed probe: keep it open for another window
+            openedAtNanos = System.nanoTime();
+            probeInFlight.set(false);
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAtNanos = System.nanoTime();
+            open = true;
+            log.warn("redis breaker opened after {} consecutive failures: {}", failureThreshold, t.toString());
+        }
+    }
+
+    /** Run a Redis-backed compute through the breaker; fails fast with 503 while open. */
+    public <T> T call(Supplier<T> work) {
+        if (!allowRequest()) {
+            throw new GlobalExceptionHandler.Unavailable("Redis unavailable (circuit open)", retryAfterSeconds());
+        }
+        try {
+            T v = work.get();
+            onSuccess();
+            return v;
+        } catch (RuntimeException e) {
+            onFailure(e);
+            throw e;
+        }
+    }
+
+    /** Async variant of {@link #call}: success/failure is recorded when the future completes. */
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> work) {
+        if (!allowRequest()) {
+            return CompletableFuture.failedFuture(
+                    new GlobalExceptionHandler.Unavailable("Redis unavailable (circuit open)", retryAfterSeconds()));
+        }
+        CompletableFuture<T> f;
+        try {
+            f = work.get();
+        } catch (RuntimeException e) {
+            onFailure(e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return f.whenComplete((v, e) -> {
+            if (e == null) onSuccess(); else onFailure(e);
+        });
+    }
+
+    public static boolean isRedisFailure(Throwable t) {
+        t = unwrap(t);
+        return t instanceof DataAccessException
+                || t instanceof TimeoutException
+                || t instanceof io.lettuce.core.RedisException
+                || t instanceof GlobalExceptionHandler.Unavailable;
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
@@ -0,0 +1,199 @@
+package com.zeywox.veyronixcore.util;
+
+import com.zeywox.veyronixcore.config.cache.RedisLimiterProperties;
+import com.zeywox.veyronixcore.config.controller.GlobalExceptionHandler;
+import com.zeywox.veyronixcore.observability.VeyronixMetrics;
+import com.zeywox.veyronixcore.observability.jfr.RedisCallEvent;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive concurrency limit in front of Redis (AIMD on observed latency).
+ * - completion under the latency target while the limit is in use -> limit + 1
+ * - completion over target, or a failure                          -> limit * 0.9, at most once per round trip:
+ *   only a call that started after the last decrease can trigger the next one, so a burst of slow
+ *   completions from one latency blip (all in flight when it hit) costs a single step
+ * Callers never queue: when their priority's share of the limit is used up they are shed (503 + Retry-After).
+ * Cheap work (version checks behind 304s/revalidation) may use the whole limit; misses and
+ * background refreshes leave headroom for it. Later steps of a write whose first step was admitted run as
+ * {@link Priority#CRITICAL}: counted, never shed, so a write cannot stop halfway.
+ * Calls that name an {@code op} are also timed per op (veyronix.redis.calls).
+ */
+@Component
+public class RedisConcurrencyLimiter {
+
+    public enum Priority {
+        CRITICAL(Double.POSITIVE_INFINITY), // follow-up steps of an admitted write: never shed
+        HIGH(1.0),    // version GETs: 304s, cheap revalidation
+        NORMAL(0.8),  // user-facing misses and writes
+        LOW(0.5);     // background refresh
+
+        final double share;
+        Priority(double share) { this.share = share; }
+    }
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final ThreadLocal<Priority> CURRENT = ThreadLocal.withInitial(() -> Priority.NORMAL);
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final long latencyTargetNanos;
+    private final long retryAfterSeconds;
+    private final VeyronixMetrics metrics;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicLong lastBackoffNanos = new AtomicLong(System.nanoTime());
+    private final LongAdder shed = new LongAdder();
+    private volatile double limit; // racy read-modify-write is fine: it is a control signal, not a counter
+
+    public RedisConcurrencyLimiter(RedisLimiterProperties props, VeyronixMetrics metrics) {
+        this.metrics = metrics;
+        this.minLimit = Math.max(1, props.minLimit());
+        this.maxLimit = Math.max(minLimit, props.maxLimit());
+        this.limit = Math.min(maxLimit, Math.max(minLimit, props.initialLimit()));
+        this.latencyTargetNanos = Math.max(1, props.latencyTargetMillis()) * 1_000_000L;
+        this.retryAfterSeconds = Math.max(1, props.retryAfterSeconds());
+    }
+
+    /** Run {@code work} at the priority of the current thread (NORMAL unless set via {@link #withPriority}). */
+    public <T> T call(Supplier<T> work) {
+        return call(CURRENT.get(), null, work);
+    }
+
+    public <T> T call(Priority priority, Supplier<T> work) {
+        return call(priority, null, work);
+    }
+
+    /** {@code op}: script / pipeline / command name for the per-op timer. */
+    public <T> T call(String op, Supplier<T> work) {
+        return call(CURRENT.get(), op, work);
+    }
+
+    public <T> T call(Priority priority, String op, Supplier<T> work) {
+        if (!tryAcquire(priority)) {
+            shed.increment();
+            throw new GlobalExceptionHandler.Overloaded("Redis concurrency limit reached", retryAfterSeconds);
+        }
+        RedisCallEvent ev = new RedisCallEvent(); // scalar-replaced when JFR is off
+        ev.begin();
+        long t0 = System.nanoTime();
+        boolean failed = false, threw = true;
+        try {
+            T v = work.get();
+            threw = false;
+            return v;
+        } catch (RuntimeException e) {
+            failed = isCongestion(e);
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - t0;
+            release(t0, elapsed, failed);
+            if (op != null) metrics.redis(op).record(elapsed, TimeUnit.NANOSECONDS);
+            commit(ev, op, priority, threw);
+        }
+    }
+
+    /** Async variant: the permit is held until the returned future completes, not while a thread waits. */
+    public <T> CompletableFuture<T> callAsync(String op, Supplier<CompletableFuture<T>> work) {
+        return callAsync(CURRENT.get(), op, work);
+    }
+
+    public <T> CompletableFuture<T> callAsync(Priority priority, String op, Supplier<CompletableFuture<T>> work) {
+        if (!tryAcquire(priority)) {
+            shed.increment();
+            return CompletableFuture.failedFuture(
+                    new GlobalExceptionHandler.Overloaded("Redis concurrency limit reached", retryAfterSeconds));
+        }
+        RedisCallEvent ev = new RedisCallEvent();
+        ev.begin();
+        long t0 = System.nanoTime();
+        CompletableFuture<T> f;
+        try {
+            f = work.get();
+        } catch (RuntimeException e) {
+            release(t0, System.nanoTime() - t0, isCongestion(e));
+            commit(ev, op, priority, true);
+            return CompletableFuture.failedFuture(e);
+        }
+        return f.whenComplete((v, e) -> {
+            long elapsed = System.nanoTime() - t0;
+            release(t0, elapsed, e != null && isCongestion(e));
+            metrics.redis(op).record(elapsed, TimeUnit.NANOSECONDS);
+            commit(ev, op, priority, e != null);
+        });
+    }
+
+    public void run(Runnable work) {
+        call(() -> { work.run(); return null; });
+    }
+
+    /** Tag every Redis call made by {@code work} on this thread with {@code priority}. */
+    public static <T> T withPriority(Priority priority, Supplier<T> work) {
+        Priority prev = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(prev);
+        }
+    }
+
+    public int limit()     { return (int) limit; }
+    public int inflight()  { return inflight.get(); }
+    public long shedCount() { return shed.sum(); }
+
+    /** In-flight / limit, for callers that want to back off before being shed. */
+    public double utilization() {
+        return inflight.get() / limit;
+    }
+
+    private static void commit(RedisCallEvent ev, String op, Priority priority, boolean failed) {
+        ev.end();
+        if (!ev.shouldCommit()) return;
+        ev.op = op;
+        ev.keyPattern = RedisCallEvent.keyPattern(op);
+        ev.priority = priority.name();
+        ev.failed = failed;
+        ev.commit();
+    }
+
+    // a missing product is an answer, not congestion
+    private static boolean isCongestion(Throwable e) {
+        return !(e instanceof EmptyResultDataAccessException) && RedisCircuitBreaker.isRedisFailure(e);
+    }
+
+    private boolean tryAcquire(Priority p) {
+        if (p == Priority.CRITICAL) {
+            inflight.incrementAndGet();
+            return true;
+        }
+        int cap = Math.max(1, (int) (limit * p.share));
+        while (true) {
+            int cur = inflight.get();
+            if (cur >= cap) return false;
+            if (inflight.compareAndSet(cur, cur + 1)) return true;
+        }
+    }
+
+    private void release(long startNanos, long rttNanos, boolean failed) {
+        int before = inflight.getAndDecrement();
+        double l = limit;
+        if (failed || rttNanos > latencyTargetNanos) {
+            // in flight when the last decrease happened: that decrease already answered this congestion
+            long last = lastBackoffNanos.get();
+            if (startNanos - last > 0 && lastBackoffNanos.compareAndSet(last, startNanos + rttNanos)) {
+                limit = Math.max(minLimit, l * BACKOFF_RATIO);
+            }
+        } else if (before * 2 >= l) {
+            // only grow while the limit is actually being used
+            limit = Math.min(maxLimit, l + 1);
+        }
+    }
+}
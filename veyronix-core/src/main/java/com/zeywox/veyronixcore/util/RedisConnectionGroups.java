@@ -0,0 +1,77 @@
+package com.zeywox.veyronixcore.util;
+
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Picks the connection group (redis-groups) for a Redis call from the workload of the current thread.
+ * - reads:  INTERACTIVE_READ, or the workload's own group on refresh workers / ingest
+ * - writes: WRITE, or BULK_INGEST while ingesting
+ * Workloads are marked with {@link #within}, the same way limiter priorities are.
+ * Disabled: every group answers the one shared template.
+ */
+public final class RedisConnectionGroups implements AutoCloseable {
+
+    public enum Group {
+        INTERACTIVE_READ("interactive-read"),
+        BACKGROUND_REFRESH("background-refresh"),
+        WRITE("write"),
+        BULK_INGEST("bulk-ingest");
+
+        public final String id;
+        Group(String id) { this.id = id; }
+    }
+
+    private static final ThreadLocal<Group> CURRENT = new ThreadLocal<>();
+
+    private final Map<Group, StringRedisTemplate> templates;
+    private final List<LettuceConnectionFactory> owned;
+
+    public RedisConnectionGroups(Map<Group, StringRedisTemplate> templates, List<LettuceConnectionFactory> owned) {
+        this.templates = new EnumMap<>(templates);
+        this.owned = List.copyOf(owned);
+    }
+
+    /** All groups on one template (redis-groups disabled). */
+    public static RedisConnectionGroups shared(StringRedisTemplate template) {
+        Map<Group, StringRedisTemplate> m = new EnumMap<>(Group.class);
+        for (Group g : Group.values()) m.put(g, template);
+        return new RedisConnectionGroups(m, List.of());
+    }
+
+    public boolean isolated() { return !owned.isEmpty(); }
+
+    public StringRedisTemplate template(Group group) {
+        return templates.get(group);
+    }
+
+    public StringRedisTemplate reads() {
+        Group g = CURRENT.get();
+        return templates.get(g == Group.BACKGROUND_REFRESH || g == Group.BULK_INGEST ? g : Group.INTERACTIVE_READ);
+    }
+
+    public StringRedisTemplate writes() {
+        return templates.get(CURRENT.get() == Group.BULK_INGEST ? Group.BULK_INGEST : Group.WRITE);
+    }
+
+    /** Run {@code work} with its Redis calls on {@code group}'s connections. */
+    public static <T> T within(Group group, Supplier<T> work) {
+        Group prev = CURRENT.get();
+        CURRENT.set(group);
+        try {
+            return work.get();
+        } finally {
+            if (prev == null) CURRENT.remove(); else CURRENT.set(prev);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (LettuceConnectionFactory f : owned) f.destroy();
+    }
+}
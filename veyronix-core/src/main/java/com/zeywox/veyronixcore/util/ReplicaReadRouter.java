@@ -0,0 +1,202 @@
+package com.zeywox.veyronixcore.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zeywox.veyronixcore.config.cache.RedisReadRoutingProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Picks the template for read-only commands (redis-read-routing).
+ * Staleness protection, since replicas replay the primary asynchronously:
+ * - version floor: the highest value seen per version key; a replica answering below it is behind,
+ *   so the read is repeated on the primary and that key stays on the primary for the RYW window
+ * - read-your-writes: after a local write, the product (and listings, whose category the write may
+ *   have moved) are read from the primary for the RYW window
+ * - replica down: a version or data read (see {@link #read}) that fails on the replica is answered by the
+ *   primary, and every read stays on the primary for {@link #REPLICA_RETRY_MILLIS} before the replica is tried again
+ * Data reads follow their version key: if the version came from the primary, so does the data,
+ * and a replica that already shows version v also holds the data of v (scripts replicate atomically).
+ * "Primary" means the primary's connection group for the current workload (see {@link RedisConnectionGroups}).
+ * Disabled: every method answers the primary template.
+ */
+@Component
+public class ReplicaReadRouter {
+
+    static final long REPLICA_RETRY_MILLIS = 1_000;
+
+    private final RedisConnectionGroups groups;
+    private final StringRedisTemplate replica;   // null when disabled
+    private final long rywNanos;
+    private final Ticker ticker;
+
+    private final Cache<String, Long> floors;    // version key -> highest value seen
+    private final Cache<String, Boolean> pinned; // version key -> on primary until expiry
+    private volatile long listsPinnedUntil;
+    private volatile long replicaDownUntil;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryFallbacks = new LongAdder();
+    private final LongAdder replicaErrors = new LongAdder();
+
+    @Autowired
+    public ReplicaReadRouter(RedisConnectionGroups groups,
+                             @Qualifier("replicaStringRedisTemplate") ObjectProvider<StringRedisTemplate> replica,
+                             RedisReadRoutingProperties props) {
+        this(groups, props.enabled() ? replica.getIfAvailable() : null, props, Ticker.systemTicker());
+    }
+
+    /** {@code ticker}: the clock for the RYW window, the pins and the replica-down window (tests). */
+    ReplicaReadRouter(RedisConnectionGroups groups, StringRedisTemplate replica,
+                      RedisReadRoutingProperties props, Ticker ticker) {
+        this.groups = groups;
+        this.replica = props.enabled() ? replica : null;
+        this.ticker = ticker;
+        long ryw = Math.max(0, props.readYourWritesMillis());
+        this.rywNanos = ryw * 1_000_000L;
+        this.listsPinnedUntil = ticker.read(); // nanoTime has an arbitrary origin; start "expired"
+        this.replicaDownUntil = ticker.read();
+
+        this.floors = Caffeine.newBuilder()
+                .maximumSize(200_000)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .ticker(ticker)
+                .build();
+        this.pinned = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(Math.max(1, ryw)))
+                .ticker(ticker)
+                .build();
+    }
+
+    public boolean enabled() { return replica != null; }
+
+    /** Primary connections for reads of the current workload. */
+    public StringRedisTemplate primary() { return groups.reads(); }
+
+    // ---- data reads ----
+
+    public StringRedisTemplate forProduct(String id) {
+        return pick(pinned.getIfPresent(Keys.verProduct(id)) == null);
+    }
+
+    /** Batch product reads back listings: they follow a listing that went to the primary. */
+    public StringRedisTemplate forProducts(Collection<String> ids) {
+        if (!enabled()) return primary();
+        if (ticker.read() - listsPinnedUntil < 0) return pick(false);
+        for (String id : ids) {
+            if (pinned.getIfPresent(Keys.verProduct(id)) != null) return pick(false);
+        }
+        return pick(true);
+    }
+
+    public StringRedisTemplate forListing(String category, java.util.Optional<Boolean> inStock) {
+        if (!enabled()) return primary();
+        if (ticker.read() - listsPinnedUntil < 0) return pick(false);
+        return pick(pinned.getIfPresent(categoryVersionKey(category, inStock)) == null);
+    }
+
+    /**
+     * Run a data read on the template picked by forProduct / forProducts / forListing. A Redis failure on the
+     * replica repeats it on the primary (as for version reads), so a dead replica costs one failed command.
+     */
+    public <T> T read(StringRedisTemplate reader, Function<StringRedisTemplate, T> read) {
+        if (reader != replica || replica == null) return read.apply(reader);
+        replicaReads.increment();
+        try {
+            return read.apply(replica);
+        } catch (RuntimeException e) {
+            if (!RedisCircuitBreaker.isRedisFailure(e)) throw e;
+            replicaFailed();
+            return read.apply(primary());
+        }
+    }
+
+    // ---- version reads ----
+
+    /**
+     * GET a version counter, re-reading on the primary when the replica is behind what we have seen.
+     * {@code listing}: a category version; a lagging one sends listing reads to the primary for the RYW window.
+     */
+    public String readVersion(String key, boolean listing, Function<StringRedisTemplate, String> get) {
+        if (!enabled() || replicaDown() || pinned.getIfPresent(key) != null) {
+            return observe(key, get.apply(primary()));
+        }
+        replicaReads.increment();
+        String v;
+        try {
+            v = get.apply(replica);
+        } catch (RuntimeException e) {
+            if (!RedisCircuitBreaker.isRedisFailure(e)) throw e;
+            replicaFailed();
+            return observe(key, get.apply(primary()));
+        }
+        Long floor = floors.getIfPresent(key);
+        if (floor != null && asLong(v) < floor) {
+            primaryFallbacks.increment();
+            pinned.put(key, Boolean.TRUE);
+            if (listing) listsPinnedUntil = ticker.read() + rywNanos;
+            v = get.apply(primary());
+        }
+        return observe(key, v);
+    }
+
+    // ---- writes ----
+
+    /** A local write touched {@code id}: its reads, and listings, go to the primary for the RYW window. */
+    public void noteWrite(String id) {
+        if (!enabled()) return;
+        pinned.put(Keys.verProduct(id), Boolean.TRUE);
+        listsPinnedUntil = ticker.read() + rywNanos;
+    }
+
+    public void noteWrites(Collection<String> ids) {
+        if (!enabled()) return;
+        for (String id : ids) pinned.put(Keys.verProduct(id), Boolean.TRUE);
+        listsPinnedUntil = ticker.read() + rywNanos;
+    }
+
+    public long replicaReads()     { return replicaReads.sum(); }
+    public long primaryFallbacks() { return primaryFallbacks.sum(); }
+    public long replicaErrors()    { return replicaErrors.sum(); }
+
+    private StringRedisTemplate pick(boolean replicaOk) {
+        return replicaOk && replica != null && !replicaDown() ? replica : primary();
+    }
+
+    private void replicaFailed() {
+        replicaErrors.increment();
+        primaryFallbacks.increment();
+        replicaDownUntil = ticker.read() + REPLICA_RETRY_MILLIS * 1_000_000L;
+    }
+
+    private boolean replicaDown() {
+        return ticker.read() - replicaDownUntil < 0;
+    }
+
+    private String observe(String key, String v) {
+        long n = asLong(v);
+        if (n > 0) floors.asMap().merge(key, n, Math::max);
+        return v;
+    }
+
+    private static String categoryVersionKey(String category, java.util.Optional<Boolean> inStock) {
+        String norm = Keys.normalize(category);
+        if (inStock.isEmpty()) return Keys.verCategory(norm);
+        return inStock.get() ? Keys.verCategoryIn(norm) : Keys.verCategoryOut(norm);
+    }
+
+    private static long asLong(String v) {
+        if (v == null) return 0;
+        try { return Long.parseLong(v); } catch (NumberFormatException e) { return 0; }
+    }
+}
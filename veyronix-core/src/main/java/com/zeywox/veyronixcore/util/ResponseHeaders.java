@@ -8,7 +8,7 @@ public final class ResponseHeaders {
 
     public static HttpHeaders ok(Meta meta, long ttlSecs) {
         HttpHeaders h = new HttpHeaders();
-        HttpCaching.applyCacheHeaders(h, meta.contentType, meta.etag, meta.lastModifiedEpochMillis, ttlSecs);
+        HttpCaching.applyCacheHeaders(h, meta.contentType, meta.etag, meta.lastModifiedHttp, ttlSecs);
         h.set(HttpHeaders.CONTENT_ENCODING, "gzip");
         h.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
         return HttpHeaders.readOnlyHttpHeaders(h);
@@ -26,4 +26,22 @@ public final class ResponseHeaders {
         return h;
     }
 
+    /** 304 known from the version alone: no Last-Modified, the product hash was never read. */
+    public static HttpHeaders notModified(String etag, long ttlSecs) {
+        HttpHeaders h = new HttpHeaders();
+        h.set(HttpHeaders.ETAG, etag);
+        h.set(HttpHeaders.CACHE_CONTROL, "public, max-age=" + ttlSecs);
+        h.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        h.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return HttpHeaders.readOnlyHttpHeaders(h);
+    }
+
+    /** Same headers as the cached entry plus an RFC 7234 stale warning (Redis slow/failing). */
+    public static HttpHeaders stale(HttpHeaders from) {
+        HttpHeaders h = new HttpHeaders();
+        h.putAll(from);
+        h.set(HttpHeaders.WARNING, "110 - \"Response is Stale\"");
+        return HttpHeaders.readOnlyHttpHeaders(h);
+    }
+
 }
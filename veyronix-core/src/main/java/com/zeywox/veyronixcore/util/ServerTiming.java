@@ -0,0 +1,43 @@
+package com.zeywox.veyronixcore.util;
+
+import com.zeywox.veyronixcore.dto.BuildTimings;
+
+/**
+ * Renders a Server-Timing value (W3C), durations in ms:
+ *   cache;desc=miss;dur=0.004, ver;dur=0.210, redis;dur=0.520, encode;dur=0.080, gzip;dur=0.150, total;dur=1.020
+ * Build phases (ver/redis/encode/gzip) are only listed for requests that waited on that build;
+ * a hit shows the lookup and the total.
+ */
+public final class ServerTiming {
+    private ServerTiming() {}
+
+    public static String render(String outcome, long lookupNanos, BuildTimings build, long totalNanos) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("cache;desc=").append(outcome);
+        dur(sb, lookupNanos);
+        if (build != null) {
+            entry(sb, "ver", build.versionNanos());
+            entry(sb, "redis", build.fetchNanos());
+            entry(sb, "encode", build.jsonNanos());
+            entry(sb, "gzip", build.gzipNanos());
+        }
+        entry(sb, "total", totalNanos);
+        return sb.toString();
+    }
+
+    private static void entry(StringBuilder sb, String name, long nanos) {
+        if (nanos < 0) return; // not measured separately
+        sb.append(", ").append(name);
+        dur(sb, nanos);
+    }
+
+    // ";dur=1.234" without String.format
+    private static void dur(StringBuilder sb, long nanos) {
+        long micros = Math.max(0, nanos) / 1_000;
+        long frac = micros % 1_000;
+        sb.append(";dur=").append(micros / 1_000).append('.');
+        if (frac < 100) sb.append('0');
+        if (frac < 10) sb.append('0');
+        sb.append(frac);
+    }
+}
@@ -39,6 +39,11 @@ public class ValueCoercions {
         }
         return new java.math.BigDecimal(s).doubleValue();
     }
+    /** Price as stored in Redis: plain 2dp string ("" for null). */
+    public static String canonicalPrice(Double p){
+        if (p == null) return "";
+        return java.math.BigDecimal.valueOf(p).setScale(2, java.math.RoundingMode.HALF_UP).toPlainString();
+    }
     public static double round2(double v){
         return java.math.BigDecimal.valueOf(v).setScale(2, java.math.RoundingMode.HALF_UP).doubleValue();
     }
@@ -1,12 +1,21 @@
 package com.zeywox.veyronixcore.util;
 
-import org.springframework.data.redis.core.StringRedisTemplate;
+import com.zeywox.veyronixcore.repos.catalog.CatalogEngine;
 
+/**
+ * The versions behind ETags. With the catalog engine the data comes from its snapshot, which may lag the Redis
+ * counters (feed, reconcile), so the versions come from the snapshot too: a page or product is never labelled with
+ * a version whose data the engine has not applied yet. Null (body-hash ETag) where the engine cannot vouch for one.
+ */
 public final class VersionLookup {
-    private final StringRedisTemplate redis;
+    private final ReplicaReadRouter routing;
+    private final RedisConcurrencyLimiter limiter;
+    private final CatalogEngine engine; // null unless catalog-engine.enabled
 
-    public VersionLookup(StringRedisTemplate redis) {
-        this.redis = redis;
+    public VersionLookup(ReplicaReadRouter routing, RedisConcurrencyLimiter limiter, CatalogEngine engine) {
+        this.routing = routing;
+        this.limiter = limiter;
+        this.engine = engine;
     }
 
     /**
@@ -14,7 +23,8 @@ public final class VersionLookup {
      * Returns null if the key is missing (EtagPolicy can handle null).
      */
     public String productVersion(String productId) {
-        return redis.opsForValue().get(Keys.verProduct(productId));
+        if (engine != null) return engine.productVersion(productId);
+        return get(Keys.verProduct(productId), false);
     }
 
     /**
@@ -28,14 +38,21 @@ public final class VersionLookup {
      *                 - false -> "out-of-stock" bucket version
      */
     public String categoryVersion(String category, java.util.Optional<Boolean> inStock) {
+        if (engine != null) return engine.categoryVersion(category, inStock);
         String norm = Keys.normalize(category);
 
         if (inStock.isEmpty()) {
-            return redis.opsForValue().get(Keys.verCategory(norm));
+            return get(Keys.verCategory(norm), true);
         }
         return inStock.get()
-                ? redis.opsForValue().get(Keys.verCategoryIn(norm))
-                : redis.opsForValue().get(Keys.verCategoryOut(norm));
+                ? get(Keys.verCategoryIn(norm), true)
+                : get(Keys.verCategoryOut(norm), true);
+    }
+
+    // version GETs are the cheap path behind 304s and unchanged refreshes: highest admission priority
+    private String get(String key, boolean listing) {
+        return routing.readVersion(key, listing, t ->
+                limiter.call(RedisConcurrencyLimiter.Priority.HIGH, "get.version", () -> t.opsForValue().get(key)));
     }
 
 }
@@ -0,0 +1,55 @@
+-- CLUSTER WRITE PROTOCOL, phase 2 (category slot).
+--   Touches ONLY keys hash-tagged with one normalized category ({<catNorm>}).
+--   Applies any number of membership ops for that category, then bumps each requested
+--   version once, however many ids were touched.
+--
+-- KEYS:
+--   1) idx:category:{<c>}        (SET)    2) zidx:category:{<c>}        (ZSET)
+--   3) idx:category:in:{<c>}     (SET)    4) zidx:category:in:{<c>}     (ZSET)
+--   5) idx:category:out:{<c>}    (SET)    6) zidx:category:out:{<c>}    (ZSET)
+--   7) ver:category:{<c>}        (STRING)
+--   8) ver:category:in:{<c>}     (STRING)
+--   9) ver:category:out:{<c>}    (STRING)
+--
+-- ARGV:
+--   1) bump ver:category      ("1"/"0")
+--   2) bump ver:category:in   ("1"/"0")
+--   3) bump ver:category:out  ("1"/"0")
+--   4..N) triples: op, id, stock
+--         op = "add"    -> member of the category + the bucket for stock
+--              "bucket" -> only move between in/out for stock
+--              "remove" -> out of every index of this category
+--
+-- RETURNS: number of ops applied
+
+local function toBucket(id, stock)
+    if stock > 0 then
+        redis.call("SADD", KEYS[3], id); redis.call("ZADD", KEYS[4], 0, id)
+        redis.call("SREM", KEYS[5], id); redis.call("ZREM", KEYS[6],    id)
+    else
+        redis.call("SADD", KEYS[5], id); redis.call("ZADD", KEYS[6], 0, id)
+        redis.call("SREM", KEYS[3], id); redis.call("ZREM", KEYS[4],    id)
+    end
+end
+
+local n = 0
+for i = 4, #ARGV, 3 do
+    local op, id, stock = ARGV[i], ARGV[i + 1], tonumber(ARGV[i + 2]) or 0
+    if op == "add" then
+        redis.call("SADD", KEYS[1], id); redis.call("ZADD", KEYS[2], 0, id)
+        toBucket(id, stock)
+    elseif op == "bucket" then
+        toBucket(id, stock)
+    elseif op == "remove" then
+        redis.call("SREM", KEYS[1], id); redis.call("ZREM", KEYS[2], id)
+        redis.call("SREM", KEYS[3], id); redis.call("ZREM", KEYS[4], id)
+        redis.call("SREM", KEYS[5], id); redis.call("ZREM", KEYS[6], id)
+    end
+    n = n + 1
+end
+
+if ARGV[1] == "1" then redis.call("INCR", KEYS[7]) end
+if ARGV[2] == "1" then redis.call("INCR", KEYS[8]) end
+if ARGV[3] == "1" then redis.call("INCR", KEYS[9]) end
+
+return n
@@ -0,0 +1,115 @@
+-- CLUSTER WRITE PROTOCOL, phase 1 (product slot).
+--   Touches ONLY keys hash-tagged with the product id ({<id>}), so it is legal on Redis Cluster.
+--   Index membership and category versions live in the category's slot and are applied
+--   afterwards by category_apply.lua (phase 2), driven by what this script returns.
+--
+-- PENDING MOVES:
+--   A write that needs phase 2 also records, in the same atomic step, the categories phase 2 has to
+--   reconcile (old and new, raw) in pm:{<id>}. The writer removes them with "settle" once phase 2
+--   succeeded (an earlier write's unfinished categories stay);
+--   a marker left behind (phase 2 failed, or the writer died in between) is finished by the
+--   repository's reconciler, which reads the product with "pending" and re-derives phase 2 from it.
+--
+-- KEYS:
+--   1) product:{<id>}          (HASH)
+--   2) ver:product:{<id>}      (STRING)
+--   3) pm:{<id>}               (SET)    pending category moves
+--
+-- ARGV:
+--   1) mode
+--        "upsert" : 2..N) field, value, ... (full product; creates if missing)
+--        "stock"  : 2) newStock, 3) "1" = batch item: skip (no write, no bump) when unchanged,
+--                   and answer { "MISSING" } instead of an error for a missing product
+--        "adjust" : 2) delta (negative = reserve; floor 0 enforced)
+--        "patch"  : 2..N) field, value, ... (provided fields only; only changed ones written)
+--        "settle" : 2) version, 3..N) categories whose phase 2 completed: drop them from pm:{<id>} if
+--                   ver:product is still that (no newer write since); others stay for the reconciler
+--        "pending": read-only, for the reconciler
+--
+-- RETURNS:
+--   { status, oldCategory, oldStock, newCategory, newStock, oldName, version
+--     [, field, value, ... (patch: HGETALL after)] }
+--   settle:  { "SETTLED" | "KEPT" }
+--   pending: { version, exists ("1"/"0"), category, stock, pendingCategory... }
+--   status: "NEW" (upsert created it) | "OK" | "UNCHANGED" (nothing written, no bump)
+--   errors: "NOT_FOUND <key>" (stock/adjust/patch), "INSUFFICIENT_STOCK <key>" (adjust)
+
+local productKey, verKey, pendKey = KEYS[1], KEYS[2], KEYS[3]
+local mode = ARGV[1]
+
+if mode == "settle" then
+    if (redis.call("GET", verKey) or "0") ~= ARGV[2] then return { "KEPT" } end
+    for i = 3, #ARGV do redis.call("SREM", pendKey, ARGV[i]) end
+    return { redis.call("EXISTS", pendKey) == 1 and "KEPT" or "SETTLED" }
+end
+
+local exists   = redis.call("EXISTS", productKey) == 1
+if mode == "pending" then
+    local out = {
+        redis.call("GET", verKey) or "0", exists and "1" or "0",
+        redis.call("HGET", productKey, "category") or "",
+        tostring(tonumber(redis.call("HGET", productKey, "stock") or "0") or 0)
+    }
+    for _, c in ipairs(redis.call("SMEMBERS", pendKey)) do out[#out + 1] = c end
+    return out
+end
+
+if mode ~= "upsert" and not exists then
+    if mode == "stock" and ARGV[3] == "1" then return { "MISSING" } end -- don't fail a pipelined batch
+    return redis.error_reply("NOT_FOUND " .. productKey)
+end
+local oldCat   = redis.call("HGET", productKey, "category") or ""
+local oldStock = tonumber(redis.call("HGET", productKey, "stock") or "0") or 0
+local oldName  = redis.call("HGET", productKey, "name") or ""
+
+local status = exists and "OK" or "NEW"
+
+if mode == "upsert" then
+    local fv = {}
+    for i = 2, #ARGV do fv[#fv + 1] = ARGV[i] end
+    redis.call("HSET", productKey, unpack(fv))
+elseif mode == "stock" then
+    if ARGV[3] == "1" and tonumber(ARGV[2]) == oldStock then
+        status = "UNCHANGED"
+    else
+        redis.call("HSET", productKey, "stock", ARGV[2])
+    end
+elseif mode == "adjust" then
+    local delta = tonumber(ARGV[2]) or 0
+    if oldStock + delta < 0 then
+        return redis.error_reply("INSUFFICIENT_STOCK " .. productKey)
+    end
+    redis.call("HINCRBY", productKey, "stock", delta)
+elseif mode == "patch" then
+    local set = {}
+    for i = 2, #ARGV, 2 do
+        if redis.call("HGET", productKey, ARGV[i]) ~= ARGV[i + 1] then
+            set[#set + 1] = ARGV[i]; set[#set + 1] = ARGV[i + 1]
+        end
+    end
+    if #set == 0 then status = "UNCHANGED" else redis.call("HSET", productKey, unpack(set)) end
+else
+    return redis.error_reply("BAD_MODE " .. tostring(mode))
+end
+
+local newCat   = redis.call("HGET", productKey, "category") or ""
+local newStock = tonumber(redis.call("HGET", productKey, "stock") or "0") or 0
+
+if status ~= "UNCHANGED" then
+    redis.call("INCR", verKey)
+    -- same rule the repository uses to plan phase 2: every change but an adjust within one bucket
+    if mode ~= "adjust" or (oldStock > 0) ~= (newStock > 0) then
+        if exists then redis.call("SADD", pendKey, oldCat) end
+        redis.call("SADD", pendKey, newCat)
+    end
+end
+
+local out = {
+    status, oldCat, tostring(oldStock), newCat, tostring(newStock), oldName,
+    redis.call("GET", verKey) or "0"
+}
+if mode == "patch" then
+    local h = redis.call("HGETALL", productKey)
+    for i = 1, #h do out[#out + 1] = h[i] end
+end
+return out
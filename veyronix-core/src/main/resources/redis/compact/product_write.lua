@@ -0,0 +1,191 @@
+-- COMPACT LAYOUT (redis-layout.compact=true): every product write, in one script.
+--   p:<m>                 HASH   n (name), c (category), p (price, integer cents), d (description), s (stock);
+--                                no id field, the key carries it. No stored NK parts: the caller remaps the NK
+--                                registry from the old/new name and category this script returns (kn / kc left
+--                                by earlier versions are dropped on the next write)
+--   z:a:<c> z:i:<c> z:o:<c>  ZSET  all / in-stock / out-of-stock (score 0, lex). No SET twins.
+--   v:p:<m> v:c:<c> v:i:<c> v:o:<c>  STRING versions
+--   <m> = compact member id (Java Keys.member), <c> = normalized category
+--   Same index/bump rules as product_upsert.lua / product_set_stock.lua / product_reserve_stock.lua,
+--   but category versions are bumped once per call however many items touched them.
+--
+-- KEYS:
+--   1) a                  (SET of all members)
+--
+-- ARGV: 1) mode, then
+--   "upsert"  : 2) member, 3..N) field, value, ...  (full product)          -> 1
+--   "patch"   : 2) member, 3..N) field, value, ...  (provided fields only)  -> { status, oldName, oldCategory, field, value, ... }
+--               status: "UNCHANGED" | "OK" | "NK_PENDING" (name/category moved: caller remaps the NK registry)
+--   "stock"   : 2) "1" = skip unchanged items, 3..N) member, stock, ...     -> { newStock | -1 (missing), ... }
+--   "reserve" / "release" : 2..N) member, qty, ...  (all-or-nothing, floor 0) -> { newStock, ... }
+--               errors: "NOT_FOUND <member>", "INSUFFICIENT_STOCK <member>"
+--
+--   NOTE: Keep normalize(...) in strict lockstep with Java Keys.normalize(...).
+
+local function trim(s) if not s then return "" end return (s:gsub("^%s*(.-)%s*$","%1")) end
+local function isBlank(s) return trim(s) == "" end
+local function normalize(cat)
+    cat = trim(cat)
+    if cat == "" then return "uncategorized" end
+    cat = string.lower(cat)
+    cat = (cat:gsub("%s+","-"))
+    return cat
+end
+
+local function pkey(m) return "p:" .. m end
+
+local bumps, bumpOrder = {}, {}
+local function bump(k)
+    if not bumps[k] then bumps[k] = true; bumpOrder[#bumpOrder + 1] = k end
+end
+local function bumpBucket(norm, stock)
+    if stock > 0 then bump("v:i:" .. norm) else bump("v:o:" .. norm) end
+end
+
+local function toBucket(norm, m, stock)
+    if stock > 0 then
+        redis.call("ZADD", "z:i:" .. norm, 0, m); redis.call("ZREM", "z:o:" .. norm, m)
+    else
+        redis.call("ZADD", "z:o:" .. norm, 0, m); redis.call("ZREM", "z:i:" .. norm, m)
+    end
+end
+
+-- index moves + version bumps for one product; oldCat == nil means it did not exist
+local function reindex(m, oldCat, oldStock, newCat, newStock)
+    local oldNorm, newNorm = normalize(oldCat), normalize(newCat)
+    if oldNorm ~= newNorm then
+        redis.call("ZREM", "z:a:" .. oldNorm, m)
+        redis.call("ZREM", "z:i:" .. oldNorm, m)
+        redis.call("ZREM", "z:o:" .. oldNorm, m)
+    end
+    redis.call("ZADD", "z:a:" .. newNorm, 0, m)
+    toBucket(newNorm, m, newStock)
+
+    bump("v:p:" .. m)
+    if not isBlank(newCat) then bump("v:c:" .. newNorm) end
+    if oldCat ~= newCat then
+        if not isBlank(oldCat) then
+            bump("v:c:" .. oldNorm)
+            bumpBucket(oldNorm, oldStock)
+        end
+        if not isBlank(newCat) then bumpBucket(newNorm, newStock) end
+    elseif not isBlank(newCat) then
+        if oldStock ~= newStock then
+            bump("v:i:" .. newNorm); bump("v:o:" .. newNorm)
+        else
+            bumpBucket(newNorm, newStock)
+        end
+    end
+end
+
+local function flush()
+    for _, k in ipairs(bumpOrder) do redis.call("INCR", k) end
+end
+
+local mode = ARGV[1]
+
+if mode == "upsert" or mode == "patch" then
+    local m = ARGV[2]
+    local key = pkey(m)
+    local cur = redis.call("HGETALL", key)
+    local old = {}
+    for i = 1, #cur, 2 do old[cur[i]] = cur[i + 1] end
+    local existed = #cur > 0
+
+    if mode == "patch" and not existed then
+        return redis.error_reply("NOT_FOUND " .. m)
+    end
+
+    local set, moved = {}, false
+    for i = 3, #ARGV, 2 do
+        local f, v = ARGV[i], ARGV[i + 1]
+        if mode == "upsert" or old[f] ~= v then
+            set[#set + 1] = f; set[#set + 1] = v
+            if (f == "n" or f == "c") and old[f] ~= v then moved = true end
+        end
+    end
+
+    if mode == "patch" and #set == 0 then
+        local out = { "UNCHANGED", old["n"] or "", old["c"] or "" }
+        for i = 1, #cur do out[#out + 1] = cur[i] end
+        return out
+    end
+
+    redis.call("HSET", key, unpack(set))
+    if old["kn"] or old["kc"] then redis.call("HDEL", key, "kn", "kc") end
+    redis.call("SADD", KEYS[1], m)
+
+    local oldCat   = existed and (old["c"] or "") or nil
+    local oldStock = tonumber(old["s"] or "0") or 0
+    local newCat   = redis.call("HGET", key, "c") or ""
+    local newStock = tonumber(redis.call("HGET", key, "s") or "0") or 0
+    reindex(m, oldCat, oldStock, newCat, newStock)
+    flush()
+
+    if mode == "upsert" then return 1 end
+    local out = { moved and "NK_PENDING" or "OK", old["n"] or "", old["c"] or "" }
+    local h = redis.call("HGETALL", key)
+    for i = 1, #h do out[#out + 1] = h[i] end
+    return out
+end
+
+if mode == "stock" then
+    local skipSame = ARGV[2] == "1"
+    local out = {}
+    for i = 3, #ARGV, 2 do
+        local m, newStock = ARGV[i], tonumber(ARGV[i + 1]) or 0
+        local key = pkey(m)
+        local cat = redis.call("HGET", key, "c")
+        if not cat then
+            out[#out + 1] = -1
+        else
+            local oldStock = tonumber(redis.call("HGET", key, "s") or "0") or 0
+            if not (skipSame and oldStock == newStock) then
+                redis.call("HSET", key, "s", tostring(newStock))
+                reindex(m, cat, oldStock, cat, newStock)
+            end
+            out[#out + 1] = newStock
+        end
+    end
+    flush()
+    return out
+end
+
+if mode == "reserve" or mode == "release" then
+    local reserve = mode == "reserve"
+    -- 1) check every line before writing anything (repeated members accumulate)
+    local need = {}
+    for i = 2, #ARGV, 2 do
+        local m, qty = ARGV[i], tonumber(ARGV[i + 1]) or 0
+        local stock = redis.call("HGET", pkey(m), "s")
+        if not stock then return redis.error_reply("NOT_FOUND " .. m) end
+        if reserve then
+            need[m] = (need[m] or 0) + qty
+            if (tonumber(stock) or 0) < need[m] then
+                return redis.error_reply("INSUFFICIENT_STOCK " .. m)
+            end
+        end
+    end
+    -- 2) apply; indexes/category versions move only when stock crosses zero
+    local out = {}
+    for i = 2, #ARGV, 2 do
+        local m, qty = ARGV[i], tonumber(ARGV[i + 1]) or 0
+        local key = pkey(m)
+        local newStock = redis.call("HINCRBY", key, "s", reserve and -qty or qty)
+        local oldStock = reserve and newStock + qty or newStock - qty
+        bump("v:p:" .. m)
+        if (oldStock > 0) ~= (newStock > 0) then
+            local cat = redis.call("HGET", key, "c")
+            local norm = normalize(cat)
+            toBucket(norm, m, newStock)
+            if not isBlank(cat) then
+                bump("v:c:" .. norm); bump("v:i:" .. norm); bump("v:o:" .. norm)
+            end
+        end
+        out[#out + 1] = newStock
+    end
+    flush()
+    return out
+end
+
+return redis.error_reply("BAD_MODE " .. tostring(mode))
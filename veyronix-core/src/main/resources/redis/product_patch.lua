@@ -0,0 +1,256 @@
+-- What this script does (one EVALSHA for the whole PATCH):
+--   - Reads the current product hash and diffs the provided fields against it
+--   - Writes only changed fields
+--   - Moves the id between category / in / out indexes (SET + ZSET) when category or bucket changed
+--   - Bumps versions with the same semantics as product_upsert.lua
+--   - Remaps the natural-key registry (idx:nk:product) on name/category change
+--   - Returns the old name/category and the updated hash, so the caller needs no extra read
+--
+-- KEYS:
+--   1) product:<id>          (HASH)
+--   2) idx:nk:product        (HASH)   natural key registry
+--   3) ver:product:<id>      (STRING)
+--
+-- ARGV:
+--   1) id
+--   2..N) flat: field, value for the PROVIDED fields only, any of:
+--          name, category (already defaulted to "uncategorized" if blank), price (canonical 2dp),
+--          description, stock,
+--          nkn / nkc = NK-normalized name / category (Java IdRegistry.nkNormalize) for a provided name /
+--                      category that this script cannot normalize itself (see NK PARTS)
+--
+-- RETURNS:
+--   { status, oldName, oldCategory, field1, value1, ... }   (fields = HGETALL after the write)
+--   status: "UNCHANGED" | "OK" | "NK_PENDING"
+--     NK_PENDING: name/category changed, but an old value is neither derivable nor stored (the hash
+--     predates nkn/nkc), so the registry could not be remapped here; the caller falls back to
+--     IdRegistry.remapIfChanged.
+--   error: "NOT_FOUND <id>"
+--
+-- NK FIELD:
+--   first 32 hex chars of sha256(nkn .. "|" .. nkc) -- must match Java IdRegistry.naturalKeyField(...)
+--
+-- NK PARTS:
+--   Java's nkNormalize lowercases Unicode and applies NFC, which Lua cannot do. For printable ASCII
+--   (plus the six whitespace chars both sides agree on) it is just trim + collapse whitespace + lower,
+--   so nkNormalize below derives it and nothing is stored (IdRegistry.nkDerivable decides on the Java
+--   side). Only values outside that set carry a stored nkn / nkc; a change to a derivable value drops it.
+--
+-- NORMALIZATION (index keys): Keep normalize(...) in strict lockstep with Java Keys.normalize(...).
+
+local function trim(s) if not s then return "" end return (s:gsub("^%s*(.-)%s*$","%1")) end
+local function isBlank(s) return trim(s) == "" end
+local function normalize(cat)
+    cat = trim(cat)
+    if cat == "" then return "uncategorized" end
+    cat = string.lower(cat)
+    cat = (cat:gsub("%s+","-"))
+    return cat
+end
+
+-- ---- SHA-256 (LuaBitOp; all arithmetic re-normalized to 32 bits with tobit) ----
+local band, bor, bxor, bnot = bit.band, bit.bor, bit.bxor, bit.bnot
+local rshift, lshift, ror, tobit = bit.rshift, bit.lshift, bit.ror, bit.tobit
+
+local K = {
+    0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+    0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+    0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+    0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+    0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+    0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+    0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+    0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+}
+
+local function sha256hex(msg)
+    local H = { 0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19 }
+    local ml = #msg
+    local bits = ml * 8
+    local hi, lo = math.floor(bits / 4294967296), bits % 4294967296
+    msg = msg .. "\128" .. string.rep("\0", (55 - ml) % 64) .. string.char(
+        math.floor(hi / 16777216) % 256, math.floor(hi / 65536) % 256, math.floor(hi / 256) % 256, hi % 256,
+        math.floor(lo / 16777216) % 256, math.floor(lo / 65536) % 256, math.floor(lo / 256) % 256, lo % 256)
+
+    local w = {}
+    for chunk = 1, #msg, 64 do
+        for i = 0, 15 do
+            local b1, b2, b3, b4 = string.byte(msg, chunk + i * 4, chunk + i * 4 + 3)
+            w[i] = bor(lshift(b1, 24), lshift(b2, 16), lshift(b3, 8), b4)
+        end
+        for i = 16, 63 do
+            local x, y = w[i - 15], w[i - 2]
+            local s0 = bxor(ror(x, 7), ror(x, 18), rshift(x, 3))
+            local s1 = bxor(ror(y, 17), ror(y, 19), rshift(y, 10))
+            w[i] = tobit(w[i - 16] + s0 + w[i - 7] + s1)
+        end
+
+        local a, b, c, d, e, f, g, h = H[1], H[2], H[3], H[4], H[5], H[6], H[7], H[8]
+        for i = 0, 63 do
+            local S1 = bxor(ror(e, 6), ror(e, 11), ror(e, 25))
+            local ch = bxor(band(e, f), band(bnot(e), g))
+            local t1 = tobit(h + S1 + ch + K[i + 1] + w[i])
+            local S0 = bxor(ror(a, 2), ror(a, 13), ror(a, 22))
+            local maj = bxor(band(a, b), band(a, c), band(b, c))
+            local t2 = tobit(S0 + maj)
+            h, g, f, e, d, c, b, a = g, f, e, tobit(d + t1), c, b, a, tobit(t1 + t2)
+        end
+        H[1] = tobit(H[1] + a); H[2] = tobit(H[2] + b); H[3] = tobit(H[3] + c); H[4] = tobit(H[4] + d)
+        H[5] = tobit(H[5] + e); H[6] = tobit(H[6] + f); H[7] = tobit(H[7] + g); H[8] = tobit(H[8] + h)
+    end
+
+    local out = {}
+    for i = 1, 8 do out[i] = bit.tohex(H[i], 8) end
+    return table.concat(out)
+end
+
+local function nkField(nkn, nkc)
+    return string.sub(sha256hex(nkn .. "|" .. nkc), 1, 32)
+end
+
+-- Java IdRegistry.nkDerivable / nkNormalize, for values where the two agree byte for byte
+local function nkDerivable(s)
+    return s ~= nil and not s:find("[^\t\n\v\f\r\32-\126]")
+end
+local function nkNormalize(s)
+    return string.lower((trim(s):gsub("%s+", " ")))
+end
+
+-- stored part if any, else derived, else nil (unknown: NK_PENDING)
+local function nkPart(raw, stored)
+    if stored then return stored end
+    if nkDerivable(raw) then return nkNormalize(raw) end
+    return nil
+end
+
+-- ---- patch ----
+
+local productKey, nkKey, verKey = KEYS[1], KEYS[2], KEYS[3]
+local id = ARGV[1]
+
+local cur = redis.call("HGETALL", productKey)
+if #cur == 0 then
+    return redis.error_reply("NOT_FOUND " .. id)
+end
+local old = {}
+for i = 1, #cur, 2 do old[cur[i]] = cur[i + 1] end
+
+local incoming = {}
+for i = 2, #ARGV, 2 do incoming[ARGV[i]] = ARGV[i + 1] end
+
+local function result(status, hash)
+    local out = { status, old["name"] or "", old["category"] or "" }
+    for i = 1, #hash do out[#out + 1] = hash[i] end
+    return out
+end
+
+-- 1) Diff
+local set = {}
+local nameChanged, catChanged = false, false
+for _, f in ipairs({ "name", "category", "price", "description", "stock" }) do
+    local v = incoming[f]
+    if v ~= nil and v ~= old[f] then
+        set[#set + 1] = f; set[#set + 1] = v
+        if f == "name" then nameChanged = true elseif f == "category" then catChanged = true end
+    end
+end
+if #set == 0 then
+    return result("UNCHANGED", cur)
+end
+local drop = {}
+if nameChanged then
+    if incoming["nkn"] then set[#set + 1] = "nkn"; set[#set + 1] = incoming["nkn"] elseif old["nkn"] then drop[#drop + 1] = "nkn" end
+end
+if catChanged then
+    if incoming["nkc"] then set[#set + 1] = "nkc"; set[#set + 1] = incoming["nkc"] elseif old["nkc"] then drop[#drop + 1] = "nkc" end
+end
+
+-- 2) Write changed fields
+redis.call("HSET", productKey, unpack(set))
+if #drop > 0 then redis.call("HDEL", productKey, unpack(drop)) end
+
+-- 3) Index moves
+local oldCatRaw  = old["category"]
+local newCatRaw  = catChanged and incoming["category"] or oldCatRaw
+local oldStock   = tonumber(old["stock"] or "0") or 0
+local newStock   = tonumber(incoming["stock"] or old["stock"] or "0") or 0
+local oldCatNorm = normalize(oldCatRaw)
+local newCatNorm = normalize(newCatRaw)
+
+local function bucket(norm, stock)
+    if stock > 0 then return "idx:category:in:" .. norm, "zidx:category:in:" .. norm end
+    return "idx:category:out:" .. norm, "zidx:category:out:" .. norm
+end
+
+if oldCatNorm ~= newCatNorm then
+    redis.call("SREM", "idx:category:"      .. oldCatNorm, id)
+    redis.call("SREM", "idx:category:in:"   .. oldCatNorm, id)
+    redis.call("SREM", "idx:category:out:"  .. oldCatNorm, id)
+    redis.call("ZREM", "zidx:category:"     .. oldCatNorm, id)
+    redis.call("ZREM", "zidx:category:in:"  .. oldCatNorm, id)
+    redis.call("ZREM", "zidx:category:out:" .. oldCatNorm, id)
+    redis.call("SADD", "idx:category:"  .. newCatNorm, id)
+    redis.call("ZADD", "zidx:category:" .. newCatNorm, 0, id)
+    local s, z = bucket(newCatNorm, newStock)
+    redis.call("SADD", s, id); redis.call("ZADD", z, 0, id)
+elseif (oldStock > 0) ~= (newStock > 0) then
+    local os, oz = bucket(oldCatNorm, oldStock)
+    local ns, nz = bucket(newCatNorm, newStock)
+    redis.call("SREM", os, id); redis.call("ZREM", oz, id)
+    redis.call("SADD", ns, id); redis.call("ZADD", nz, 0, id)
+end
+
+-- 4) Version bumps (same rules as product_upsert.lua)
+redis.call("INCR", verKey)
+if not isBlank(newCatRaw) then
+    redis.call("INCR", "ver:category:" .. newCatNorm)
+end
+if oldCatRaw ~= newCatRaw then
+    if not isBlank(oldCatRaw) then
+        redis.call("INCR", "ver:category:" .. oldCatNorm)
+        if oldStock > 0 then
+            redis.call("INCR", "ver:category:in:"  .. oldCatNorm)
+        else
+            redis.call("INCR", "ver:category:out:" .. oldCatNorm)
+        end
+    end
+    if not isBlank(newCatRaw) then
+        if newStock > 0 then
+            redis.call("INCR", "ver:category:in:"  .. newCatNorm)
+        else
+            redis.call("INCR", "ver:category:out:" .. newCatNorm)
+        end
+    end
+elseif not isBlank(newCatRaw) then
+    if oldStock ~= newStock then
+        redis.call("INCR", "ver:category:in:"  .. newCatNorm)
+        redis.call("INCR", "ver:category:out:" .. newCatNorm)
+    elseif newStock > 0 then
+        redis.call("INCR", "ver:category:in:"  .. newCatNorm)
+    else
+        redis.call("INCR", "ver:category:out:" .. newCatNorm)
+    end
+end
+
+-- 5) Natural-key remap
+local status = "OK"
+if nameChanged or catChanged then
+    local oldNkn = nkPart(old["name"], old["nkn"])
+    local oldNkc = nkPart(old["category"], old["nkc"])
+    local newNkn, newNkc = oldNkn, oldNkc
+    if nameChanged then newNkn = nkPart(incoming["name"], incoming["nkn"]) end
+    if catChanged  then newNkc = nkPart(incoming["category"], incoming["nkc"]) end
+    if oldNkn and oldNkc and newNkn and newNkc then
+        local oldField, newField = nkField(oldNkn, oldNkc), nkField(newNkn, newNkc)
+        if oldField ~= newField then
+            if redis.call("HGET", nkKey, oldField) == id then
+                redis.call("HDEL", nkKey, oldField)
+            end
+            redis.call("HSET", nkKey, newField, id)
+        end
+    else
+        status = "NK_PENDING"
+    end
+end
+
+return result(status, redis.call("HGETALL", productKey))
@@ -0,0 +1,98 @@
+-- ATOMICITY:
+--   The whole call (all items) runs atomically on a single Redis node: a cart either
+--   reserves every line or none of them.
+--   (Note: On Redis Cluster, scripts must only touch keys in one slot.)
+--
+-- KEYS (two per item, same order as the ARGV pairs):
+--   2i-1) product:<id>            (HASH)
+--   2i  ) ver:product:<id>        (STRING)
+--
+-- ARGV:
+--   1) mode                       "reserve" (decrement with floor 0) | "release" (increment)
+--   2..N) flat pairs: id, quantity (positive integer)
+--
+-- RETURNS:
+--   array aligned with the items: stock after this item was applied
+--   errors: "NOT_FOUND <id>", "INSUFFICIENT_STOCK <id>" (nothing is written)
+--
+-- VERSION BUMPS:
+--   - ver:product:<id> for every item (the product's stock changed)
+--   - index moves + ver:category / in / out ONLY when stock crosses zero
+--     (reserve: >0 -> 0 moves in->out; release: 0 -> >0 moves out->in), once per category per call.
+--     Plain decrements inside the in-stock bucket leave list pages cached.
+--   ACCEPTED STALENESS: the stock shown on cached list pages may therefore lag by up to the L1 hard TTL
+--   (ResponseCacheService rebuilds a page that old even when its version is unchanged). Membership of the
+--   in/out buckets is always exact; GET /products/{id} is the authoritative stock.
+--
+-- INDEX/VERSION KEY NAMING + NORMALIZATION: same as product_set_stock.lua
+--   NOTE: Keep normalize(...) in strict lockstep with Java Keys.normalize(...).
+
+local function trim(s) if not s then return "" end return (s:gsub("^%s*(.-)%s*$","%1")) end
+local function isBlank(s) return trim(s) == "" end
+local function normalize(cat)
+    cat = trim(cat)
+    if cat == "" then return "uncategorized" end
+    cat = string.lower(cat)
+    cat = (cat:gsub("%s+","-"))
+    return cat
+end
+
+local reserve = ARGV[1] == "reserve"
+local n = (#ARGV - 1) / 2
+
+-- 1) Check every line before writing anything (the same id may appear twice in a cart)
+local need = {}
+for i = 1, n do
+    local id  = ARGV[2*i]
+    local qty = tonumber(ARGV[2*i+1]) or 0
+    local stock = redis.call("HGET", KEYS[2*i-1], "stock")
+    if not stock then
+        return redis.error_reply("NOT_FOUND " .. id)
+    end
+    if reserve then
+        need[id] = (need[id] or 0) + qty
+        if (tonumber(stock) or 0) < need[id] then
+            return redis.error_reply("INSUFFICIENT_STOCK " .. id)
+        end
+    end
+end
+
+-- 2) Apply
+local touched = {}
+local out = {}
+for i = 1, n do
+    local id   = ARGV[2*i]
+    local qty  = tonumber(ARGV[2*i+1]) or 0
+    local pkey = KEYS[2*i-1]
+
+    local newStock = redis.call("HINCRBY", pkey, "stock", reserve and -qty or qty)
+    local oldStock = reserve and (newStock + qty) or (newStock - qty)
+    redis.call("INCR", KEYS[2*i])
+
+    local crossed = (oldStock > 0) ~= (newStock > 0)
+    if crossed then
+        local catRaw  = redis.call("HGET", pkey, "category")
+        local catNorm = normalize(catRaw)
+        local idxIn   = "idx:category:in:"   .. catNorm
+        local zidxIn  = "zidx:category:in:"  .. catNorm
+        local idxOut  = "idx:category:out:"  .. catNorm
+        local zidxOut = "zidx:category:out:" .. catNorm
+        if newStock > 0 then
+            redis.call("SADD", idxIn,  id); redis.call("ZADD", zidxIn,  0, id)
+            redis.call("SREM", idxOut, id); redis.call("ZREM", zidxOut,    id)
+        else
+            redis.call("SADD", idxOut, id); redis.call("ZADD", zidxOut, 0, id)
+            redis.call("SREM", idxIn,  id); redis.call("ZREM", zidxIn,    id)
+        end
+        if not isBlank(catRaw) then touched[catNorm] = true end
+    end
+    out[#out+1] = newStock
+end
+
+for c in pairs(touched) do
+    redis.call("INCR", "ver:category:"     .. c)
+    redis.call("INCR", "ver:category:in:"  .. c)
+    redis.call("INCR", "ver:category:out:" .. c)
+end
+
+return out
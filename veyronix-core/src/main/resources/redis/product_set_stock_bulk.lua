@@ -0,0 +1,81 @@
+-- ATOMICITY:
+--   One call applies a whole batch atomically on a single Redis node.
+--   (Note: On Redis Cluster, scripts must only touch keys in one slot.)
+--
+-- KEYS (two per item, same order as the ARGV pairs):
+--   2i-1) product:<id>            (HASH)
+--   2i  ) ver:product:<id>        (STRING)
+--
+-- ARGV (flat pairs):
+--   2i-1) id
+--   2i  ) newStock                (stringified integer)
+--
+-- RETURNS:
+--   array aligned with the items: the new stock, or -1 when the product does not exist
+--
+-- VERSION BUMPS (the point of the batch):
+--   - ver:product:<id> per changed item
+--   - ver:category:<catNorm> and the touched in/out bucket versions ONCE per batch,
+--     however many items of that category changed (L1 pages are invalidated once)
+--   - items whose stock is unchanged are skipped entirely (no write, no bump)
+--
+-- INDEX/VERSION KEY NAMING + NORMALIZATION: same as product_set_stock.lua
+--   NOTE: Keep normalize(...) in strict lockstep with Java Keys.normalize(...).
+
+local function trim(s) if not s then return "" end return (s:gsub("^%s*(.-)%s*$","%1")) end
+local function isBlank(s) return trim(s) == "" end
+local function normalize(cat)
+    cat = trim(cat)
+    if cat == "" then return "uncategorized" end
+    cat = string.lower(cat)
+    cat = (cat:gsub("%s+","-"))
+    return cat
+end
+
+local touched = {}  -- set of catNorm whose versions need one bump
+local out = {}
+
+for i = 1, #ARGV, 2 do
+    local id       = ARGV[i]
+    local newStock = tonumber(ARGV[i+1] or "0") or 0
+    local pkey     = KEYS[i]
+    local vkey     = KEYS[i+1]
+
+    local catRaw = redis.call("HGET", pkey, "category")
+    if not catRaw then
+        out[#out+1] = -1
+    else
+        local oldStock = tonumber(redis.call("HGET", pkey, "stock") or "0") or 0
+        if oldStock ~= newStock then
+            local catNorm = normalize(catRaw)
+            redis.call("HSET", pkey, "stock", tostring(newStock))
+
+            local idxIn   = "idx:category:in:"   .. catNorm
+            local zidxIn  = "zidx:category:in:"  .. catNorm
+            local idxOut  = "idx:category:out:"  .. catNorm
+            local zidxOut = "zidx:category:out:" .. catNorm
+            if newStock > 0 then
+                redis.call("SADD", idxIn,  id); redis.call("ZADD", zidxIn,  0, id)
+                redis.call("SREM", idxOut, id); redis.call("ZREM", zidxOut,    id)
+            else
+                redis.call("SADD", idxOut, id); redis.call("ZADD", zidxOut, 0, id)
+                redis.call("SREM", idxIn,  id); redis.call("ZREM", zidxIn,    id)
+            end
+
+            redis.call("INCR", vkey)
+            if not isBlank(catRaw) then
+                -- stock changed: category + BOTH buckets (same rule as the single-item script)
+                touched[catNorm] = true
+            end
+        end
+        out[#out+1] = newStock
+    end
+end
+
+for c in pairs(touched) do
+    redis.call("INCR", "ver:category:"     .. c)
+    redis.call("INCR", "ver:category:in:"  .. c)
+    redis.call("INCR", "ver:category:out:" .. c)
+end
+
+return out
@@ -62,11 +62,16 @@ local oldStock    = tonumber(oldStockStr or "0") or 0
 local oldCatNorm  = normalize(oldCatRaw)
 
 -- 2) Write product hash fields
+local given = {}
 local i = 4
 while i <= #ARGV do
     redis.call("HSET", productKey, ARGV[i], ARGV[i+1])
+    given[ARGV[i]] = true
     i = i + 2
 end
+-- NK parts are only sent when product_patch.lua cannot derive them: drop one left by an earlier value
+if not given["nkn"] then redis.call("HDEL", productKey, "nkn") end
+if not given["nkc"] then redis.call("HDEL", productKey, "nkc") end
 
 -- 3) Always index in "all products"
 redis.call("SADD", KEYS[2], id)
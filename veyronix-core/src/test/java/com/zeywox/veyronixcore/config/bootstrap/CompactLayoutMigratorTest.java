@@ -0,0 +1,89 @@
+package com.zeywox.veyronixcore.config.bootstrap;
+
+import com.zeywox.veyronixcore.config.cache.RedisLayoutProperties;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.repos.CompactRedisProductRepository;
+import com.zeywox.veyronixcore.repos.RedisProductRepository;
+import com.zeywox.veyronixcore.repos.RedisTestSupport;
+import com.zeywox.veyronixcore.util.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Legacy -> compact copy run more than once while legacy writers keep going: a product copied by an earlier run
+ * is not copied again, but its compact version (and every category version) still ends up above the legacy one.
+ */
+class CompactLayoutMigratorTest {
+
+    private static final String LEGACY_PRODUCT_VERSION = "ver:product:p1";
+    private static final String LEGACY_CATEGORY_VERSION = "ver:category:" + Keys.normalize("Computer");
+
+    private RedisTestSupport redis;
+    private RedisProductRepository legacy;
+    private CompactRedisProductRepository compact;
+
+    @BeforeEach
+    void setUp() {
+        redis = RedisTestSupport.start();
+        legacy = redis.legacyRepo();
+        legacy.upsert(new Product("p1", "Name", "Computer", 10.0, "d", 3));
+        legacy.patch("p1", Map.of("price", "11.0"));
+        compact = redis.compactRepo(); // Keys now resolve to the compact layout
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redis != null) redis.close();
+    }
+
+    @Test
+    void versionsEndAboveTheLegacyCounters() throws Exception {
+        migrate();
+
+        assertTrue(compact.getOne("p1").isPresent());
+        assertAboveLegacy();
+    }
+
+    @Test
+    void rerunCatchesUpWithLegacyWritesOnAlreadyCopiedProducts() throws Exception {
+        migrate();
+
+        Keys.useCompact(false); // a legacy instance keeps writing between the runs
+        for (int i = 0; i < 5; i++) legacy.patch("p1", Map.of("price", String.valueOf(20.0 + i)));
+        Keys.useCompact(true);
+        assertTrue(redis.version(Keys.verProduct("p1")) <= redis.version(LEGACY_PRODUCT_VERSION), "behind before the re-run");
+
+        migrate();
+        assertAboveLegacy();
+    }
+
+    @Test
+    void rerunWithoutLegacyWritesChangesNothing() throws Exception {
+        migrate();
+        long product = redis.version(Keys.verProduct("p1"));
+        long category = redis.version(Keys.verCategory("Computer"));
+
+        migrate();
+        assertEquals(product, redis.version(Keys.verProduct("p1")));
+        assertEquals(category, redis.version(Keys.verCategory("Computer")));
+    }
+
+    // ---- helpers ----
+
+    private void migrate() throws Exception {
+        new CompactLayoutMigrator()
+                .migrateLegacyLayout(redis.template, compact, new RedisLayoutProperties(false, true, true, false, 0))
+                .run(null);
+    }
+
+    private void assertAboveLegacy() {
+        assertTrue(redis.version(Keys.verProduct("p1")) > redis.version(LEGACY_PRODUCT_VERSION), "product version");
+        assertTrue(redis.version(Keys.verCategory("Computer")) > redis.version(LEGACY_CATEGORY_VERSION),
+                "category version");
+    }
+}
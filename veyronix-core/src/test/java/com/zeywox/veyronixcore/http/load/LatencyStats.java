@@ -0,0 +1,102 @@
+package com.zeywox.veyronixcore.http.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-scenario results of a load run: latency histograms (µs) and status counts.
+ * Shared by {@link LoadGenerator} and {@link TrafficReplay} so their reports read the same.
+ */
+final class LatencyStats {
+    final Recorder corrected = new Recorder(3);  // from the intended start
+    final Recorder service = new Recorder(3);    // from the actual send
+    final LongAdder ok = new LongAdder();
+    final LongAdder notModified = new LongAdder();
+    final LongAdder clientErrors = new LongAdder();
+    final LongAdder serverErrors = new LongAdder();
+    final LongAdder failed = new LongAdder();   // timeouts, resets
+    final LongAdder shed = new LongAdder();     // never sent: the client-side in-flight cap was reached
+
+    void record(int status, long intended, long sent, long done) {
+        corrected.recordValue(Math.max(0, (done - intended) / 1000));
+        service.recordValue(Math.max(0, (done - sent) / 1000));
+        if (status < 0) failed.increment();
+        else if (status == 304) notModified.increment();
+        else if (status < 400) ok.increment();
+        else if (status < 500) clientErrors.increment();
+        else serverErrors.increment();
+    }
+
+    void reset() {
+        corrected.reset();
+        service.reset();
+        for (LongAdder a : List.of(ok, notModified, clientErrors, serverErrors, failed, shed)) a.reset();
+    }
+
+    /**
+     * Prints the table and writes, under {@code dir}: summary.txt plus a percentile distribution per
+     * scenario ({@code <scenario>.hgrm} corrected, {@code <scenario>.service.hgrm}) and for all of them.
+     */
+    static void report(String header, Map<Scenario, LatencyStats> stats, Path dir) throws IOException {
+        Files.createDirectories(dir);
+
+        Histogram allCorrected = new Histogram(3);
+        Histogram allService = new Histogram(3);
+        StringBuilder sb = new StringBuilder(header).append(System.lineSeparator());
+        sb.append(String.format("%-6s %8s %8s %6s %6s %6s %6s %6s | %9s %9s %9s %9s %9s | %9s %9s %9s%n",
+                "", "count", "2xx", "304", "4xx", "5xx", "err", "shed",
+                "p50", "p90", "p99", "p99.9", "max", "svc p50", "svc p99", "svc p99.9"));
+
+        for (var e : stats.entrySet()) {
+            LatencyStats st = e.getValue();
+            Histogram corrected = st.corrected.getIntervalHistogram();
+            Histogram service = st.service.getIntervalHistogram();
+            if (corrected.getTotalCount() == 0 && st.shed.sum() == 0) continue;
+            allCorrected.add(corrected);
+            allService.add(service);
+            String name = e.getKey().name().toLowerCase(Locale.ROOT);
+            sb.append(row(name, st, corrected, service));
+            write(dir.resolve(name + ".hgrm"), corrected);
+            write(dir.resolve(name + ".service.hgrm"), service);
+        }
+        sb.append(row("all", null, allCorrected, allService));
+        sb.append("latency in ms from the intended start (coordinated-omission corrected); svc = from the actual send\n");
+        write(dir.resolve("all.hgrm"), allCorrected);
+        write(dir.resolve("all.service.hgrm"), allService);
+
+        System.out.print(sb);
+        Files.writeString(dir.resolve("summary.txt"), sb);
+        System.out.println("histograms: " + dir.toAbsolutePath());
+    }
+
+    private static String row(String name, LatencyStats st, Histogram h, Histogram svc) {
+        return String.format("%-6s %8d %8s %6s %6s %6s %6s %6s | %9.3f %9.3f %9.3f %9.3f %9.3f | %9.3f %9.3f %9.3f%n",
+                name, h.getTotalCount(),
+                st == null ? "" : st.ok.sum(), st == null ? "" : st.notModified.sum(),
+                st == null ? "" : st.clientErrors.sum(), st == null ? "" : st.serverErrors.sum(),
+                st == null ? "" : st.failed.sum(), st == null ? "" : st.shed.sum(),
+                ms(h, 50), ms(h, 90), ms(h, 99), ms(h, 99.9), h.getMaxValue() / 1000.0,
+                ms(svc, 50), ms(svc, 99), ms(svc, 99.9));
+    }
+
+    static double ms(Histogram h, double percentile) {
+        return h.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /** Standard HdrHistogram percentile distribution (values in ms), loadable by the HdrHistogram plotter. */
+    static void write(Path file, Histogram h) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            h.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.zeywox.veyronixcore.http.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zeywox.veyronixcore.http.dto.ProductDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Open-loop load generator for a running instance (replaces the curl-based http/benchmark scripts).
+ *
+ * Requests are issued on a fixed schedule (load.rate per second, uniform or Poisson gaps) no matter how
+ * fast the server answers; each one runs on its own virtual thread. Latency is measured from the
+ * request's <em>intended</em> start, so a stall also counts against every request that should have been
+ * sent during it (coordinated-omission correction). Service time (from the actual send) is kept next to it.
+ *
+ * The request sequence is seeded (load.seed): two runs with the same settings send the same mix in the
+ * same order, and the .hgrm files they write can be compared or plotted side by side.
+ *
+ * Run from veyronix-core with the app and Redis up:
+ *   mvn -q exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.zeywox.veyronixcore.http.load.LoadGenerator -Dload.rate=2000
+ */
+public final class LoadGenerator {
+
+    private static final String BASE_URL      = System.getProperty("load.baseUrl", "http://localhost:8080");
+    private static final int RATE             = Integer.getInteger("load.rate", 1000);          // requests/s
+    private static final int DURATION_SEC     = Integer.getInteger("load.durationSec", 60);
+    private static final int WARMUP_SEC       = Integer.getInteger("load.warmupSec", 10);
+    private static final String MIX           = System.getProperty("load.mix", "list=60,get=30,patch=5,stock=5");
+    private static final List<String> CATEGORIES =
+            List.of(System.getProperty("load.categories", "Computer").split(","));
+    private static final int PAGES            = Integer.getInteger("load.pages", 3);
+    private static final int MAX_IDS          = Integer.getInteger("load.ids", 1000);
+    private static final double REVALIDATE    = Double.parseDouble(System.getProperty("load.revalidate", "0.5"));
+    private static final boolean POISSON      = "poisson".equalsIgnoreCase(System.getProperty("load.arrivals", "uniform"));
+    private static final boolean HTTP2        = Boolean.getBoolean("load.http2");
+    private static final int TIMEOUT_MS       = Integer.getInteger("load.timeoutMs", 5000);
+    private static final int MAX_IN_FLIGHT    = Integer.getInteger("load.maxInFlight", 20_000);
+    private static final long SEED            = Long.getLong("load.seed", 42L);
+    private static final Path OUT_DIR         = Path.of(System.getProperty("load.out", "target/load"));
+    private static final String RUN           = System.getProperty("load.run",
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient client;
+    private final Scenario.Target target;
+    private final int[] mix;
+    private final Map<Scenario, LatencyStats> stats = new EnumMap<>(Scenario.class);
+    private final Map<URI, String> etags = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private LoadGenerator(HttpClient client, Scenario.Target target, int[] mix) {
+        this.client = client;
+        this.target = target;
+        this.mix = mix;
+        for (Scenario s : Scenario.values()) stats.put(s, new LatencyStats());
+    }
+
+    public static void main(String[] args) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HTTP2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(TIMEOUT_MS))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        Scenario.Target target = discover(client);
+        int[] mix = Scenario.parseMix(MIX);
+        System.out.printf("run %s: %d req/s for %ds (+%ds warm-up), mix=%s, arrivals=%s, %s, %d ids in %s%n",
+                RUN, RATE, DURATION_SEC, WARMUP_SEC, Scenario.weights(mix), POISSON ? "poisson" : "uniform",
+                client.version(), target.ids().size(), CATEGORIES);
+
+        LoadGenerator gen = new LoadGenerator(client, target, mix);
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        if (WARMUP_SEC > 0) {
+            gen.drive(rnd, TimeUnit.SECONDS.toNanos(WARMUP_SEC));
+            gen.stats.values().forEach(LatencyStats::reset);
+        }
+        long t0 = System.nanoTime();
+        long sent = gen.drive(rnd, TimeUnit.SECONDS.toNanos(DURATION_SEC));
+        double elapsed = (System.nanoTime() - t0) / 1e9;
+
+        LatencyStats.report(String.format("run %s: scheduled %d in %.1fs (%.0f req/s offered, target %d)",
+                RUN, sent, elapsed, sent / elapsed, RATE), gen.stats, OUT_DIR.resolve(RUN));
+    }
+
+    /** Paces requests for {@code durationNanos}; returns how many were scheduled. Waits for stragglers. */
+    private long drive(SplittableRandom rnd, long durationNanos) {
+        long intervalNanos = 1_000_000_000L / Math.max(1, RATE);
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        long intended = start;
+        long n = 0;
+
+        try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (intended < end) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+                // behind schedule: fire immediately, keeping the intended timestamp
+
+                Scenario s = Scenario.pick(mix, rnd);
+                SplittableRandom r = rnd.split();
+                long at = intended;
+                long seq = n++;
+                if (inFlight.get() >= MAX_IN_FLIGHT) {
+                    stats.get(s).shed.increment(); // client-side cap hit: the server is far behind
+                } else {
+                    inFlight.incrementAndGet();
+                    exec.execute(() -> {
+                        try { issue(s, r, seq, at); } finally { inFlight.decrementAndGet(); }
+                    });
+                }
+                intended += POISSON ? (long) (-Math.log(1 - rnd.nextDouble()) * intervalNanos) : intervalNanos;
+            }
+        }
+        return n;
+    }
+
+    private void issue(Scenario s, SplittableRandom r, long seq, long intendedNanos) {
+        LatencyStats st = stats.get(s);
+        HttpRequest req = s.request(target, r, seq).timeout(Duration.ofMillis(TIMEOUT_MS)).build();
+        if (s.isRead()) {
+            String etag = etags.get(req.uri());
+            if (etag != null && r.nextDouble() < REVALIDATE) {
+                req = HttpRequest.newBuilder(req, (name, value) -> true).header("If-None-Match", etag).build();
+            }
+        }
+
+        long sent = System.nanoTime();
+        try {
+            HttpResponse<Void> resp = client.send(req, HttpResponse.BodyHandlers.discarding());
+            st.record(resp.statusCode(), intendedNanos, sent, System.nanoTime());
+            if (s.isRead()) {
+                URI uri = req.uri();
+                resp.headers().firstValue("ETag").ifPresent(e -> etags.put(uri, e));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            st.record(-1, intendedNanos, sent, System.nanoTime());
+        }
+    }
+
+    // ---- target discovery ----
+
+    private static Scenario.Target discover(HttpClient client) {
+        Duration timeout = Duration.ofMillis(TIMEOUT_MS);
+        Set<String> ids = new LinkedHashSet<>();
+        for (String category : CATEGORIES) {
+            for (int page = 1; page <= PAGES && ids.size() < MAX_IDS; page++) {
+                List<ProductDto> products = fetchPage(client, category, page, timeout);
+                if (products.isEmpty()) break;
+                for (ProductDto p : products) if (p.id() != null && ids.size() < MAX_IDS) ids.add(p.id());
+            }
+        }
+        if (ids.isEmpty()) throw new IllegalStateException("No products found in categories " + CATEGORIES);
+        return new Scenario.Target(BASE_URL, CATEGORIES, PAGES, List.copyOf(ids), timeout);
+    }
+
+    private static List<ProductDto> fetchPage(HttpClient client, String category, int page, Duration timeout) {
+        try {
+            String q = "/products?category=" + URLEncoder.encode(category, StandardCharsets.UTF_8) + "&page=" + page;
+            HttpRequest req = HttpRequest.newBuilder(URI.create(BASE_URL + q))
+                    .header("Accept", "application/json")
+                    .header("Accept-Encoding", "gzip")
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+            HttpResponse<byte[]> resp = client.send(req, HttpResponse.BodyHandlers.ofByteArray());
+            if (resp.statusCode() != 200) throw new IllegalStateException("GET " + q + " -> " + resp.statusCode());
+
+            byte[] bytes = resp.body();
+            if ("gzip".equalsIgnoreCase(resp.headers().firstValue("Content-Encoding").orElse(""))) {
+                try (var gis = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                    bytes = gis.readAllBytes();
+                }
+            }
+            return MAPPER.readValue(bytes, new TypeReference<List<ProductDto>>() {});
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to discover products (category=" + category + ", page=" + page + ")", e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.zeywox.veyronixcore.http.load;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * One request type of the mix. Reads send the ETag last seen for the same URL with probability
+ * {@code revalidate}, so the 304 path is exercised the way browsers and CDNs exercise it.
+ */
+enum Scenario {
+
+    LIST {
+        @Override
+        HttpRequest.Builder request(Target t, SplittableRandom rnd, long seq) {
+            String category = t.categories().get(rnd.nextInt(t.categories().size()));
+            int page = 1 + rnd.nextInt(t.pages());
+            int filter = rnd.nextInt(3);
+            String q = "/products?category=" + URLEncoder.encode(category, StandardCharsets.UTF_8)
+                    + (filter == 0 ? "" : filter == 1 ? "&inStock=true" : "&inStock=false")
+                    + "&page=" + page;
+            return get(t, q);
+        }
+    },
+
+    GET {
+        @Override
+        HttpRequest.Builder request(Target t, SplittableRandom rnd, long seq) {
+            return get(t, "/products/" + t.ids().get(rnd.nextInt(t.ids().size())));
+        }
+    },
+
+    PATCH {
+        @Override
+        HttpRequest.Builder request(Target t, SplittableRandom rnd, long seq) {
+            String id = t.ids().get(rnd.nextInt(t.ids().size()));
+            String json = "{\"description\":\"load " + seq + "\"}";
+            return HttpRequest.newBuilder(URI.create(t.baseUrl() + "/products/" + id))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(json));
+        }
+    },
+
+    STOCK {
+        @Override
+        HttpRequest.Builder request(Target t, SplittableRandom rnd, long seq) {
+            String id = t.ids().get(rnd.nextInt(t.ids().size()));
+            String json = "{\"stock\":" + rnd.nextInt(0, 20) + "}";
+            return HttpRequest.newBuilder(URI.create(t.baseUrl() + "/products/" + id + "/stock"))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(json));
+        }
+    };
+
+    /** What the scenarios aim at: discovered once before the run. */
+    record Target(String baseUrl, List<String> categories, int pages, List<String> ids, Duration timeout) {}
+
+    abstract HttpRequest.Builder request(Target t, SplittableRandom rnd, long seq);
+
+    boolean isRead() { return this == LIST || this == GET; }
+
+    private static HttpRequest.Builder get(Target t, String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(t.baseUrl() + pathAndQuery))
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET();
+    }
+
+    /** "list=60,get=30,patch=5,stock=5" -> cumulative weights over values(). */
+    static int[] parseMix(String mix) {
+        int[] w = new int[values().length];
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("bad load.mix entry: " + part);
+            w[valueOf(kv[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(kv[1].trim());
+        }
+        for (int i = 1; i < w.length; i++) w[i] += w[i - 1];
+        if (w[w.length - 1] <= 0) throw new IllegalArgumentException("load.mix has no weight: " + mix);
+        return w;
+    }
+
+    static Scenario pick(int[] cumulative, SplittableRandom rnd) {
+        int r = rnd.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) if (r < cumulative[i]) return values()[i];
+        throw new IllegalStateException();
+    }
+
+    static Map<Scenario, Integer> weights(int[] cumulative) {
+        var out = new java.util.EnumMap<Scenario, Integer>(Scenario.class);
+        for (int i = 0; i < cumulative.length; i++) {
+            int w = cumulative[i] - (i == 0 ? 0 : cumulative[i - 1]);
+            if (w > 0) out.put(values()[i], w);
+        }
+        return out;
+    }
+}
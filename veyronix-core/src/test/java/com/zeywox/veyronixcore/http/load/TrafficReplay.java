@@ -0,0 +1,196 @@
+package com.zeywox.veyronixcore.http.load;
+
+import com.zeywox.veyronixcore.observability.capture.CapturedRequest;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a traffic-capture file against a local instance, open-loop, at the captured pace
+ * (replay.speed scales it: 2 = twice as fast; a capture sampled at 1% needs 100 for the original rate).
+ * Use it to compare L1 sizing, TTLs and refresh settings on the real key distribution: same file,
+ * different app settings, compare the .hgrm files.
+ *
+ * - list / get-one / PATCH / stock PUT are replayed; anything else in the file is counted and skipped
+ * - bodies are not captured: PATCH sends a description change, PUT a stock value
+ * - validators (replay.validators): "learned" (default) revalidates with the ETag this run last saw for the
+ *   URL whenever the original request carried one; "recorded" sends the captured value; "none"
+ * - the local catalog should come from the same feed, or get-one/PATCH of unknown ids answer 404
+ *
+ *   mvn -q exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.zeywox.veyronixcore.http.load.TrafficReplay -Dreplay.file=traffic.vxcap -Dreplay.speed=100
+ */
+public final class TrafficReplay {
+
+    private static final Path FILE            = Path.of(System.getProperty("replay.file", "traffic.vxcap"));
+    private static final String BASE_URL      = System.getProperty("replay.baseUrl", "http://localhost:8080");
+    private static final double SPEED         = Double.parseDouble(System.getProperty("replay.speed", "1"));
+    private static final String VALIDATORS    = System.getProperty("replay.validators", "learned");
+    private static final int TIMEOUT_MS       = Integer.getInteger("replay.timeoutMs", 5000);
+    private static final int MAX_IN_FLIGHT    = Integer.getInteger("replay.maxInFlight", 20_000);
+    private static final Path OUT_DIR         = Path.of(System.getProperty("replay.out", "target/load"));
+    private static final String RUN           = System.getProperty("replay.run",
+            "replay-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+
+    private final HttpClient client;
+    private final Map<Scenario, LatencyStats> stats = new EnumMap<>(Scenario.class);
+    private final Map<Scenario, Histogram> recorded = new EnumMap<>(Scenario.class);
+    private final Map<URI, String> etags = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong writes = new AtomicLong();
+
+    private TrafficReplay(HttpClient client) {
+        this.client = client;
+        for (Scenario s : Scenario.values()) {
+            stats.put(s, new LatencyStats());
+            recorded.put(s, new Histogram(3));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (SPEED <= 0) throw new IllegalArgumentException("replay.speed must be > 0");
+        long captureStart;
+        List<CapturedRequest> records = new ArrayList<>();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(FILE), 64 * 1024))) {
+            captureStart = CapturedRequest.readHeader(in);
+            for (CapturedRequest r; (r = CapturedRequest.readFrom(in)) != null; ) records.add(r);
+        }
+        // written in completion order; replay in start order
+        records.sort(Comparator.comparingLong(CapturedRequest::offsetMicros));
+        if (records.isEmpty()) throw new IllegalStateException("no requests in " + FILE);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(TIMEOUT_MS))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        double spanSec = records.getLast().offsetMicros() / 1e6;
+        System.out.printf("replay %s: %d requests captured from %s over %.0fs, speed x%s (%.0fs), validators=%s%n",
+                FILE, records.size(), Instant.ofEpochMilli(captureStart), spanSec, SPEED, spanSec / SPEED, VALIDATORS);
+
+        TrafficReplay replay = new TrafficReplay(client);
+        long t0 = System.nanoTime();
+        long skipped = replay.drive(records);
+        double elapsed = (System.nanoTime() - t0) / 1e9;
+
+        Path dir = OUT_DIR.resolve(RUN);
+        LatencyStats.report(String.format("run %s: replayed %d (%d skipped) in %.1fs (%.0f req/s)",
+                RUN, records.size() - skipped, skipped, elapsed, (records.size() - skipped) / elapsed),
+                replay.stats, dir);
+        replay.reportRecorded(dir);
+    }
+
+    /** Returns how many records were not replayable. */
+    private long drive(List<CapturedRequest> records) {
+        long start = System.nanoTime();
+        long skipped = 0;
+        try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (CapturedRequest r : records) {
+                Scenario s = classify(r);
+                if (s == null) { skipped++; continue; }
+                long intended = start + (long) (r.offsetMicros() * 1000 / SPEED);
+                long wait = intended - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+
+                recorded.get(s).recordValue(r.durationMicros());
+                if (inFlight.get() >= MAX_IN_FLIGHT) {
+                    stats.get(s).shed.increment();
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                exec.execute(() -> {
+                    try { issue(s, r, intended); } finally { inFlight.decrementAndGet(); }
+                });
+            }
+        }
+        return skipped;
+    }
+
+    private void issue(Scenario s, CapturedRequest r, long intendedNanos) {
+        LatencyStats st = stats.get(s);
+        URI uri = URI.create(BASE_URL + r.path() + (r.query().isEmpty() ? "" : "?" + r.query()));
+        HttpRequest.Builder b = HttpRequest.newBuilder(uri).timeout(Duration.ofMillis(TIMEOUT_MS));
+        switch (s) {
+            case LIST, GET -> {
+                b.header("Accept", "application/json").header("Accept-Encoding", "gzip").GET();
+                String inm = validator(uri, r);
+                if (inm != null) b.header("If-None-Match", inm);
+            }
+            case PATCH -> b.header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                            "{\"description\":\"replay " + writes.incrementAndGet() + "\"}"));
+            case STOCK -> b.header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString("{\"stock\":" + (writes.incrementAndGet() % 20) + "}"));
+        }
+
+        long sent = System.nanoTime();
+        try {
+            HttpResponse<Void> resp = client.send(b.build(), HttpResponse.BodyHandlers.discarding());
+            st.record(resp.statusCode(), intendedNanos, sent, System.nanoTime());
+            if (s.isRead()) resp.headers().firstValue("ETag").ifPresent(e -> etags.put(uri, e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            st.record(-1, intendedNanos, sent, System.nanoTime());
+        }
+    }
+
+    private String validator(URI uri, CapturedRequest r) {
+        boolean revalidated = !r.ifNoneMatch().isEmpty() || r.ifModifiedSince();
+        return switch (VALIDATORS) {
+            case "recorded" -> r.ifNoneMatch().isEmpty() ? null : r.ifNoneMatch();
+            case "none" -> null;
+            default -> revalidated ? etags.get(uri) : null;
+        };
+    }
+
+    /** The captured server time per scenario, next to what this run measured. */
+    private void reportRecorded(Path dir) throws IOException {
+        StringBuilder sb = new StringBuilder("captured server time (ms):\n");
+        for (var e : recorded.entrySet()) {
+            Histogram h = e.getValue();
+            if (h.getTotalCount() == 0) continue;
+            String name = e.getKey().name().toLowerCase(Locale.ROOT);
+            sb.append(String.format("%-6s %8d | p50 %9.3f  p99 %9.3f  p99.9 %9.3f  max %9.3f%n", name, h.getTotalCount(),
+                    LatencyStats.ms(h, 50), LatencyStats.ms(h, 99), LatencyStats.ms(h, 99.9), h.getMaxValue() / 1000.0));
+            LatencyStats.write(dir.resolve(name + ".recorded.hgrm"), h);
+        }
+        System.out.print(sb);
+        Files.writeString(dir.resolve("summary.txt"), sb, java.nio.file.StandardOpenOption.APPEND);
+    }
+
+    /** Maps a captured request to a replayable scenario; null for everything else (bulk, reserve, ...). */
+    static Scenario classify(CapturedRequest r) {
+        String path = r.path();
+        if (!path.startsWith("/products")) return null;
+        String rest = path.substring("/products".length());
+        boolean single = rest.length() > 1 && rest.indexOf('/', 1) < 0; // "/{id}"
+        return switch (r.method()) {
+            case "GET" -> rest.isEmpty() || rest.equals("/") ? Scenario.LIST : single ? Scenario.GET : null;
+            case "PATCH" -> single ? Scenario.PATCH : null;
+            case "PUT" -> rest.endsWith("/stock") && rest.length() > "/stock".length()
+                    && rest.indexOf('/', 1) == rest.length() - "/stock".length() ? Scenario.STOCK : null;
+            default -> null;
+        };
+    }
+}
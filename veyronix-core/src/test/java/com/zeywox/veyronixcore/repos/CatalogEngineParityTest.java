@@ -0,0 +1,211 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.config.cache.CatalogEngineProperties;
+import com.zeywox.veyronixcore.config.cache.RedisLayoutProperties;
+import com.zeywox.veyronixcore.dto.Requests;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.repos.catalog.CatalogEngine;
+import com.zeywox.veyronixcore.util.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The in-process catalog answers page / getOne / categorySize exactly like the Redis repository it mirrors:
+ * after the initial load, after writes from another instance reach it through the change feed (keyspace
+ * notifications), after a reconcile when the feed missed them, and when a local write is applied after a newer one.
+ * Its versions (the ETags) are those of the data it holds, not of Redis when it lags.
+ */
+class CatalogEngineParityTest {
+
+    private static final List<String> CATEGORIES = List.of("Computer", "Phones", "Office Supplies", "Empty");
+    private static final List<Optional<Boolean>> FILTERS = List.of(Optional.empty(), Optional.of(true), Optional.of(false));
+    private static final int PAGE_SIZE = 3;
+    private static final long FEED_WAIT_MILLIS = 10_000;
+
+    private RedisTestSupport redis;
+    private RedisProductRepository redisRepo;
+    private CatalogEngine engine;
+    private CatalogEngineProductRepository engineRepo;
+    private final List<String> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        redis = RedisTestSupport.start();
+        redisRepo = redis.legacyRepo();
+        for (int i = 0; i < 20; i++) {
+            String id = "p" + i;
+            ids.add(id);
+            redisRepo.upsert(new Product(id, "Name " + i, CATEGORIES.get(i % 3), 1.5 + i, "Description " + i, i % 4));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.shutdown();
+        if (redis != null) redis.close();
+    }
+
+    @Test
+    void matchesRedisAfterLoad() {
+        start(true);
+        assertSameReads();
+    }
+
+    @Test
+    void matchesRedisAfterWritesArriveThroughTheChangeFeed() {
+        start(true);
+
+        // another instance writes straight to Redis: only the version bumps reach this engine
+        redisRepo.upsert(new Product("p-new", "New", "Phones", 9.99, "Fresh", 2));
+        redisRepo.patch("p1", Map.of("category", "Office Supplies", "price", "3.25"));
+        redisRepo.setStock("p2", 0);
+        redisRepo.reserveStock(List.of(new Requests.StockReservation("p5", 1)));
+        ids.add("p-new");
+
+        await(() -> engine.get("p-new").isPresent()
+                && engine.get("p1").map(p -> "Office Supplies".equals(p.category())).orElse(false)
+                && engine.get("p2").map(p -> p.stock() == 0).orElse(false)
+                && engine.get("p5").equals(redisRepo.getOne("p5")), "change feed");
+        assertSameReads();
+    }
+
+    @Test
+    void matchesRedisAfterAReconcileCatchesWhatTheFeedMissed() {
+        redis.template.execute(c -> { c.serverCommands().setConfig("notify-keyspace-events", ""); return null; }, true);
+        start(false); // no events: only reconcile sees other writers
+
+        redisRepo.upsert(new Product("p-new", "New", "Phones", 9.99, "Fresh", 2));
+        redisRepo.patch("p3", Map.of("category", "Phones", "stock", "0"));
+        ids.add("p-new");
+        assertTrue(engine.get("p-new").isEmpty(), "no feed: not seen before the reconcile");
+
+        engine.reload();
+        assertSameReads();
+    }
+
+    @Test
+    void localWritesAreReadBackFromTheEngine() {
+        start(true);
+
+        engineRepo.patch("p4", Map.of("name", "Renamed", "category", "Phones"));
+        engineRepo.setStock("p6", 0);
+        assertEquals(redisRepo.getOne("p4"), engine.get("p4"));
+        assertEquals(redisRepo.getOne("p6"), engine.get("p6"));
+        assertSameReads();
+    }
+
+    @Test
+    void aLateLocalApplyNeverOverwritesANewerFeedApply() {
+        start(true);
+
+        // this instance writes, another one writes after it, and the feed applies the newer state first
+        Map<String, Long> before = engine.versions(List.of("p7", "p8"));
+        ProductRepository.PatchResult local = redisRepo.patch("p7", Map.of("name", "Local"));
+        int stock = redisRepo.setStock("p8", 0);
+        redisRepo.patch("p7", Map.of("name", "Remote"));
+        redisRepo.patch("p8", Map.of("name", "Remote"));
+        await(() -> engine.get("p7").map(p -> "Remote".equals(p.name())).orElse(false)
+                && engine.get("p8").map(p -> "Remote".equals(p.name())).orElse(false), "change feed");
+
+        engine.applyLocal(local.product(), before.get("p7"));
+        engine.applyStock(Map.of("p8", stock), before);
+        assertEquals(redisRepo.getOne("p7"), engine.get("p7"));
+        assertEquals(redisRepo.getOne("p8"), engine.get("p8"));
+        assertSameReads();
+    }
+
+    @Test
+    void versionsAreThoseOfTheDataTheEngineHolds() {
+        redis.template.execute(c -> { c.serverCommands().setConfig("notify-keyspace-events", ""); return null; }, true);
+        start(false);
+        assertEquals(String.valueOf(redis.version(Keys.verProduct("p1"))), engine.productVersion("p1"));
+        String phones = engine.categoryVersion("Phones", Optional.empty());
+
+        redisRepo.patch("p1", Map.of("price", "9.0")); // another instance: Redis moves on, the engine does not yet
+        assertEquals(String.valueOf(redis.version(Keys.verProduct("p1")) - 1), engine.productVersion("p1"));
+        assertEquals(phones, engine.categoryVersion("Phones", Optional.empty()), "same rows, same stamp");
+
+        engine.reload();
+        assertEquals(String.valueOf(redis.version(Keys.verProduct("p1"))), engine.productVersion("p1"));
+        assertNotEquals(phones, engine.categoryVersion("Phones", Optional.empty()));
+
+        // a stamp kept up by local applies equals the one a fresh load computes
+        engineRepo.patch("p4", Map.of("category", "Phones"));
+        engineRepo.setStock("p5", 0);
+        List<String> stamps = stamps();
+        engine.reload();
+        assertEquals(stamps, stamps());
+    }
+
+    // ---- helpers ----
+
+    private List<String> stamps() {
+        List<String> out = new ArrayList<>();
+        for (String category : CATEGORIES) {
+            for (Optional<Boolean> inStock : FILTERS) out.add(engine.categoryVersion(category, inStock));
+        }
+        return out;
+    }
+
+    private void start(boolean feed) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("redisProductRepository", redisRepo);
+        engine = new CatalogEngine(new CatalogEngineProperties(true, feed, 0, 7), // small batches: several per load
+                new RedisLayoutProperties(false, false, false, false, 0), new RedisProperties(),
+                redis.connectionFactory(), redis.groups, redis.routing,
+                beans.getBeanProvider(RedisProductRepository.class),
+                beans.getBeanProvider(ClusterRedisProductRepository.class),
+                beans.getBeanProvider(CompactRedisProductRepository.class));
+        engineRepo = new CatalogEngineProductRepository(engine);
+        await(engine::ready, "initial load");
+        if (feed) await(() -> subscribedPatterns() > 0, "change feed subscription");
+    }
+
+    private long subscribedPatterns() {
+        Object n = redis.template.execute(c -> c.execute("PUBSUB", "NUMPAT".getBytes(StandardCharsets.UTF_8)), true);
+        return n instanceof Long l ? l : 0;
+    }
+
+    private void assertSameReads() {
+        for (String id : ids) {
+            assertEquals(redisRepo.getOne(id), engineRepo.getOne(id), "getOne " + id);
+        }
+        assertEquals(redisRepo.getMany(ids), engineRepo.getMany(ids), "getMany");
+        for (String category : CATEGORIES) {
+            for (Optional<Boolean> inStock : FILTERS) {
+                String what = category + " " + inStock;
+                long size = redisRepo.categorySize(category, inStock);
+                assertEquals(size, engineRepo.categorySize(category, inStock), "size " + what);
+                for (int page = 1; page <= size / PAGE_SIZE + 2; page++) {
+                    assertEquals(redisRepo.listIdsByCategory(category, inStock, page, PAGE_SIZE),
+                            engineRepo.listIdsByCategory(category, inStock, page, PAGE_SIZE), "page " + page + " of " + what);
+                }
+            }
+        }
+    }
+
+    private static void await(BooleanSupplier condition, String what) {
+        long deadline = System.currentTimeMillis() + FEED_WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail(what + " did not happen within " + FEED_WAIT_MILLIS + " ms");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("interrupted waiting for " + what);
+            }
+        }
+    }
+}
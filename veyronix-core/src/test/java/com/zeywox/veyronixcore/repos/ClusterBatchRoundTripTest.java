@@ -0,0 +1,75 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.dto.Requests;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.ClusterSlots;
+import com.zeywox.veyronixcore.util.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Multi-key batches of the hash-tagged layout cost one pipeline per node, however many slots the ids hash to.
+ * Round trips are counted on the per-op limiter timer; the standalone test Redis is a single node.
+ */
+class ClusterBatchRoundTripTest {
+
+    private static final int IDS = 40;
+
+    private RedisTestSupport redis;
+    private ClusterRedisProductRepository repo;
+    private final List<String> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        redis = RedisTestSupport.start();
+        repo = redis.clusterRepo();
+        for (int i = 0; i < IDS; i++) {
+            String id = "p" + i;
+            ids.add(id);
+            repo.upsert(new Product(id, "Name " + i, "Computer", 10.0 + i, "Description", 5));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redis != null) redis.close();
+    }
+
+    @Test
+    void getManyIsOneRoundTripPerNode() {
+        Set<Integer> slots = new HashSet<>();
+        for (String id : ids) slots.add(ClusterSlots.slot(Keys.productHash(id)));
+        assertTrue(slots.size() > 1, "ids spread over several slots");
+
+        long before = roundTrips("pipeline.hgetall");
+        List<Product> found = repo.getMany(ids);
+
+        assertEquals(1, roundTrips("pipeline.hgetall") - before);
+        assertEquals(ids, found.stream().map(Product::id).toList(), "input order kept across slots");
+    }
+
+    @Test
+    void bulkStockIsOneProductRoundTripPerNode() {
+        List<Requests.StockUpdate> updates = new ArrayList<>();
+        for (String id : ids) updates.add(new Requests.StockUpdate(id, 7));
+
+        long before = roundTrips("pipeline.cluster.product_write");
+        List<Integer> out = repo.setStockBulk(updates);
+
+        assertEquals(1, roundTrips("pipeline.cluster.product_write") - before);
+        assertEquals(IDS, out.size());
+        assertTrue(out.stream().allMatch(stock -> stock == 7), out::toString);
+    }
+
+    private long roundTrips(String op) {
+        return redis.metrics.redis(op).count();
+    }
+}
@@ -0,0 +1,124 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.config.cache.RedisLayoutProperties;
+import com.zeywox.veyronixcore.dto.Requests;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The cluster write protocol when phase 2 (category_apply.lua) fails after phase 1 committed: the pm:{id}
+ * marker written by phase 1 survives, and the reconciler finishes the move from the current hash. Runs the
+ * hash-tagged layout on a standalone Redis; phase 2 failures come from a category script that errors.
+ */
+class ClusterPendingMoveTest {
+
+    private RedisTestSupport redis;
+    private ClusterRedisProductRepository repo;
+
+    @BeforeEach
+    void setUp() {
+        redis = RedisTestSupport.start();
+        repo = redis.clusterRepo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redis != null) redis.close();
+    }
+
+    @Test
+    void completedWriteLeavesNoMarker() {
+        repo.upsert(product("p1", "Computer", 3));
+        repo.patch("p1", Map.of("category", "Phones"));
+        repo.reserveStock(List.of(new Requests.StockReservation("p1", 3))); // crosses zero: a category phase
+
+        assertFalse(markerExists("p1"));
+        assertEquals(List.of("p1"), repo.listIdsByCategory("Phones", Optional.of(false), 1, 30));
+    }
+
+    @Test
+    void failedCategoryPhaseIsFinishedByTheReconciler() {
+        ClusterRedisProductRepository broken = withCategoryScript("return redis.error_reply('ERR category slot down')");
+        long ver = redis.version(Keys.verCategory("Computer"));
+
+        broken.upsert(product("p1", "Computer", 3)); // phase 1 committed: the write itself succeeds
+
+        assertTrue(repo.getOne("p1").isPresent());
+        assertTrue(repo.listIdsByCategory("Computer", Optional.empty(), 1, 30).isEmpty());
+        assertTrue(markerExists("p1"));
+
+        assertEquals(1, repo.reconcilePendingMoves());
+        assertEquals(List.of("p1"), repo.listIdsByCategory("Computer", Optional.of(true), 1, 30));
+        assertTrue(redis.version(Keys.verCategory("Computer")) > ver);
+        assertFalse(markerExists("p1"));
+        assertEquals(0, repo.reconcilePendingMoves());
+    }
+
+    @Test
+    void unfinishedMoveIsReconciledOutOfTheOldCategory() {
+        repo.upsert(product("p1", "Computer", 3));
+        ClusterRedisProductRepository broken = withCategoryScript("return redis.error_reply('ERR category slot down')");
+
+        broken.patch("p1", Map.of("category", "Phones"));
+        assertEquals(List.of("p1"), repo.listIdsByCategory("Computer", Optional.empty(), 1, 30), "still listed under the old category");
+
+        repo.reconcilePendingMoves();
+        assertTrue(repo.listIdsByCategory("Computer", Optional.empty(), 1, 30).isEmpty());
+        assertEquals(List.of("p1"), repo.listIdsByCategory("Phones", Optional.empty(), 1, 30));
+    }
+
+    @Test
+    void laterCompletedWriteKeepsWhatAnEarlierOneLeftUnfinished() {
+        repo.upsert(product("p1", "Computer", 3));
+        withCategoryScript("return redis.error_reply('ERR category slot down')").patch("p1", Map.of("category", "Phones"));
+
+        repo.patch("p1", Map.of("category", "Tablets")); // completes Phones -> Tablets only
+        assertTrue(markerExists("p1"), "Computer was never cleaned up: its part of the marker stays");
+
+        repo.reconcilePendingMoves();
+        assertTrue(repo.listIdsByCategory("Computer", Optional.empty(), 1, 30).isEmpty());
+        assertTrue(repo.listIdsByCategory("Phones", Optional.empty(), 1, 30).isEmpty());
+        assertEquals(List.of("p1"), repo.listIdsByCategory("Tablets", Optional.empty(), 1, 30));
+        assertFalse(markerExists("p1"));
+    }
+
+    @Test
+    void transientCategoryFailureIsRetried() {
+        // fails the first call only, then behaves like the real script
+        String flaky = "if redis.call('INCR', 'test:category-apply-calls') == 1 then "
+                + "return redis.error_reply('ERR transient') end\n"
+                + redis.scripts.clusterCategoryApplyScript().getScriptAsString();
+
+        withCategoryScript(flaky).upsert(product("p1", "Computer", 3));
+
+        assertEquals(List.of("p1"), repo.listIdsByCategory("Computer", Optional.empty(), 1, 30));
+        assertFalse(markerExists("p1"));
+    }
+
+    // ---- helpers ----
+
+    private ClusterRedisProductRepository withCategoryScript(String source) {
+        return new ClusterRedisProductRepository(redis.groups,
+                redis.scripts.clusterProductWriteScript(), new DefaultRedisScript<>(source, Long.class),
+                redis.scripts.zidxSeedAndRangeScript(), redis.limiter, redis.routing,
+                new RedisLayoutProperties(true, false, false, false, 0));
+    }
+
+    private boolean markerExists(String id) {
+        return Boolean.TRUE.equals(redis.template.hasKey(Keys.pendingMove(id)));
+    }
+
+    private static Product product(String id, String category, int stock) {
+        return new Product(id, "Name " + id, category, 10.0, "Description", stock);
+    }
+}
@@ -0,0 +1,62 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The compact hash stores no NK parts: a PATCH that moves name/category reports NK_PENDING with the old values
+ * so the caller remaps the registry, and kn / kc left by earlier versions are dropped on the next write.
+ */
+class CompactNaturalKeyTest {
+
+    private RedisTestSupport redis;
+    private CompactRedisProductRepository repo;
+
+    @BeforeEach
+    void setUp() {
+        redis = RedisTestSupport.start();
+        repo = redis.compactRepo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redis != null) redis.close();
+    }
+
+    @Test
+    void hashCarriesOnlyTheProductFields() {
+        repo.upsert(new Product("p1", "Ünïcode Näme", "Computer", 10.0, "d", 1));
+
+        assertEquals(Set.of("n", "c", "p", "d", "s"), redis.template.opsForHash().keys(Keys.productHash("p1")));
+    }
+
+    @Test
+    void movePatchReportsTheOldValuesForTheRemap() {
+        repo.upsert(new Product("p1", "Gaming Laptop", "Computer", 10.0, "d", 1));
+
+        var moved = repo.patch("p1", Map.of("name", "Office Laptop"));
+        assertTrue(moved.nkPending());
+        assertEquals("Gaming Laptop", moved.oldName());
+        assertEquals("Computer", moved.oldCategory());
+
+        assertFalse(repo.patch("p1", Map.of("stock", "4")).nkPending());
+    }
+
+    @Test
+    void nextWriteDropsLegacyNkParts() {
+        repo.upsert(new Product("p1", "Gaming Laptop", "Computer", 10.0, "d", 1));
+        redis.template.opsForHash().putAll(Keys.productHash("p1"), Map.of("kn", "gaming laptop", "kc", "computer"));
+
+        repo.patch("p1", Map.of("stock", "2"));
+        assertFalse(redis.template.opsForHash().hasKey(Keys.productHash("p1"), "kn"));
+        assertFalse(redis.template.opsForHash().hasKey(Keys.productHash("p1"), "kc"));
+    }
+}
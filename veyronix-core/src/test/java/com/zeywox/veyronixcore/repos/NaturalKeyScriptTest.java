@@ -0,0 +1,171 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.IdRegistry;
+import com.zeywox.veyronixcore.util.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The natural-key helpers of product_patch.lua, run on a real Redis, against their Java twins in
+ * {@link IdRegistry}: SHA-256 and the NK field byte for byte around the padding boundaries (55/56/64 bytes)
+ * and across blocks, ASCII derivation of the NK parts, and a PATCH remapping the registry both ways.
+ */
+class NaturalKeyScriptTest {
+
+    private static final String PATCH_SCRIPT = "redis/product_patch.lua";
+
+    private RedisTestSupport redis;
+
+    @BeforeEach
+    void setUp() {
+        redis = RedisTestSupport.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redis != null) redis.close();
+    }
+
+    @Test
+    void sha256MatchesJavaAcrossPaddingBoundaries() throws Exception {
+        for (int len : new int[]{0, 1, 55, 56, 57, 63, 64, 65, 119, 120, 128, 1000}) {
+            String msg = "a".repeat(len);
+            assertEquals(javaSha256(msg), lua("sha256hex(ARGV[1])", msg), "length " + len);
+        }
+        for (String msg : List.of("ünïcödé", "日本語の商品名", "emoji 🚀 rocket", "é".repeat(28), "é".repeat(32))) {
+            assertEquals(javaSha256(msg), lua("sha256hex(ARGV[1])", msg), msg);
+        }
+    }
+
+    @Test
+    void nkFieldMatchesJava() throws Exception {
+        List<String[]> cases = List.of(
+                new String[]{"Gaming Laptop", "Computer"},
+                new String[]{"  Mixed\tCASE   name  ", " Office  Supplies "},
+                new String[]{"Café Crème", "Boissons Chaudes"},
+                new String[]{"ÄÖÜ ǅ straße", "日本"},
+                new String[]{"x".repeat(500), "multi-block"},
+                exactly(55), exactly(56), exactly(64),
+                exactlyMultiByte(55), exactlyMultiByte(56), exactlyMultiByte(64));
+        for (String[] c : cases) {
+            String nkn = IdRegistry.nkNormalize(c[0]), nkc = IdRegistry.nkNormalize(c[1]);
+            assertEquals(IdRegistry.naturalKeyField(c[0], c[1]), lua("nkField(ARGV[1], ARGV[2])", nkn, nkc),
+                    () -> "name='" + c[0] + "' category='" + c[1] + "' (" + (nkn + "|" + nkc).getBytes(StandardCharsets.UTF_8).length + " bytes)");
+        }
+    }
+
+    @Test
+    void asciiPartsAreDerivedExactlyLikeJava() throws Exception {
+        List<String> values = List.of("Gaming Laptop", "  Mixed\tCASE \n name  ", "a\u000Bb\fc\rd", "UPPER-lower_123 !~",
+                "Café", "tab\u0001ctl", "del\u007F", "日本", "");
+        for (String v : values) {
+            boolean derivable = IdRegistry.nkDerivable(v);
+            assertEquals(derivable ? 1L : 0L, luaLong("nkDerivable(ARGV[1]) and 1 or 0", v), "derivable: '" + v + "'");
+            if (derivable) assertEquals(IdRegistry.nkNormalize(v), lua("nkNormalize(ARGV[1])", v), "normalized: '" + v + "'");
+        }
+    }
+
+    @Test
+    void patchRemapsTheRegistryWithDerivedAndStoredParts() {
+        RedisProductRepository repo = redis.legacyRepo();
+        repo.upsert(new Product("p1", "Gaming  Laptop", "Computer", 10.0, "d", 1));
+        register("p1", "Gaming  Laptop", "Computer");
+        assertNull(hashField("p1", "nkn"), "ASCII name: derived in the script, not stored");
+
+        var toUnicode = repo.patch("p1", Map.of("name", "Ünïcode Näme"));
+        assertFalse(toUnicode.nkPending());
+        assertEquals(IdRegistry.nkNormalize("Ünïcode Näme"), hashField("p1", "nkn"));
+        assertRegistered("p1", "Ünïcode Näme", "Computer");
+        assertNull(registry(IdRegistry.naturalKeyField("Gaming  Laptop", "Computer")));
+
+        var backToAscii = repo.patch("p1", Map.of("name", "Plain Name", "category", "Électronique"));
+        assertFalse(backToAscii.nkPending());
+        assertNull(hashField("p1", "nkn"), "a derivable name drops the stored part");
+        assertEquals(IdRegistry.nkNormalize("Électronique"), hashField("p1", "nkc"));
+        assertRegistered("p1", "Plain Name", "Électronique");
+        assertNull(registry(IdRegistry.naturalKeyField("Ünïcode Näme", "Computer")));
+    }
+
+    @Test
+    void upsertDropsAPartLeftByAnEarlierValue() {
+        RedisProductRepository repo = redis.legacyRepo();
+        repo.upsert(new Product("p2", "Ünïcode", "Computer", 10.0, "d", 1));
+        assertNotNull(hashField("p2", "nkn"));
+
+        repo.upsert(new Product("p2", "Plain", "Computer", 10.0, "d", 1));
+        assertNull(hashField("p2", "nkn"));
+    }
+
+    @Test
+    void unicodeHashWithoutStoredPartsIsPending() {
+        RedisProductRepository repo = redis.legacyRepo();
+        repo.upsert(new Product("p3", "Ünïcode", "Computer", 10.0, "d", 1));
+        redis.template.opsForHash().delete(Keys.productHash("p3"), "nkn"); // as written before NK parts existed
+
+        assertTrue(repo.patch("p3", Map.of("name", "Plain")).nkPending());
+    }
+
+    // ---- helpers ----
+
+    /** Evaluates {@code expr} with the helper functions of product_patch.lua (everything before the patch body). */
+    private String lua(String expr, String... args) throws IOException {
+        return redis.template.execute(new DefaultRedisScript<>(helpers() + "\nreturn " + expr, String.class), List.of(), (Object[]) args);
+    }
+
+    private Long luaLong(String expr, String... args) throws IOException {
+        return redis.template.execute(new DefaultRedisScript<>(helpers() + "\nreturn " + expr, Long.class), List.of(), (Object[]) args);
+    }
+
+    private static String helpers() throws IOException {
+        String src = new ClassPathResource(PATCH_SCRIPT).getContentAsString(StandardCharsets.UTF_8);
+        int body = src.indexOf("-- ---- patch ----");
+        assertTrue(body > 0, "patch body marker moved in " + PATCH_SCRIPT);
+        return src.substring(0, body);
+    }
+
+    private static String javaSha256(String msg) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(msg.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** ASCII name + category whose NK message "nkn|nkc" is exactly {@code bytes} long. */
+    private static String[] exactly(int bytes) {
+        String category = "computer";
+        return new String[]{"n".repeat(bytes - 1 - category.length()), category};
+    }
+
+    /** Same with two-byte UTF-8 chars in the name (plus one ASCII pad for odd remainders). */
+    private static String[] exactlyMultiByte(int bytes) {
+        String category = "électronique"; // 13 bytes
+        int rest = bytes - 1 - category.getBytes(StandardCharsets.UTF_8).length;
+        return new String[]{"é".repeat(rest / 2) + "n".repeat(rest % 2), category};
+    }
+
+    private void register(String id, String name, String category) {
+        redis.template.opsForHash().put(Keys.idxNaturalKey(), IdRegistry.naturalKeyField(name, category), id);
+    }
+
+    private void assertRegistered(String id, String name, String category) {
+        assertEquals(id, registry(IdRegistry.naturalKeyField(name, category)));
+    }
+
+    private Object registry(String field) {
+        return redis.template.opsForHash().get(Keys.idxNaturalKey(), field);
+    }
+
+    private Object hashField(String id, String field) {
+        return redis.template.opsForHash().get(Keys.productHash(id), field);
+    }
+}
@@ -0,0 +1,115 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.redis.testcontainers.RedisContainer;
+import com.zeywox.veyronixcore.config.cache.RedisLayoutProperties;
+import com.zeywox.veyronixcore.config.cache.RedisLimiterProperties;
+import com.zeywox.veyronixcore.config.cache.RedisLuaConfig;
+import com.zeywox.veyronixcore.config.cache.RedisReadRoutingProperties;
+import com.zeywox.veyronixcore.observability.VeyronixMetrics;
+import com.zeywox.veyronixcore.util.Keys;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
+import com.zeywox.veyronixcore.util.ReplicaReadRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * A real Redis (one container per test JVM) wired the way the app wires it, minus Spring: shared connection
+ * groups, a generous limiter, read routing off. Tests that need it are skipped when Docker is not available.
+ * Every {@link #start} flushes the database and resets the key layout; {@link #close} resets it again.
+ */
+public final class RedisTestSupport implements AutoCloseable {
+
+    private static RedisContainer container;
+
+    public final StringRedisTemplate template;
+    public final RedisConnectionGroups groups;
+    public final VeyronixMetrics metrics = new VeyronixMetrics(new SimpleMeterRegistry());
+    public final RedisConcurrencyLimiter limiter =
+            new RedisConcurrencyLimiter(new RedisLimiterProperties(256, 8, 1024, 10_000, 1), metrics);
+    public final ReplicaReadRouter routing;
+    public final RedisLuaConfig scripts = new RedisLuaConfig();
+
+    private final LettuceConnectionFactory factory;
+
+    private RedisTestSupport(String host, int port) {
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        factory.afterPropertiesSet();
+        template = new StringRedisTemplate(factory);
+        groups = RedisConnectionGroups.shared(template);
+        routing = new ReplicaReadRouter(groups,
+                new StaticListableBeanFactory().getBeanProvider(StringRedisTemplate.class),
+                new RedisReadRoutingProperties(false, null, List.of(), 0));
+    }
+
+    /** Skips the calling test (assumption failure) without Docker. */
+    public static RedisTestSupport start() {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker is not available");
+        RedisContainer c = container();
+        Keys.useHashTags(false);
+        Keys.useCompact(false);
+        RedisTestSupport redis = new RedisTestSupport(c.getHost(), c.getMappedPort(6379));
+        redis.flush();
+        return redis;
+    }
+
+    private static synchronized RedisContainer container() {
+        if (container == null) {
+            container = new RedisContainer(DockerImageName.parse("redis:7.2"));
+            container.start(); // stopped by the Testcontainers reaper when the JVM exits
+        }
+        return container;
+    }
+
+    public RedisConnectionFactory connectionFactory() {
+        return factory;
+    }
+
+    public void flush() {
+        template.execute(c -> { c.serverCommands().flushDb(); return null; }, true);
+    }
+
+    public RedisProductRepository legacyRepo() {
+        return new RedisProductRepository(groups,
+                scripts.productUpsertScript(), scripts.productSetStockScript(), scripts.productSetStockBulkScript(),
+                scripts.productReserveStockScript(), scripts.productPatchScript(), scripts.zidxSeedAndRangeScript(),
+                limiter, routing);
+    }
+
+    /** Switches {@link Keys} to hash tags; {@link #close} switches it back. */
+    public ClusterRedisProductRepository clusterRepo() {
+        Keys.useHashTags(true);
+        return new ClusterRedisProductRepository(groups,
+                scripts.clusterProductWriteScript(), scripts.clusterCategoryApplyScript(),
+                scripts.zidxSeedAndRangeScript(), limiter, routing,
+                new RedisLayoutProperties(true, false, false, false, 0)); // reconcile on demand only
+    }
+
+    /** Switches {@link Keys} to the compact layout; {@link #close} switches it back. */
+    public CompactRedisProductRepository compactRepo() {
+        Keys.useCompact(true);
+        return new CompactRedisProductRepository(groups, scripts.compactProductWriteScript(), limiter, routing);
+    }
+
+    public long version(String key) {
+        String v = template.opsForValue().get(key);
+        return v == null ? 0 : Long.parseLong(v);
+    }
+
+    @Override
+    public void close() {
+        Keys.useHashTags(false);
+        Keys.useCompact(false);
+        factory.destroy();
+    }
+}
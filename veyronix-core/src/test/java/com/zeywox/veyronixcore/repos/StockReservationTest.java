@@ -0,0 +1,150 @@
+package com.zeywox.veyronixcore.repos;
+
+import com.zeywox.veyronixcore.dto.Requests;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * product_reserve_stock.lua against a real Redis: carts are all-or-nothing, stock never goes below zero
+ * (also under concurrent checkouts), and list versions move only when stock crosses zero.
+ */
+class StockReservationTest {
+
+    private static final String CATEGORY = "Computer";
+
+    private RedisTestSupport redis;
+    private RedisProductRepository repo;
+
+    @BeforeEach
+    void setUp() {
+        redis = RedisTestSupport.start();
+        repo = redis.legacyRepo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redis != null) redis.close();
+    }
+
+    @Test
+    void shortLineRejectsTheWholeCart() {
+        seed("a", 5);
+        seed("b", 1);
+        long ver = redis.version(Keys.verProduct("a"));
+
+        var e = assertThrows(DataIntegrityViolationException.class,
+                () -> repo.reserveStock(List.of(line("a", 2), line("b", 2))));
+
+        assertTrue(e.getMessage().contains("INSUFFICIENT_STOCK b"), e.getMessage());
+        assertEquals(5, stock("a"), "the line that fit was not applied either");
+        assertEquals(1, stock("b"));
+        assertEquals(ver, redis.version(Keys.verProduct("a")), "nothing written, nothing bumped");
+    }
+
+    @Test
+    void missingProductRejectsTheWholeCart() {
+        seed("a", 5);
+
+        assertThrows(EmptyResultDataAccessException.class,
+                () -> repo.reserveStock(List.of(line("a", 1), line("nope", 1))));
+        assertEquals(5, stock("a"));
+    }
+
+    @Test
+    void repeatedIdIsCheckedAgainstItsTotal() {
+        seed("a", 3);
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> repo.reserveStock(List.of(line("a", 2), line("a", 2))));
+        assertEquals(3, stock("a"));
+
+        assertEquals(List.of(1, 0), repo.reserveStock(List.of(line("a", 2), line("a", 1))));
+    }
+
+    @Test
+    void reservingExactlyTheStockReachesZeroAndNoFurther() {
+        seed("a", 2);
+
+        assertEquals(List.of(0), repo.reserveStock(List.of(line("a", 2))));
+        assertThrows(DataIntegrityViolationException.class, () -> repo.reserveStock(List.of(line("a", 1))));
+        assertEquals(0, stock("a"));
+        assertEquals(List.of(3), repo.releaseStock(List.of(line("a", 3))));
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        int stock = 50, buyers = 200;
+        seed("hot", stock);
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger(), refused = new AtomicInteger();
+        List<Future<?>> done = new ArrayList<>();
+        try {
+            for (int i = 0; i < buyers; i++) {
+                done.add(pool.submit(() -> {
+                    go.await();
+                    try {
+                        int left = repo.reserveStock(List.of(line("hot", 1))).get(0);
+                        assertTrue(left >= 0);
+                        sold.incrementAndGet();
+                    } catch (DataIntegrityViolationException e) {
+                        refused.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(stock, sold.get());
+        assertEquals(buyers - stock, refused.get());
+        assertEquals(0, stock("hot"));
+    }
+
+    @Test
+    void listVersionsMoveOnlyWhenStockCrossesZero() {
+        seed("a", 3);
+        long cat = redis.version(Keys.verCategory(CATEGORY));
+
+        repo.reserveStock(List.of(line("a", 2)));
+        assertEquals(cat, redis.version(Keys.verCategory(CATEGORY)), "3 -> 1 stays in stock: pages stay cached");
+
+        repo.reserveStock(List.of(line("a", 1)));
+        assertEquals(cat + 1, redis.version(Keys.verCategory(CATEGORY)), "1 -> 0 moves the product out");
+        assertEquals(List.of("a"), repo.listIdsByCategory(CATEGORY, Optional.of(false), 1, 30));
+
+        repo.releaseStock(List.of(line("a", 1)));
+        assertEquals(cat + 2, redis.version(Keys.verCategory(CATEGORY)), "0 -> 1 moves it back in");
+        assertEquals(List.of("a"), repo.listIdsByCategory(CATEGORY, Optional.of(true), 1, 30));
+    }
+
+    // ---- helpers ----
+
+    private void seed(String id, int stock) {
+        repo.upsert(new Product(id, "Name " + id, CATEGORY, 10.0, "Description", stock));
+    }
+
+    private int stock(String id) {
+        return repo.getOne(id).orElseThrow().stock();
+    }
+
+    private static Requests.StockReservation line(String id, int quantity) {
+        return new Requests.StockReservation(id, quantity);
+    }
+}
@@ -0,0 +1,130 @@
+package com.zeywox.veyronixcore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.zeywox.veyronixcore.config.jackson.JacksonConfig;
+import com.zeywox.veyronixcore.controllers.ProductController;
+import com.zeywox.veyronixcore.deserialization.PatchProductNormalizationModule;
+import com.zeywox.veyronixcore.dto.Requests;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.repos.RedisProductRepository;
+import com.zeywox.veyronixcore.repos.RedisTestSupport;
+import com.zeywox.veyronixcore.util.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk stock pushes against a real Redis: one category version bump per batch (not per item), and an NDJSON
+ * stream that stops at a bad line having applied exactly the lines before it.
+ */
+class BulkStockPushTest {
+
+    private static final String CATEGORY = "Computer";
+
+    private RedisTestSupport redis;
+    private RedisProductRepository repo;
+    private ProductService svc;
+
+    @BeforeEach
+    void setUp() {
+        redis = RedisTestSupport.start();
+        repo = redis.legacyRepo();
+        svc = new ProductService(repo, null, null, null); // the bulk path touches neither NK remaps nor L1
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redis != null) redis.close();
+    }
+
+    @Test
+    void categoryVersionIsBumpedOncePerBatch() {
+        int n = 2 * ProductService.STOCK_BATCH_SIZE + 1; // three batches
+        List<Requests.StockUpdate> updates = seed(n);
+        long before = redis.version(Keys.verCategory(CATEGORY));
+
+        Requests.BulkStockResult res = svc.setStockBulk(updates);
+
+        assertEquals(n, res.updated());
+        assertTrue(res.missing().isEmpty());
+        assertEquals(before + 3, redis.version(Keys.verCategory(CATEGORY)), "one bump per batch, not per item");
+        assertEquals(7, repo.getOne("p-0").orElseThrow().stock());
+    }
+
+    @Test
+    void unchangedItemsDoNotBumpAndMissingIdsAreReported() {
+        seed(2);
+        svc.setStockBulk(List.of(new Requests.StockUpdate("p-0", 7)));
+        long before = redis.version(Keys.verCategory(CATEGORY));
+
+        Requests.BulkStockResult res = svc.setStockBulk(List.of(
+                new Requests.StockUpdate("p-0", 7), new Requests.StockUpdate("nope", 3)));
+
+        assertEquals(1, res.updated());
+        assertEquals(List.of("nope"), res.missing());
+        assertEquals(before, redis.version(Keys.verCategory(CATEGORY)));
+    }
+
+    @Test
+    void ndjsonStopsAtTheBadLineAfterApplyingEverythingBeforeIt() throws Exception {
+        int good = ProductService.STOCK_BATCH_SIZE + 2; // one full batch plus a partial one before the bad line
+        seed(good + 1);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < good; i++) body.append("{\"id\":\"p-").append(i).append("\",\"stock\":7}\n");
+        body.append("{\"id\":\"p-").append(good).append("\",\"stock\":-1}\n"); // line good+1
+        body.append("{\"id\":\"p-0\",\"stock\":0}\n");
+
+        var r = controller().setStockBulkNdjson(ndjson(body.toString()));
+
+        assertEquals(HttpStatus.BAD_REQUEST, r.getStatusCode());
+        assertEquals(good, r.getBody().updated(), "every line before the bad one was applied");
+        assertTrue(r.getBody().error().startsWith("line " + (good + 1) + ":"), r.getBody().error());
+        assertEquals(7, repo.getOne("p-" + (good - 1)).orElseThrow().stock());
+        assertEquals(3, repo.getOne("p-" + good).orElseThrow().stock(), "the bad line was not applied");
+        assertEquals(7, repo.getOne("p-0").orElseThrow().stock(), "nothing after the bad line was applied");
+    }
+
+    @Test
+    void ndjsonWithoutErrorsIsOkWithoutAnErrorField() throws Exception {
+        seed(2);
+        var r = controller().setStockBulkNdjson(ndjson("{\"id\":\"p-0\",\"stock\":0}\n\n{\"id\":\"p-1\",\"stock\":9}\n"));
+
+        assertEquals(HttpStatus.OK, r.getStatusCode());
+        assertEquals(2, r.getBody().updated());
+        assertNull(r.getBody().error());
+    }
+
+    // ---- helpers ----
+
+    /** {@code n} products with stock 3, and the updates that set each of them to 7. */
+    private List<Requests.StockUpdate> seed(int n) {
+        List<Requests.StockUpdate> updates = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            repo.upsert(new Product("p-" + i, "Name " + i, CATEGORY, 10.0, "Description", 3));
+            updates.add(new Requests.StockUpdate("p-" + i, 7));
+        }
+        return updates;
+    }
+
+    private ProductController controller() {
+        ObjectMapper om = new JacksonConfig().objectMapper(new AfterburnerModule(), new PatchProductNormalizationModule());
+        return new ProductController(svc, null, om);
+    }
+
+    private static MockHttpServletRequest ndjson(String body) {
+        MockHttpServletRequest req = new MockHttpServletRequest("PUT", "/products/stock");
+        req.setContentType("application/x-ndjson");
+        req.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        req.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return req;
+    }
+}
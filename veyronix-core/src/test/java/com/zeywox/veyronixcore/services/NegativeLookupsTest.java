@@ -0,0 +1,152 @@
+package com.zeywox.veyronixcore.services;
+
+import com.zeywox.veyronixcore.config.cache.NegativeLookupProperties;
+import com.zeywox.veyronixcore.config.cache.RedisGuardProperties;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.repos.RedisProductRepository;
+import com.zeywox.veyronixcore.repos.RedisTestSupport;
+import com.zeywox.veyronixcore.util.Keys;
+import com.zeywox.veyronixcore.util.RedisCircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The id filter on a real Redis: a filter miss is confirmed in idx:all before it answers 404, an id another
+ * instance wrote since the last rebuild is found there (and learnt), and a confirmed miss is then answered
+ * from the negative cache without Redis. A confirmation that the breaker refuses or that overruns the read
+ * budget is "not known missing".
+ */
+class NegativeLookupsTest {
+
+    private static final int BUDGET_MILLIS = 100;
+    private static final long SLACK_MILLIS = 400;
+    private static final RedisGuardProperties GUARD = new RedisGuardProperties(BUDGET_MILLIS, 60, 1, 60_000);
+
+    private RedisTestSupport redis;
+    private RedisProductRepository repo;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private NegativeLookups negative;
+
+    @BeforeEach
+    void setUp() {
+        redis = RedisTestSupport.start();
+        repo = redis.legacyRepo();
+        negative = lookups(true, new RedisCircuitBreaker(GUARD), executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (negative != null) negative.shutdown();
+        executor.shutdownNow();
+        if (redis != null) redis.close();
+    }
+
+    @Test
+    void knownIdIsNeverMissing() {
+        repo.upsert(product("p1"));
+        negative.rebuild();
+
+        assertFalse(negative.definitelyMissing("p1"));
+    }
+
+    @Test
+    void idWrittenByAnotherInstanceIsConfirmedPresent() {
+        negative.rebuild();
+        repo.upsert(product("p-elsewhere")); // no noteId: this instance never saw the write
+
+        assertFalse(negative.definitelyMissing("p-elsewhere"));
+
+        redis.template.opsForSet().remove(Keys.idxAll(), Keys.member("p-elsewhere"));
+        assertFalse(negative.definitelyMissing("p-elsewhere"), "learnt by the filter: no second check");
+    }
+
+    @Test
+    void confirmedMissIsCachedForTheNegativeTtl() {
+        negative.rebuild();
+
+        assertTrue(negative.definitelyMissing("p-unknown"));
+
+        // appears in idx:all without passing through noteId: the cached 404 still answers
+        redis.template.opsForSet().add(Keys.idxAll(), Keys.member("p-unknown"));
+        assertTrue(negative.definitelyMissing("p-unknown"));
+
+        negative.noteId("p-unknown");
+        assertFalse(negative.definitelyMissing("p-unknown"));
+    }
+
+    @Test
+    void openBreakerIsNotKnownMissing() {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(GUARD);
+        NegativeLookups guarded = lookups(true, breaker, executor);
+        guarded.rebuild();
+
+        breaker.onFailure(new RedisConnectionFailureException("down")); // threshold 1: open
+        assertFalse(guarded.definitelyMissing("p-unknown"));
+
+        breaker.onSuccess();
+        assertTrue(guarded.definitelyMissing("p-unknown"), "nothing was cached while the breaker was open");
+        guarded.shutdown();
+    }
+
+    @Test
+    void checkSlowerThanTheReadBudgetIsNotKnownMissing() {
+        Executor slow = command -> executor.execute(() -> {
+            try {
+                Thread.sleep(BUDGET_MILLIS * 5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            command.run();
+        });
+        NegativeLookups guarded = lookups(true, new RedisCircuitBreaker(GUARD), new DelegatingExecutor(slow));
+        guarded.rebuild();
+
+        long t0 = System.nanoTime();
+        assertFalse(guarded.definitelyMissing("p-unknown"));
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+        assertTrue(tookMillis < BUDGET_MILLIS + SLACK_MILLIS, () -> "check took " + tookMillis + " ms");
+        guarded.shutdown();
+    }
+
+    @Test
+    void disabledNeverAnswersMissing() {
+        NegativeLookups off = lookups(false, new RedisCircuitBreaker(GUARD), executor);
+        assertFalse(off.definitelyMissing("p-unknown"));
+    }
+
+    // ---- helpers ----
+
+    private NegativeLookups lookups(boolean enabled, RedisCircuitBreaker breaker, ExecutorService executor) {
+        return new NegativeLookups(new NegativeLookupProperties(enabled, 10_000, 0.01, 60_000, 3600, 1000),
+                redis.groups, repo, redis.limiter, breaker, GUARD, executor, redis.metrics);
+    }
+
+    private static Product product(String id) {
+        return new Product(id, "Name " + id, "Computer", 10.0, "Description", 1);
+    }
+
+    /** An ExecutorService view of {@code delegate}; lifecycle calls are no-ops. */
+    private static final class DelegatingExecutor extends AbstractExecutorService {
+        private final Executor delegate;
+
+        DelegatingExecutor(Executor delegate) { this.delegate = delegate; }
+
+        @Override public void execute(Runnable command) { delegate.execute(command); }
+        @Override public void shutdown() { }
+        @Override public List<Runnable> shutdownNow() { return List.of(); }
+        @Override public boolean isShutdown() { return false; }
+        @Override public boolean isTerminated() { return false; }
+        @Override public boolean awaitTermination(long timeout, TimeUnit unit) { return true; }
+    }
+}
@@ -0,0 +1,233 @@
+package com.zeywox.veyronixcore.services;
+
+import com.sun.net.httpserver.HttpServer;
+import com.zeywox.veyronixcore.config.cache.PeerProperties;
+import com.zeywox.veyronixcore.config.cache.RedisGuardProperties;
+import com.zeywox.veyronixcore.models.Product;
+import com.zeywox.veyronixcore.util.HashRing;
+import com.zeywox.veyronixcore.util.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Peer mode when the owner of a category does not answer within read-budget-millis: the last copy fetched
+ * from it is served stale (Warning 110), and without one the page is built locally as if peers were off. Only the
+ * first request to find the owner down waits for it; the rest of the owner-down window falls back straight away.
+ * Owners are a local HTTP server that answers or stalls on demand, and a socket that accepts but never replies.
+ */
+class PeerOwnerFallbackTest {
+
+    private static final int BUDGET_MILLIS = 100;
+    private static final long SLACK_MILLIS = 400;
+    private static final int VIRTUAL_NODES = 16;
+    private static final String SELF = "http://127.0.0.1:1";
+    private static final byte[] OWNER_BODY = gzip("[{\"id\":\"from-owner\"}]");
+
+    private ResponseCacheFixture f;
+    private HttpServer owner;
+    private ExecutorService ownerThreads;
+    private ServerSocket silent;
+    private volatile boolean stall;
+    private final AtomicInteger localBuilds = new AtomicInteger();
+    private final AtomicInteger ownerRequests = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (f != null) f.close();
+        if (owner != null) owner.stop(0);
+        if (ownerThreads != null) ownerThreads.shutdownNow();
+        if (silent != null) silent.close();
+    }
+
+    @Test
+    void stalledOwnerServesTheLastCopyStale() {
+        String url = startOwner();
+        String category = ownedBy(url);
+
+        ResponseEntity<byte[]> fetched = list(category);
+        assertEquals(HttpStatus.OK, fetched.getStatusCode());
+        assertArrayEquals(OWNER_BODY, fetched.getBody());
+        assertNull(fetched.getHeaders().getFirst(HttpHeaders.WARNING));
+
+        stall = true;
+        long t0 = System.nanoTime();
+        ResponseEntity<byte[]> stale = list(category);
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        assertEquals(HttpStatus.OK, stale.getStatusCode());
+        assertTrue(stale.getHeaders().getFirst(HttpHeaders.WARNING).startsWith("110 "));
+        assertArrayEquals(OWNER_BODY, stale.getBody());
+        assertEquals(0, localBuilds.get(), "a copy to fall back on: nothing built here");
+        assertTrue(tookMillis < BUDGET_MILLIS + SLACK_MILLIS, () -> "stale answer took " + tookMillis + " ms");
+    }
+
+    @Test
+    void silentOwnerWithoutACopyIsBuiltLocally() throws IOException {
+        silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress()); // accepts connections, never replies
+        String url = "http://127.0.0.1:" + silent.getLocalPort();
+        f = fixture(url);
+        String category = ownedBy(url);
+
+        long t0 = System.nanoTime();
+        ResponseEntity<byte[]> r = list(category);
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        assertEquals(HttpStatus.OK, r.getStatusCode());
+        assertNull(r.getHeaders().getFirst(HttpHeaders.WARNING));
+        assertFalse(Arrays.equals(OWNER_BODY, r.getBody()));
+        assertEquals(1, localBuilds.get());
+        assertTrue(tookMillis < BUDGET_MILLIS + SLACK_MILLIS, () -> "local build took " + tookMillis + " ms");
+    }
+
+    @Test
+    void onlyTheFirstRequestWaitsOnAStalledOwner() {
+        String url = startOwner();
+        String category = ownedBy(url);
+        list(category);
+
+        stall = true;
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            long t0 = System.nanoTime();
+            ResponseEntity<byte[]> r = list(category);
+            long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+            assertTrue(r.getHeaders().getFirst(HttpHeaders.WARNING).startsWith("110 "));
+            assertArrayEquals(OWNER_BODY, r.getBody());
+            if (n == 0) assertTrue(tookMillis >= BUDGET_MILLIS, () -> "first request answered in " + tookMillis + " ms");
+            else assertTrue(tookMillis < BUDGET_MILLIS, () -> "request " + n + " waited " + tookMillis + " ms");
+        }
+        assertEquals(2, ownerRequests.get(), "the copy, then one attempt for the whole owner-down window");
+    }
+
+    @Test
+    void silentOwnerIsAskedAgainOnlyAfterTheRetryWindow() throws Exception {
+        silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        String url = "http://127.0.0.1:" + silent.getLocalPort();
+        f = fixture(url);
+        String category = ownedBy(url);
+
+        assertTrue(timedList(category) >= BUDGET_MILLIS, "first request waits for the owner");
+        for (int i = 0; i < 5; i++) {
+            long tookMillis = timedList(category);
+            assertTrue(tookMillis < BUDGET_MILLIS, () -> "inside the window: waited " + tookMillis + " ms");
+        }
+        assertEquals(1, localBuilds.get(), "built once, then served from L1");
+
+        Thread.sleep(PeerLists.OWNER_RETRY_MILLIS + 50);
+        assertTrue(timedList(category) >= BUDGET_MILLIS, "window over: the owner is tried again");
+    }
+
+    @Test
+    void categoriesOwnedHereNeverLeaveTheInstance() {
+        String url = startOwner();
+        String category = ownedBy(SELF, url);
+
+        ResponseEntity<byte[]> r = list(category);
+        assertEquals(HttpStatus.OK, r.getStatusCode());
+        assertEquals(1, localBuilds.get());
+    }
+
+    // ---- helpers ----
+
+    /** Starts the owner and a fixture pointing at it; returns its base URL. */
+    private String startOwner() {
+        try {
+            owner = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        ownerThreads = Executors.newCachedThreadPool();
+        owner.setExecutor(ownerThreads);
+        owner.createContext("/products", ex -> {
+            ownerRequests.incrementAndGet();
+            if (stall) {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            ex.getResponseHeaders().set(HttpHeaders.ETAG, "W/\"owner-1\"");
+            ex.getResponseHeaders().set(HttpHeaders.LAST_MODIFIED,
+                    DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+            ex.getResponseHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            ex.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+            ex.sendResponseHeaders(200, OWNER_BODY.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(OWNER_BODY);
+            }
+        });
+        owner.start();
+        String url = "http://127.0.0.1:" + owner.getAddress().getPort();
+        f = fixture(url);
+        return url;
+    }
+
+    private static ResponseCacheFixture fixture(String ownerUrl) {
+        // copy-millis 0: every read asks the owner, so the fallback is what is under test
+        return new ResponseCacheFixture(new RedisGuardProperties(BUDGET_MILLIS, 60, 100, 60_000),
+                new PeerProperties(true, SELF, List.of(SELF, ownerUrl), VIRTUAL_NODES, 2_000, 0, 0));
+    }
+
+    private ResponseEntity<byte[]> list(String category) {
+        return f.cache.getProductsListResponse(category, Optional.empty(), 1, 30, () -> {
+            localBuilds.incrementAndGet();
+            return List.of(new Product("local", "Local", category, 1.0, "d", 1));
+        }, ResponseCacheFixture.get("/products?category=" + category));
+    }
+
+    private long timedList(String category) {
+        long t0 = System.nanoTime();
+        ResponseEntity<byte[]> r = list(category);
+        assertEquals(HttpStatus.OK, r.getStatusCode());
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+    }
+
+    /** A category the ring over SELF and {@code ownerUrl} assigns to {@code wanted}. */
+    private static String ownedBy(String wanted) {
+        return ownedBy(wanted, wanted);
+    }
+
+    private static String ownedBy(String wanted, String ownerUrl) {
+        HashRing ring = new HashRing(List.of(SELF, ownerUrl), VIRTUAL_NODES);
+        for (int i = 0; ; i++) {
+            String c = "category-" + i;
+            if (ring.owner(Keys.normalize(c)).equals(wanted)) return c;
+        }
+    }
+
+    private static byte[] gzip(String s) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(bos)) {
+            gz.write(s.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,178 @@
+package com.zeywox.veyronixcore.services;
+
+import com.zeywox.veyronixcore.config.cache.RedisLimiterProperties;
+import com.zeywox.veyronixcore.config.cache.ResponseCacheProperties;
+import com.zeywox.veyronixcore.observability.VeyronixMetrics;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Refresh ordering and shedding on a single worker: hottest keys first, cold keys dropped while the limiter
+ * reports pressure, jitter before a refresh becomes due, and the revalidate budget for queued and running
+ * refreshes. The limiter's utilization is set by the test instead of by held Redis calls.
+ */
+class RefreshSchedulerTest {
+
+    private static final int BUDGET_MILLIS = 150;
+    private static final long SLACK_MILLIS = 400;
+
+    private volatile double utilization;
+    private final RedisConcurrencyLimiter limiter = new RedisConcurrencyLimiter(
+            new RedisLimiterProperties(4, 4, 4, 1000, 1), new VeyronixMetrics(new SimpleMeterRegistry())) {
+        @Override
+        public double utilization() {
+            return utilization;
+        }
+    };
+    private final CountDownLatch gate = new CountDownLatch(1); // releases the blocking refresh
+    private RefreshScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    @Test
+    void hottestKeysAreRefreshedFirst() throws Exception {
+        scheduler = scheduler(10_000, 0, 0);
+        CompletableFuture<Object> blocker = block(false);
+
+        for (int i = 0; i < 5; i++) scheduler.recordHit("hot");
+        for (int i = 0; i < 2; i++) scheduler.recordHit("warm");
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<String>> refreshes = new ArrayList<>();
+        for (String key : List.of("cold", "warm", "hot")) {
+            refreshes.add(scheduler.submitNow(key, () -> { order.add(key); return key; }));
+        }
+
+        gate.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<String> r : refreshes) r.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("hot", "warm", "cold"), order);
+    }
+
+    @Test
+    void coldKeysAreDroppedUnderPressure() throws Exception {
+        scheduler = scheduler(10_000, 0, 2);
+        for (int i = 0; i < 3; i++) scheduler.recordHit("hot");
+
+        utilization = 0.9;
+        CompletableFuture<String> cold = scheduler.submitNow("cold", () -> "cold");
+        assertThrows(CancellationException.class, () -> cold.get(5, TimeUnit.SECONDS));
+        assertEquals("hot", scheduler.submitNow("hot", () -> "hot").get(5, TimeUnit.SECONDS), "hot keys still refresh");
+        assertEquals(1, scheduler.droppedCount());
+
+        utilization = 0.1;
+        assertEquals("cold", scheduler.submitNow("cold", () -> "cold").get(5, TimeUnit.SECONDS), "no pressure: not dropped");
+        assertEquals(1, scheduler.droppedCount());
+    }
+
+    @Test
+    void submitWaitsAJitteredDelaySubmitNowDoesNot() throws Exception {
+        int jitterMillis = 300;
+        scheduler = scheduler(10_000, jitterMillis, 0);
+
+        List<CompletableFuture<Long>> delays = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long t0 = System.nanoTime();
+            delays.add(scheduler.submit("k" + i, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0)));
+        }
+        long longest = 0;
+        for (CompletableFuture<Long> d : delays) {
+            long millis = d.get(5, TimeUnit.SECONDS);
+            assertTrue(millis <= jitterMillis + SLACK_MILLIS, () -> "due after " + millis + " ms");
+            longest = Math.max(longest, millis);
+        }
+        assertTrue(longest >= jitterMillis / 10, "20 uniform delays in [0, 300] ms: some are not immediate");
+
+        long t0 = System.nanoTime();
+        long now = scheduler.submitNow("now", () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0))
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(now < jitterMillis / 10, () -> "submitNow waited " + now + " ms");
+    }
+
+    @Test
+    void refreshStillQueuedAtTheBudgetNeverRuns() throws Exception {
+        scheduler = scheduler(BUDGET_MILLIS, 0, 0);
+        CompletableFuture<Object> blocker = block(true); // ignores the interrupt: keeps the only worker busy
+
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<String> queued = scheduler.submitNow("queued", () -> { ran.set(true); return "v"; });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+
+        gate.countDown();
+        assertThrows(ExecutionException.class, () -> blocker.get(5, TimeUnit.SECONDS));
+        awaitExpired(2);
+        assertFalse(ran.get(), "abandoned before it was due to run");
+        assertEquals(0, scheduler.failedCount());
+    }
+
+    @Test
+    void refreshRunningPastTheBudgetIsInterruptedAndFreesTheWorker() throws Exception {
+        scheduler = scheduler(BUDGET_MILLIS, 0, 0);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        long t0 = System.nanoTime();
+        CompletableFuture<String> slow = scheduler.submitNow("slow", () -> {
+            try {
+                Thread.sleep(10_000); // a Redis call that does not answer
+                return "late";
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                throw new IllegalStateException("interrupted", e);
+            }
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertEquals("next", scheduler.submitNow("next", () -> "next").get(5, TimeUnit.SECONDS));
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        assertTrue(interrupted.get());
+        assertTrue(tookMillis < BUDGET_MILLIS + SLACK_MILLIS, () -> "worker freed after " + tookMillis + " ms");
+        awaitExpired(1);
+        assertEquals(0, scheduler.failedCount());
+    }
+
+    // ---- helpers ----
+
+    private RefreshScheduler scheduler(int budgetMillis, int jitterMillis, int coldHits) {
+        return new RefreshScheduler(new ResponseCacheProperties(300, 5, 600_000, budgetMillis, 1, jitterMillis, coldHits, 0.75),
+                limiter);
+    }
+
+    /** Occupies the single worker until {@link #gate} opens; returns once it is running. */
+    private CompletableFuture<Object> block(boolean ignoreInterrupts) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Object> f = scheduler.submitNow("blocker", () -> {
+            started.countDown();
+            while (true) {
+                try {
+                    gate.await();
+                    return "done";
+                } catch (InterruptedException e) {
+                    if (!ignoreInterrupts) throw new IllegalStateException(e);
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS), "blocking refresh did not start");
+        return f;
+    }
+
+    /** The worker updates the counters after it completes the future: give it a moment. */
+    private void awaitExpired(long n) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.expiredCount() < n && System.nanoTime() < deadline) Thread.sleep(5);
+        assertEquals(n, scheduler.expiredCount());
+    }
+}
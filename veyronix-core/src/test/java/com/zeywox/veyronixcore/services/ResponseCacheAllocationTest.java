@@ -0,0 +1,162 @@
+package com.zeywox.veyronixcore.services;
+
+import com.zeywox.veyronixcore.config.cache.HotKeyProperties;
+import com.zeywox.veyronixcore.config.cache.RedisGuardProperties;
+import com.zeywox.veyronixcore.models.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation budgets per request path through {@link ResponseCacheService}, in bytes per request.
+ * Measured with the per-thread allocation counter after a warm-up long enough for the JIT, on a
+ * {@link ResponseCacheFixture} answering a constant version and an in-memory fetcher; computes run on the calling
+ * thread so their garbage is counted too. A change that adds per-request garbage (key concatenation, header copies,
+ * split/regex, date parsing) on these paths fails here before it shows up as GC pressure.
+ * Budgets are ceilings with headroom, not exact figures: tighten them when a path gets cheaper.
+ */
+class ResponseCacheAllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int MEASURED = 20_000;
+
+    // 304s reuse the entry's precomputed headers: no more garbage than a hit
+    private static final long LIST_HIT_BUDGET      = 2 * 1024;
+    private static final long LIST_304_ETAG_BUDGET = 2 * 1024;
+    private static final long LIST_304_IMS_BUDGET  = 2 * 1024;
+    private static final long PRODUCT_MISS_BUDGET  = 24 * 1024;
+
+    private static final String VERSION = "7";
+    private static final String CATEGORY = "Computer";
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    private ResponseCacheFixture f;
+    private ResponseCacheService cache;
+    private List<Product> page;
+    private Supplier<List<Product>> listFetcher;
+
+    @BeforeAll
+    static void allocationCounters() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "per-thread allocation counters not available on this JVM");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "per-thread allocation counters not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @BeforeEach
+    void setUp() {
+        // tracking on, as in production, so recording stays inside the budgets; no pinned refresh during a test
+        f = new ResponseCacheFixture(new RedisGuardProperties(250, 300, 5, 1000), ResponseCacheFixture.NO_PEERS,
+                ResponseCacheFixture.PROPS, new HotKeyProperties(true, 64, 4096, 1_000_000, 3600, 3_600_000),
+                new CallerRunsExecutor());
+        f.versions = key -> VERSION;
+        cache = f.cache;
+
+        page = new ArrayList<>(30);
+        for (int i = 0; i < 30; i++) {
+            page.add(new Product("00000000-0000-0000-0000-0000000000" + (10 + i), "Product " + i, CATEGORY,
+                    10.0 + i, "Description of product " + i, i % 3));
+        }
+        listFetcher = () -> page;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (f != null) f.close();
+    }
+
+    @Test
+    void listHitStaysWithinBudget() {
+        MockHttpServletRequest req = get();
+        assertEquals(HttpStatus.OK, list(req).getStatusCode()); // prime L1
+
+        long bytes = bytesPerCall(() -> list(req));
+        assertWithin("list hit", bytes, LIST_HIT_BUDGET);
+    }
+
+    @Test
+    void listNotModifiedByEtagStaysWithinBudget() {
+        list(get());
+        MockHttpServletRequest req = get();
+        req.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"0badcafe\", " + VERSION);
+        assertEquals(HttpStatus.NOT_MODIFIED, list(req).getStatusCode());
+
+        long bytes = bytesPerCall(() -> list(req));
+        assertWithin("list 304 (If-None-Match)", bytes, LIST_304_ETAG_BUDGET);
+    }
+
+    @Test
+    void listNotModifiedSinceStaysWithinBudget() {
+        // clients echo the Last-Modified they were given
+        String lastModified = list(get()).getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+        MockHttpServletRequest req = get();
+        req.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        assertEquals(HttpStatus.NOT_MODIFIED, list(req).getStatusCode());
+
+        long bytes = bytesPerCall(() -> list(req));
+        assertWithin("list 304 (If-Modified-Since)", bytes, LIST_304_IMS_BUDGET);
+    }
+
+    @Test
+    void productMissStaysWithinBudget() {
+        // get-one is never served from L1: every call reads, encodes, gzips and builds headers
+        Product p = page.get(0);
+        MockHttpServletRequest req = get();
+        assertEquals(HttpStatus.OK, cache.getProductFresh(p.id(), () -> p, req).getStatusCode());
+
+        long bytes = bytesPerCall(() -> cache.getProductFresh(p.id(), () -> p, req));
+        assertWithin("product miss", bytes, PRODUCT_MISS_BUDGET);
+    }
+
+    // ---- helpers ----
+
+    private ResponseEntity<byte[]> list(MockHttpServletRequest req) {
+        return cache.getProductsListResponse(CATEGORY, Optional.empty(), 1, 30, listFetcher, req);
+    }
+
+    private static MockHttpServletRequest get() {
+        return ResponseCacheFixture.get("/products");
+    }
+
+    private static long bytesPerCall(Runnable call) {
+        for (int i = 0; i < WARMUP; i++) call.run();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED; i++) call.run();
+        return (threads.getCurrentThreadAllocatedBytes() - before) / MEASURED;
+    }
+
+    private static void assertWithin(String path, long bytes, long budget) {
+        assertTrue(bytes <= budget, () -> path + " allocates " + bytes + " B/request, budget is " + budget);
+    }
+
+    /** Runs submitted work inline, so the cache fill is allocated on (and counted for) the test thread. */
+    private static final class CallerRunsExecutor extends AbstractExecutorService {
+        private volatile boolean shutdown;
+
+        @Override public void execute(Runnable command) { command.run(); }
+        @Override public void shutdown() { shutdown = true; }
+        @Override public List<Runnable> shutdownNow() { shutdown = true; return List.of(); }
+        @Override public boolean isShutdown() { return shutdown; }
+        @Override public boolean isTerminated() { return shutdown; }
+        @Override public boolean awaitTermination(long timeout, TimeUnit unit) { return true; }
+    }
+}
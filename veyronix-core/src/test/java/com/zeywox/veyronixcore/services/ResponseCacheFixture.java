@@ -0,0 +1,102 @@
+package com.zeywox.veyronixcore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.zeywox.veyronixcore.config.cache.*;
+import com.zeywox.veyronixcore.config.jackson.JacksonConfig;
+import com.zeywox.veyronixcore.deserialization.PatchProductNormalizationModule;
+import com.zeywox.veyronixcore.observability.VeyronixMetrics;
+import com.zeywox.veyronixcore.repos.AsyncProductStore;
+import com.zeywox.veyronixcore.repos.catalog.CatalogEngine;
+import com.zeywox.veyronixcore.util.RedisCircuitBreaker;
+import com.zeywox.veyronixcore.util.RedisConcurrencyLimiter;
+import com.zeywox.veyronixcore.util.RedisConnectionGroups;
+import com.zeywox.veyronixcore.util.ReplicaReadRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * A {@link ResponseCacheService} without Redis: every version GET goes through {@link #versions}, which a test
+ * swaps to answer, delay or fail. Computes run on a real pool, so a slow version read blocks the compute and
+ * not the request thread, as in production.
+ */
+final class ResponseCacheFixture implements AutoCloseable {
+
+    /** Soft TTL far beyond any test: no refresh kicks in unless a test asks for one. */
+    static final ResponseCacheProperties PROPS = new ResponseCacheProperties(300, 5, 600_000, 250, 1, 0, 0, 0.75);
+    static final PeerProperties NO_PEERS = new PeerProperties(false, null, List.of(), 0, 0, 0, 0);
+    static final HotKeyProperties NO_HOT_KEYS = new HotKeyProperties(false, 64, 4096, 1, 1, 1000);
+
+    /** Version key -> value; may sleep or throw. */
+    volatile Function<String, String> versions = key -> "1";
+
+    final RedisGuardProperties guard;
+    final RedisCircuitBreaker breaker;
+    final RefreshScheduler refresher;
+    final ExecutorService fill;
+    final HotKeys hotKeys;
+    final ResponseCacheService cache;
+
+    ResponseCacheFixture(RedisGuardProperties guard) {
+        this(guard, NO_PEERS);
+    }
+
+    ResponseCacheFixture(RedisGuardProperties guard, PeerProperties peers) {
+        this(guard, peers, PROPS, NO_HOT_KEYS, Executors.newCachedThreadPool());
+    }
+
+    ResponseCacheFixture(RedisGuardProperties guard, ResponseCacheProperties props) {
+        this(guard, NO_PEERS, props, NO_HOT_KEYS, Executors.newCachedThreadPool());
+    }
+
+    ResponseCacheFixture(RedisGuardProperties guard, PeerProperties peers, ResponseCacheProperties props,
+                         HotKeyProperties hot, ExecutorService fill) {
+        this.guard = guard;
+        this.fill = fill;
+        this.hotKeys = new HotKeys(hot);
+        ObjectMapper om = new JacksonConfig().objectMapper(new AfterburnerModule(), new PatchProductNormalizationModule());
+        var metrics = new VeyronixMetrics(new SimpleMeterRegistry());
+        var limiter = new RedisConcurrencyLimiter(new RedisLimiterProperties(64, 8, 256, 20, 1), metrics);
+        this.breaker = new RedisCircuitBreaker(guard);
+        this.refresher = new RefreshScheduler(props, limiter);
+
+        ReplicaReadRouter router = new ReplicaReadRouter(RedisConnectionGroups.shared(null),
+                new StaticListableBeanFactory().getBeanProvider(StringRedisTemplate.class),
+                new RedisReadRoutingProperties(false, null, List.of(), 0)) {
+            @Override
+            public String readVersion(String key, boolean listing, Function<StringRedisTemplate, String> get) {
+                return versions.apply(key);
+            }
+        };
+
+        this.cache = new ResponseCacheService(om, props, guard, breaker, limiter, refresher, fill, router,
+                new StaticListableBeanFactory().getBeanProvider(AsyncProductStore.class),
+                new StaticListableBeanFactory().getBeanProvider(CatalogEngine.class),
+                metrics, new NegativeLookups(new NegativeLookupProperties(false, 0, 0, 1, 1, 1),
+                        RedisConnectionGroups.shared(null), null, limiter, breaker, guard, fill, metrics),
+                hotKeys,
+                new PeerLists(peers, props),
+                new ServerTimingProperties(false, null));
+    }
+
+    static MockHttpServletRequest get(String uri) {
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", uri);
+        req.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        return req;
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdown();
+        hotKeys.shutdown();
+        fill.shutdownNow();
+    }
+}
@@ -0,0 +1,212 @@
+package com.zeywox.veyronixcore.services;
+
+import com.zeywox.veyronixcore.config.cache.RedisGuardProperties;
+import com.zeywox.veyronixcore.config.cache.ResponseCacheProperties;
+import com.zeywox.veyronixcore.config.controller.GlobalExceptionHandler;
+import com.zeywox.veyronixcore.models.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Read budgets and stale-if-error on the get-one path, with Redis replaced by a version lookup that answers,
+ * stalls or fails on demand: over budget or failing, the last known-good body is served with Warning 110
+ * within read-budget-millis; with nothing to fall back on the answer is 503 + Retry-After. List pages keep
+ * their last known-good copy past the L1 hard TTL in the same way.
+ */
+class ResponseCacheStaleIfErrorTest {
+
+    private static final int BUDGET_MILLIS = 100;
+    private static final int BREAKER_THRESHOLD = 3;
+    // scheduling slack on a busy CI box; still far below the stall
+    private static final long SLACK_MILLIS = 400;
+
+    private ResponseCacheFixture f;
+
+    @BeforeEach
+    void setUp() {
+        f = new ResponseCacheFixture(new RedisGuardProperties(BUDGET_MILLIS, 60, BREAKER_THRESHOLD, 60_000));
+    }
+
+    @AfterEach
+    void tearDown() {
+        f.close();
+    }
+
+    @Test
+    void slowRedisServesStaleCopyWithinBudget() {
+        Product p = product("p-slow");
+        ResponseEntity<byte[]> fresh = get(p);
+        assertEquals(HttpStatus.OK, fresh.getStatusCode());
+        assertNull(fresh.getHeaders().getFirst(HttpHeaders.WARNING));
+
+        f.versions = key -> stall(5_000);
+        long t0 = System.nanoTime();
+        ResponseEntity<byte[]> stale = get(p);
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        assertEquals(HttpStatus.OK, stale.getStatusCode());
+        assertTrue(stale.getHeaders().getFirst(HttpHeaders.WARNING).startsWith("110 "));
+        assertArrayEquals(fresh.getBody(), stale.getBody());
+        assertTrue(tookMillis >= BUDGET_MILLIS - 5, () -> "answered before the budget ran out: " + tookMillis + " ms");
+        assertTrue(tookMillis < BUDGET_MILLIS + SLACK_MILLIS, () -> "stale answer took " + tookMillis + " ms");
+    }
+
+    @Test
+    void matchingVersionIs304WithoutBuilding() {
+        Product p = product("p-304");
+        String etag = get(p).getHeaders().getETag();
+
+        ResponseEntity<byte[]> r = getIfNoneMatch(p, etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, r.getStatusCode());
+    }
+
+    @Test
+    void slowVersionCheckFallsBackToTheRegularPathWithinTheBudgets() {
+        Product p = product("p-inm-slow");
+        ResponseEntity<byte[]> fresh = get(p);
+
+        f.versions = key -> stall(5_000);
+        long t0 = System.nanoTime();
+        ResponseEntity<byte[]> stale = getIfNoneMatch(p, "W/\"0\""); // the client holds an older version
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        // the check gives up after one budget, the regular path serves the stale copy after another
+        assertEquals(HttpStatus.OK, stale.getStatusCode());
+        assertTrue(stale.getHeaders().getFirst(HttpHeaders.WARNING).startsWith("110 "));
+        assertArrayEquals(fresh.getBody(), stale.getBody());
+        assertTrue(tookMillis < 2 * BUDGET_MILLIS + SLACK_MILLIS, () -> "stale answer took " + tookMillis + " ms");
+    }
+
+    @Test
+    void failingRedisServesStaleCopy() {
+        Product p = product("p-fail");
+        ResponseEntity<byte[]> fresh = get(p);
+
+        f.versions = key -> { throw new RedisConnectionFailureException("connection refused"); };
+        ResponseEntity<byte[]> stale = get(p);
+
+        assertEquals(HttpStatus.OK, stale.getStatusCode());
+        assertTrue(stale.getHeaders().getFirst(HttpHeaders.WARNING).startsWith("110 "));
+        assertArrayEquals(fresh.getBody(), stale.getBody());
+    }
+
+    @Test
+    void failingRedisWithoutStaleCopyIs503WithRetryAfter() {
+        f.versions = key -> { throw new RedisConnectionFailureException("connection refused"); };
+
+        var e = assertThrows(GlobalExceptionHandler.Unavailable.class, () -> get(product("p-never-seen")));
+        assertServiceUnavailable(e);
+    }
+
+    @Test
+    void slowRedisWithoutStaleCopyIs503AfterTheJoinWindow() {
+        f.versions = key -> stall(10_000);
+
+        long t0 = System.nanoTime();
+        var e = assertThrows(GlobalExceptionHandler.Unavailable.class, () -> get(product("p-never-seen-slow")));
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        assertServiceUnavailable(e);
+        assertTrue(tookMillis < 2_000 + SLACK_MILLIS, () -> "503 took " + tookMillis + " ms");
+    }
+
+    @Test
+    void openBreakerFailsFastWithoutCallingRedis() {
+        AtomicInteger calls = new AtomicInteger();
+        f.versions = key -> {
+            calls.incrementAndGet();
+            throw new RedisConnectionFailureException("connection refused");
+        };
+        for (int i = 0; i < BREAKER_THRESHOLD; i++) {
+            int n = i;
+            assertThrows(GlobalExceptionHandler.Unavailable.class, () -> get(product("p-breaker-" + n)));
+        }
+        assertTrue(f.breaker.isOpen());
+
+        var e = assertThrows(GlobalExceptionHandler.Unavailable.class, () -> get(product("p-breaker-open")));
+        assertEquals(BREAKER_THRESHOLD, calls.get(), "an open breaker must not reach Redis");
+        assertServiceUnavailable(e);
+    }
+
+    @Test
+    void failingRedisServesTheLastListPageStale() throws InterruptedException {
+        // hard TTL 1 s: the L1 entry expires, the stale-if-error copy (60 s) outlives it
+        var shortTtl = new ResponseCacheProperties(1, 5, 500, 250, 1, 0, 0, 0.75);
+        try (ResponseCacheFixture lists = new ResponseCacheFixture(f.guard, shortTtl)) {
+            Product p = product("p-listed");
+            ResponseEntity<byte[]> fresh = list(lists, p);
+            assertEquals(HttpStatus.OK, fresh.getStatusCode());
+            assertNull(fresh.getHeaders().getFirst(HttpHeaders.WARNING));
+
+            Thread.sleep(1_200);
+            lists.versions = key -> { throw new RedisConnectionFailureException("connection refused"); };
+            ResponseEntity<byte[]> stale = list(lists, p);
+
+            assertEquals(HttpStatus.OK, stale.getStatusCode());
+            assertTrue(stale.getHeaders().getFirst(HttpHeaders.WARNING).startsWith("110 "));
+            assertEquals(fresh.getHeaders().getETag(), stale.getHeaders().getETag());
+            assertEquals(fresh.getHeaders().getCacheControl(), stale.getHeaders().getCacheControl());
+            assertEquals("gzip", stale.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            assertArrayEquals(fresh.getBody(), stale.getBody());
+        }
+    }
+
+    @Test
+    void failingRedisWithoutACachedListPageIs503() {
+        f.versions = key -> { throw new RedisConnectionFailureException("connection refused"); };
+
+        var e = assertThrows(GlobalExceptionHandler.Unavailable.class, () -> list(f, product("p-never-listed")));
+        assertServiceUnavailable(e);
+    }
+
+    // ---- helpers ----
+
+    private static ResponseEntity<byte[]> list(ResponseCacheFixture fixture, Product p) {
+        return fixture.cache.getProductsListResponse(p.category(), Optional.empty(), 1, 30, () -> List.of(p),
+                ResponseCacheFixture.get("/products?category=" + p.category()));
+    }
+
+    private ResponseEntity<byte[]> get(Product p) {
+        return f.cache.getProductFresh(p.id(), () -> p, ResponseCacheFixture.get("/products/" + p.id()));
+    }
+
+    private ResponseEntity<byte[]> getIfNoneMatch(Product p, String etag) {
+        var req = ResponseCacheFixture.get("/products/" + p.id());
+        req.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        return f.cache.getProductFresh(p.id(), () -> p, req);
+    }
+
+    private static Product product(String id) {
+        return new Product(id, "Name " + id, "Computer", 12.5, "Description", 3);
+    }
+
+    private static String stall(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "99";
+    }
+
+    private static void assertServiceUnavailable(GlobalExceptionHandler.Unavailable e) {
+        ResponseEntity<Map<String, String>> r = new GlobalExceptionHandler().unavailable(e);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, r.getStatusCode());
+        String retryAfter = r.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        assertNotNull(retryAfter);
+        assertTrue(Long.parseLong(retryAfter) >= 1);
+    }
+}
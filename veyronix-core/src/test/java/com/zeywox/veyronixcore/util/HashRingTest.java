@@ -0,0 +1,90 @@
+package com.zeywox.veyronixcore.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Ownership on the consistent-hash ring: even spread, agreement across instances, ~1/N moves per membership change. */
+class HashRingTest {
+
+    private static final int KEYS = 20_000;
+    private static final int VIRTUAL_NODES = 128;
+    private static final List<String> MEMBERS = List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080");
+
+    @Test
+    void spreadsKeysEvenly() {
+        Map<String, Integer> counts = new HashMap<>();
+        HashRing ring = new HashRing(MEMBERS, VIRTUAL_NODES);
+        for (String k : keys()) counts.merge(ring.owner(k), 1, Integer::sum);
+
+        assertEquals(MEMBERS.size(), counts.size(), "every member owns something");
+        double fair = (double) KEYS / MEMBERS.size();
+        counts.forEach((m, n) -> assertTrue(Math.abs(n - fair) < fair * 0.25,
+                () -> m + " owns " + n + " keys, fair share is " + (int) fair));
+    }
+
+    @Test
+    void sameMembersInAnyOrderAgree() {
+        HashRing a = new HashRing(MEMBERS, VIRTUAL_NODES);
+        HashRing b = new HashRing(List.of(MEMBERS.get(3), MEMBERS.get(1), MEMBERS.get(0), MEMBERS.get(2)), VIRTUAL_NODES);
+        for (String k : keys()) assertEquals(a.owner(k), b.owner(k), k);
+    }
+
+    @Test
+    void addingAMemberOnlyMovesKeysToIt() {
+        HashRing before = new HashRing(MEMBERS, VIRTUAL_NODES);
+        List<String> grown = new ArrayList<>(MEMBERS);
+        grown.add("http://e:8080");
+        HashRing after = new HashRing(grown, VIRTUAL_NODES);
+
+        int moved = 0;
+        for (String k : keys()) {
+            String was = before.owner(k), is = after.owner(k);
+            if (was.equals(is)) continue;
+            assertEquals("http://e:8080", is, () -> k + " moved between two old members");
+            moved++;
+        }
+        assertMovedAbout(moved, 1.0 / grown.size());
+    }
+
+    @Test
+    void removingAMemberOnlyMovesItsKeys() {
+        HashRing before = new HashRing(MEMBERS, VIRTUAL_NODES);
+        String gone = MEMBERS.get(1);
+        HashRing after = new HashRing(MEMBERS.stream().filter(m -> !m.equals(gone)).toList(), VIRTUAL_NODES);
+
+        int moved = 0;
+        for (String k : keys()) {
+            String was = before.owner(k), is = after.owner(k);
+            if (was.equals(gone)) {
+                assertNotEquals(gone, is);
+                moved++;
+            } else {
+                assertEquals(was, is, () -> k + " was not owned by the removed member but moved");
+            }
+        }
+        assertMovedAbout(moved, 1.0 / MEMBERS.size());
+    }
+
+    @Test
+    void ringNeedsAMember() {
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of(), VIRTUAL_NODES));
+    }
+
+    private static void assertMovedAbout(int moved, double expectedShare) {
+        double share = (double) moved / KEYS;
+        assertTrue(share > expectedShare * 0.6 && share < expectedShare * 1.4,
+                () -> "moved " + moved + " of " + KEYS + " keys, expected about " + (int) (expectedShare * KEYS));
+    }
+
+    private static List<String> keys() {
+        List<String> keys = new ArrayList<>(KEYS);
+        for (int i = 0; i < KEYS; i++) keys.add("category-" + i);
+        return keys;
+    }
+}
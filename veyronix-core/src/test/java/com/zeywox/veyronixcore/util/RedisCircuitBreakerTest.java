@@ -0,0 +1,105 @@
+package com.zeywox.veyronixcore.util;
+
+import com.zeywox.veyronixcore.config.cache.RedisGuardProperties;
+import com.zeywox.veyronixcore.config.controller.GlobalExceptionHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** CLOSED -> OPEN after N consecutive Redis failures -> a single probe after the open window -> CLOSED or OPEN. */
+class RedisCircuitBreakerTest {
+
+    private static final int THRESHOLD = 3;
+    private static final int OPEN_MILLIS = 100;
+
+    private final RedisCircuitBreaker breaker = new RedisCircuitBreaker(new RedisGuardProperties(100, 60, THRESHOLD, OPEN_MILLIS));
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void opensAfterThresholdConsecutiveFailures() {
+        for (int i = 0; i < THRESHOLD - 1; i++) failOnce();
+        assertFalse(breaker.isOpen());
+        failOnce();
+        assertTrue(breaker.isOpen());
+
+        assertThrows(GlobalExceptionHandler.Unavailable.class, () -> breaker.call(this::ok));
+        assertEquals(THRESHOLD, calls.get(), "open: the work must not run");
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        for (int i = 0; i < THRESHOLD - 1; i++) failOnce();
+        breaker.call(this::ok);
+        for (int i = 0; i < THRESHOLD - 1; i++) failOnce();
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    void letsExactlyOneProbeThroughAfterTheOpenWindow() throws InterruptedException {
+        open();
+        assertFalse(breaker.allowRequest(), "still inside the open window");
+
+        Thread.sleep(OPEN_MILLIS + 50);
+        assertTrue(breaker.allowRequest(), "first caller after the window is the probe");
+        assertFalse(breaker.allowRequest(), "a second caller must wait for the probe's outcome");
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void successfulProbeCloses() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_MILLIS + 50);
+
+        assertEquals("ok", breaker.call(this::ok));
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void failedProbeReopensForAnotherWindow() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_MILLIS + 50);
+
+        failOnce(); // the probe
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest(), "a failed probe restarts the open window");
+
+        Thread.sleep(OPEN_MILLIS + 50);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void notFoundAndSheddingDoNotCount() {
+        for (int i = 0; i < THRESHOLD * 2; i++) {
+            assertThrows(GlobalExceptionHandler.NotFound.class, () -> breaker.call(() -> {
+                throw new GlobalExceptionHandler.NotFound("missing");
+            }));
+            assertThrows(GlobalExceptionHandler.Overloaded.class, () -> breaker.call(() -> {
+                throw new GlobalExceptionHandler.Overloaded("shed", 1);
+            }));
+        }
+        assertFalse(breaker.isOpen());
+    }
+
+    // ---- helpers ----
+
+    private void open() {
+        for (int i = 0; i < THRESHOLD; i++) failOnce();
+        assertTrue(breaker.isOpen());
+    }
+
+    private void failOnce() {
+        assertThrows(RedisConnectionFailureException.class, () -> breaker.call(() -> {
+            calls.incrementAndGet();
+            throw new RedisConnectionFailureException("connection refused");
+        }));
+    }
+
+    private String ok() {
+        calls.incrementAndGet();
+        return "ok";
+    }
+}
@@ -0,0 +1,163 @@
+package com.zeywox.veyronixcore.util;
+
+import com.zeywox.veyronixcore.config.cache.RedisLimiterProperties;
+import com.zeywox.veyronixcore.config.controller.GlobalExceptionHandler;
+import com.zeywox.veyronixcore.observability.VeyronixMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.zeywox.veyronixcore.util.RedisConcurrencyLimiter.Priority.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AIMD adaptation (one decrease per round trip, growth only while the limit is in use) and priority shares
+ * (LOW 50%, NORMAL 80%, HIGH 100%, CRITICAL never shed). Slow calls are real sleeps past the latency target.
+ */
+class RedisConcurrencyLimiterTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final CountDownLatch gate = new CountDownLatch(1); // releases every held call
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        pool.shutdownNow();
+    }
+
+    // ---- adaptation ----
+
+    @Test
+    void burstOfSlowCompletionsBacksOffOnce() throws Exception {
+        RedisConcurrencyLimiter limiter = limiter(64, 8, 256, 20);
+        List<Future<?>> held = hold(limiter, NORMAL, 40);
+        Thread.sleep(40); // every held call is now past the latency target
+        gate.countDown();
+        for (Future<?> f : held) f.get(5, TimeUnit.SECONDS);
+
+        assertEquals(57, limiter.limit(), "40 slow completions from one blip: a single x0.9 step");
+    }
+
+    @Test
+    void sustainedSlownessBacksOffOncePerRoundTrip() {
+        RedisConcurrencyLimiter limiter = limiter(64, 8, 256, 20);
+        for (int i = 0; i < 3; i++) limiter.call(() -> sleep(30));
+
+        assertEquals((int) (64 * 0.9 * 0.9 * 0.9), limiter.limit());
+    }
+
+    @Test
+    void backOffStopsAtTheFloor() {
+        RedisConcurrencyLimiter limiter = limiter(10, 8, 256, 20);
+        for (int i = 0; i < 5; i++) limiter.call(() -> sleep(30));
+
+        assertEquals(8, limiter.limit());
+    }
+
+    @Test
+    void redisFailureBacksOffButAMissingProductDoesNot() {
+        RedisConcurrencyLimiter limiter = limiter(64, 8, 256, 10_000);
+        assertThrows(EmptyResultDataAccessException.class, () -> limiter.call(() -> {
+            throw new EmptyResultDataAccessException("missing", 1);
+        }));
+        assertEquals(64, limiter.limit());
+
+        assertThrows(RedisConnectionFailureException.class, () -> limiter.call(() -> {
+            throw new RedisConnectionFailureException("refused");
+        }));
+        assertEquals(57, limiter.limit());
+    }
+
+    @Test
+    void fastCompletionsGrowOnlyWhileTheLimitIsInUse() throws Exception {
+        RedisConcurrencyLimiter limiter = limiter(8, 1, 16, 10_000);
+        limiter.call(() -> "idle");
+        assertEquals(8, limiter.limit(), "one call in flight out of 8: no reason to grow");
+
+        hold(limiter, NORMAL, 4);
+        limiter.call(() -> "busy"); // 5 in flight: at least half the limit
+        assertEquals(9, limiter.limit());
+    }
+
+    // ---- priority shedding ----
+
+    @Test
+    void lowPriorityIsShedFirstThenNormalThenHigh() throws Exception {
+        RedisConcurrencyLimiter limiter = limiter(10, 10, 10, 10_000); // fixed limit: LOW 5, NORMAL 8, HIGH 10
+
+        hold(limiter, NORMAL, 5);
+        assertShed(limiter, LOW);
+        assertAdmitted(limiter, NORMAL);
+        assertAdmitted(limiter, HIGH);
+
+        hold(limiter, NORMAL, 3); // 8 in flight
+        assertShed(limiter, NORMAL);
+        assertAdmitted(limiter, HIGH);
+
+        hold(limiter, HIGH, 2); // 10 in flight
+        assertShed(limiter, HIGH);
+        assertEquals(3, limiter.shedCount());
+    }
+
+    @Test
+    void criticalFollowUpsAreNeverShedButStillCount() throws Exception {
+        RedisConcurrencyLimiter limiter = limiter(10, 10, 10, 10_000);
+        hold(limiter, HIGH, 10);
+        assertShed(limiter, HIGH);
+
+        assertAdmitted(limiter, CRITICAL);
+        hold(limiter, CRITICAL, 2);
+        assertEquals(12, limiter.inflight(), "follow-ups go over the limit but are counted");
+        assertShed(limiter, HIGH);
+    }
+
+    // ---- helpers ----
+
+    private static RedisConcurrencyLimiter limiter(int initial, int min, int max, int targetMillis) {
+        return new RedisConcurrencyLimiter(new RedisLimiterProperties(initial, min, max, targetMillis, 1),
+                new VeyronixMetrics(new SimpleMeterRegistry()));
+    }
+
+    /** {@code n} calls at {@code p} that stay in flight until the gate opens; returns once all are admitted. */
+    private List<Future<?>> hold(RedisConcurrencyLimiter limiter, RedisConcurrencyLimiter.Priority p, int n)
+            throws InterruptedException {
+        CountDownLatch admitted = new CountDownLatch(n);
+        List<Future<?>> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(pool.submit(() -> limiter.call(p, () -> {
+                admitted.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            })));
+        }
+        assertTrue(admitted.await(5, TimeUnit.SECONDS), "held calls were not admitted");
+        return out;
+    }
+
+    private static void assertShed(RedisConcurrencyLimiter limiter, RedisConcurrencyLimiter.Priority p) {
+        assertThrows(GlobalExceptionHandler.Overloaded.class, () -> limiter.call(p, () -> "shed"), p + " should be shed");
+    }
+
+    private static void assertAdmitted(RedisConcurrencyLimiter limiter, RedisConcurrencyLimiter.Priority p) {
+        assertEquals("ok", limiter.call(p, () -> "ok"), p + " should be admitted");
+    }
+
+    private static Object sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
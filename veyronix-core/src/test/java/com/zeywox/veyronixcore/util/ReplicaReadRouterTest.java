@@ -0,0 +1,150 @@
+package com.zeywox.veyronixcore.util;
+
+import com.zeywox.veyronixcore.config.cache.RedisReadRoutingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routing decisions on a fake clock: reads go to the replica, stay on the primary for the read-your-writes
+ * window after a local write, and fall back to the primary when the replica lags behind a seen version or fails
+ * (version and data reads alike). The templates are never connected; reads answer from per-template maps.
+ */
+class ReplicaReadRouterTest {
+
+    private static final int RYW_MILLIS = 500;
+
+    private final StringRedisTemplate primary = new StringRedisTemplate();
+    private final StringRedisTemplate replica = new StringRedisTemplate();
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private final ReplicaReadRouter router = new ReplicaReadRouter(RedisConnectionGroups.shared(primary), replica,
+            new RedisReadRoutingProperties(true, "replicaPreferred", List.of(), RYW_MILLIS), nanos::get);
+
+    private final Map<String, String> onPrimary = new HashMap<>();
+    private final Map<String, String> onReplica = new HashMap<>();
+    private boolean replicaFails;
+
+    @Test
+    void readsGoToTheReplica() {
+        onPrimary.put(Keys.verProduct("p1"), "3");
+        onReplica.put(Keys.verProduct("p1"), "3");
+
+        assertSame(replica, router.forProduct("p1"));
+        assertSame(replica, router.forProducts(List.of("p1", "p2")));
+        assertSame(replica, router.forListing("Computer", Optional.empty()));
+        assertEquals("3", router.readVersion(Keys.verProduct("p1"), false, get(Keys.verProduct("p1"))));
+        assertEquals(1, router.replicaReads());
+        assertEquals(0, router.primaryFallbacks());
+    }
+
+    @Test
+    void localWritePinsReadsToThePrimaryForTheRywWindow() {
+        router.noteWrite("p1");
+
+        assertSame(primary, router.forProduct("p1"));
+        assertSame(primary, router.forProducts(List.of("p2", "p1")));
+        assertSame(primary, router.forListing("Computer", Optional.of(true)), "the write may have moved a category");
+        assertSame(replica, router.forProduct("p2"), "other products are not pinned");
+
+        advance(RYW_MILLIS - 1);
+        assertSame(primary, router.forProduct("p1"));
+
+        advance(2);
+        assertSame(replica, router.forProduct("p1"));
+        assertSame(replica, router.forListing("Computer", Optional.of(true)));
+    }
+
+    @Test
+    void laggingReplicaFallsBackToThePrimaryAndPinsTheKey() {
+        String key = Keys.verCategory(Keys.normalize("Computer"));
+        onPrimary.put(key, "5");
+        onReplica.put(key, "5");
+        router.readVersion(key, true, get(key));          // floor 5
+
+        onPrimary.put(key, "6");
+        onReplica.put(key, "4");                             // behind what we have seen
+        assertEquals("6", router.readVersion(key, true, get(key)));
+        assertEquals(1, router.primaryFallbacks());
+        assertSame(primary, router.forListing("Computer", Optional.empty()));
+
+        long replicaReads = router.replicaReads();
+        onReplica.put(key, "6");
+        assertEquals("6", router.readVersion(key, true, get(key)));
+        assertEquals(replicaReads, router.replicaReads(), "pinned: not asked again inside the window");
+
+        advance(RYW_MILLIS + 1);
+        assertEquals("6", router.readVersion(key, true, get(key)));
+        assertEquals(replicaReads + 1, router.replicaReads());
+        assertSame(replica, router.forListing("Computer", Optional.empty()));
+    }
+
+    @Test
+    void failingReplicaIsAnsweredByThePrimaryAndSkippedForTheRetryWindow() {
+        String key = Keys.verProduct("p1");
+        onPrimary.put(key, "7");
+        replicaFails = true;
+
+        assertEquals("7", router.readVersion(key, false, get(key)));
+        assertEquals(1, router.replicaErrors());
+        assertSame(primary, router.forProduct("p2"), "replica is down: data reads too");
+        assertSame(primary, router.forListing("Computer", Optional.empty()));
+
+        assertEquals("7", router.readVersion(key, false, get(key)));
+        assertEquals(1, router.replicaReads(), "not retried inside the window");
+
+        replicaFails = false;
+        onReplica.put(key, "7");
+        advance(ReplicaReadRouter.REPLICA_RETRY_MILLIS + 1);
+        assertSame(replica, router.forProduct("p2"));
+        assertEquals("7", router.readVersion(key, false, get(key)));
+        assertEquals(2, router.replicaReads());
+    }
+
+    @Test
+    void failingDataReadOnTheReplicaIsRepeatedOnThePrimary() {
+        String key = Keys.productHash("p1");
+        onPrimary.put(key, "data");
+        replicaFails = true;
+
+        StringRedisTemplate reader = router.forProduct("p1");
+        assertSame(replica, reader);
+        assertEquals("data", router.read(reader, get(key)));
+        assertEquals(1, router.replicaErrors());
+        assertSame(primary, router.forProducts(List.of("p1")), "replica is down: skipped for the retry window");
+        assertEquals("data", router.read(router.forProducts(List.of("p1")), get(key)));
+        assertEquals(1, router.replicaErrors(), "the primary was asked directly");
+    }
+
+    @Test
+    void nonRedisErrorsPropagate() {
+        Function<StringRedisTemplate, String> broken = t -> { throw new IllegalStateException("bug"); };
+        assertThrows(IllegalStateException.class, () -> router.readVersion(Keys.verProduct("p1"), false, broken));
+        assertThrows(IllegalStateException.class, () -> router.read(replica, broken));
+        assertEquals(0, router.replicaErrors());
+    }
+
+    // ---- helpers ----
+
+    /** GET {@code key} on whichever template the router hands in. */
+    private Function<StringRedisTemplate, String> get(String key) {
+        return t -> {
+            if (t == primary) return onPrimary.get(key);
+            if (replicaFails) throw new RedisConnectionFailureException("replica down");
+            return onReplica.get(key);
+        };
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}